@@ -0,0 +1,188 @@
+/*
+ * This file is part of gtfstransitproject_group5.
+ *
+ * gtfstransitproject_group5 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * gtfstransitproject_group5 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with gtfstransitproject_group5.  If not, see <https://www.gnu.org/licenses/>.
+
+ * Course: CS 2030 031
+ * Fall 2021
+ * GTFS Transit Project
+ * Names: Jonathan Keane, Kevin Paganini, Kyle Senebouttarath
+ * Created: 10/4/2021
+ * Professor: Dr. Wright
+ */
+package gtfs;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * A plan for binding the columns of one GTFS file to the columns of a GTFS object.
+ *
+ * The plan is compiled once from the file's header line and the object's COLUMNS
+ * array, so files may list their columns in any order and may have extra columns.
+ * Binding a row is then just a walk over an int array: values of unknown columns
+ * are never turned into Strings, and columns the file doesn't have are left empty.
+ */
+public class ColumnBinding {
+	private static final int UNBOUND = -1;
+
+	private final String[] columns;
+	private final int[] fileToObject;
+	private final int[] objectToFile;
+
+	private ColumnBinding(String[] columns, int[] fileToObject, int[] objectToFile) {
+		this.columns = columns;
+		this.fileToObject = fileToObject;
+		this.objectToFile = objectToFile;
+	}
+
+	/**
+	 * Compiles the binding for a file
+	 * @param columns The COLUMNS of the GTFS object
+	 * @param header The values of the file's header line
+	 * @param requiredColumns The columns the file must have
+	 * @return The binding, or null if a required column is missing or a column is listed twice
+	 */
+	public static ColumnBinding compile(String[] columns, String[] header, String[] requiredColumns) {
+		if (columns == null || header == null) {
+			return null;
+		}
+		int[] fileToObject = new int[header.length];
+		int[] objectToFile = new int[columns.length];
+		Arrays.fill(objectToFile, UNBOUND);
+		for (int fileColumn = 0; fileColumn < header.length; ++fileColumn) {
+			String name = header[fileColumn].trim().toLowerCase(Locale.ROOT);
+			fileToObject[fileColumn] = UNBOUND;
+			for (int objectColumn = 0; objectColumn < columns.length; ++objectColumn) {
+				if (columns[objectColumn].equals(name)) {
+					if (objectToFile[objectColumn] != UNBOUND) {
+						return null;
+					}
+					fileToObject[fileColumn] = objectColumn;
+					objectToFile[objectColumn] = fileColumn;
+					break;
+				}
+			}
+		}
+		ColumnBinding binding = new ColumnBinding(columns, fileToObject, objectToFile);
+		for (String required : requiredColumns) {
+			if (!binding.hasColumn(required)) {
+				return null;
+			}
+		}
+		return binding;
+	}
+
+	/**
+	 * The binding for a file whose columns are exactly the object's COLUMNS in order
+	 * @param columns The COLUMNS of the GTFS object
+	 * @return The binding
+	 */
+	public static ColumnBinding identity(String[] columns) {
+		int[] order = new int[columns.length];
+		for (int i = 0; i < order.length; ++i) {
+			order[i] = i;
+		}
+		return new ColumnBinding(columns, order, order.clone());
+	}
+
+	/**
+	 * If the file has a column
+	 * @param column The column name from the object's COLUMNS
+	 * @return True if the file has the column, false otherwise
+	 */
+	public boolean hasColumn(String column) {
+		for (int i = 0; i < columns.length; ++i) {
+			if (columns[i].equals(column)) {
+				return objectToFile[i] != UNBOUND;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Where an object column is in the file
+	 * @param objectColumn The index into the object's COLUMNS
+	 * @return The index of the file column, or -1 if the file doesn't have it
+	 */
+	public int getFileColumn(int objectColumn) {
+		return objectToFile[objectColumn];
+	}
+
+	/**
+	 * Where an object column is in the tokenizer's current row
+	 * @param row The tokenizer positioned on a row
+	 * @param objectColumn The index into the object's COLUMNS
+	 * @return The field index, or -1 if the file or this row doesn't have the column
+	 */
+	public int getField(CsvTokenizer row, int objectColumn) {
+		int fileColumn = objectToFile[objectColumn];
+		return fileColumn < row.getFieldCount() ? fileColumn : UNBOUND;
+	}
+
+	/**
+	 * Gets the value of an object column from the tokenizer's current row
+	 * @param row The tokenizer positioned on a row
+	 * @param objectColumn The index into the object's COLUMNS
+	 * @return The value, or "" if the file or this row doesn't have the column
+	 */
+	public String getString(CsvTokenizer row, int objectColumn) {
+		int field = getField(row, objectColumn);
+		return field == UNBOUND ? "" : row.getField(field);
+	}
+
+	/**
+	 * If the tokenizer's current row has no more fields than the header
+	 * @param row The tokenizer positioned on a row
+	 * @return True if the row fits the header, false otherwise
+	 */
+	public boolean fits(CsvTokenizer row) {
+		return row.getFieldCount() <= fileToObject.length;
+	}
+
+	/**
+	 * The number of columns the file's header has
+	 * @return The number of file columns
+	 */
+	public int getFileColumnCount() {
+		return fileToObject.length;
+	}
+
+	/**
+	 * Creates an array that rows can be bound into
+	 * @return An array with one element per object column
+	 */
+	public String[] newValues() {
+		return new String[columns.length];
+	}
+
+	/**
+	 * Binds the tokenizer's current row into an array in the object's COLUMNS order,
+	 * which is what the GTFS object String array constructors take. The array can be
+	 * reused from row to row. Rows may leave off trailing columns, which are bound as empty.
+	 * @param row The tokenizer positioned on a row
+	 * @param values The array to bind into (from newValues)
+	 * @return The values, or null if the row has more fields than the header
+	 */
+	public String[] bind(CsvTokenizer row, String[] values) {
+		if (!fits(row)) {
+			return null;
+		}
+		for (int objectColumn = 0; objectColumn < objectToFile.length; ++objectColumn) {
+			values[objectColumn] = getString(row, objectColumn);
+		}
+		return values;
+	}
+
+}	//end class ColumnBinding
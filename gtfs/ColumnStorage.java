@@ -0,0 +1,139 @@
+/*
+ * This file is part of gtfstransitproject_group5.
+ *
+ * gtfstransitproject_group5 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * gtfstransitproject_group5 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with gtfstransitproject_group5.  If not, see <https://www.gnu.org/licenses/>.
+
+ * Course: CS 2030 031
+ * Fall 2021
+ * GTFS Transit Project
+ * Names: Jonathan Keane, Kevin Paganini, Kyle Senebouttarath
+ * Created: 10/4/2021
+ * Professor: Dr. Wright
+ */
+package gtfs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Where the columns of a StopTimeTable are kept.
+ *
+ * HEAP keeps them in ordinary arrays. DIRECT keeps them in direct buffers outside the
+ * Java heap, so the garbage collector never has to look at them (but they count against
+ * -XX:MaxDirectMemorySize, which defaults to the maximum heap size). mappedFiles keeps
+ * them in memory mapped temporary files, so the operating system can page them out and
+ * a feed can be bigger than both the heap and the direct memory limit.
+ */
+public abstract class ColumnStorage {
+	/**
+	 * Columns in arrays on the Java heap
+	 */
+	public static final ColumnStorage HEAP = new ColumnStorage() {
+		@Override
+		IntBuffer allocateInts(int count) {
+			return IntBuffer.allocate(count);
+		}
+
+		@Override
+		ByteBuffer allocateBytes(int count) {
+			return ByteBuffer.allocate(count);
+		}
+
+		@Override
+		public String toString() {
+			return "heap";
+		}
+	};
+
+	/**
+	 * Columns in direct buffers outside of the Java heap
+	 */
+	public static final ColumnStorage DIRECT = new ColumnStorage() {
+		@Override
+		IntBuffer allocateInts(int count) {
+			return allocateBytes(Math.multiplyExact(count, Integer.BYTES)).asIntBuffer();
+		}
+
+		@Override
+		ByteBuffer allocateBytes(int count) {
+			return ByteBuffer.allocateDirect(count).order(ByteOrder.nativeOrder());
+		}
+
+		@Override
+		public String toString() {
+			return "direct";
+		}
+	};
+
+	/**
+	 * Columns in memory mapped temporary files. The files are deleted as soon as they are
+	 * mapped (or when the program exits, where an open file can't be deleted), and the
+	 * space is given back once the column is garbage collected.
+	 * @param directory The directory to create the files in, or null for the default temporary directory
+	 * @return The storage
+	 */
+	public static ColumnStorage mappedFiles(File directory) {
+		return new ColumnStorage() {
+			@Override
+			IntBuffer allocateInts(int count) {
+				return allocateBytes(Math.multiplyExact(count, Integer.BYTES)).asIntBuffer();
+			}
+
+			@Override
+			ByteBuffer allocateBytes(int count) {
+				try {
+					File file = File.createTempFile("stop_times", ".column", directory);
+					ByteBuffer column;
+					try (FileChannel channel = FileChannel.open(file.toPath(),
+							StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+						// the mapping stays valid after the channel is closed
+						column = channel.map(FileChannel.MapMode.READ_WRITE, 0, count);
+					}
+					if (!file.delete()) {
+						file.deleteOnExit();
+					}
+					return column.order(ByteOrder.nativeOrder());
+				} catch (IOException ioException) {
+					throw new UncheckedIOException("Could not create a stop time column file", ioException);
+				}
+			}
+
+			@Override
+			public String toString() {
+				return "mapped files in " + (directory == null ? System.getProperty("java.io.tmpdir") : directory);
+			}
+		};
+	}
+
+	/**
+	 * Creates an int column, filled with 0
+	 * @param count The number of ints
+	 * @return The column, with its position at 0 and its limit at count
+	 */
+	abstract IntBuffer allocateInts(int count);
+
+	/**
+	 * Creates a byte column, filled with 0
+	 * @param count The number of bytes
+	 * @return The column, with its position at 0 and its limit at count
+	 */
+	abstract ByteBuffer allocateBytes(int count);
+
+}	//end class ColumnStorage
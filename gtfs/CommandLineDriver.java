@@ -0,0 +1,421 @@
+/*
+ * This file is part of gtfstransitproject_group5.
+ *
+ * gtfstransitproject_group5 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * gtfstransitproject_group5 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with gtfstransitproject_group5.  If not, see <https://www.gnu.org/licenses/>.
+
+ * Course: CS 2030 031
+ * Fall 2021
+ * GTFS Transit Project
+ * Names: Jonathan Keane, Kevin Paganini, Kyle Senebouttarath
+ * Created: 10/4/2021
+ * Professor: Dr. Wright
+ */
+package gtfs;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Runs the application without a GUI: loads a feed, runs a file of queries against
+ * it and prints the results of each query with how long it took.
+ *
+ * Each line of the query file is a query name and an ID, such as "next-trips-at-stop 1801",
+ * or for the stop location queries the comma separated numbers of a point or box, such as
+ * "stops-near 43.0389,-87.9065".
+ * Blank lines and lines starting with # are skipped. Run with no arguments for the options.
+ */
+public class CommandLineDriver {
+	private static final String USAGE = String.join(System.lineSeparator(),
+			"Usage: java gtfs.CommandLineDriver [options] <feed> [<queries>]",
+			"  <feed>     a zipped GTFS feed, or a folder with stops.txt, routes.txt, trips.txt and stop_times.txt",
+			"  <queries>  a file with one query per line, or - (the default) for standard input",
+			"Options:",
+			"  --no-snapshots         import from the source files, not a saved snapshot",
+			"  --sequential           import stop_times.txt on one thread",
+			"  --lazy <MB>            read stop times as they are needed, caching up to this many megabytes",
+			"  --storage <type>       keep stop times on the heap, in direct buffers or in mapped files",
+			"                         (heap, direct or mapped)",
+			"  --date <YYYY-MM-DD>    the date for next trip queries (the default is today)",
+			"  --time <HH:MM:SS>      the time of day for next trip queries (the default is now)",
+			"  --repeat <N>           run each query N times and report the mean and fastest time",
+			"  --limit <N>            print at most N results of each query (the default is 10)",
+			"Queries:",
+			"  trips-at-stop <stop_id>          the distinct trips that stop at a stop",
+			"  routes-at-stop <stop_id>         the routes that stop at a stop",
+			"  stops-on-route <route_id>        the stops on a route",
+			"  next-trips-on-route <route_id>   the next trips of a route",
+			"  next-trips-at-stop <stop_id>     the next trips at a stop",
+			"  trip-distance <trip_id>          the distance of a trip in miles",
+			"  stops-near <lat>,<lon>[,<n>]     the n (10 if not given) stops nearest a point and their distances",
+			"  stops-within <lat>,<lon>,<miles> the stops within a distance of a point and their distances",
+			"  stops-in-box <lat>,<lon>,<lat>,<lon>",
+			"                                   the stops in the box between two corners");
+
+	private static final double NANOS_PER_MILLI = 1e6;
+	private static final int NEAREST_STOPS = 10;
+
+	/**
+	 * The kinds of query
+	 */
+	enum Query {
+		TRIPS_AT_STOP("trips-at-stop") {
+			@Override
+			List<String> run(FeedEngine engine, String id, LocalDate date, int time) {
+				return new ArrayList<>(engine.getTripsOnStop(id));
+			}
+		},
+		ROUTES_AT_STOP("routes-at-stop") {
+			@Override
+			List<String> run(FeedEngine engine, String id, LocalDate date, int time) {
+				List<String> results = new ArrayList<>();
+				for (Route route : engine.searchForRoutesWithStopID(id)) {
+					results.add(route.getRouteID());
+				}
+				return results;
+			}
+		},
+		STOPS_ON_ROUTE("stops-on-route") {
+			@Override
+			List<String> run(FeedEngine engine, String id, LocalDate date, int time) {
+				List<String> results = new ArrayList<>();
+				for (Stop stop : engine.searchForStops(id)) {
+					results.add(stop.getStopID());
+				}
+				return results;
+			}
+		},
+		NEXT_TRIPS_ON_ROUTE("next-trips-on-route") {
+			@Override
+			List<String> run(FeedEngine engine, String id, LocalDate date, int time) {
+				return format(engine.searchForTripsWithRouteID(id, date, time));
+			}
+		},
+		NEXT_TRIPS_AT_STOP("next-trips-at-stop") {
+			@Override
+			List<String> run(FeedEngine engine, String id, LocalDate date, int time) {
+				return format(engine.searchForTripsWithStopID(id, date, time));
+			}
+		},
+		TRIP_DISTANCE("trip-distance") {
+			@Override
+			List<String> run(FeedEngine engine, String id, LocalDate date, int time) {
+				double distance = engine.getTripDistance(id);
+				return distance < 0 ? List.of() : List.of(String.format(Locale.ROOT, "%.3f", distance));
+			}
+		},
+		STOPS_NEAR("stops-near") {
+			@Override
+			List<String> run(FeedEngine engine, String id, LocalDate date, int time) {
+				double[] point = numbers(id, 2, 3);
+				if (point == null) {
+					return List.of();
+				}
+				int count = point.length == 3 ? (int) point[2] : NEAREST_STOPS;
+				return formatDistances(engine.searchForNearestStops(point[0], point[1], count), point);
+			}
+		},
+		STOPS_WITHIN("stops-within") {
+			@Override
+			List<String> run(FeedEngine engine, String id, LocalDate date, int time) {
+				double[] circle = numbers(id, 3, 3);
+				return circle == null ? List.of() :
+						formatDistances(engine.searchForStopsWithin(circle[0], circle[1], circle[2]), circle);
+			}
+		},
+		STOPS_IN_BOX("stops-in-box") {
+			@Override
+			List<String> run(FeedEngine engine, String id, LocalDate date, int time) {
+				double[] corners = numbers(id, 4, 4);
+				if (corners == null) {
+					return List.of();
+				}
+				List<String> results = new ArrayList<>();
+				for (Stop stop : engine.searchForStopsInBox(Math.min(corners[0], corners[2]),
+						Math.min(corners[1], corners[3]), Math.max(corners[0], corners[2]),
+						Math.max(corners[1], corners[3]))) {
+					results.add(stop.getStopID());
+				}
+				return results;
+			}
+		};
+
+		private final String name;
+
+		Query(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * Runs the query
+		 * @param engine The engine with the feed loaded
+		 * @param id The stop, route or trip ID
+		 * @param date The date for next trip queries
+		 * @param time The time of day for next trip queries, in seconds after midnight
+		 * @return The results, one line each
+		 */
+		abstract List<String> run(FeedEngine engine, String id, LocalDate date, int time);
+
+		/**
+		 * Finds a query by its name
+		 * @param name The name, such as trips-at-stop
+		 * @return The query, or null if there is no query with that name
+		 */
+		static Query named(String name) {
+			for (Query query : values()) {
+				if (query.name.equals(name)) {
+					return query;
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Reads the comma separated numbers of a stop location query
+		 * @param id The numbers, such as 43.0389,-87.9065
+		 * @param min The fewest numbers the query takes
+		 * @param max The most numbers the query takes
+		 * @return The numbers, or null if they aren't valid
+		 */
+		private static double[] numbers(String id, int min, int max) {
+			String[] values = id.split(",");
+			if (values.length < min || values.length > max) {
+				return null;
+			}
+			double[] numbers = new double[values.length];
+			try {
+				for (int i = 0; i < values.length; ++i) {
+					numbers[i] = Double.parseDouble(values[i].strip());
+				}
+			} catch (NumberFormatException notANumber) {
+				return null;
+			}
+			return numbers;
+		}
+
+		private static List<String> formatDistances(List<Stop> stops, double[] point) {
+			List<String> results = new ArrayList<>();
+			for (Stop stop : stops) {
+				results.add(String.format(Locale.ROOT, "%s %.3f", stop.getStopID(), ShapeTable.distanceInMiles(
+						point[0], point[1], stop.getLatitude(), stop.getLongitude())));
+			}
+			return results;
+		}
+
+		private static List<String> format(List<Pair<Trip, String>> trips) {
+			List<String> results = new ArrayList<>();
+			for (Pair<Trip, String> trip : trips) {
+				results.add(trip.second + " " + (trip.first == null ? "?" : trip.first.getTripID()));
+			}
+			return results;
+		}
+	}
+
+	private final FeedEngine engine = new FeedEngine(Database.getInstance());
+	private LocalDate date = LocalDate.now();
+	private int time = ServiceTime.now();
+	private int repeat = 1;
+	private int limit = 10;
+
+	/**
+	 * Loads a feed and runs queries on it
+	 * @param args The options, the feed and the query file (see USAGE)
+	 */
+	public static void main(String[] args) {
+		try {
+			System.exit(new CommandLineDriver().run(args));
+		} catch (IOException ioException) {
+			System.err.println("Error: " + ioException.getMessage());
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Loads a feed and runs queries on it
+	 * @param args The options, the feed and the query file (see USAGE)
+	 * @return The exit status: 0 if everything ran, 1 if the arguments or the feed were not valid
+	 * @throws IOException if the feed or the query file could not be read
+	 */
+	int run(String[] args) throws IOException {
+		List<String> files = new ArrayList<>();
+		for (int i = 0; i < args.length; ++i) {
+			String arg = args[i];
+			if (!arg.startsWith("--")) {
+				files.add(arg);
+			} else if (arg.equals("--no-snapshots")) {
+				engine.setUseSnapshots(false);
+			} else if (arg.equals("--sequential")) {
+				engine.setParallelStopTimeImport(false);
+			} else if (i + 1 < args.length && setOption(arg, args[i + 1])) {
+				++i;
+			} else {
+				return usage("Unknown option or missing value: " + arg);
+			}
+		}
+		if (files.isEmpty() || files.size() > 2) {
+			return usage(null);
+		}
+
+		File feed = new File(files.get(0));
+		long start = System.nanoTime();
+		if (!engine.load(feed, new ImportProgress())) {
+			System.err.println(feed + " is not a GTFS feed, or is missing files or columns");
+			printImportErrors();
+			return 1;
+		}
+		Database database = engine.getDatabase();
+		System.out.printf(Locale.ROOT, "Loaded %s in %.1f ms: %d stops, %d routes, %d trips, %d stop times%n",
+				feed.getName(), (System.nanoTime() - start) / NANOS_PER_MILLI, database.getStops().size(),
+				database.getRoutes().size(), database.getTrips().size(), database.getStopTimes().size());
+		printImportErrors();
+
+		String queries = files.size() == 2 ? files.get(1) : "-";
+		try (BufferedReader in = new BufferedReader(new InputStreamReader(
+				queries.equals("-") ? System.in : new FileInputStream(queries), StandardCharsets.UTF_8))) {
+			runQueries(in);
+		}
+		return 0;
+	}
+
+	/**
+	 * Sets an option that has a value
+	 * @param option The option, such as --limit
+	 * @param value The value
+	 * @return True if the option was set, false if it isn't an option or the value isn't valid for it
+	 */
+	private boolean setOption(String option, String value) {
+		try {
+			switch (option) {
+				case "--lazy":
+					engine.setLazyStopTimeBudget(Long.parseLong(value) << 20);
+					return true;
+				case "--storage":
+					return setStorage(value);
+				case "--date":
+					date = LocalDate.parse(value);
+					return true;
+				case "--time":
+					time = ServiceTime.parse(value);
+					return time != ServiceTime.INVALID;
+				case "--repeat":
+					repeat = Integer.parseInt(value);
+					return repeat > 0;
+				case "--limit":
+					limit = Integer.parseInt(value);
+					return limit >= 0;
+				default:
+					return false;
+			}
+		} catch (IllegalArgumentException | DateTimeParseException invalidValue) {
+			return false;
+		}
+	}
+
+	private boolean setStorage(String storage) {
+		switch (storage) {
+			case "heap":
+				engine.setStopTimeStorage(ColumnStorage.HEAP);
+				return true;
+			case "direct":
+				engine.setStopTimeStorage(ColumnStorage.DIRECT);
+				return true;
+			case "mapped":
+				engine.setStopTimeStorage(ColumnStorage.mappedFiles(new File(System.getProperty("java.io.tmpdir"))));
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * Runs each query of a query file and prints its results and timing
+	 * @param in The query file
+	 * @throws IOException if the query file could not be read
+	 */
+	private void runQueries(BufferedReader in) throws IOException {
+		int count = 0;
+		long total = 0;
+		String line;
+		while ((line = in.readLine()) != null) {
+			line = line.strip();
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			String[] words = line.split("\\s+", 2);
+			Query query = Query.named(words[0]);
+			if (query == null || words.length < 2) {
+				System.err.println("Not a query: " + line);
+				continue;
+			}
+
+			List<String> results = null;
+			long fastest = Long.MAX_VALUE;
+			long sum = 0;
+			for (int i = 0; i < repeat; ++i) {
+				long start = System.nanoTime();
+				results = query.run(engine, words[1], date, time);
+				long elapsed = System.nanoTime() - start;
+				fastest = Math.min(fastest, elapsed);
+				sum += elapsed;
+			}
+			++count;
+			total += sum;
+			printResults(line, results, sum / repeat, fastest);
+		}
+		System.out.printf(Locale.ROOT, "%d queries in %.3f ms%n", count, total / NANOS_PER_MILLI);
+	}
+
+	private void printResults(String query, Collection<String> results, long mean, long fastest) {
+		System.out.printf(Locale.ROOT, "%s: %d results in %.3f ms", query, results.size(), mean / NANOS_PER_MILLI);
+		if (repeat > 1) {
+			System.out.printf(Locale.ROOT, " (mean of %d, fastest %.3f ms)", repeat, fastest / NANOS_PER_MILLI);
+		}
+		System.out.println();
+		int printed = 0;
+		for (String result : results) {
+			if (printed++ == limit) {
+				if (limit > 0) {
+					System.out.println("  ... " + (results.size() - limit) + " more");
+				}
+				break;
+			}
+			System.out.println("  " + result);
+		}
+	}
+
+	private void printImportErrors() {
+		ValidationErrorLog errors = engine.getImportErrors();
+		if (!errors.isEmpty()) {
+			System.err.println(errors.getSummary(10));
+		}
+	}
+
+	private static int usage(String error) {
+		if (error != null) {
+			System.err.println(error);
+		}
+		System.err.println(USAGE);
+		return 1;
+	}
+
+}	//end class CommandLineDriver
@@ -23,6 +23,10 @@
  */
 package gtfs;
 
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
@@ -30,17 +34,23 @@ import javafx.scene.control.*;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.layout.ColumnConstraints;
 import javafx.scene.layout.GridPane;
+import javafx.scene.layout.VBox;
 import javafx.stage.FileChooser;
 import javafx.stage.DirectoryChooser;
+import javafx.util.Duration;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.URL;
 import java.text.ParseException;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
+import gtfs.FeedEngine.GTFS_TYPE;
+
 import java.io.FileWriter;
 
 /**
@@ -49,19 +59,6 @@ import java.io.FileWriter;
  * @author keanej and paganinik and senebouttarathk
  */
 public class Controller implements Initializable {
-	private static final int SEARCH_RESULTS_LIMIT = 10;
-
-
-	/**
-	 * The different GTFS Object types
-	 */
-	enum GTFS_TYPE {
-		STOP,
-		ROUTE,
-		TRIP,
-		STOP_TIME,
-		NONE
-	}
 
 	@FXML
 	private Tab searchTab;
@@ -94,16 +91,33 @@ public class Controller implements Initializable {
 
 	private final static int MAX_ROWS = 50;
 
-	private final ArrayList<Stop> stops = new ArrayList<>();
-	private final ArrayList<Trip> trips = new ArrayList<>();
-	private final ArrayList<Route> routes = new ArrayList<>();
-	private ArrayList<StopTime> stopTimes = new ArrayList<>();
+	private final FeedEngine engine;
+
+	/**
+	 * The number of skipped rows listed individually in the import summary
+	 */
+	private final static int IMPORT_ERROR_EXAMPLES = 10;
+
+	/**
+	 * How often the import progress dialog is redrawn
+	 */
+	private final static Duration PROGRESS_REFRESH = Duration.millis(200);
+
+	/**
+	 * Imports run one at a time on this thread, so the GUI doesn't freeze
+	 */
+	private final ExecutorService importExecutor = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "GTFS import");
+		thread.setDaemon(true);
+		return thread;
+	});
 
 	/**
 	 * Constructs the controller and gives it a reference to the Database Singleton
 	 */
 	public Controller() {
 		GTFS = Database.getInstance();
+		engine = new FeedEngine(GTFS);
 
 	}
 
@@ -208,8 +222,7 @@ public class Controller implements Initializable {
 	private void displayTripsWithStopID(KeyEvent keyEvent) {
 		Stop searchedStop = GTFS.getStops().getValue(stopIDSearch.getText());
 		if (searchedStop != null) {
-			Collection<String> tripsWithStopID = getTripsOnStop(searchedStop.getStopID());
-			tripsWithStopDisplay.setText("" + tripsWithStopID.size() + " Trips on stop.");
+			tripsWithStopDisplay.setText("" + getTripCountOnStop(searchedStop.getStopID()) + " Trips on stop.");
 		} else {
 			if (stopIDSearch.getText().isEmpty()) {
 				tripsWithStopDisplay.setText("");
@@ -222,15 +235,12 @@ public class Controller implements Initializable {
 	/**
 	 * Imports files when the button is pressed
 	 * @param e The button press event
-	 * @throws FileNotFoundException if a file is invalid
+	 * @throws IOException if a file is invalid or could not be read
 	 * @throws ParseException if parsing a data can't be done
 	 */
 	@FXML
-	public void importFilesAction(ActionEvent e) throws FileNotFoundException, ParseException {
-		stops.clear();
-		routes.clear();
-		trips.clear();
-		stopTimes.clear();
+	public void importFilesAction(ActionEvent e) throws IOException, ParseException {
+		List<File> files = new ArrayList<>();
 
 
 		// this was Kevin's code even though I (Jonny) touched it
@@ -238,76 +248,61 @@ public class Controller implements Initializable {
 		fc.setTitle("Open stops.txt");
 		fc.getExtensionFilters().addAll(new FileChooser.ExtensionFilter("txt files", "stops.txt"));
 		File selectedFile = fc.showOpenDialog(null);
-		importFile(selectedFile.getAbsolutePath(), GTFS_TYPE.STOP);
+		files.add(selectedFile);
 
 		fc = new FileChooser();
 		fc.setTitle("Open routes.txt");
 		fc.getExtensionFilters().addAll(new FileChooser.ExtensionFilter("txt files", "routes.txt"));
 		selectedFile = fc.showOpenDialog(null);
-		importFile(selectedFile.getAbsolutePath(), GTFS_TYPE.ROUTE);
+		files.add(selectedFile);
 
 		fc = new FileChooser();
 		fc.setTitle("Open trips.txt");
 		fc.getExtensionFilters().addAll(new FileChooser.ExtensionFilter("txt files", "trips.txt"));
 		selectedFile = fc.showOpenDialog(null);
-		importFile(selectedFile.getAbsolutePath(), GTFS_TYPE.TRIP);
+		files.add(selectedFile);
 
 		fc = new FileChooser();
 		fc.setTitle("Open stop_times.txt");
 		fc.getExtensionFilters().addAll(new FileChooser.ExtensionFilter("txt files", "stop_times.txt"));
 		selectedFile = fc.showOpenDialog(null);
-		importFile(selectedFile.getAbsolutePath(), GTFS_TYPE.STOP_TIME);
+		files.add(selectedFile);
 
-		GTFS.initDatabase(stops, routes, trips, stopTimes);
-		GTFS.distributeStopTimes();
-	}
-
-	private boolean receivedAllFiles(List<String> files) {
-		for (String filename: new String[]{"stop_times.txt", "routes.txt", "stops.txt", "trips.txt"}) {
-			if (!files.contains(filename)) {
-				return false;
-			}
+		ImportedFeed feed = engine.importFiles(files, new ImportProgress());
+		if (feed != null) {
+			GTFS.publish(feed);
 		}
-		return true;
+		displayImportErrors();
 	}
 
+
 	/**
-	 * Imports files when the button is pressed
+	 * Imports files when the button is pressed. The files are chosen here, but they are
+	 * read and indexed on the import thread so the GUI keeps responding.
 	 * @param e The button press event
-	 * @throws FileNotFoundException if a file is invalid
-	 * @throws ParseException if parsing a data can't be done
 	 */
 	@FXML
-	public void importFilesAction2(ActionEvent e) throws FileNotFoundException, ParseException {
-		stops.clear();
-		routes.clear();
-		trips.clear();
-		// don't need to clear stopTime since always going to be a new ArrayList
-
+	public void importFilesAction2(ActionEvent e) {
 		// this was Kevin's code even though I (Jonny) touched it
 		FileChooser fc = new FileChooser();
 		fc.setTitle("Open files");
 
-		fc.getExtensionFilters().addAll(new FileChooser.ExtensionFilter("txt files",
-				"routes.txt",
-				"stop_times.txt",
-				"trips.txt",
-				"stops.txt"));
+		List<String> txtFiles = new ArrayList<>(Arrays.asList(FeedParser.FILE_NAMES));
+		txtFiles.addAll(Arrays.asList(FeedParser.CALENDAR_FILE_NAMES));
+		txtFiles.add(FeedParser.SHAPES_FILE);
+		fc.getExtensionFilters().addAll(new FileChooser.ExtensionFilter("txt files", txtFiles),
+				new FileChooser.ExtensionFilter("zipped GTFS feed", "*.zip"));
 		List<File> selectedFiles = fc.showOpenMultipleDialog(null);
 
-		if (selectedFiles != null) {
+		if (selectedFiles != null && selectedFiles.size() == 1 && selectedFiles.get(0).getName().endsWith(".zip")) {
+			File zip = selectedFiles.get(0);
+			startImport(progress -> engine.importZipFeed(zip, progress));
+		} else if (selectedFiles != null) {
 			List<String> filenames = selectedFiles.stream().map(File::getName).collect(Collectors.toList());
-			if ((selectedFiles.size() == 4) && receivedAllFiles(filenames)) {
-				for (File file : selectedFiles) {
-					importFile(file.getAbsolutePath(), fileType(file));
-				}
-				GTFS.initDatabase(stops, routes, trips, stopTimes);
-				// this makes sure that we don't accidentally delete data
-				// in the database that holds the same reference
-				stopTimes = new ArrayList<>();
-				GTFS.distributeStopTimes();
-				searchTab.setDisable(false);
-				exportFilesButton.setDisable(false);
+			// the calendar and shapes files are optional
+			long optionalFiles = filenames.stream().filter(FeedEngine::isOptionalFile).count();
+			if ((selectedFiles.size() == 4 + optionalFiles) && FeedEngine.receivedAllFiles(filenames)) {
+				startImport(progress -> engine.importFiles(selectedFiles, progress));
 			} else {
 				displayAlert(0, GTFS_TYPE.NONE);
 			}
@@ -317,113 +312,89 @@ public class Controller implements Initializable {
 	}
 
 	/**
-	 * Imports a file and loads GTFS objects into temporary storage in temporary storage in Controller
-	 * @param filename The path of the file
-	 * @param type The GTFS object type
-	 * @return True as long as the end of the method is reached
-	 * @throws FileNotFoundException if the file could not be found
-	 * @throws ParseException if an arrival/departure time could not be parsed
+	 * The work of an import, which runs on the import thread
 	 */
-	private boolean importFile(String filename, GTFS_TYPE type) throws FileNotFoundException, ParseException {
-		Scanner in;
-		File file = new File(filename);
-		in = new Scanner(file);
-		String headers = in.nextLine(); // to validate headers
-		boolean headersCorrect = validationLogicHeaders(type, headers); // validating headers
-		if (headersCorrect) {
-			while (in.hasNextLine()) {
-				switch (type) {
-					case STOP:
-					{
-						//create and add the object
-						Stop stop = validateStopValues(in.nextLine());
-						if (stop != null) {
-							stops.add(stop);
-						}
-						break;
-					}
-					case ROUTE:
-					{
-						Route route = validateRouteValues(in.nextLine());
-						if (route != null) {
-							routes.add(route);
-						}
-						break;
-					}
-					case TRIP:
-					{
-						Trip trip = validateTripValues(in.nextLine());
-						if (trip != null) {
-							trips.add(trip);
-						}
-						break;
-					}
-					case STOP_TIME:
-					{
-						StopTime stopTime = validateStopTimeValues(in.nextLine());
-						if (stopTime != null) {
-							stopTimes.add(stopTime);
-						}
-						break;
-					}
-
-				}
-			}
-
-		} else {
-			displayAlert(5, type);
-
-		}
-		// this started off as Kevin's too, I (Jonny) just reword a little to integrate with Database from Kyle
-		in.close();
-		return true;
+	private interface ImportJob {
+		/**
+		 * @param progress Where to report progress, which is also checked for cancellation
+		 * @return The imported feed, or null if there was nothing to import
+		 * @throws IOException if a file could not be read
+		 */
+		ImportedFeed run(ImportProgress progress) throws IOException;
 	}
 
 	/**
-	 * Helper method in case to determine which GTFS file is specified
-	 * @param file A file
-	 * @return The GTFS file's type
-	 * @throws IllegalArgumentException if it is not a GTFS file
+	 * Runs an import on the import thread while a dialog shows its progress and lets the
+	 * user cancel it. The Database is only touched once the feed has been completely
+	 * imported and indexed, and then all at once on the JavaFX thread.
+	 * @param job The import
 	 */
-	private GTFS_TYPE fileType(File file) throws IllegalArgumentException {
-		GTFS_TYPE answer;
-		if (file.getAbsolutePath().contains("stops.txt")){
-			answer = GTFS_TYPE.STOP;
-		}
-		else if (file.getAbsolutePath().contains("stop_times.txt")){
-			answer = GTFS_TYPE.STOP_TIME;
-		}
-		else if (file.getAbsolutePath().contains("routes.txt")){
-			answer = GTFS_TYPE.ROUTE;
-		}
-		else if (file.getAbsolutePath().contains("trips.txt")){
-			answer = GTFS_TYPE.TRIP;
-		} else {
-			Alert a = new Alert(Alert.AlertType.NONE);
-			a.setContentText("The file name you chose is wrong.");
-			a.show();
-			throw new IllegalArgumentException("You chose the wrong file.");
-		}
-		return answer;
-	}
+	private void startImport(ImportJob job) {
+		ImportProgress progress = new ImportProgress();
+		Task<ImportedFeed> task = new Task<>() {
+			@Override
+			protected ImportedFeed call() throws IOException {
+				return job.run(progress);
+			}
+		};
+
+		ProgressBar progressBar = new ProgressBar(ProgressBar.INDETERMINATE_PROGRESS);
+		progressBar.setPrefWidth(400);
+		Label status = new Label(progress.toString());
+		Alert dialog = new Alert(Alert.AlertType.NONE, "", ButtonType.CANCEL);
+		dialog.setTitle("Importing GTFS Files");
+		dialog.setHeaderText("Importing GTFS files...");
+		dialog.getDialogPane().setContent(new VBox(10, progressBar, status));
+		dialog.setOnHidden(event -> {
+			// closing the dialog before the import finished means cancel
+			if (!task.isDone()) {
+				progress.cancel();
+			}
+		});
+
+		Timeline ticker = new Timeline(new KeyFrame(PROGRESS_REFRESH, event -> {
+			double fraction = progress.getFractionRead();
+			progressBar.setProgress(fraction < 0 ? ProgressBar.INDETERMINATE_PROGRESS : fraction);
+			status.setText(progress.toString());
+		}));
+		ticker.setCycleCount(Animation.INDEFINITE);
+
+		task.setOnSucceeded(event -> {
+			ticker.stop();
+			dialog.close();
+			importFilesButton.setDisable(false);
+			ImportedFeed feed = task.getValue();
+			if (feed != null) {
+				GTFS.publish(feed);
+				searchTab.setDisable(false);
+				exportFilesButton.setDisable(false);
+				displayImportErrors();
+			} else if (engine.getImportErrors().isEmpty()) {
+				// nothing was recorded, so the files themselves were missing
+				displayAlert(0, GTFS_TYPE.NONE);
+			} else {
+				// the invalid headers are in the error log
+				displayImportErrors();
+			}
+		});
+		task.setOnFailed(event -> {
+			ticker.stop();
+			dialog.close();
+			importFilesButton.setDisable(false);
+			if (!(task.getException() instanceof CancellationException)) {
+				Alert alert = new Alert(Alert.AlertType.ERROR);
+				alert.setTitle("Error Importing GTFS Files!");
+				alert.setContentText("There was an error importing GTFS files!" +
+						(searchTab.isDisabled() ? "" : " Previously loaded data has been retained.") +
+						"\n\nError: " + task.getException().getMessage());
+				alert.showAndWait();
+			}
+		});
 
-	/**
-	 * Returns the COLUMNS constant from a GTFSObject. If no such String[] constant
-	 * is found, null is returned instead. Error messages will be outputted
-	 * to the console.
-	 *
-	 * @param gtfsClass The GTFSObject class to look into.
-	 * @return null or a found String[] COLUMNS constant
-	 * @author Kyle S.
-	 */
-	private String[] getGTFSClassHeaderColumns(Class<? extends GTFSObject> gtfsClass) {
-		String[] gtfsCols = null;
-		try {
-			gtfsCols = (String[]) gtfsClass.getDeclaredField("COLUMNS").get(null);
-		} catch (NoSuchFieldException | IllegalAccessException noFieldException) {
-			System.out.println(noFieldException.getMessage());
-		}
-		return gtfsCols;
+		importFilesButton.setDisable(true);
+		ticker.play();
+		dialog.show();
+		importExecutor.execute(task);
 	}
 
 	/**
@@ -445,25 +416,25 @@ public class Controller implements Initializable {
 
 		switch(gtfsTypeSelect.getValue()) {
 			case STOP: {
-				colHeaders = getGTFSClassHeaderColumns(Stop.class);
+				colHeaders = FeedEngine.getGTFSClassHeaderColumns(Stop.class);
 				iterator = GTFS.getStops().iterator();
 				size = GTFS.getStops().size();
 				break;
 			}
 			case ROUTE: {
-				colHeaders = getGTFSClassHeaderColumns(Route.class);
+				colHeaders = FeedEngine.getGTFSClassHeaderColumns(Route.class);
 				iterator = GTFS.getRoutes().iterator();
 				size = GTFS.getRoutes().size();
 				break;
 			}
 			case TRIP: {
-				colHeaders = getGTFSClassHeaderColumns(Trip.class);
+				colHeaders = FeedEngine.getGTFSClassHeaderColumns(Trip.class);
 				iterator = GTFS.getTrips().iterator();
 				size = GTFS.getTrips().size();
 				break;
 			}
 			case STOP_TIME: {
-				colHeaders = getGTFSClassHeaderColumns(StopTime.class);
+				colHeaders = FeedEngine.getGTFSClassHeaderColumns(StopTime.class);
 				iterator = GTFS.getStopTimes().iterator();
 				size = GTFS.getStopTimes().size();
 				break;
@@ -513,56 +484,13 @@ public class Controller implements Initializable {
 		}
 	}	//end method updateGTFSTypeDisplay
 
-
-	private boolean validationLogicHeaders(GTFS_TYPE type, String headers){
-		boolean cookie = false;
-		if(type == GTFS_TYPE.ROUTE)
-		{
-			cookie = validateRouteHeaders(headers);
-		}
-		else if(type == GTFS_TYPE.STOP)
-		{
-			cookie = validateStopHeaders(headers);
-		}
-		else if (type == GTFS_TYPE.TRIP)
-		{
-			cookie = validateTripHeaders(headers);
-		}
-		else if (type == GTFS_TYPE.STOP_TIME)
-		{
-			cookie = validateStopTimeHeaders(headers);
-		}
-		else if (type == GTFS_TYPE.NONE)
-		{
-			cookie = false;
-		}
-		return cookie;
-	}
 	/**
 	 * Validates the headers of stops file
 	 * @param stopHeaders The string of stop headers
 	 * @return true if headers are valid
 	 */
 	public boolean validateStopHeaders(String stopHeaders) {
-		boolean cookie = false;
-		if (stopHeaders != null) {
-			String[] gtfsObjectValues = stopHeaders.split(",");
-			if (gtfsObjectValues.length == 5) {
-				String stopID = gtfsObjectValues[0].trim().toLowerCase(Locale.ROOT);
-				String stopName = gtfsObjectValues[1].trim().toLowerCase(Locale.ROOT);
-				String stopDesc = gtfsObjectValues[2].trim().toLowerCase(Locale.ROOT);
-				String stopLat = gtfsObjectValues[3].trim().toLowerCase(Locale.ROOT);
-				String stopLon = gtfsObjectValues[4].trim().toLowerCase(Locale.ROOT);
-				if (stopID.equals("stop_id")
-						&& stopName.equals("stop_name")
-						&& stopDesc.equals("stop_desc")
-						&& stopLat.equals("stop_lat")
-						&& stopLon.equals("stop_lon")) {
-					cookie = true;
-				}
-			}
-		}
-		return cookie;
+		return engine.validationLogicHeaders(GTFS_TYPE.STOP, stopHeaders);
 	}
 
 	/**
@@ -571,33 +499,7 @@ public class Controller implements Initializable {
 	 * @return true if headers are valid
 	 */
 	public boolean validateRouteHeaders(String routeHeaders) {
-		boolean cookie = false;
-		if (routeHeaders != null) {
-			String[] gtfsObjectValues = routeHeaders.split(",");
-			if (gtfsObjectValues.length == 9) {
-				String routeID = gtfsObjectValues[0].trim().toLowerCase(Locale.ROOT);
-				String agencyID = gtfsObjectValues[1].trim().toLowerCase(Locale.ROOT);
-				String routeShortName = gtfsObjectValues[2].trim().toLowerCase(Locale.ROOT);
-				String routeLongName = gtfsObjectValues[3].trim().toLowerCase(Locale.ROOT);
-				String routeDesc = gtfsObjectValues[4].trim().toLowerCase(Locale.ROOT);
-				String routeType = gtfsObjectValues[5].trim().toLowerCase(Locale.ROOT);
-				String routeURL = gtfsObjectValues[6].trim().toLowerCase(Locale.ROOT);
-				String routeColor = gtfsObjectValues[7].trim().toLowerCase(Locale.ROOT);
-				String routeTextColor = gtfsObjectValues[8].trim().toLowerCase(Locale.ROOT);
-				if (routeID.equals("route_id")
-						&& agencyID.equals("agency_id")
-						&& routeShortName.equals("route_short_name")
-						&& routeLongName.equals("route_long_name")
-						&& routeDesc.equals("route_desc")
-						&& routeType.equals("route_type")
-						&& routeURL.equals("route_url")
-						&& routeColor.equals("route_color")
-						&& routeTextColor.equals("route_text_color")) {
-					cookie = true;
-				}
-			}
-		}
-		return cookie;
+		return engine.validationLogicHeaders(GTFS_TYPE.ROUTE, routeHeaders);
 	}
 
 	/**
@@ -606,29 +508,7 @@ public class Controller implements Initializable {
 	 * @return true if headers are valid
 	 */
 	public boolean validateTripHeaders(String tripHeaders) {
-		boolean cookie = false;
-		if (tripHeaders != null) {
-			String[] gtfsObjectValues = tripHeaders.split(",");
-			if (gtfsObjectValues.length == 7) {
-				String routeID = gtfsObjectValues[0].trim().toLowerCase(Locale.ROOT);
-				String serviceID = gtfsObjectValues[1].trim().toLowerCase(Locale.ROOT);
-				String tripID = gtfsObjectValues[2].trim().toLowerCase(Locale.ROOT);
-				String tripHeadSign = gtfsObjectValues[3].trim().toLowerCase(Locale.ROOT);
-				String directionID = gtfsObjectValues[4].trim().toLowerCase(Locale.ROOT);
-				String blockID = gtfsObjectValues[5].trim().toLowerCase(Locale.ROOT);
-				String shapeID = gtfsObjectValues[6].trim().toLowerCase(Locale.ROOT);
-				if (routeID.equals("route_id")
-						&& serviceID.equals("service_id")
-						&& tripID.equals("trip_id")
-						&& tripHeadSign.equals("trip_headsign")
-						&& directionID.equals("direction_id")
-						&& blockID.equals("block_id")
-						&& shapeID.equals("shape_id")) {
-					cookie = true;
-				}
-			}
-		}
-		return cookie;
+		return engine.validationLogicHeaders(GTFS_TYPE.TRIP, tripHeaders);
 	}
 
 	/**
@@ -637,31 +517,7 @@ public class Controller implements Initializable {
 	 * @return true if headers are valid
 	 */
 	public boolean validateStopTimeHeaders(String stopTimeHeaders) {
-		boolean cookie = false;
-		if (stopTimeHeaders != null) {
-			String[] gtfsObjectValues = stopTimeHeaders.split(",");
-			if (gtfsObjectValues.length == 8) {
-				String tripID = gtfsObjectValues[0].trim().toLowerCase(Locale.ROOT);
-				String arrivalTime = gtfsObjectValues[1].trim().toLowerCase(Locale.ROOT);
-				String departureTime = gtfsObjectValues[2].trim().toLowerCase(Locale.ROOT);
-				String stopID = gtfsObjectValues[3].trim().toLowerCase(Locale.ROOT);
-				String stopSequence = gtfsObjectValues[4].trim().toLowerCase(Locale.ROOT);
-				String stopHeadSign = gtfsObjectValues[5].trim().toLowerCase(Locale.ROOT);
-				String pickupType = gtfsObjectValues[6].trim().toLowerCase(Locale.ROOT);
-				String dropOffType = gtfsObjectValues[7].trim().toLowerCase(Locale.ROOT);
-				if (tripID.equals("trip_id")
-						&& arrivalTime.equals("arrival_time")
-						&& departureTime.equals("departure_time")
-						&& stopID.equals("stop_id")
-						&& stopSequence.equals("stop_sequence")
-						&& stopHeadSign.equals("stop_headsign")
-						&& pickupType.equals("pickup_type")
-						&& dropOffType.equals("drop_off_type")) {
-					cookie = true;
-				}
-			}
-		}
-		return cookie;
+		return engine.validationLogicHeaders(GTFS_TYPE.STOP_TIME, stopTimeHeaders);
 	}
 
 	/**
@@ -711,23 +567,59 @@ public class Controller implements Initializable {
 			System.out.println("Initialize Error Caught (If Running Tests, Ignore Because GUI Related):\n\t" + exception.getMessage());
 		}
 	}
+
+	/**
+	 * Shows a single summary of the rows that were skipped during the last import,
+	 * with the option of saving the full error log to a file
+	 */
+	private void displayImportErrors() {
+		ValidationErrorLog importErrors = engine.getImportErrors();
+		if (importErrors.isEmpty()) {
+			return;
+		}
+		try {
+			ButtonType saveLog = new ButtonType("Save Error Log...");
+			Alert a = new Alert(Alert.AlertType.WARNING, "", saveLog, ButtonType.OK);
+			a.setHeaderText("Some rows could not be imported");
+			a.setContentText(importErrors.getSummary(IMPORT_ERROR_EXAMPLES));
+			Optional<ButtonType> result = a.showAndWait();
+			if (result.isPresent() && result.get() == saveLog) {
+				FileChooser fc = new FileChooser();
+				fc.setTitle("Save Error Log");
+				fc.setInitialFileName("import_errors.txt");
+				File logFile = fc.showSaveDialog(null);
+				if (logFile != null) {
+					importErrors.writeTo(logFile);
+				}
+			}
+		} catch (IOException ioException) {
+			Alert alert = new Alert(Alert.AlertType.ERROR);
+			alert.setTitle("Error Saving Error Log!");
+			alert.setContentText("There was an error saving the error log!\n\nError: " + ioException.getMessage());
+			alert.showAndWait();
+		} catch(ExceptionInInitializerError | NoClassDefFoundError exception) {
+			System.out.println("Initialize Error Caught (If Running Tests, Ignore Because GUI Related):\n\t" + exception.getMessage());
+			System.out.println(importErrors.getSummary(IMPORT_ERROR_EXAMPLES));
+		}
+	}
+
 	/**
 	 * Validates a stop's values based on a String describing the Stop
 	 * @param stopValues The string of the stop values
 	 * @return The Stop object if valid, null otherwise
 	 */
 	public Stop validateStopValues(String stopValues) {
-		// lat long are required
-		if (stopValues == null) return null;
-		String[] stopValuesArr = stopValues.split(",");
-		if (stopValuesArr.length != 5) return null;
-		for (int i = 0; i < stopValuesArr.length; ++i) {
-			stopValuesArr[i] = stopValuesArr[i].trim();
-		}
-		if (	!stopValuesArr[0].isEmpty() &&
-				!stopValuesArr[1].isEmpty() &&
-				StringValidation.isValidCoordinate(stopValuesArr[3], true) &&
-				StringValidation.isValidCoordinate(stopValuesArr[4], false)) {
+		return validateStopValues(FeedParser.splitStopValues(stopValues));
+	}
+
+	/**
+	 * Validates a stop's column values
+	 * @param stopValuesArr The column values, or null if the row had the wrong number of columns
+	 * @return The Stop object if valid, null otherwise
+	 */
+	private Stop validateStopValues(String[] stopValuesArr) {
+		if (stopValuesArr == null) return null;
+		if (FeedParser.isValidStop(stopValuesArr)) {
 			return new Stop(stopValuesArr);
 		} else {
 			displayAlert(1, null);
@@ -741,24 +633,17 @@ public class Controller implements Initializable {
 	 * @return The Route object if valid, null otherwise
 	 */
 	public Route validateRouteValues(String routeValues) {
-		// only require a route ID and route_color
-		if (routeValues == null) return null;
-		String[] routeValuesArr = routeValues.split(",(?=([^\"]*\"[^\"]*\")*[^\"]*$)");
-		if (routeValuesArr.length == 8) {
-			routeValuesArr = Arrays.copyOf(routeValuesArr, 9);
-		}
-		if (routeValuesArr.length != 9) return null;
-		for (int i = 0; i < routeValuesArr.length; ++i) {
-			if (routeValuesArr[i] == null) {
-				routeValuesArr[i] = "";
-			} else {
-				routeValuesArr[i] = routeValuesArr[i].trim();
-			}
-		}
-		if (	!routeValuesArr[0].isEmpty() &&
-				(routeValuesArr[5].isEmpty() || StringValidation.isValidInt(routeValuesArr[5])) &&
-				StringValidation.isValidColor(routeValuesArr[7]) &&
-				(routeValuesArr[8].isEmpty() || StringValidation.isValidColor(routeValuesArr[8]))) {
+		return validateRouteValues(FeedParser.splitRouteValues(routeValues));
+	}
+
+	/**
+	 * Validates a route's column values
+	 * @param routeValuesArr The column values, or null if the row had the wrong number of columns
+	 * @return The Route object if valid, null otherwise
+	 */
+	private Route validateRouteValues(String[] routeValuesArr) {
+		if (routeValuesArr == null) return null;
+		if (FeedParser.isValidRoute(routeValuesArr)) {
 			return new Route(routeValuesArr);
 		} else {
 			displayAlert(2, null);
@@ -772,23 +657,18 @@ public class Controller implements Initializable {
 	 * @return The Trip object if valid, null otherwise
 	 */
 	public Trip validateTripValues(String tripValues) {
-		// do not require a service ID
-		if (tripValues == null) return null;
-		String[] tripValuesArr = tripValues.split(",");
-		if (tripValuesArr.length != 7) return null;
-		for (int i = 0; i < tripValuesArr.length; ++i) {
-			tripValuesArr[i] = tripValuesArr[i].trim();
-		}
-		if (	!tripValuesArr[0].isEmpty() &&
-				!tripValuesArr[2].isEmpty() &&
-				(StringValidation.isValidInt(tripValuesArr[4])|| tripValuesArr[4].isEmpty()) &&
-
-				!tripValuesArr[6].isEmpty()) {
-			// tripValuesArr[3] did not use to check null it checked isEmpty() there were cases where it was
-			//returning an empty string which should be ok as seen in the trips file
-			// when Scrolling through the trips.txt file look for the first column to have number 7 thats where this case happens
-			return new Trip(tripValuesArr);
+		return validateTripValues(FeedParser.splitTripValues(tripValues));
+	}
 
+	/**
+	 * Validates a trip's column values
+	 * @param tripValuesArr The column values, or null if the row had the wrong number of columns
+	 * @return The Trip object if valid, null otherwise
+	 */
+	private Trip validateTripValues(String[] tripValuesArr) {
+		if (tripValuesArr == null) return null;
+		if (FeedParser.isValidTrip(tripValuesArr)) {
+			return new Trip(tripValuesArr);
 		} else {
 			displayAlert(3, null);
 			return null;
@@ -802,22 +682,18 @@ public class Controller implements Initializable {
 	 * @throws ParseException if parsing date causes exception (shouldn't)
 	 */
 	public StopTime validateStopTimeValues(String stopTimeValues) throws ParseException {
-		// schedule is the same every day
-		if (stopTimeValues == null) return null;
-		stopTimeValues = stopTimeValues.replaceAll(",", ",~");
-		String[] stopTimeValuesArr = stopTimeValues.split(",");
-		if (stopTimeValuesArr.length != 8) return null;
-		for (int i = 0; i < stopTimeValuesArr.length; ++i) {
-			stopTimeValuesArr[i] = stopTimeValuesArr[i].trim();
-			stopTimeValuesArr[i] = stopTimeValuesArr[i].replaceAll("~", "");
-		}
-		if (	!stopTimeValuesArr[0].isEmpty() &&
-				StringValidation.isValidTime(stopTimeValuesArr[1]) &&
-				StringValidation.isValidTime(stopTimeValuesArr[2]) &&
-				!stopTimeValuesArr[3].isEmpty() &&
-				StringValidation.isValidNonNegativeInt(stopTimeValuesArr[4]) &&
-				(StringValidation.isValidInt(stopTimeValuesArr[6]) || stopTimeValuesArr[6].isEmpty()) &&
-				(StringValidation.isValidInt(stopTimeValuesArr[7]) || stopTimeValuesArr[7].isEmpty())) {
+		return validateStopTimeValues(FeedParser.splitStopTimeValues(stopTimeValues));
+	}
+
+	/**
+	 * Validates a stop time's column values
+	 * @param stopTimeValuesArr The column values, or null if the row had the wrong number of columns
+	 * @return The Stop Time object if valid, otherwise null
+	 * @throws ParseException if parsing date causes exception (shouldn't)
+	 */
+	private StopTime validateStopTimeValues(String[] stopTimeValuesArr) throws ParseException {
+		if (stopTimeValuesArr == null) return null;
+		if (FeedParser.isValidStopTime(stopTimeValuesArr)) {
 			return new StopTime(stopTimeValuesArr);
 		} else {
 			displayAlert(4, null);
@@ -825,14 +701,68 @@ public class Controller implements Initializable {
 		}
 	}
 
+	//---- ENGINE
+
 	/**
-	 * @param stopsFilePath
-	 * @param routesFilePath
-	 * @param tripsFilePath
-	 * @param stopTimesFilePath
+	 * The engine that does the importing and searching for this controller
+	 * @return The engine
+	 */
+	public FeedEngine getEngine() {
+		return engine;
+	}
+
+	/**
+	 * Sets whether feeds are saved as, and reopened from, binary snapshots
+	 * @param useSnapshots True to use snapshots
+	 */
+	public void setUseSnapshots(boolean useSnapshots) {
+		engine.setUseSnapshots(useSnapshots);
+	}
+
+	/**
+	 * Sets where the stop times of the next imports are kept (see FeedEngine.setStopTimeStorage)
+	 * @param storage The storage for the stop time columns
+	 */
+	public void setStopTimeStorage(ColumnStorage storage) {
+		engine.setStopTimeStorage(storage);
+	}
+
+	/**
+	 * Sets whether stop_times.txt files are loaded lazily (see FeedEngine.setLazyStopTimeBudget)
+	 * @param budget The most memory, in bytes, that cached trips may take up, or 0 to load files in full
+	 */
+	public void setLazyStopTimeBudget(long budget) {
+		engine.setLazyStopTimeBudget(budget);
+	}
+
+	/**
+	 * Sets whether large stop_times.txt files are imported in parallel chunks
+	 * instead of line by line
+	 * @param parallelStopTimeImport True to use the parallel import mode
+	 */
+	public void setParallelStopTimeImport(boolean parallelStopTimeImport) {
+		engine.setParallelStopTimeImport(parallelStopTimeImport);
+	}
+
+	/**
+	 * Imports a revised version of the loaded feed and applies only what changed
+	 * (see FeedEngine.appendFiles)
+	 * @param stopsFilePath The path of the revised stops.txt
+	 * @param routesFilePath The path of the revised routes.txt
+	 * @param tripsFilePath The path of the revised trips.txt
+	 * @param stopTimesFilePath The path of the revised stop_times.txt
+	 * @return True if the delta was applied
 	 */
 	public boolean appendFiles(String stopsFilePath, String routesFilePath, String tripsFilePath, String stopTimesFilePath){
-		return false;
+		return engine.appendFiles(stopsFilePath, routesFilePath, tripsFilePath, stopTimesFilePath);
+	}
+
+	/**
+	 * The delta applied by the last call to appendFiles
+	 * @return The delta, or null if appendFiles hasn't applied one
+	 */
+	public FeedDelta getLastDelta() {
+		return engine.getLastDelta();
 	}
 
 	/**
@@ -872,36 +802,15 @@ public class Controller implements Initializable {
 
 	/**
 	 * Gets the distance of a trip based on the provided trip ID.
-	 * The trip ID is defined from the import file.
 	 *
 	 * @param tripID The ID of the trip to get the distance for
-	 * @return The total distance for the given trip
-	 * 			The value will be -1.0 if no trip is found
-	 * 			or if the trip distance couldn't be calculated.
-	 *
-	 * @author Kyle S.
+	 * @return The total distance for the given trip, or -1.0 if there is no such trip
 	 */
 	public double getTripDistance(String tripID) {
-		if (tripID == null) {
-			return -1.0;
-		}
-
-		Trip foundTrip = null;
-		for (Trip trip : GTFS.getTrips()) {
-			if (trip.getTripID().equals(tripID)) {
-				foundTrip = trip;
-			}
-		}
-
-		double returnVal = -1.0;
-
-		if (foundTrip != null) {
-			returnVal = foundTrip.getTripDistance();
-		}
-
-		return returnVal;
+		return engine.getTripDistance(tripID);
 	}
 
+
 	/*:::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::*/
 	/*::  This function converts decimal degrees to radians (helper functions):*/
 	/*:::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::*/
@@ -919,26 +828,6 @@ public class Controller implements Initializable {
 	/**
 	 *
 
-	/**
-	 * gets the number of distinct trips a stopID appears in
-	 * @param stopID
-	 */
-	public Collection <String> getTripsOnStop(String stopID){
-		if(stopID == null) {
-			return null;
-		}
-		Collection<StopTime> stopTimes = GTFS.getStopTimes();
-		Iterator<StopTime> iterator = stopTimes.iterator();
-		Collection<String> tripsOnStop = new ArrayList<>();
-		// while loop
-		while (iterator.hasNext()) {
-			StopTime stopTime = iterator.next();
-			if(stopID.equals(stopTime.getStopID())){
-				tripsOnStop.add(stopTime.getTripID());
-			}
-		}
-		return tripsOnStop.stream().distinct().collect(Collectors.toList());
-	}
 
 	/**
 	 * 
@@ -948,51 +837,48 @@ public class Controller implements Initializable {
 		return null;
 	}
 
+	/**
+	 * gets the distinct trips a stopID appears in
+	 * @param stopID The STOP_ID to search by
+	 */
+	public Collection <String> getTripsOnStop(String stopID){
+		return engine.getTripsOnStop(stopID);
+	}
+
+	/**
+	 * gets the number of distinct trips a stopID appears in
+	 * @param stopID The STOP_ID to search by
+	 * @return The number of trips
+	 */
+	public int getTripCountOnStop(String stopID) {
+		return engine.getTripCountOnStop(stopID);
+	}
+
 	/**
 	 * Feature 5: Search with a stop ID and get out the routes that hit this stop.
 	 *
 	 * @param stopID The STOP_ID to search by
 	 */
 	public List<Route> searchForRoutesWithStopID(String stopID){
-		return GTFS.getStopTimes(
-				stopTime -> stopTime.getStopID().equals(stopID)).stream().map(
-				stopTime -> GTFS.getTrips().getValue(stopTime.getTripID())).map(
-				trip -> GTFS.getRoutes().getValue(trip.getRouteID())
-		).distinct().collect(Collectors.toList());
+		return engine.searchForRoutesWithStopID(stopID);
 	}
 
-
 	/**
 	 * Feature 6: Search with a ROUTE_ID and get all stops that are on the route
 	 *
 	 * @param routeID The ROUTE_ID to search by
 	 */
 	public List<Stop> searchForStops(String routeID) {
-		return GTFS.getRoutes().getValue(routeID).getStopTimeIDs().stream().
-				map(stopTimeID -> GTFS.getStopTimes().get(stopTimeID)).
-				map(stopTime -> GTFS.getStops().getValue(stopTime.getStopID())).
-				distinct().collect(Collectors.toList());
+		return engine.searchForStops(routeID);
 	}
 
 	/**
-	 * WARNING: Make sure that the stop times are sorted in here
-	 *
 	 * Feature 7: Search with a ROUTE_ID and get out the next trips with this route.
 	 *
 	 * @param routeID The ROUTE_ID to search by
 	 */
 	public List<Pair<Trip, String>> searchForTripsWithRouteID(String routeID) {
-		return GTFS.getTrips(
-				trip -> trip.getRouteID().equals(routeID)).stream().
-						filter(trip -> StopTime.STOP_TIME_FORMAT.format(GTFS.getStopTimes().get(trip.getStopTimeIDs().get(0)).getArrival()).
-								compareTo(StopTime.STOP_TIME_FORMAT.format(new Date())) > 0).
-								sorted(Comparator.comparing(a -> GTFS.getStopTimes().get(a.getStopTimeIDs().get(0)).getArrival())).
-						limit(SEARCH_RESULTS_LIMIT).
-						map(trip -> new Pair<>(
-								trip, StopTime.STOP_TIME_FORMAT.format(
-								GTFS.getStopTimes().get(trip.getStopTimeIDs().get(0)).getArrival()
-								))).
-						collect(Collectors.toList());
+		return engine.searchForTripsWithRouteID(routeID);
 	}
 
 	/**
@@ -1001,16 +887,7 @@ public class Controller implements Initializable {
 	 * @param stopID The STOP_ID to search by
 	 */
 	public List<Pair<Trip, String>> searchForTripsWithStopID(String stopID) {
-		return GTFS.getStopTimes(
-				stopTime -> StopTime.STOP_TIME_FORMAT.format(stopTime.getArrival()).
-						compareTo(StopTime.STOP_TIME_FORMAT.format(new Date())) > 0).stream().
-				filter(stopTime -> stopTime.getStopID().equals(stopID)).
-				sorted(Comparator.comparing(StopTime::getArrival)).limit(SEARCH_RESULTS_LIMIT).
-				map(stopTime -> new Pair<>(
-						GTFS.getTrips().getValue(stopTime.getTripID()),
-						StopTime.STOP_TIME_FORMAT.format(stopTime.getArrival()
-						))).
-				collect(Collectors.toList());
+		return engine.searchForTripsWithStopID(stopID);
 	}
 
 	/**
@@ -0,0 +1,319 @@
+/*
+ * This file is part of gtfstransitproject_group5.
+ *
+ * gtfstransitproject_group5 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * gtfstransitproject_group5 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with gtfstransitproject_group5.  If not, see <https://www.gnu.org/licenses/>.
+
+ * Course: CS 2030 031
+ * Fall 2021
+ * GTFS Transit Project
+ * Names: Jonathan Keane, Kevin Paganini, Kyle Senebouttarath
+ * Created: 10/4/2021
+ * Professor: Dr. Wright
+ */
+package gtfs;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * A single pass RFC 4180 tokenizer for GTFS files.
+ *
+ * Each call to nextRow reads one row into a reused char buffer and records where each
+ * field starts and ends, so a row can be looked at without building any Strings.
+ * Quoted fields may contain commas, line breaks and doubled quotes ("") which are
+ * unescaped in place. Unquoted fields have spaces and tabs trimmed from both ends,
+ * and blank lines are skipped.
+ */
+public class CsvTokenizer {
+	private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+	private static final int DEFAULT_MAX_FIELDS = 16;
+
+	private final Reader reader;
+	private char[] buffer;
+	private int limit;
+	private int pos;
+	private int rowStart;
+	private boolean eof;
+
+	private int fieldStart;
+	private int write;
+	private int keepEnd;
+
+	private int[] fieldStarts = new int[DEFAULT_MAX_FIELDS];
+	private int[] fieldEnds = new int[DEFAULT_MAX_FIELDS];
+	private int fieldCount;
+	private long rowNumber;
+
+	/**
+	 * Creates a tokenizer that streams rows from a reader
+	 * @param reader The reader to tokenize (not closed by the tokenizer)
+	 */
+	public CsvTokenizer(Reader reader) {
+		this.reader = reader;
+		this.buffer = new char[DEFAULT_BUFFER_SIZE];
+	}
+
+	/**
+	 * Creates a tokenizer over characters that are already in memory. The characters
+	 * are tokenized where they are, so quoted fields are unescaped into the given array.
+	 * @param chars The characters
+	 * @param offset The index of the first character to tokenize
+	 * @param length The number of characters to tokenize
+	 */
+	public CsvTokenizer(char[] chars, int offset, int length) {
+		this.reader = null;
+		this.buffer = chars;
+		this.pos = offset;
+		this.rowStart = offset;
+		this.limit = offset + length;
+		this.eof = true;
+	}
+
+	/**
+	 * Splits a single line into its field values
+	 * @param line The line
+	 * @return The values of the fields on the line (an empty array for a blank line)
+	 */
+	public static String[] splitLine(String line) {
+		CsvTokenizer tokenizer = new CsvTokenizer(line.toCharArray(), 0, line.length());
+		try {
+			return tokenizer.nextRow() ? tokenizer.getFields() : new String[0];
+		} catch (IOException ioException) {
+			// there is no reader to throw
+			throw new IllegalStateException(ioException);
+		}
+	}
+
+	/**
+	 * Reads the next row
+	 * @return False if there are no more rows, true otherwise
+	 * @throws IOException if the reader could not be read
+	 */
+	public boolean nextRow() throws IOException {
+		while (true) {
+			fieldCount = 0;
+			rowStart = pos;
+			if (pos >= limit && !fill()) {
+				return false;
+			}
+			if (rowNumber == 0 && buffer[pos] == '\uFEFF') {
+				rowStart = ++pos;
+				if (!hasChar()) {
+					return false;
+				}
+			}
+			if (isLineEnd(buffer[pos])) {
+				skipLineEnd();
+				++rowNumber;
+				continue;
+			}
+			readRow();
+			++rowNumber;
+			return true;
+		}
+	}
+
+	/**
+	 * Reads the fields of a row that is known to not be blank
+	 * @throws IOException if the reader could not be read
+	 */
+	private void readRow() throws IOException {
+		while (true) {
+			while (hasChar() && (buffer[pos] == ' ' || buffer[pos] == '\t')) {
+				++pos;
+			}
+			fieldStart = pos;
+			write = pos;
+			keepEnd = pos;
+			if (hasChar() && buffer[pos] == '"') {
+				++pos;
+				while (hasChar()) {
+					char c = buffer[pos++];
+					if (c == '"') {
+						if (hasChar() && buffer[pos] == '"') {
+							++pos;
+						} else {
+							break;
+						}
+					}
+					buffer[write++] = c;
+				}
+				keepEnd = write;
+			}
+			while (hasChar() && buffer[pos] != ',' && !isLineEnd(buffer[pos])) {
+				buffer[write++] = buffer[pos++];
+			}
+			int end = write;
+			while (end > keepEnd && (buffer[end - 1] == ' ' || buffer[end - 1] == '\t')) {
+				--end;
+			}
+			addField(fieldStart, end);
+
+			if (hasChar() && buffer[pos] == ',') {
+				++pos;
+				if (!hasChar()) {
+					addField(pos, pos);
+					return;
+				}
+			} else {
+				skipLineEnd();
+				return;
+			}
+		}
+	}
+
+	private void addField(int start, int end) {
+		if (fieldCount == fieldStarts.length) {
+			fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+			fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+		}
+		fieldStarts[fieldCount] = start;
+		fieldEnds[fieldCount] = end;
+		++fieldCount;
+	}
+
+	private static boolean isLineEnd(char c) {
+		return c == '\n' || c == '\r';
+	}
+
+	private void skipLineEnd() throws IOException {
+		if (hasChar() && buffer[pos] == '\r') {
+			++pos;
+		}
+		if (hasChar() && buffer[pos] == '\n') {
+			++pos;
+		}
+	}
+
+	/**
+	 * Checks that there is a character at pos, reading more from the reader if needed
+	 * @return True if there is a character at pos
+	 * @throws IOException if the reader could not be read
+	 */
+	private boolean hasChar() throws IOException {
+		return pos < limit || fill();
+	}
+
+	/**
+	 * Reads more characters into the buffer. The current row is moved to the front
+	 * of the buffer first (or the buffer is grown if the row already fills it), and
+	 * every position inside the row is moved with it.
+	 * @return True if at least one character was read
+	 * @throws IOException if the reader could not be read
+	 */
+	private boolean fill() throws IOException {
+		if (eof) {
+			return false;
+		}
+		if (rowStart > 0) {
+			int shift = rowStart;
+			System.arraycopy(buffer, rowStart, buffer, 0, limit - rowStart);
+			limit -= shift;
+			pos -= shift;
+			fieldStart -= shift;
+			write -= shift;
+			keepEnd -= shift;
+			rowStart = 0;
+			for (int i = 0; i < fieldCount; ++i) {
+				fieldStarts[i] -= shift;
+				fieldEnds[i] -= shift;
+			}
+		}
+		if (limit == buffer.length) {
+			buffer = Arrays.copyOf(buffer, buffer.length * 2);
+		}
+		int read = reader.read(buffer, limit, buffer.length - limit);
+		if (read <= 0) {
+			eof = true;
+			return false;
+		}
+		limit += read;
+		return true;
+	}
+
+	/**
+	 * The number of fields in the current row
+	 * @return The number of fields
+	 */
+	public int getFieldCount() {
+		return fieldCount;
+	}
+
+	/**
+	 * The buffer that holds the current row. Only valid until the next call to nextRow.
+	 * @return The buffer
+	 */
+	public char[] getBuffer() {
+		return buffer;
+	}
+
+	/**
+	 * Where a field starts in the buffer
+	 * @param field The field index
+	 * @return The index of the field's first character
+	 */
+	public int getFieldStart(int field) {
+		return fieldStarts[field];
+	}
+
+	/**
+	 * Where a field ends in the buffer
+	 * @param field The field index
+	 * @return The index just past the field's last character
+	 */
+	public int getFieldEnd(int field) {
+		return fieldEnds[field];
+	}
+
+	/**
+	 * If a field has no characters
+	 * @param field The field index
+	 * @return True if the field is empty, false otherwise
+	 */
+	public boolean isFieldEmpty(int field) {
+		return fieldStarts[field] == fieldEnds[field];
+	}
+
+	/**
+	 * Builds a String from a field
+	 * @param field The field index
+	 * @return The field's value
+	 */
+	public String getField(int field) {
+		return new String(buffer, fieldStarts[field], fieldEnds[field] - fieldStarts[field]);
+	}
+
+	/**
+	 * Builds Strings for all the fields in the current row
+	 * @return The row's values
+	 */
+	public String[] getFields() {
+		String[] fields = new String[fieldCount];
+		for (int i = 0; i < fieldCount; ++i) {
+			fields[i] = getField(i);
+		}
+		return fields;
+	}
+
+	/**
+	 * The number of the line the current row started on, counting the header as line 1
+	 * (blank lines are counted, line breaks inside quoted fields are not)
+	 * @return The row number
+	 */
+	public long getRowNumber() {
+		return rowNumber;
+	}
+
+}	//end class CsvTokenizer
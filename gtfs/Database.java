@@ -25,7 +25,6 @@ package gtfs;
 
 import java.util.*;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
 
 /**
  * Database class to act as our subject for the project
@@ -45,7 +44,12 @@ public class Database implements Subject {
 	private Trie<Stop> stops;
 	private Trie<Route> routes;
 	private Trie<Trip> trips;
-	private ArrayList<StopTime> stopTimes;
+	private StopTimeTable stopTimes;
+	private StopIndex stopIndex;
+	private RouteIndex routeIndex;
+	private StopGrid stopGrid;
+	private ServiceCalendar calendar;
+	private ShapeTable shapes;
 
 	//---------------- CONSTRUCTOR METHODS ----------------\\
 
@@ -55,7 +59,12 @@ public class Database implements Subject {
 		routes = new Trie<>();
 		stops = new Trie<>();
 		trips = new Trie<>();
-		stopTimes = new ArrayList<>();
+		stopTimes = new StopTimeTable();
+		stopIndex = StopIndex.build(stopTimes);
+		routeIndex = RouteIndex.build(trips, stopTimes);
+		stopGrid = StopGrid.build(stops);
+		calendar = ServiceCalendar.EVERY_DAY;
+		shapes = ShapeTable.EMPTY;
 	}
 
 	/**
@@ -87,10 +96,75 @@ public class Database implements Subject {
 		return trips;
 	}
 
-	public ArrayList<StopTime> getStopTimes() {
+	/**
+	 * The stop times, as a table whose row is the stop time ID. Iterating it reuses one
+	 * StopTime for every row (see StopTimeTable).
+	 * @return The stop times
+	 */
+	public StopTimeTable getStopTimes() {
 		return stopTimes;
 	}
 
+	/**
+	 * The stop times and trips at each stop, by stop code. This is null when the stop times
+	 * are lazily loaded, since building it would read all of them.
+	 * @return The index, or null
+	 */
+	public StopIndex getStopIndex() {
+		return stopIndex;
+	}
+
+	/**
+	 * The trips of each route in order of when they start, by route code. This is null when
+	 * the stop times are lazily loaded, since building it would read all of the trips' stop times.
+	 * @return The index, or null
+	 */
+	public RouteIndex getRouteIndex() {
+		return routeIndex;
+	}
+
+	/**
+	 * Where the stops are, for finding the stops near a point
+	 * @return The index
+	 */
+	public StopGrid getStopGrid() {
+		return stopGrid;
+	}
+
+	/**
+	 * Which days each service runs on. A feed without calendar files runs every
+	 * service every day (see ServiceCalendar.EVERY_DAY).
+	 * @return The calendar
+	 */
+	public ServiceCalendar getCalendar() {
+		return calendar;
+	}
+
+	/**
+	 * The paths the trips follow, by shape ID. Empty if the feed has no shapes.txt.
+	 * @return The shapes
+	 */
+	public ShapeTable getShapes() {
+		return shapes;
+	}
+
+	/**
+	 * The trips that run on a day, by trip code. This is one bit test per trip,
+	 * so departure searches can then filter their stop times on the trip code alone.
+	 *
+	 * @param day The day index from getCalendar().dayOf.
+	 * @return The trip codes of the trips that run on the day.
+	 */
+	public BitSet getTripsRunningOn(int day) {
+		BitSet running = new BitSet(StringDictionary.getInstance().size());
+		for (Trip trip: trips) {
+			if (calendar.runsOn(trip.getServiceCode(), day)) {
+				running.set(trip.getTripCode());
+			}
+		}
+		return running;
+	}
+
 	/**
 	 * Use a mask to get a filtered collection of routes.
 	 * @param mask The function to compare routes against
@@ -121,10 +195,11 @@ public class Database implements Subject {
 
 	/**
 	 * Use a mask to get a filtered collection of stop times.
+	 * The mask is tested on one reused StopTime, so only the matches are created.
 	 * @param mask The function to compare stop times against
 	 */
 	public List<StopTime> getStopTimes(Predicate<StopTime> mask) {
-		return stopTimes.stream().filter(mask).collect(Collectors.toList());
+		return stopTimes.filter(mask);
 	}
 
 	/**
@@ -152,7 +227,7 @@ public class Database implements Subject {
 	 * @param stopTimes StopTime object collection.
 	 * @return If the initialization was successfully completed.
 	 */
-	public boolean initDatabase(Collection<Stop> stops, Collection<Route> routes, Collection<Trip> trips, ArrayList<StopTime> stopTimes) {
+	public boolean initDatabase(Collection<Stop> stops, Collection<Route> routes, Collection<Trip> trips, Collection<StopTime> stopTimes) {
 		initStops(stops);
 		initRoutes(routes);
 		initTrips(trips);
@@ -164,6 +239,8 @@ public class Database implements Subject {
 
 	/**
 	 * Append more GTFS object collections onto co-existing collection data.
+	 * Objects whose key is already loaded replace the loaded object, and new stop times
+	 * are added to their trips and routes.
 	 *
 	 * @param stops Stop object collection.
 	 * @param routes Route object collection.
@@ -172,16 +249,299 @@ public class Database implements Subject {
 	 * @return If the adding was successfully completed.
 	 */
 	public boolean appendDatabase(Collection<Stop> stops, Collection<Route> routes, Collection<Trip> trips, Collection<StopTime> stopTimes) {
-		appendStops(stops);
-		appendRoutes(routes);
-		appendTrips(trips);
-		appendStopTimes(stopTimes);
+		return applyDelta(FeedDelta.diff(this, stops, routes, trips, stopTimes, false));
+	}
 
-		notifyObservers();
+	/**
+	 * Applies the inserts, updates and deletes of a delta, keeping the stop time lists of
+	 * the trips and routes up to date as it goes. Only the changed rows are touched.
+	 * Stop time IDs stay equal to their position: a deleted stop time is replaced by the
+	 * last stop time, which takes its ID.
+	 *
+	 * @param delta The delta from FeedDelta.diff against this database.
+	 * @return If the delta was applied, false if it changes the stop times of a lazily loaded feed.
+	 */
+	public boolean applyDelta(FeedDelta delta) {
+		if (stopTimes instanceof LazyStopTimeTable && delta.getStopTimes().size() > 0) {
+			// its rows are lines of the file, so none can be added or removed
+			return false;
+		}
+		// the trips whose route or stop times change, to put back in place in the route index
+		BitSet changedTrips = new BitSet();
+		for (Stop stop: delta.getStops().getInserted()) {
+			stops.addKey(stop.getStopID(), stop);
+			locateStop(stop);
+		}
+		for (Stop stop: delta.getStops().getUpdated()) {
+			stops.removeKey(stop.getStopID());
+			stops.addKey(stop.getStopID(), stop);
+			locateStop(stop);
+		}
+
+		for (Route route: delta.getRoutes().getInserted()) {
+			routes.addKey(route.getRouteID(), route);
+		}
+		for (Route route: delta.getRoutes().getUpdated()) {
+			Route old = routes.removeKey(route.getRouteID());
+			route.getStopTimeIDs().addAll(old.getStopTimeIDs());
+			routes.addKey(route.getRouteID(), route);
+		}
+
+		for (Trip trip: delta.getTrips().getInserted()) {
+			trips.addKey(trip.getTripID(), trip);
+			changedTrips.set(trip.getTripCode());
+		}
+		for (Trip trip: delta.getTrips().getUpdated()) {
+			changedTrips.set(trip.getTripCode());
+			Trip old = trips.removeKey(trip.getTripID());
+			trip.getStopTimeIDs().addAll(old.getStopTimeIDs());
+			trips.addKey(trip.getTripID(), trip);
+			if (!trip.getRouteID().equals(old.getRouteID())) {
+				// the trip's stop times move to the new route
+				Route oldRoute = routes.getValue(old.getRouteID());
+				if (oldRoute != null) {
+					oldRoute.getStopTimeIDs().removeAll(new HashSet<>(trip.getStopTimeIDs()));
+				}
+				Route newRoute = routes.getValue(trip.getRouteID());
+				if (newRoute != null) {
+					newRoute.getStopTimeIDs().addAll(trip.getStopTimeIDs());
+				}
+				for (int stopTimeID: trip.getStopTimeIDs()) {
+					countRoute(stopTimeID, oldRoute, false);
+					countRoute(stopTimeID, newRoute, true);
+				}
+			}
+		}
 
+		// the trip ID and stop sequence are the key, so an update stays on the same trip
+		for (StopTime stopTime: delta.getStopTimes().getUpdated()) {
+			int stopTimeID = stopTime.getStopTimeID();
+			changedTrips.set(stopTime.getTripCode());
+			// the stop may change, and the route's count moves with it
+			Route route = getRouteOfStopTime(stopTimeID);
+			unindexStopTime(stopTimeID);
+			countRoute(stopTimeID, route, false);
+			stopTimes.set(stopTimeID, stopTime);
+			indexStopTime(stopTimeID);
+			countRoute(stopTimeID, route, true);
+		}
+		delta.getStopTimes().getDeleted().forEach(stopTime -> changedTrips.set(stopTime.getTripCode()));
+		// highest first, so the last stop time that replaces a deleted one is never deleted itself
+		delta.getStopTimes().getDeleted().stream()
+				.mapToInt(StopTime::getStopTimeID)
+				.boxed()
+				.sorted(Comparator.reverseOrder())
+				.forEach(this::removeStopTime);
+		for (StopTime stopTime: delta.getStopTimes().getInserted()) {
+			stopTime.setStopTimeID(stopTimes.size());
+			stopTimes.add(stopTime);
+			insertStopTime(stopTime.getStopTimeID());
+			indexStopTime(stopTime.getStopTimeID());
+			changedTrips.set(stopTime.getTripCode());
+		}
+
+		for (Trip trip: delta.getTrips().getDeleted()) {
+			trips.removeKey(trip.getTripID());
+			changedTrips.set(trip.getTripCode());
+		}
+		changedTrips.stream().forEach(this::reindexTrip);
+		for (Route route: delta.getRoutes().getDeleted()) {
+			routes.removeKey(route.getRouteID());
+		}
+		for (Stop stop: delta.getStops().getDeleted()) {
+			stops.removeKey(stop.getStopID());
+			stopGrid.remove(StringDictionary.getInstance().find(stop.getStopID()));
+			forgetTripDistances(stop.getStopID());
+		}
+
+		notifyObservers();
 		return true;
 	}
 
+	/**
+	 * Puts a trip back in its place in the route index, or takes it out if it is gone, and
+	 * forgets the distance and speed worked out from its old stop times
+	 *
+	 * @param tripCode The trip's trip ID code.
+	 */
+	private void reindexTrip(int tripCode) {
+		Trip trip = trips.getValue(StringDictionary.getInstance().decode(tripCode));
+		if (trip != null) {
+			trip.forgetDistance();
+		}
+		if (routeIndex == null) {
+			return;
+		}
+		if (trip == null) {
+			routeIndex.remove(tripCode);
+		} else {
+			routeIndex.update(trip, stopTimes);
+		}
+	}
+
+	/**
+	 * Puts a stop that was added or moved in its place in the stop grid, and forgets the
+	 * distances and speeds of the trips that stop at it
+	 *
+	 * @param stop The stop.
+	 */
+	private void locateStop(Stop stop) {
+		stopGrid.add(StringDictionary.getInstance().encode(stop.getStopID()), stop.getLatitude(), stop.getLongitude());
+		forgetTripDistances(stop.getStopID());
+	}
+
+	/**
+	 * Forgets the distances and speeds of the trips that stop at a stop, after the stop moved
+	 * or was added or removed. Without a stop index every trip forgets them.
+	 *
+	 * @param stopID The stop's ID.
+	 */
+	private void forgetTripDistances(String stopID) {
+		if (stopIndex == null) {
+			for (Trip trip: trips) {
+				// an empty trie iterates a single null
+				if (trip != null) {
+					trip.forgetDistance();
+				}
+			}
+			return;
+		}
+		StringDictionary ids = StringDictionary.getInstance();
+		for (int tripCode: stopIndex.getTripCodes(ids.find(stopID))) {
+			Trip trip = trips.getValue(ids.decode(tripCode));
+			if (trip != null) {
+				trip.forgetDistance();
+			}
+		}
+	}
+
+	/**
+	 * Adds a new stop time to its trip, in stop sequence order, and to its route
+	 *
+	 * @param stopTimeID The stop time's ID (its row, already in the stop time table).
+	 */
+	private void insertStopTime(int stopTimeID) {
+		Trip trip = trips.getValue(StringDictionary.getInstance().decode(stopTimes.getTripCode(stopTimeID)));
+		if (trip == null) {
+			return;
+		}
+		ArrayList<Integer> tripStopTimeIDs = trip.getStopTimeIDs();
+		int sequence = stopTimes.getStopSequence(stopTimeID);
+		int position = tripStopTimeIDs.size();
+		while (position > 0 && stopTimes.getStopSequence(tripStopTimeIDs.get(position - 1)) > sequence) {
+			--position;
+		}
+		tripStopTimeIDs.add(position, stopTimeID);
+		Route route = routes.getValue(trip.getRouteID());
+		if (route != null) {
+			route.addStopTimeToRoute(stopTimeID);
+			countRoute(stopTimeID, route, true);
+		}
+	}
+
+	/**
+	 * Removes a stop time by moving the last stop time into its place
+	 *
+	 * @param stopTimeID The stop time's ID (its position).
+	 */
+	private void removeStopTime(int stopTimeID) {
+		replaceStopTimeID(stopTimes.getTripCode(stopTimeID), stopTimeID, -1);
+		unindexStopTime(stopTimeID);
+		int last = stopTimes.size() - 1;
+		if (stopTimeID != last) {
+			replaceStopTimeID(stopTimes.getTripCode(last), last, stopTimeID);
+			unindexStopTime(last);
+			stopTimes.copyRow(last, stopTimeID);
+			indexStopTime(stopTimeID);
+		}
+		stopTimes.remove(last);
+	}
+
+	/**
+	 * Adds a stop time to the stop index, if there is one
+	 *
+	 * @param stopTimeID The stop time's ID (its row).
+	 */
+	private void indexStopTime(int stopTimeID) {
+		if (stopIndex != null) {
+			stopIndex.add(stopTimeID, stopTimes.getStopCode(stopTimeID), stopTimes.getTripCode(stopTimeID),
+					stopTimes.getArrivalTime(stopTimeID));
+		}
+	}
+
+	/**
+	 * Removes a stop time from the stop index, if there is one, before it is changed or removed
+	 *
+	 * @param stopTimeID The stop time's ID (its row).
+	 */
+	private void unindexStopTime(int stopTimeID) {
+		if (stopIndex != null) {
+			stopIndex.remove(stopTimeID, stopTimes.getStopCode(stopTimeID), stopTimes.getTripCode(stopTimeID),
+					stopTimes.getArrivalTime(stopTimeID));
+		}
+	}
+
+	/**
+	 * Replaces a stop time ID in the lists of its trip and route, keeping its place in the list
+	 *
+	 * @param tripCode The stop time's trip code.
+	 * @param oldID The ID to replace.
+	 * @param newID The ID to replace it with, or -1 to remove it.
+	 */
+	private void replaceStopTimeID(int tripCode, int oldID, int newID) {
+		Trip trip = trips.getValue(StringDictionary.getInstance().decode(tripCode));
+		if (trip == null) {
+			return;
+		}
+		replaceID(trip.getStopTimeIDs(), oldID, newID);
+		Route route = routes.getValue(trip.getRouteID());
+		if (route != null && replaceID(route.getStopTimeIDs(), oldID, newID) && newID < 0) {
+			countRoute(oldID, route, false);
+		}
+	}
+
+	private static boolean replaceID(List<Integer> ids, int oldID, int newID) {
+		int index = ids.lastIndexOf(oldID);
+		if (index >= 0) {
+			if (newID < 0) {
+				ids.remove(index);
+			} else {
+				ids.set(index, newID);
+			}
+		}
+		return index >= 0;
+	}
+
+	/**
+	 * The route whose stop time list a stop time is in
+	 *
+	 * @param stopTimeID The stop time's ID (its row).
+	 * @return The route of the stop time's trip, or null if the trip or route isn't loaded.
+	 */
+	private Route getRouteOfStopTime(int stopTimeID) {
+		Trip trip = trips.getValue(StringDictionary.getInstance().decode(stopTimes.getTripCode(stopTimeID)));
+		return trip == null ? null : routes.getValue(trip.getRouteID());
+	}
+
+	/**
+	 * Counts a stop time at its stop for a route in the stop index, or stops counting it,
+	 * as it is added to or removed from the route's stop time list
+	 *
+	 * @param stopTimeID The stop time's ID (its row).
+	 * @param route The route, may be null.
+	 * @param counted True to count the stop time, false to stop counting it.
+	 */
+	private void countRoute(int stopTimeID, Route route, boolean counted) {
+		if (stopIndex == null || route == null) {
+			return;
+		}
+		if (counted) {
+			stopIndex.addRoute(stopTimes.getStopCode(stopTimeID), route.getRouteCode());
+		} else {
+			stopIndex.removeRoute(stopTimes.getStopCode(stopTimeID), route.getRouteCode());
+		}
+	}
+
 	/**
 	 * Initializes collection of stops.
 	 *
@@ -193,6 +553,7 @@ public class Database implements Subject {
 		for (Stop stop: stops) {
 			this.stops.addKey(stop.getStopID(), stop);
 		}
+		stopGrid = StopGrid.build(this.stops);
 		notifyObservers();
 		return true;
 	}
@@ -223,37 +584,151 @@ public class Database implements Subject {
 		for (Trip trip: trips) {
 			this.trips.addKey(trip.getTripID(), trip);
 		}
+		if (routeIndex != null) {
+			routeIndex = RouteIndex.build(this.trips, stopTimes);
+		}
 		notifyObservers();
 		return true;
 	}
 
 	/**
-	 * Initializes collection of stop times.
+	 * Initializes collection of stop times. A StopTimeTable is used as is, anything else
+	 * is copied into a new table.
 	 *
 	 * @param stopTimes StopTime object collection.
 	 * @return If the initialization was successful.
 	 */
-	public boolean initStopTimes(ArrayList<StopTime> stopTimes) {
-		this.stopTimes = stopTimes;
+	public boolean initStopTimes(Collection<StopTime> stopTimes) {
+		this.stopTimes = stopTimes instanceof StopTimeTable ?
+				(StopTimeTable) stopTimes : new StopTimeTable(stopTimes);
+		if (this.stopTimes instanceof LazyStopTimeTable) {
+			this.stopIndex = ((LazyStopTimeTable) this.stopTimes).getStopIndex();
+			this.routeIndex = null;
+		} else {
+			this.stopIndex = StopIndex.build(this.stopTimes);
+		}
 		notifyObservers();
 		return true;
 	}
 
 	public void distributeStopTimes() {
-		for (int i = 0; i < stopTimes.size(); ++i) {
-			String tripID = stopTimes.get(i).getTripID();
-			Trip trip = trips.getValue(tripID);
+		if (stopTimes instanceof LazyStopTimeTable) {
+			unloadStopTimeIDs(trips, routes);
+			stopIndex = ((LazyStopTimeTable) stopTimes).getStopIndex();
+			stopIndex.countRoutes(stopTimes, tripsByCode(trips), routesByCode(routes));
+		} else {
+			// as in ImportedFeed, so each trip's stop times are one run of rows in stop sequence order
+			stopTimes.sortByTripAndSequence();
+			stopIndex = StopIndex.build(stopTimes);
+			distributeStopTimes(stopTimes, tripsByCode(trips), routesByCode(routes), stopIndex, 0, stopTimes.size());
+			routeIndex = RouteIndex.build(trips, stopTimes);
+		}
+	}
+
+	/**
+	 * Clears the stop time lists of trips and routes, so they are looked up when they are
+	 * first asked for. This takes the place of distributeStopTimes for a LazyStopTimeTable.
+	 *
+	 * @param trips The trips.
+	 * @param routes The routes.
+	 */
+	static void unloadStopTimeIDs(Trie<Trip> trips, Trie<Route> routes) {
+		for (Trip trip: trips) {
+			// an empty trie iterates a single null
+			if (trip != null) {
+				trip.unloadStopTimeIDs();
+			}
+		}
+		for (Route route: routes) {
+			if (route != null) {
+				route.unloadStopTimeIDs();
+			}
+		}
+	}
+
+	/**
+	 * Puts trips in an array indexed by their trip code, so they can be joined on ints
+	 *
+	 * @param trips The trips.
+	 * @return The trips by trip code (null where there is no trip).
+	 */
+	static Trip[] tripsByCode(Trie<Trip> trips) {
+		Trip[] byCode = new Trip[StringDictionary.getInstance().size()];
+		for (Trip trip: trips) {
+			// an empty trie iterates a single null
+			if (trip != null) {
+				byCode[trip.getTripCode()] = trip;
+			}
+		}
+		return byCode;
+	}
+
+	/**
+	 * Puts routes in an array indexed by their route code, so they can be joined on ints
+	 *
+	 * @param routes The routes.
+	 * @return The routes by route code (null where there is no route).
+	 */
+	static Route[] routesByCode(Trie<Route> routes) {
+		Route[] byCode = new Route[StringDictionary.getInstance().size()];
+		for (Route route: routes) {
+			// an empty trie iterates a single null
+			if (route != null) {
+				byCode[route.getRouteCode()] = route;
+			}
+		}
+		return byCode;
+	}
+
+	/**
+	 * Adds a range of stop times to the stop time lists of their trips and routes, and
+	 * counts them for their routes in the stop index
+	 *
+	 * @param stopTimes The stop times, whose rows are their IDs.
+	 * @param tripsByCode The trips by trip code, from tripsByCode.
+	 * @param routesByCode The routes by route code, from routesByCode.
+	 * @param stopIndex The stop index of the stop times, from StopIndex.build.
+	 * @param from The first stop time to add.
+	 * @param to One past the last stop time to add.
+	 */
+	static void distributeStopTimes(StopTimeTable stopTimes, Trip[] tripsByCode, Route[] routesByCode,
+									StopIndex stopIndex, int from, int to) {
+		for (int i = from; i < to; ++i) {
+			int tripCode = stopTimes.getTripCode(i);
+			Trip trip = tripCode >= 0 && tripCode < tripsByCode.length ? tripsByCode[tripCode] : null;
 			if (trip != null) {
 				trip.addStopTimeToTrip(i);
-				String routeID = trip.getRouteID();
-				Route route = routes.getValue(routeID);
+				int routeCode = trip.getRouteCode();
+				Route route = routeCode >= 0 && routeCode < routesByCode.length ? routesByCode[routeCode] : null;
 				if (route != null) {
 					route.addStopTimeToRoute(i);
+					stopIndex.addRoute(stopTimes.getStopCode(i), routeCode);
 				}
 			}
 		}
 	}
 
+	/**
+	 * Replaces all of the data with a feed that was imported and indexed in the background.
+	 * Observers are only notified once, after everything has been swapped in.
+	 *
+	 * @param feed The imported feed.
+	 * @return If the feed was published.
+	 */
+	public boolean publish(ImportedFeed feed) {
+		this.stops = feed.getStops();
+		this.routes = feed.getRoutes();
+		this.trips = feed.getTrips();
+		this.stopTimes = feed.getStopTimes();
+		this.stopIndex = feed.getStopIndex();
+		this.routeIndex = feed.getRouteIndex();
+		this.stopGrid = feed.getStopGrid();
+		this.calendar = feed.getCalendar();
+		this.shapes = feed.getShapes();
+		StopTime.resetStopTimeIDCounter();
+		notifyObservers();
+		return true;
+	}
 
 	/**
 	 * Appends collection of stops to existing collection.
@@ -264,6 +739,7 @@ public class Database implements Subject {
 	public boolean appendStops(Collection<Stop> stops) {
 		for (Stop stop: stops) {
 			this.stops.addKey(stop.getStopID(), stop);
+			locateStop(stop);
 		}
 		notifyObservers();
 		return true;
@@ -292,19 +768,76 @@ public class Database implements Subject {
 	public boolean appendTrips(Collection<Trip> trips) {
 		for (Trip trip: trips) {
 			this.trips.addKey(trip.getTripID(), trip);
+			reindexTrip(trip.getTripCode());
 		}
 		notifyObservers();
 		return true;
 	}
 
 	/**
-	 * Appends collection of stop times to existing collection.
+	 * Appends collection of stop times to existing collection, adding each one to its trip
+	 * and route and to the indexes, as applyDelta does for inserted stop times.
 	 *
 	 * @param stopTimes StopTime object collection.
-	 * @return If the adding was successful.
+	 * @return If the adding was successful, false if the stop times are lazily loaded.
 	 */
 	public boolean appendStopTimes(Collection<StopTime> stopTimes) {
+		if (this.stopTimes instanceof LazyStopTimeTable) {
+			// its rows are lines of the file, so none can be added
+			return false;
+		}
+		int first = this.stopTimes.size();
 		this.stopTimes.addAll(stopTimes);
+		BitSet changedTrips = new BitSet();
+		for (int i = first; i < this.stopTimes.size(); ++i) {
+			insertStopTime(i);
+			indexStopTime(i);
+			int tripCode = this.stopTimes.getTripCode(i);
+			if (tripCode >= 0) {
+				changedTrips.set(tripCode);
+			}
+		}
+		changedTrips.stream().forEach(this::reindexTrip);
+		notifyObservers();
+		return true;
+	}
+
+	/**
+	 * Changes the arrival and departure times of a stop time, keeping the stop index in
+	 * arrival time order.
+	 *
+	 * @param stopTimeID The stop time's ID (its row).
+	 * @param arrival The new arrival time, in seconds after midnight (see ServiceTime).
+	 * @param departure The new departure time, in seconds after midnight.
+	 * @return If the times were changed.
+	 */
+	public boolean setStopTimeTimes(int stopTimeID, int arrival, int departure) {
+		if (stopTimeID < 0 || stopTimeID >= stopTimes.size()) {
+			return false;
+		}
+		unindexStopTime(stopTimeID);
+		stopTimes.setArrivalTime(stopTimeID, arrival);
+		stopTimes.setDepartureTime(stopTimeID, departure);
+		indexStopTime(stopTimeID);
+		// the trip may start at a different time now
+		reindexTrip(stopTimes.getTripCode(stopTimeID));
+		notifyObservers();
+		return true;
+	}
+
+	/**
+	 * Moves a stop, keeping the stop grid up to date, and forgets the distances and speeds
+	 * of the trips that stop at it.
+	 *
+	 * @param stop The stop.
+	 * @param latitude The new latitude.
+	 * @param longitude The new longitude.
+	 * @return If the stop was moved.
+	 */
+	public boolean moveStop(Stop stop, double latitude, double longitude) {
+		stop.setLatitude(latitude);
+		stop.setLongitude(longitude);
+		locateStop(stop);
 		notifyObservers();
 		return true;
 	}
@@ -0,0 +1,270 @@
+/*
+ * This file is part of gtfstransitproject_group5.
+ *
+ * gtfstransitproject_group5 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * gtfstransitproject_group5 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with gtfstransitproject_group5.  If not, see <https://www.gnu.org/licenses/>.
+
+ * Course: CS 2030 031
+ * Fall 2021
+ * GTFS Transit Project
+ * Names: Jonathan Keane, Kevin Paganini, Kyle Senebouttarath
+ * Created: 10/4/2021
+ * Professor: Dr. Wright
+ */
+package gtfs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * The difference between the loaded feed and a revised version of it.
+ *
+ * Stops, routes and trips are matched by their IDs and stop times by their trip ID and
+ * stop sequence. A row that isn't loaded yet is an insert, a row whose values changed
+ * is an update and, when the revised feed is complete, a loaded row that isn't in it
+ * is a delete. Database.applyDelta then applies only these rows.
+ */
+public class FeedDelta {
+
+	/**
+	 * The inserted, updated and deleted objects of one GTFS type
+	 * @param <T> The GTFS object type
+	 */
+	public static class Changes<T> {
+		private final List<T> inserted = new ArrayList<>();
+		private final List<T> updated = new ArrayList<>();
+		private final List<T> deleted = new ArrayList<>();
+
+		/**
+		 * The objects to add
+		 * @return The new objects
+		 */
+		public List<T> getInserted() {
+			return inserted;
+		}
+
+		/**
+		 * The objects to put in place of the loaded objects with the same key
+		 * @return The new objects
+		 */
+		public List<T> getUpdated() {
+			return updated;
+		}
+
+		/**
+		 * The loaded objects to remove
+		 * @return The loaded objects
+		 */
+		public List<T> getDeleted() {
+			return deleted;
+		}
+
+		/**
+		 * The number of changed objects
+		 * @return The number of inserts, updates and deletes
+		 */
+		public int size() {
+			return inserted.size() + updated.size() + deleted.size();
+		}
+
+		@Override
+		public String toString() {
+			return "+" + inserted.size() + " ~" + updated.size() + " -" + deleted.size();
+		}
+	}
+
+	private final Changes<Stop> stops = new Changes<>();
+	private final Changes<Route> routes = new Changes<>();
+	private final Changes<Trip> trips = new Changes<>();
+	private final Changes<StopTime> stopTimes = new Changes<>();
+
+	private FeedDelta() {
+	}
+
+	/**
+	 * Finds the difference between the data in the Database and a revised feed
+	 * @param database The database
+	 * @param stops The revised stops
+	 * @param routes The revised routes
+	 * @param trips The revised trips
+	 * @param stopTimes The revised stop times
+	 * @param deleteMissing True if the revised feed is complete, so loaded rows missing from it are deleted.
+	 *                      False to only insert and update.
+	 * @return The delta
+	 */
+	public static FeedDelta diff(Database database, Collection<Stop> stops, Collection<Route> routes,
+								 Collection<Trip> trips, Collection<StopTime> stopTimes, boolean deleteMissing) {
+		FeedDelta delta = new FeedDelta();
+		diff(database.getStops(), stops, Stop::getStopID, delta.stops, deleteMissing);
+		diff(database.getRoutes(), routes, Route::getRouteID, delta.routes, deleteMissing);
+		diff(database.getTrips(), trips, Trip::getTripID, delta.trips, deleteMissing);
+		diffStopTimes(database, stopTimes, delta.stopTimes, deleteMissing);
+		return delta;
+	}
+
+	private static <T extends GTFSObject> void diff(Trie<T> loaded, Collection<T> revised, Function<T, String> key,
+													Changes<T> changes, boolean deleteMissing) {
+		Set<String> revisedKeys = new HashSet<>();
+		for (T object : revised) {
+			String id = key.apply(object);
+			if (!revisedKeys.add(id)) {
+				// the first row with a key wins, as in a full import
+				continue;
+			}
+			T existing = loaded.getValue(id);
+			if (existing == null) {
+				changes.inserted.add(object);
+			} else if (!Arrays.equals(existing.getColumnValues(), object.getColumnValues())) {
+				changes.updated.add(object);
+			}
+		}
+		if (deleteMissing) {
+			for (T existing : loaded) {
+				if (!revisedKeys.contains(key.apply(existing))) {
+					changes.deleted.add(existing);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Diffs the stop times by trip ID and stop sequence. A loaded stop time is found through
+	 * its trip's stop time list, so no map of every loaded stop time is needed. Updated stop
+	 * times are given the stop time ID of the stop time they replace. The revised stop times
+	 * may come from a StopTimeTable's reused iterator, so the ones kept in the delta are copies.
+	 */
+	private static void diffStopTimes(Database database, Collection<StopTime> revised,
+									  Changes<StopTime> changes, boolean deleteMissing) {
+		StopTimeTable loaded = database.getStopTimes();
+		TripLookup trips = new TripLookup(database.getTrips());
+		// only stop times whose trip isn't loaded have to be matched by key
+		Map<Long, Integer> orphanRows = new HashMap<>();
+		for (int i = 0; i < loaded.size(); ++i) {
+			if (trips.get(loaded.getTripCode(i)) == null) {
+				orphanRows.putIfAbsent(key(loaded.getTripCode(i), loaded.getStopSequence(i)), i);
+			}
+		}
+
+		boolean[] kept = new boolean[loaded.size()];
+		Set<Long> insertedKeys = new HashSet<>();
+		for (StopTime stopTime : revised) {
+			Trip trip = trips.get(stopTime.getTripCode());
+			int row = -1;
+			if (trip != null) {
+				for (int i = 0; i < trip.getStopTimeCount(); ++i) {
+					int id = trip.getStopTimeID(i);
+					if (loaded.getStopSequence(id) == stopTime.getStopSequence()) {
+						row = id;
+						break;
+					}
+				}
+			} else {
+				row = orphanRows.getOrDefault(key(stopTime.getTripCode(), stopTime.getStopSequence()), -1);
+			}
+			if (row < 0) {
+				// the first row with a key wins, as in a full import
+				if (insertedKeys.add(key(stopTime.getTripCode(), stopTime.getStopSequence()))) {
+					changes.inserted.add(copy(stopTime, -1));
+				}
+			} else if (!kept[row]) {
+				kept[row] = true;
+				if (!sameValues(loaded, row, stopTime)) {
+					changes.updated.add(copy(stopTime, row));
+				}
+			}
+		}
+		if (deleteMissing) {
+			for (int i = 0; i < loaded.size(); ++i) {
+				if (!kept[i]) {
+					changes.deleted.add(loaded.copy(i));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Looks trips up by trip code
+	 */
+	private static class TripLookup {
+		private final Trip[] tripsByCode;
+
+		TripLookup(Trie<Trip> trips) {
+			this.tripsByCode = Database.tripsByCode(trips);
+		}
+
+		Trip get(int tripCode) {
+			return tripCode >= 0 && tripCode < tripsByCode.length ? tripsByCode[tripCode] : null;
+		}
+	}
+
+	private static long key(int tripCode, int stopSequence) {
+		return ((long) tripCode << 32) | (stopSequence & 0xFFFFFFFFL);
+	}
+
+	private static StopTime copy(StopTime stopTime, int stopTimeID) {
+		return new StopTime(stopTime.getArrivalTime(), stopTime.getDepartureTime(), stopTime.getDropOffTypeValue(),
+				stopTime.getPickupTypeValue(), stopTime.getStopHeadSign(), stopTime.getStopID(),
+				stopTime.getStopSequence(), stopTime.getTripID(), stopTimeID);
+	}
+
+	private static boolean sameValues(StopTimeTable loaded, int row, StopTime b) {
+		return	loaded.getArrivalTime(row) == b.getArrivalTime() &&
+				loaded.getDepartureTime(row) == b.getDepartureTime() &&
+				loaded.getStopCode(row) == b.getStopCode() &&
+				Objects.equals(StringDictionary.getInstance().decode(loaded.getHeadSignCode(row)), b.getStopHeadSign()) &&
+				loaded.getPickupType(row) == b.getPickupTypeValue() &&
+				loaded.getDropOffType(row) == b.getDropOffTypeValue();
+	}
+
+	public Changes<Stop> getStops() {
+		return stops;
+	}
+
+	public Changes<Route> getRoutes() {
+		return routes;
+	}
+
+	public Changes<Trip> getTrips() {
+		return trips;
+	}
+
+	public Changes<StopTime> getStopTimes() {
+		return stopTimes;
+	}
+
+	/**
+	 * If nothing changed
+	 * @return True if there are no changes, false otherwise
+	 */
+	public boolean isEmpty() {
+		return stops.size() + routes.size() + trips.size() + stopTimes.size() == 0;
+	}
+
+	/**
+	 * The delta sizes, such as "stops +1 ~0 -2" for 1 insert, no updates and 2 deletes
+	 * @return The delta sizes of each type
+	 */
+	@Override
+	public String toString() {
+		return "stops " + stops + ", routes " + routes + ", trips " + trips + ", stop times " + stopTimes;
+	}
+
+}	//end class FeedDelta
@@ -0,0 +1,1100 @@
+/*
+ * This file is part of gtfstransitproject_group5.
+ *
+ * gtfstransitproject_group5 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * gtfstransitproject_group5 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with gtfstransitproject_group5.  If not, see <https://www.gnu.org/licenses/>.
+
+ * Course: CS 2030 031
+ * Fall 2021
+ * GTFS Transit Project
+ * Names: Jonathan Keane, Kevin Paganini, Kyle Senebouttarath
+ * Created: 10/4/2021
+ * Professor: Dr. Wright
+ */
+package gtfs;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * The importing and searching of the application, without any of its GUI.
+ *
+ * The Controller hands its imports and searches to an engine and shows the results,
+ * while CommandLineDriver runs them with no JavaFX at all, such as on a server or
+ * under a profiler. Imported feeds are published to the engine's Database, and
+ * searches read from it.
+ */
+public class FeedEngine {
+	static final int SEARCH_RESULTS_LIMIT = 10;
+	private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+
+	/**
+	 * The different GTFS Object types
+	 */
+	enum GTFS_TYPE {
+		STOP,
+		ROUTE,
+		TRIP,
+		STOP_TIME,
+		NONE
+	}
+
+	/**
+	 * stop_times.txt files at least this big are imported with the ParallelStopTimeImporter
+	 */
+	private final static long PARALLEL_IMPORT_THRESHOLD = 8L << 20;
+
+	private boolean parallelStopTimeImport = true;
+
+	/**
+	 * The snapshot of a zipped feed is saved next to the zip with this extension
+	 */
+	private final static String SNAPSHOT_EXTENSION = ".snapshot";
+
+	/**
+	 * The snapshot of a feed of text files is saved in the same folder with this name
+	 */
+	private final static String SNAPSHOT_FILE_NAME = "gtfs" + SNAPSHOT_EXTENSION;
+
+	private boolean useSnapshots = true;
+
+	/**
+	 * The memory budget for the cached trips of a lazily loaded stop_times.txt, or 0 to load it all
+	 */
+	private long lazyStopTimeBudget;
+
+	private FeedDelta lastDelta;
+
+	/**
+	 * The rows skipped during the last import
+	 */
+	private final ValidationErrorLog importErrors = new ValidationErrorLog();
+
+	private final Database GTFS;
+
+	/**
+	 * Objects are parsed into these before they are indexed and published
+	 */
+	private final ArrayList<Stop> stops = new ArrayList<>();
+	private final ArrayList<Trip> trips = new ArrayList<>();
+	private final ArrayList<Route> routes = new ArrayList<>();
+	private StopTimeTable stopTimes = new StopTimeTable();
+
+	/**
+	 * Creates an engine for a database
+	 * @param database The database that feeds are imported into and searched in
+	 */
+	public FeedEngine(Database database) {
+		GTFS = database;
+	}
+
+	/**
+	 * The database of the engine
+	 * @return The database
+	 */
+	public Database getDatabase() {
+		return GTFS;
+	}
+
+	//---- IMPORTING
+
+	/**
+	 * Imports a feed and puts it in the database in place of the loaded one
+	 * @param feed A zipped feed, or a folder with the four GTFS files
+	 * @param progress Where to report progress, which is also checked for cancellation
+	 * @return True if the feed was loaded, false if files were missing or had invalid headers
+	 * @throws IOException if a file could not be read
+	 */
+	public boolean load(File feed, ImportProgress progress) throws IOException {
+		ImportedFeed imported = importFeed(feed, progress);
+		if (imported == null) {
+			return false;
+		}
+		GTFS.publish(imported);
+		return true;
+	}
+
+	/**
+	 * Imports a feed without putting it in the database
+	 * @param feed A zipped feed, or a folder with the four GTFS files
+	 * @param progress Where to report progress, which is also checked for cancellation
+	 * @return The imported feed, or null if files were missing or had invalid headers
+	 * @throws IOException if a file could not be read
+	 */
+	public ImportedFeed importFeed(File feed, ImportProgress progress) throws IOException {
+		if (feed.isFile() && feed.getName().endsWith(".zip")) {
+			return importZipFeed(feed, progress);
+		}
+		List<File> files = new ArrayList<>();
+		for (String filename: FeedParser.FILE_NAMES) {
+			File file = new File(feed, filename);
+			if (!file.isFile()) {
+				importErrors.clear();
+				return null;
+			}
+			files.add(file);
+		}
+		for (String filename: FeedParser.CALENDAR_FILE_NAMES) {
+			File file = new File(feed, filename);
+			if (file.isFile()) {
+				files.add(file);
+			}
+		}
+		File shapesFile = new File(feed, FeedParser.SHAPES_FILE);
+		if (shapesFile.isFile()) {
+			files.add(shapesFile);
+		}
+		return importFiles(files, progress);
+	}
+
+	/**
+	 * Imports the four GTFS files (on the calling thread)
+	 * @param files The files, and any of the optional calendar and shapes files
+	 * @param progress Where to report progress
+	 * @return The imported feed, or null if a file had an invalid header
+	 * @throws IOException if a file could not be read
+	 */
+	public ImportedFeed importFiles(List<File> files, ImportProgress progress) throws IOException {
+		List<File> feedFiles = new ArrayList<>();
+		List<File> calendarFiles = new ArrayList<>();
+		File shapesFile = null;
+		for (File file : files) {
+			if (file.getName().equals(FeedParser.SHAPES_FILE)) {
+				shapesFile = file;
+			} else {
+				(isCalendarFile(file.getName()) ? calendarFiles : feedFiles).add(file);
+			}
+		}
+		List<File> snapshotFiles = new ArrayList<>(feedFiles);
+		if (shapesFile != null) {
+			snapshotFiles.add(shapesFile);
+		}
+		long checksum = FeedSnapshot.checksum(snapshotFiles);
+		File snapshotFile = new File(files.get(0).getAbsoluteFile().getParentFile(), SNAPSHOT_FILE_NAME);
+		// a snapshot holds every stop time, which is what lazy loading avoids
+		boolean snapshots = lazyStopTimeBudget == 0;
+		ImportedFeed snapshot = snapshots ? loadSnapshot(snapshotFile, checksum, progress) : null;
+		if (snapshot != null) {
+			// the calendar isn't part of the snapshot, and is small enough to read every time
+			snapshot.setCalendar(importCalendar(calendarFiles, progress));
+			return snapshot;
+		}
+
+		stops.clear();
+		routes.clear();
+		trips.clear();
+		// a cancelled import can leave stop times behind
+		stopTimes = new StopTimeTable();
+		importErrors.clear();
+		for (File file : files) {
+			progress.addTotalBytes(file.length());
+		}
+		progress.setPhase(ImportProgress.Phase.READING);
+		for (File file : feedFiles) {
+			importFile(file.getAbsolutePath(), fileType(file), progress);
+		}
+		ServiceCalendar calendar = importCalendar(calendarFiles, progress);
+		ShapeTable shapes = shapesFile == null ? ShapeTable.EMPTY : importShapes(shapesFile, progress);
+		ImportedFeed feed = new ImportedFeed(stops, routes, trips, stopTimes, progress);
+		feed.setCalendar(calendar);
+		feed.setShapes(shapes);
+		// this makes sure that we don't accidentally delete data
+		// in the database that holds the same reference
+		stopTimes = new StopTimeTable();
+		if (importErrors.getCount(ValidationErrorLog.ErrorType.INVALID_HEADER) > 0) {
+			// the rows of that file were skipped, so the feed must not be published or saved
+			// as a snapshot, which would load without the error next time
+			return null;
+		}
+		if (snapshots) {
+			saveSnapshot(snapshotFile, checksum, feed);
+		}
+		return feed;
+	}
+
+	/**
+	 * Imports a zipped feed straight from the zip, without extracting it first (on the calling thread)
+	 * @param zip The zip file
+	 * @param progress Where to report progress
+	 * @return The imported feed, or null if files were missing or had invalid headers
+	 * @throws IOException if the zip could not be read
+	 */
+	public ImportedFeed importZipFeed(File zip, ImportProgress progress) throws IOException {
+		long checksum = FeedSnapshot.checksum(List.of(zip));
+		File snapshotFile = new File(zip.getAbsolutePath() + SNAPSHOT_EXTENSION);
+		ImportedFeed snapshot = loadSnapshot(snapshotFile, checksum, progress);
+		if (snapshot != null) {
+			snapshot.setCalendar(new ZipFeedImporter(zip, importErrors, progress).importCalendar());
+			return snapshot;
+		}
+
+		importErrors.clear();
+		progress.setPhase(ImportProgress.Phase.READING);
+		ZipFeedImporter importer = new ZipFeedImporter(zip, importErrors, progress);
+		if (!importer.importFeed()) {
+			return null;
+		}
+		ImportedFeed feed = new ImportedFeed(importer.getStops(), importer.getRoutes(), importer.getTrips(),
+				importer.getStopTimes(), progress);
+		feed.setShapes(importer.getShapes());
+		saveSnapshot(snapshotFile, checksum, feed);
+		feed.setCalendar(importer.importCalendar());
+		return feed;
+	}
+
+	/**
+	 * Loads a feed from its snapshot if there is one and it was made from the same files
+	 * @param snapshotFile The snapshot file
+	 * @param checksum The checksum of the source files
+	 * @param progress Where to report progress
+	 * @return The feed, or null if the feed has to be imported from the source files
+	 */
+	private ImportedFeed loadSnapshot(File snapshotFile, long checksum, ImportProgress progress) {
+		if (!useSnapshots || !snapshotFile.isFile()) {
+			return null;
+		}
+		try {
+			FeedSnapshot snapshot = FeedSnapshot.open(snapshotFile);
+			if (snapshot.getSourceChecksum() != checksum) {
+				// the files changed since the snapshot was made
+				return null;
+			}
+			importErrors.clear();
+			progress.setPhase(ImportProgress.Phase.LOADING);
+			return snapshot.load(progress);
+		} catch (IOException ioException) {
+			System.out.println("Could not load snapshot, importing instead: " + ioException.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Saves a snapshot of a feed so it loads quickly next time. Not being able to save one
+	 * (such as when the feed is on a read only drive) doesn't stop the import.
+	 * @param snapshotFile The snapshot file
+	 * @param checksum The checksum of the source files
+	 * @param feed The feed
+	 */
+	private void saveSnapshot(File snapshotFile, long checksum, ImportedFeed feed) {
+		if (!useSnapshots) {
+			return;
+		}
+		try {
+			FeedSnapshot.write(snapshotFile, checksum, feed);
+		} catch (IOException ioException) {
+			System.out.println("Could not save snapshot: " + ioException.getMessage());
+		}
+	}
+
+	/**
+	 * Sets whether feeds are saved as, and reopened from, binary snapshots
+	 * @param useSnapshots True to use snapshots
+	 */
+	public void setUseSnapshots(boolean useSnapshots) {
+		this.useSnapshots = useSnapshots;
+	}
+
+	/**
+	 * Sets where the stop times of the next imports are kept. Feeds too big for the heap
+	 * can be kept in direct buffers or memory mapped files instead (see ColumnStorage).
+	 * @param storage The storage for the stop time columns
+	 */
+	public void setStopTimeStorage(ColumnStorage storage) {
+		StopTimeTable.setDefaultStorage(storage);
+	}
+
+	/**
+	 * Sets whether stop_times.txt files are loaded lazily. A lazily loaded file is only
+	 * scanned for where each trip's lines are, and a trip's stop times are read when they
+	 * are first needed (see LazyStopTimeTable). Lazily loaded stop times can be edited,
+	 * but not added, removed or appended to. Zipped feeds are always loaded in full.
+	 * @param budget The most memory, in bytes, that cached trips may take up, or 0 to load files in full
+	 */
+	public void setLazyStopTimeBudget(long budget) {
+		if (budget < 0) {
+			throw new IllegalArgumentException("The budget can't be negative");
+		}
+		this.lazyStopTimeBudget = budget;
+	}
+
+	/**
+	 * Imports a file and loads GTFS objects into temporary storage in the engine
+	 * @param filename The path of the file
+	 * @param type The GTFS object type
+	 * @param progress Where to report the bytes and rows read, which is also checked for cancellation
+	 * @return True as long as the end of the method is reached
+	 * @throws IOException if the file could not be found or read
+	 */
+	boolean importFile(String filename, GTFS_TYPE type, ImportProgress progress) throws IOException {
+		File file = new File(filename);
+		if (type == GTFS_TYPE.STOP_TIME && lazyStopTimeBudget > 0) {
+			return importStopTimesLazily(file, progress);
+		}
+		if (type == GTFS_TYPE.STOP_TIME && parallelStopTimeImport && file.length() >= PARALLEL_IMPORT_THRESHOLD) {
+			return importStopTimesInParallel(file, progress);
+		}
+		try (Reader in = new BufferedReader(new InputStreamReader(
+				progress.count(new FileInputStream(file)), StandardCharsets.UTF_8))) {
+			CsvTokenizer rows = new CsvTokenizer(in);
+			// the header decides which column goes where
+			String[] headers = rows.nextRow() ? rows.getFields() : null;
+			ColumnBinding binding = compileBinding(type, headers);
+			if (binding != null) {
+				ValidationErrorLog.RowErrors errors = importErrors.forFile(file.getName());
+				int unreported = 0;
+				while (rows.nextRow()) {
+					if (++unreported == ImportProgress.REPORT_INTERVAL) {
+						progress.rowsParsed(unreported);
+						unreported = 0;
+					}
+					switch (type) {
+						case STOP:
+						{
+							//create and add the object
+							Stop stop = FeedParser.parseStop(rows, binding, errors);
+							if (stop != null) {
+								stops.add(stop);
+							}
+							break;
+						}
+						case ROUTE:
+						{
+							Route route = FeedParser.parseRoute(rows, binding, errors);
+							if (route != null) {
+								routes.add(route);
+							}
+							break;
+						}
+						case TRIP:
+						{
+							Trip trip = FeedParser.parseTrip(rows, binding, errors);
+							if (trip != null) {
+								trips.add(trip);
+							}
+							break;
+						}
+						case STOP_TIME:
+						{
+							FeedParser.parseStopTime(rows, binding, stopTimes, errors);
+							break;
+						}
+
+					}
+				}
+				progress.rowsParsed(unreported);
+
+			} else {
+				importErrors.record(file.getName(), 1, "", ValidationErrorLog.ErrorType.INVALID_HEADER);
+			}
+		}
+		// this started off as Kevin's too, I (Jonny) just reword a little to integrate with Database from Kyle
+		return true;
+	}
+
+	/**
+	 * Imports a stop_times.txt file with the ParallelStopTimeImporter, which parses
+	 * and validates chunks of the file on all cores. The stop times keep file order.
+	 * @param file The stop_times.txt file
+	 * @param progress Where to report the bytes and rows read, which is also checked for cancellation
+	 * @return True as long as the end of the method is reached
+	 * @throws IOException if the file could not be read
+	 */
+	private boolean importStopTimesInParallel(File file, ImportProgress progress) throws IOException {
+		ParallelStopTimeImporter importer = new ParallelStopTimeImporter(file);
+		ColumnBinding binding = compileBinding(GTFS_TYPE.STOP_TIME, CsvTokenizer.splitLine(importer.getHeaderLine()));
+		if (binding != null) {
+			stopTimes = importer.parse(binding, importErrors, progress);
+		} else {
+			importErrors.record(file.getName(), 1, "", ValidationErrorLog.ErrorType.INVALID_HEADER);
+		}
+		return true;
+	}
+
+	/**
+	 * Scans a stop_times.txt file for where each trip's lines are, leaving the
+	 * stop times to be read as they are needed
+	 * @param file The stop_times.txt file
+	 * @param progress Where to report the bytes read
+	 * @return True as long as the end of the method is reached
+	 * @throws IOException if the file could not be read
+	 */
+	private boolean importStopTimesLazily(File file, ImportProgress progress) throws IOException {
+		LazyStopTimeTable table = LazyStopTimeTable.open(file, lazyStopTimeBudget);
+		progress.addBytesRead(file.length());
+		if (table != null) {
+			stopTimes = table;
+			progress.rowsParsed(table.size());
+		} else {
+			importErrors.record(file.getName(), 1, "", ValidationErrorLog.ErrorType.INVALID_HEADER);
+		}
+		return true;
+	}
+
+	/**
+	 * Reads the calendar files of a feed, which are optional
+	 * @param files The calendar.txt and calendar_dates.txt files that the feed has
+	 * @param progress Where to report the bytes and rows read
+	 * @return The calendar, or ServiceCalendar.EVERY_DAY if there are no calendar files
+	 * @throws IOException if a file could not be read
+	 */
+	private ServiceCalendar importCalendar(List<File> files, ImportProgress progress) throws IOException {
+		ServiceCalendar.Builder calendar = new ServiceCalendar.Builder();
+		for (File file : files) {
+			if (file.getName().equals(FeedParser.CALENDAR_DATES_FILE)) {
+				parseRows(file, ServiceCalendar.CALENDAR_DATE_COLUMNS, FeedParser.CALENDAR_DATE_REQUIRED_COLUMNS, progress,
+						(row, binding, errors) -> FeedParser.parseCalendarDate(row, binding, calendar, errors));
+			} else {
+				parseRows(file, ServiceCalendar.CALENDAR_COLUMNS, FeedParser.CALENDAR_REQUIRED_COLUMNS, progress,
+						(row, binding, errors) -> FeedParser.parseCalendar(row, binding, calendar, errors));
+			}
+		}
+		return calendar.build();
+	}
+
+	/**
+	 * Reads the shapes file of a feed, which is optional
+	 * @param file The shapes.txt file
+	 * @param progress Where to report the bytes read
+	 * @return The shapes
+	 * @throws IOException if the file could not be read
+	 */
+	private ShapeTable importShapes(File file, ImportProgress progress) throws IOException {
+		ShapeTable.Builder shapes = new ShapeTable.Builder();
+		parseRows(file, ShapeTable.COLUMNS, FeedParser.SHAPE_REQUIRED_COLUMNS, progress,
+				(row, binding, errors) -> FeedParser.parseShapePoint(row, binding, shapes, errors));
+		return shapes.build();
+	}
+
+	/**
+	 * Parses one row of a file and keeps it
+	 */
+	private interface RowConsumer {
+		/**
+		 * @param row The tokenizer positioned on a row
+		 * @param binding The binding compiled from the file's header
+		 * @param errors Where to report the row if it is not valid
+		 * @return True if the row was valid, false otherwise
+		 */
+		boolean accept(CsvTokenizer row, ColumnBinding binding, ValidationErrorLog.RowErrors errors);
+	}
+
+	/**
+	 * Streams a file, checking its header and passing each row to a consumer
+	 * @param file The file
+	 * @param columns The columns the rows are put in order of
+	 * @param requiredColumns The columns the file must have
+	 * @param progress Where to report the bytes read
+	 * @param consumer Parses and keeps a row
+	 * @throws IOException if the file could not be read
+	 */
+	private void parseRows(File file, String[] columns, String[] requiredColumns, ImportProgress progress,
+						   RowConsumer consumer) throws IOException {
+		try (Reader in = new BufferedReader(new InputStreamReader(
+				progress.count(new FileInputStream(file)), StandardCharsets.UTF_8))) {
+			CsvTokenizer rows = new CsvTokenizer(in);
+			ColumnBinding binding = rows.nextRow() ?
+					ColumnBinding.compile(columns, rows.getFields(), requiredColumns) : null;
+			if (binding == null) {
+				importErrors.record(file.getName(), 1, "", ValidationErrorLog.ErrorType.INVALID_HEADER);
+				return;
+			}
+			ValidationErrorLog.RowErrors errors = importErrors.forFile(file.getName());
+			while (rows.nextRow()) {
+				consumer.accept(rows, binding, errors);
+			}
+		}
+	}
+
+	/**
+	 * If a file is one of the optional calendar files
+	 * @param fileName The file name
+	 * @return True for calendar.txt and calendar_dates.txt
+	 */
+	static boolean isCalendarFile(String fileName) {
+		return fileName.equals(FeedParser.CALENDAR_FILE) || fileName.equals(FeedParser.CALENDAR_DATES_FILE);
+	}
+
+	/**
+	 * If a file is one of the files a feed doesn't have to have
+	 * @param fileName The file name
+	 * @return True for the calendar files and shapes.txt
+	 */
+	static boolean isOptionalFile(String fileName) {
+		return isCalendarFile(fileName) || fileName.equals(FeedParser.SHAPES_FILE);
+	}
+
+	/**
+	 * Sets whether large stop_times.txt files are imported in parallel chunks
+	 * instead of line by line
+	 * @param parallelStopTimeImport True to use the parallel import mode
+	 */
+	public void setParallelStopTimeImport(boolean parallelStopTimeImport) {
+		this.parallelStopTimeImport = parallelStopTimeImport;
+	}
+
+	/**
+	 * Helper method in case to determine which GTFS file is specified
+	 * @param file A file
+	 * @return The GTFS file's type
+	 * @throws IllegalArgumentException if it is not a GTFS file
+	 */
+	GTFS_TYPE fileType(File file) throws IllegalArgumentException {
+		GTFS_TYPE answer;
+		String path = file.getAbsolutePath();
+		if (path.contains(FeedParser.STOPS_FILE)){
+			answer = GTFS_TYPE.STOP;
+		}
+		else if (path.contains(FeedParser.STOP_TIMES_FILE)){
+			answer = GTFS_TYPE.STOP_TIME;
+		}
+		else if (path.contains(FeedParser.ROUTES_FILE)){
+			answer = GTFS_TYPE.ROUTE;
+		}
+		else if (path.contains(FeedParser.TRIPS_FILE)){
+			answer = GTFS_TYPE.TRIP;
+		} else {
+			throw new IllegalArgumentException(file.getName() + " is not a GTFS file.");
+		}
+		return answer;
+	}
+
+	/**
+	 * Checks that the names of the four GTFS files are all there
+	 * @param files The file names
+	 * @return True if every GTFS file name is in the list
+	 */
+	static boolean receivedAllFiles(List<String> files) {
+		for (String filename: FeedParser.FILE_NAMES) {
+			if (!files.contains(filename)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Imports a revised version of the loaded feed and applies only what changed: rows
+	 * with new keys are inserted, rows whose values changed are updated and loaded rows
+	 * missing from the revised files are deleted. The sizes of the delta are available
+	 * from getLastDelta afterwards.
+	 * @param stopsFilePath The path of the revised stops.txt
+	 * @param routesFilePath The path of the revised routes.txt
+	 * @param tripsFilePath The path of the revised trips.txt
+	 * @param stopTimesFilePath The path of the revised stop_times.txt
+	 * @return True if the delta was applied, false if a file could not be read or had an invalid header,
+	 * or if the stop times changed and the loaded ones are lazily loaded
+	 */
+	public boolean appendFiles(String stopsFilePath, String routesFilePath, String tripsFilePath, String stopTimesFilePath){
+		stops.clear();
+		routes.clear();
+		trips.clear();
+		stopTimes = new StopTimeTable();
+		importErrors.clear();
+		ImportProgress progress = new ImportProgress();
+		try {
+			importFile(stopsFilePath, GTFS_TYPE.STOP, progress);
+			importFile(routesFilePath, GTFS_TYPE.ROUTE, progress);
+			importFile(tripsFilePath, GTFS_TYPE.TRIP, progress);
+			importFile(stopTimesFilePath, GTFS_TYPE.STOP_TIME, progress);
+		} catch (IOException ioException) {
+			System.out.println("Could not read the revised feed: " + ioException.getMessage());
+			return false;
+		}
+		if (importErrors.getCount(ValidationErrorLog.ErrorType.INVALID_HEADER) > 0) {
+			// a file that wasn't read would delete everything of its type
+			return false;
+		}
+		lastDelta = FeedDelta.diff(GTFS, stops, routes, trips, stopTimes, true);
+		stopTimes = new StopTimeTable();
+		return GTFS.applyDelta(lastDelta);
+	}
+
+	/**
+	 * The delta applied by the last call to appendFiles
+	 * @return The delta, or null if appendFiles hasn't applied one
+	 */
+	public FeedDelta getLastDelta() {
+		return lastDelta;
+	}
+
+	/**
+	 * The rows that were skipped during the last import
+	 * @return The error log
+	 */
+	public ValidationErrorLog getImportErrors() {
+		return importErrors;
+	}
+
+	//---- HEADERS
+
+	/**
+	 * Returns the COLUMNS constant from a GTFSObject. If no such String[] constant
+	 * is found, null is returned instead. Error messages will be outputted
+	 * to the console.
+	 *
+	 * @param gtfsClass The GTFSObject class to look into.
+	 * @return null or a found String[] COLUMNS constant
+	 * @author Kyle S.
+	 */
+	static String[] getGTFSClassHeaderColumns(Class<? extends GTFSObject> gtfsClass) {
+		String[] gtfsCols = null;
+		try {
+			gtfsCols = (String[]) gtfsClass.getDeclaredField("COLUMNS").get(null);
+		} catch (NoSuchFieldException | IllegalAccessException noFieldException) {
+			System.out.println(noFieldException.getMessage());
+		}
+		return gtfsCols;
+	}
+
+	/**
+	 * Gets the GTFSObject class for a GTFS type
+	 * @param type The GTFS type
+	 * @return The class, or null for NONE
+	 */
+	private Class<? extends GTFSObject> gtfsClass(GTFS_TYPE type) {
+		switch (type) {
+			case STOP:
+				return Stop.class;
+			case ROUTE:
+				return Route.class;
+			case TRIP:
+				return Trip.class;
+			case STOP_TIME:
+				return StopTime.class;
+			default:
+				return null;
+		}
+	}
+
+	/**
+	 * Gets the columns a file of a GTFS type has to have
+	 * @param type The GTFS type
+	 * @return The required column names
+	 */
+	private String[] requiredColumns(GTFS_TYPE type) {
+		switch (type) {
+			case STOP:
+				return FeedParser.STOP_REQUIRED_COLUMNS;
+			case ROUTE:
+				return FeedParser.ROUTE_REQUIRED_COLUMNS;
+			case TRIP:
+				return FeedParser.TRIP_REQUIRED_COLUMNS;
+			case STOP_TIME:
+				return FeedParser.STOP_TIME_REQUIRED_COLUMNS;
+			default:
+				return null;
+		}
+	}
+
+	/**
+	 * Compiles the column binding for a file from its header line. The file's
+	 * columns may be in any order and it may have columns we don't use.
+	 *
+	 * @param type The GTFS type of the file
+	 * @param headers The values of the file's header line
+	 * @return The binding, or null if the headers are missing a required column
+	 */
+	private ColumnBinding compileBinding(GTFS_TYPE type, String[] headers) {
+		if (type == GTFS_TYPE.NONE || headers == null) {
+			return null;
+		}
+		return ColumnBinding.compile(getGTFSClassHeaderColumns(gtfsClass(type)), headers, requiredColumns(type));
+	}
+
+	/**
+	 * Validates the header line of a GTFS file
+	 * @param type The GTFS type of the file
+	 * @param headers The header line
+	 * @return True if the header has all of the required columns
+	 */
+	boolean validationLogicHeaders(GTFS_TYPE type, String headers){
+		return headers != null && compileBinding(type, CsvTokenizer.splitLine(headers)) != null;
+	}
+	//---- SEARCHING
+
+	/**
+	 * Gets the distance of a trip based on the provided trip ID.
+	 * The trip ID is defined from the import file.
+	 *
+	 * @param tripID The ID of the trip to get the distance for
+	 * @return The total distance for the given trip
+	 * 			The value will be -1.0 if no trip is found
+	 * 			or if the trip distance couldn't be calculated.
+	 *
+	 * @author Kyle S.
+	 */
+	public double getTripDistance(String tripID) {
+		if (tripID == null) {
+			return -1.0;
+		}
+
+		Trip foundTrip = GTFS.getTrips().getValue(tripID);
+
+		double returnVal = -1.0;
+
+		if (foundTrip != null) {
+			returnVal = foundTrip.getTripDistance();
+		}
+
+		return returnVal;
+	}
+
+	/**
+	 * gets the distinct trips a stopID appears in
+	 * @param stopID
+	 */
+	public Collection <String> getTripsOnStop(String stopID){
+		if(stopID == null) {
+			return null;
+		}
+		// compare dictionary codes instead of strings
+		int stopCode = StringDictionary.getInstance().find(stopID);
+		StopIndex index = GTFS.getStopIndex();
+		if (index != null) {
+			StringDictionary ids = StringDictionary.getInstance();
+			Collection<String> tripsOnStop = new ArrayList<>();
+			for (int tripCode : index.getTripCodes(stopCode)) {
+				tripsOnStop.add(ids.decode(tripCode));
+			}
+			return tripsOnStop;
+		}
+		Collection<StopTime> stopTimes = GTFS.getStopTimes();
+		Iterator<StopTime> iterator = stopTimes.iterator();
+		Collection<String> tripsOnStop = new ArrayList<>();
+		// while loop
+		while (iterator.hasNext()) {
+			StopTime stopTime = iterator.next();
+			if(stopTime.getStopCode() == stopCode){
+				tripsOnStop.add(stopTime.getTripID());
+			}
+		}
+		return tripsOnStop.stream().distinct().collect(Collectors.toList());
+	}
+
+	/**
+	 * gets the number of distinct trips a stopID appears in
+	 * @param stopID The stop ID
+	 * @return The number of trips, straight from the stop index when there is one
+	 */
+	public int getTripCountOnStop(String stopID) {
+		if (stopID == null) {
+			return 0;
+		}
+		StopIndex index = GTFS.getStopIndex();
+		if (index != null) {
+			return index.getTripCount(StringDictionary.getInstance().find(stopID));
+		}
+		return getTripsOnStop(stopID).size();
+	}
+
+	/**
+	 * Feature 5: Search with a stop ID and get out the routes that hit this stop.
+	 *
+	 * @param stopID The STOP_ID to search by
+	 */
+	public List<Route> searchForRoutesWithStopID(String stopID){
+		int stopCode = StringDictionary.getInstance().find(stopID);
+		StopIndex index = GTFS.getStopIndex();
+		if (index != null) {
+			StringDictionary ids = StringDictionary.getInstance();
+			List<Route> routesWithStop = new ArrayList<>();
+			for (int routeCode : index.getRouteCodes(stopCode)) {
+				Route route = GTFS.getRoutes().getValue(ids.decode(routeCode));
+				// a deleted route can still have its stop times
+				if (route != null) {
+					routesWithStop.add(route);
+				}
+			}
+			return routesWithStop;
+		}
+		// a stop time's trip, or the trip's route, may not have been loaded
+		return GTFS.getStopTimes(
+				stopTime -> stopTime.getStopCode() == stopCode).stream().map(
+				stopTime -> GTFS.getTrips().getValue(stopTime.getTripID())).filter(Objects::nonNull).map(
+				trip -> GTFS.getRoutes().getValue(trip.getRouteID())).filter(Objects::nonNull
+		).distinct().collect(Collectors.toList());
+	}
+
+	/**
+	 * Feature 6: Search with a ROUTE_ID and get all stops that are on the route
+	 *
+	 * @param routeID The ROUTE_ID to search by
+	 */
+	public List<Stop> searchForStops(String routeID) {
+		return GTFS.getRoutes().getValue(routeID).getStopTimeIDs().stream().
+				map(stopTimeID -> GTFS.getStopTimes().get(stopTimeID)).
+				map(stopTime -> GTFS.getStops().getValue(stopTime.getStopID())).
+				distinct().collect(Collectors.toList());
+	}
+
+	/**
+	 * Searches for the stops closest to a point, from the stop grid
+	 *
+	 * @param latitude The point's latitude
+	 * @param longitude The point's longitude
+	 * @param count The most stops to find
+	 * @return The stops, closest first
+	 */
+	public List<Stop> searchForNearestStops(double latitude, double longitude, int count) {
+		return toStops(GTFS.getStopGrid().nearest(latitude, longitude, count));
+	}
+
+	/**
+	 * Searches for the stops within a distance of a point, from the stop grid
+	 *
+	 * @param latitude The point's latitude
+	 * @param longitude The point's longitude
+	 * @param miles The distance in miles
+	 * @return The stops, closest first
+	 */
+	public List<Stop> searchForStopsWithin(double latitude, double longitude, double miles) {
+		return toStops(GTFS.getStopGrid().withinRadius(latitude, longitude, miles));
+	}
+
+	/**
+	 * Searches for the stops in a box of latitudes and longitudes, from the stop grid
+	 *
+	 * @param minLatitude The south edge
+	 * @param minLongitude The west edge
+	 * @param maxLatitude The north edge
+	 * @param maxLongitude The east edge
+	 * @return The stops, in no particular order
+	 */
+	public List<Stop> searchForStopsInBox(double minLatitude, double minLongitude,
+										  double maxLatitude, double maxLongitude) {
+		return toStops(GTFS.getStopGrid().withinBox(minLatitude, minLongitude, maxLatitude, maxLongitude));
+	}
+
+	private List<Stop> toStops(int[] stopCodes) {
+		List<Stop> stops = new ArrayList<>(stopCodes.length);
+		for (int stopCode : stopCodes) {
+			Stop stop = GTFS.getStops().getValue(StringDictionary.getInstance().decode(stopCode));
+			if (stop != null) {
+				stops.add(stop);
+			}
+		}
+		return stops;
+	}
+
+	/**
+	 * Feature 7: Search with a ROUTE_ID and get out the next trips with this route.
+	 *
+	 * @param routeID The ROUTE_ID to search by
+	 */
+	public List<Pair<Trip, String>> searchForTripsWithRouteID(String routeID) {
+		return searchForTripsWithRouteID(routeID, ServiceTime.now());
+	}
+
+	/**
+	 * Searches with a ROUTE_ID for today's next trips of the route after a time of day
+	 *
+	 * @param routeID The ROUTE_ID to search by
+	 * @param now The time of day, in seconds after midnight (see ServiceTime)
+	 */
+	public List<Pair<Trip, String>> searchForTripsWithRouteID(String routeID, int now) {
+		return searchForTripsWithRouteID(routeID, LocalDate.now(), now);
+	}
+
+	/**
+	 * Searches with a ROUTE_ID for the next trips of the route after a time on a date.
+	 * Only trips whose service runs on the date count, along with trips of the day
+	 * before that are still running after midnight.
+	 *
+	 * @param routeID The ROUTE_ID to search by
+	 * @param date The date
+	 * @param now The time of day, in seconds after midnight (see ServiceTime)
+	 */
+	public List<Pair<Trip, String>> searchForTripsWithRouteID(String routeID, LocalDate date, int now) {
+		int routeCode = StringDictionary.getInstance().find(routeID);
+		ServiceCalendar calendar = GTFS.getCalendar();
+		int today = calendar.dayOf(date);
+		int yesterday = calendar.dayOf(date.minusDays(1));
+		StopTimeTable stopTimes = GTFS.getStopTimes();
+		List<Pair<Trip, Integer>> departures = new ArrayList<>();
+		RouteIndex index = GTFS.getRouteIndex();
+		if (index != null) {
+			departures.addAll(nextTripsOnRoute(index, routeCode, today, now, 0));
+			// yesterday's trips that are still running start a day later than their time of day
+			departures.addAll(nextTripsOnRoute(index, routeCode, yesterday, now, SECONDS_PER_DAY));
+			return departures.stream().
+					sorted(Comparator.comparingInt(departure -> departure.second)).
+					limit(SEARCH_RESULTS_LIMIT).
+					map(departure -> new Pair<>(departure.first, ServiceTime.format(departure.second))).
+					collect(Collectors.toList());
+		}
+		for (Trip trip : GTFS.getTrips(trip -> trip.getRouteCode() == routeCode)) {
+			if (trip.getStopTimeCount() == 0) {
+				continue;
+			}
+			int departure = stopTimes.getArrivalTime(trip.getStopTimeID(0));
+			if (departure > now && calendar.runsOn(trip.getServiceCode(), today)) {
+				departures.add(new Pair<>(trip, departure));
+			}
+			if (departure - SECONDS_PER_DAY > now && calendar.runsOn(trip.getServiceCode(), yesterday)) {
+				departures.add(new Pair<>(trip, departure - SECONDS_PER_DAY));
+			}
+		}
+		return departures.stream().
+				sorted(Comparator.comparingInt(departure -> departure.second)).
+				limit(SEARCH_RESULTS_LIMIT).
+				map(departure -> new Pair<>(departure.first, ServiceTime.format(departure.second))).
+				collect(Collectors.toList());
+	}
+
+	/**
+	 * The first trips of a route running on a day that start after a time, from the route
+	 * index. A binary search finds the first trip starting after the time, and the trips
+	 * from there on are checked in start time order until enough running trips are found.
+	 *
+	 * @param index The route index
+	 * @param routeCode The route ID's code
+	 * @param day The day index from ServiceCalendar.dayOf
+	 * @param now The time of day, in seconds after midnight
+	 * @param dayOffset How far after midnight of the day now is (SECONDS_PER_DAY for the day before)
+	 * @return Up to SEARCH_RESULTS_LIMIT trips with their start times after now
+	 */
+	private List<Pair<Trip, Integer>> nextTripsOnRoute(RouteIndex index, int routeCode, int day, int now, int dayOffset) {
+		List<Pair<Trip, Integer>> departures = new ArrayList<>();
+		if (day == ServiceCalendar.NO_DAY) {
+			return departures;
+		}
+		ServiceCalendar calendar = GTFS.getCalendar();
+		StringDictionary ids = StringDictionary.getInstance();
+		int count = index.getTripCount(routeCode);
+		for (int position = index.indexAfter(routeCode, now + dayOffset);
+			 position < count && departures.size() < SEARCH_RESULTS_LIMIT; ++position) {
+			Trip trip = GTFS.getTrips().getValue(ids.decode(index.getTripCode(routeCode, position)));
+			if (trip != null && calendar.runsOn(trip.getServiceCode(), day)) {
+				departures.add(new Pair<>(trip, index.getStartTime(routeCode, position) - dayOffset));
+			}
+		}
+		return departures;
+	}
+
+	/**
+	 * Feature 8: Search with a STOP_ID and get out the trips that are the soonest after containing this stop
+	 *
+	 * @param stopID The STOP_ID to search by
+	 */
+	public List<Pair<Trip, String>> searchForTripsWithStopID(String stopID) {
+		return searchForTripsWithStopID(stopID, ServiceTime.now());
+	}
+
+	/**
+	 * Searches with a STOP_ID for today's next trips at the stop after a time of day
+	 *
+	 * @param stopID The STOP_ID to search by
+	 * @param now The time of day, in seconds after midnight (see ServiceTime)
+	 */
+	public List<Pair<Trip, String>> searchForTripsWithStopID(String stopID, int now) {
+		return searchForTripsWithStopID(stopID, LocalDate.now(), now);
+	}
+
+	/**
+	 * Searches with a STOP_ID for the next trips at the stop after a time on a date.
+	 * The trips that run on the date (and the day before, for trips still running
+	 * after midnight) are found first, so each stop time is only checked by trip code.
+	 *
+	 * @param stopID The STOP_ID to search by
+	 * @param date The date
+	 * @param now The time of day, in seconds after midnight (see ServiceTime)
+	 */
+	public List<Pair<Trip, String>> searchForTripsWithStopID(String stopID, LocalDate date, int now) {
+		int stopCode = StringDictionary.getInstance().find(stopID);
+		ServiceCalendar calendar = GTFS.getCalendar();
+		StopIndex index = GTFS.getStopIndex();
+		if (index != null) {
+			List<Pair<Trip, Integer>> departures = new ArrayList<>();
+			departures.addAll(nextTripsAtStop(index, stopCode, calendar.dayOf(date), now, 0));
+			// yesterday's trips that are still running arrive a day later than their time of day
+			departures.addAll(nextTripsAtStop(index, stopCode, calendar.dayOf(date.minusDays(1)), now, SECONDS_PER_DAY));
+			return departures.stream().
+					sorted(Comparator.comparingInt(departure -> departure.second)).
+					limit(SEARCH_RESULTS_LIMIT).
+					map(departure -> new Pair<>(departure.first, ServiceTime.format(departure.second))).
+					collect(Collectors.toList());
+		}
+		BitSet today = GTFS.getTripsRunningOn(calendar.dayOf(date));
+		BitSet yesterday = GTFS.getTripsRunningOn(calendar.dayOf(date.minusDays(1)));
+		StopTimeTable stopTimes = GTFS.getStopTimes();
+		List<Pair<Integer, Integer>> departures = new ArrayList<>();
+		for (int row = 0; row < stopTimes.size(); ++row) {
+			if (stopTimes.getStopCode(row) != stopCode) {
+				continue;
+			}
+			int tripCode = stopTimes.getTripCode(row);
+			int arrival = stopTimes.getArrivalTime(row);
+			if (arrival > now && today.get(tripCode)) {
+				departures.add(new Pair<>(tripCode, arrival));
+			}
+			if (arrival - SECONDS_PER_DAY > now && yesterday.get(tripCode)) {
+				departures.add(new Pair<>(tripCode, arrival - SECONDS_PER_DAY));
+			}
+		}
+		StringDictionary ids = StringDictionary.getInstance();
+		return departures.stream().
+				sorted(Comparator.comparingInt(departure -> departure.second)).
+				limit(SEARCH_RESULTS_LIMIT).
+				map(departure -> new Pair<>(
+						GTFS.getTrips().getValue(ids.decode(departure.first)),
+						ServiceTime.format(departure.second))).
+				collect(Collectors.toList());
+	}
+
+	/**
+	 * The first trips running on a day that arrive at a stop after a time, from the stop
+	 * index. A binary search finds the first arrival after the time, and the arrivals from
+	 * there on are checked in time order until enough running trips are found.
+	 *
+	 * @param index The stop index
+	 * @param stopCode The stop ID's code
+	 * @param day The day index from ServiceCalendar.dayOf
+	 * @param now The time of day, in seconds after midnight
+	 * @param dayOffset How far after midnight of the day now is (SECONDS_PER_DAY for the day before)
+	 * @return Up to SEARCH_RESULTS_LIMIT trips with their arrival times after now
+	 */
+	private List<Pair<Trip, Integer>> nextTripsAtStop(StopIndex index, int stopCode, int day, int now, int dayOffset) {
+		List<Pair<Trip, Integer>> departures = new ArrayList<>();
+		if (day == ServiceCalendar.NO_DAY) {
+			return departures;
+		}
+		ServiceCalendar calendar = GTFS.getCalendar();
+		StopTimeTable stopTimes = GTFS.getStopTimes();
+		StringDictionary ids = StringDictionary.getInstance();
+		int count = index.getStopTimeCount(stopCode);
+		for (int position = index.indexAfter(stopCode, now + dayOffset);
+			 position < count && departures.size() < SEARCH_RESULTS_LIMIT; ++position) {
+			int tripCode = stopTimes.getTripCode(index.getStopTimeID(stopCode, position));
+			Trip trip = GTFS.getTrips().getValue(ids.decode(tripCode));
+			if (trip != null && calendar.runsOn(trip.getServiceCode(), day)) {
+				departures.add(new Pair<>(trip, index.getArrivalTime(stopCode, position) - dayOffset));
+			}
+		}
+		return departures;
+	}
+
+}	//end class FeedEngine
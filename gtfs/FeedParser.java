@@ -0,0 +1,561 @@
+/*
+ * This file is part of gtfstransitproject_group5.
+ *
+ * gtfstransitproject_group5 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * gtfstransitproject_group5 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with gtfstransitproject_group5.  If not, see <https://www.gnu.org/licenses/>.
+
+ * Course: CS 2030 031
+ * Fall 2021
+ * GTFS Transit Project
+ * Names: Jonathan Keane, Kevin Paganini, Kyle Senebouttarath
+ * Created: 10/4/2021
+ * Professor: Dr. Wright
+ */
+package gtfs;
+
+import java.io.IOException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+/**
+ * A group of static methods for splitting and validating the rows of GTFS files.
+ * Rows come from a CsvTokenizer and are put in column order by a ColumnBinding, so the
+ * same logic is used whether a whole file is being streamed or a single line is being checked.
+ *
+ * The parse methods are used for importing: they check and convert the numbers of a row
+ * straight from the tokenizer's buffer in one pass, and only build Strings for the text
+ * columns that the GTFS object keeps. Nothing in here touches the GUI,
+ * so the importers can call these from worker threads.
+ */
+public class FeedParser {
+	public static final String STOPS_FILE = "stops.txt";
+	public static final String ROUTES_FILE = "routes.txt";
+	public static final String TRIPS_FILE = "trips.txt";
+	public static final String STOP_TIMES_FILE = "stop_times.txt";
+	/**
+	 * The GTFS files that make up a feed
+	 */
+	public static final String[] FILE_NAMES = new String[] {STOPS_FILE, ROUTES_FILE, TRIPS_FILE, STOP_TIMES_FILE};
+	public static final String CALENDAR_FILE = "calendar.txt";
+	public static final String CALENDAR_DATES_FILE = "calendar_dates.txt";
+	/**
+	 * The GTFS files a feed may have, which say which days each service runs on
+	 */
+	public static final String[] CALENDAR_FILE_NAMES = new String[] {CALENDAR_FILE, CALENDAR_DATES_FILE};
+	/**
+	 * The GTFS file a feed may have with the paths its trips follow
+	 */
+	public static final String SHAPES_FILE = "shapes.txt";
+
+	/**
+	 * The columns a stops file has to have
+	 */
+	public static final String[] STOP_REQUIRED_COLUMNS = new String[] {"stop_id", "stop_name", "stop_lat", "stop_lon"};
+	/**
+	 * The columns a routes file has to have
+	 */
+	public static final String[] ROUTE_REQUIRED_COLUMNS = new String[] {"route_id", "route_color"};
+	/**
+	 * The columns a trips file has to have
+	 */
+	public static final String[] TRIP_REQUIRED_COLUMNS = new String[] {"route_id", "trip_id", "shape_id"};
+	/**
+	 * The columns a stop times file has to have
+	 */
+	public static final String[] STOP_TIME_REQUIRED_COLUMNS =
+			new String[] {"trip_id", "arrival_time", "departure_time", "stop_id", "stop_sequence"};
+	/**
+	 * The columns a calendar file has to have (all of them)
+	 */
+	public static final String[] CALENDAR_REQUIRED_COLUMNS = ServiceCalendar.CALENDAR_COLUMNS;
+	/**
+	 * The columns a calendar dates file has to have (all of them)
+	 */
+	public static final String[] CALENDAR_DATE_REQUIRED_COLUMNS = ServiceCalendar.CALENDAR_DATE_COLUMNS;
+	/**
+	 * The columns a shapes file has to have
+	 */
+	public static final String[] SHAPE_REQUIRED_COLUMNS =
+			new String[] {"shape_id", "shape_pt_lat", "shape_pt_lon", "shape_pt_sequence"};
+
+	private static final ColumnBinding STOP_BINDING = ColumnBinding.identity(Stop.COLUMNS);
+	private static final ColumnBinding ROUTE_BINDING = ColumnBinding.identity(Route.COLUMNS);
+	private static final ColumnBinding TRIP_BINDING = ColumnBinding.identity(Trip.COLUMNS);
+	private static final ColumnBinding STOP_TIME_BINDING = ColumnBinding.identity(StopTime.COLUMNS);
+
+	/**
+	 * If a field is missing or empty
+	 * @param row The tokenizer positioned on a row
+	 * @param field The field index from ColumnBinding.getField
+	 * @return True if the field is missing or empty, false otherwise
+	 */
+	private static boolean isEmpty(CsvTokenizer row, int field) {
+		return field < 0 || row.isFieldEmpty(field);
+	}
+
+	/**
+	 * Parses an int field that may be empty
+	 * @param row The tokenizer positioned on a row
+	 * @param field The field index from ColumnBinding.getField
+	 * @return The value, OPTIONAL_EMPTY if the field is missing or empty, or StringValidation.INVALID_INT
+	 */
+	private static long parseOptionalInt(CsvTokenizer row, int field) {
+		if (isEmpty(row, field)) {
+			return OPTIONAL_EMPTY;
+		}
+		return StringValidation.parseInt(row.getBuffer(), row.getFieldStart(field), row.getFieldEnd(field));
+	}
+
+	private static final long OPTIONAL_EMPTY = Long.MAX_VALUE;
+
+	/**
+	 * Reports a rejected row, if there is anywhere to report it
+	 * @param errors Where to report the row, may be null
+	 * @param row The tokenizer positioned on the row
+	 * @param column The column that was not valid ("" if it is the whole row)
+	 * @param type What was wrong
+	 * @return null, so the parse methods can return it
+	 */
+	private static <T> T reject(ValidationErrorLog.RowErrors errors, CsvTokenizer row,
+								String column, ValidationErrorLog.ErrorType type) {
+		if (errors != null) {
+			errors.reject(row.getRowNumber(), column, type);
+		}
+		return null;
+	}
+
+	/**
+	 * Reports a rejected row, if there is anywhere to report it
+	 * @return false, so the parse methods that add to a table can return it
+	 */
+	private static boolean rejectRow(ValidationErrorLog.RowErrors errors, CsvTokenizer row,
+									 String column, ValidationErrorLog.ErrorType type) {
+		reject(errors, row, column, type);
+		return false;
+	}
+
+	/**
+	 * Splits a single line that has its columns in the object's COLUMNS order
+	 * @param line The line
+	 * @param binding The identity binding of the object's columns
+	 * @return The values, or null if the line is null or blank or has too many columns
+	 */
+	private static String[] splitLine(String line, ColumnBinding binding) {
+		if (line == null) return null;
+		CsvTokenizer row = new CsvTokenizer(line.toCharArray(), 0, line.length());
+		try {
+			return row.nextRow() ? binding.bind(row, binding.newValues()) : null;
+		} catch (IOException ioException) {
+			// there is no reader to throw
+			throw new IllegalStateException(ioException);
+		}
+	}
+
+	//---- STOPS
+
+	/**
+	 * Splits a line of stops.txt into its column values
+	 * @param stopValues The stop line
+	 * @return The column values, or null if the line has more than 5 columns
+	 */
+	public static String[] splitStopValues(String stopValues) {
+		return splitLine(stopValues, STOP_BINDING);
+	}
+
+	/**
+	 * Checks and parses the tokenizer's current row of stops.txt
+	 * @param row The tokenizer positioned on a row
+	 * @param binding The binding compiled from the file's header
+	 * @param errors Where to report the row if it is not valid, may be null
+	 * @return The Stop, or null if the row is not valid
+	 */
+	public static Stop parseStop(CsvTokenizer row, ColumnBinding binding, ValidationErrorLog.RowErrors errors) {
+		if (!binding.fits(row)) return reject(errors, row, "", ValidationErrorLog.ErrorType.TOO_MANY_COLUMNS);
+		// lat long are required
+		int stopID = binding.getField(row, 0);
+		int stopName = binding.getField(row, 1);
+		int stopLat = binding.getField(row, 3);
+		int stopLon = binding.getField(row, 4);
+		if (isEmpty(row, stopID)) return reject(errors, row, "stop_id", ValidationErrorLog.ErrorType.MISSING_VALUE);
+		if (isEmpty(row, stopName)) return reject(errors, row, "stop_name", ValidationErrorLog.ErrorType.MISSING_VALUE);
+		if (stopLat < 0) return reject(errors, row, "stop_lat", ValidationErrorLog.ErrorType.MISSING_VALUE);
+		if (stopLon < 0) return reject(errors, row, "stop_lon", ValidationErrorLog.ErrorType.MISSING_VALUE);
+		char[] chars = row.getBuffer();
+		double latitude = StringValidation.parseCoordinate(
+				chars, row.getFieldStart(stopLat), row.getFieldEnd(stopLat), true);
+		if (Double.isNaN(latitude)) return reject(errors, row, "stop_lat", ValidationErrorLog.ErrorType.INVALID_COORDINATE);
+		double longitude = StringValidation.parseCoordinate(
+				chars, row.getFieldStart(stopLon), row.getFieldEnd(stopLon), false);
+		if (Double.isNaN(longitude)) return reject(errors, row, "stop_lon", ValidationErrorLog.ErrorType.INVALID_COORDINATE);
+		return new Stop(latitude, longitude, binding.getString(row, 2), row.getField(stopID), row.getField(stopName));
+	}
+
+	/**
+	 * Checks that stop values can be turned into a Stop
+	 * @param stopValuesArr The column values
+	 * @return True if the values are valid, false otherwise
+	 */
+	public static boolean isValidStop(String[] stopValuesArr) {
+		// lat long are required
+		return	!stopValuesArr[0].isEmpty() &&
+				!stopValuesArr[1].isEmpty() &&
+				StringValidation.isValidCoordinate(stopValuesArr[3], true) &&
+				StringValidation.isValidCoordinate(stopValuesArr[4], false);
+	}
+
+	//---- ROUTES
+
+	/**
+	 * Splits a line of routes.txt into its column values
+	 * @param routeValues The route line
+	 * @return The column values, or null if the line has more than 9 columns
+	 */
+	public static String[] splitRouteValues(String routeValues) {
+		return splitLine(routeValues, ROUTE_BINDING);
+	}
+
+	/**
+	 * Checks and parses the tokenizer's current row of routes.txt
+	 * @param row The tokenizer positioned on a row
+	 * @param binding The binding compiled from the file's header
+	 * @param errors Where to report the row if it is not valid, may be null
+	 * @return The Route, or null if the row is not valid
+	 */
+	public static Route parseRoute(CsvTokenizer row, ColumnBinding binding, ValidationErrorLog.RowErrors errors) {
+		if (!binding.fits(row)) return reject(errors, row, "", ValidationErrorLog.ErrorType.TOO_MANY_COLUMNS);
+		// only require a route ID and route_color
+		int routeID = binding.getField(row, 0);
+		int routeType = binding.getField(row, 5);
+		int routeColor = binding.getField(row, 7);
+		int routeTextColor = binding.getField(row, 8);
+		if (isEmpty(row, routeID)) return reject(errors, row, "route_id", ValidationErrorLog.ErrorType.MISSING_VALUE);
+		if (routeColor < 0) return reject(errors, row, "route_color", ValidationErrorLog.ErrorType.MISSING_VALUE);
+		char[] chars = row.getBuffer();
+		long type = parseOptionalInt(row, routeType);
+		if (type == StringValidation.INVALID_INT) {
+			return reject(errors, row, "route_type", ValidationErrorLog.ErrorType.INVALID_NUMBER);
+		}
+		if (StringValidation.parseColor(chars, row.getFieldStart(routeColor), row.getFieldEnd(routeColor))
+				== StringValidation.INVALID_COLOR) {
+			return reject(errors, row, "route_color", ValidationErrorLog.ErrorType.INVALID_COLOR);
+		}
+		if (!isEmpty(row, routeTextColor) &&
+				StringValidation.parseColor(chars, row.getFieldStart(routeTextColor), row.getFieldEnd(routeTextColor))
+						== StringValidation.INVALID_COLOR) {
+			return reject(errors, row, "route_text_color", ValidationErrorLog.ErrorType.INVALID_COLOR);
+		}
+		return new Route(
+				binding.getString(row, 1),
+				row.getField(routeColor),
+				binding.getString(row, 4),
+				row.getField(routeID),
+				binding.getString(row, 3),
+				binding.getString(row, 2),
+				binding.getString(row, 8),
+				type == OPTIONAL_EMPTY ? 0 : (int) type,
+				binding.getString(row, 6));
+	}
+
+	/**
+	 * Checks that route values can be turned into a Route
+	 * @param routeValuesArr The column values
+	 * @return True if the values are valid, false otherwise
+	 */
+	public static boolean isValidRoute(String[] routeValuesArr) {
+		// only require a route ID and route_color
+		return	!routeValuesArr[0].isEmpty() &&
+				(routeValuesArr[5].isEmpty() || StringValidation.isValidInt(routeValuesArr[5])) &&
+				StringValidation.isValidColor(routeValuesArr[7]) &&
+				(routeValuesArr[8].isEmpty() || StringValidation.isValidColor(routeValuesArr[8]));
+	}
+
+	//---- TRIPS
+
+	/**
+	 * Splits a line of trips.txt into its column values
+	 * @param tripValues The trip line
+	 * @return The column values, or null if the line has more than 7 columns
+	 */
+	public static String[] splitTripValues(String tripValues) {
+		return splitLine(tripValues, TRIP_BINDING);
+	}
+
+	/**
+	 * Checks and parses the tokenizer's current row of trips.txt
+	 * @param row The tokenizer positioned on a row
+	 * @param binding The binding compiled from the file's header
+	 * @param errors Where to report the row if it is not valid, may be null
+	 * @return The Trip, or null if the row is not valid
+	 */
+	public static Trip parseTrip(CsvTokenizer row, ColumnBinding binding, ValidationErrorLog.RowErrors errors) {
+		if (!binding.fits(row)) return reject(errors, row, "", ValidationErrorLog.ErrorType.TOO_MANY_COLUMNS);
+		// do not require a service ID
+		int routeID = binding.getField(row, 0);
+		int tripID = binding.getField(row, 2);
+		int shapeID = binding.getField(row, 6);
+		if (isEmpty(row, routeID)) return reject(errors, row, "route_id", ValidationErrorLog.ErrorType.MISSING_VALUE);
+		if (isEmpty(row, tripID)) return reject(errors, row, "trip_id", ValidationErrorLog.ErrorType.MISSING_VALUE);
+		if (isEmpty(row, shapeID)) return reject(errors, row, "shape_id", ValidationErrorLog.ErrorType.MISSING_VALUE);
+		// a negative direction would be read back as Trip.ABSENT (GTFS only defines 0 and 1)
+		long directionID = parseOptionalInt(row, binding.getField(row, 4));
+		if (directionID == StringValidation.INVALID_INT || directionID < 0) {
+			return reject(errors, row, "direction_id", ValidationErrorLog.ErrorType.INVALID_NUMBER);
+		}
+		return new Trip(
+				binding.getString(row, 5),
+				directionID == OPTIONAL_EMPTY ? Trip.ABSENT : (int) directionID,
+				row.getField(routeID),
+				binding.getString(row, 1),
+				row.getField(shapeID),
+				binding.getString(row, 3),
+				row.getField(tripID));
+	}
+
+	/**
+	 * Checks that trip values can be turned into a Trip
+	 * @param tripValuesArr The column values
+	 * @return True if the values are valid, false otherwise
+	 */
+	public static boolean isValidTrip(String[] tripValuesArr) {
+		// do not require a service ID
+		// the trip headsign may be empty, as seen in some trips files
+		return	!tripValuesArr[0].isEmpty() &&
+				!tripValuesArr[2].isEmpty() &&
+				(StringValidation.isValidNonNegativeInt(tripValuesArr[4]) || tripValuesArr[4].isEmpty()) &&
+				!tripValuesArr[6].isEmpty();
+	}
+
+	//---- STOP TIMES
+
+	/**
+	 * Splits a line of stop_times.txt into its column values
+	 * @param stopTimeValues The stop time line
+	 * @return The column values, or null if the line has more than 8 columns
+	 */
+	public static String[] splitStopTimeValues(String stopTimeValues) {
+		return splitLine(stopTimeValues, STOP_TIME_BINDING);
+	}
+
+	/**
+	 * Checks and parses the tokenizer's current row of stop_times.txt straight into the
+	 * columns of a table, so no StopTime object is created
+	 * @param row The tokenizer positioned on a row
+	 * @param binding The binding compiled from the file's header
+	 * @param stopTimes The table to add the row to
+	 * @param errors Where to report the row if it is not valid, may be null
+	 * @return True if the row was valid and added, false otherwise
+	 */
+	public static boolean parseStopTime(CsvTokenizer row, ColumnBinding binding, StopTimeTable stopTimes,
+										ValidationErrorLog.RowErrors errors) {
+		if (!binding.fits(row)) return rejectRow(errors, row, "", ValidationErrorLog.ErrorType.TOO_MANY_COLUMNS);
+		int tripID = binding.getField(row, 0);
+		int arrivalTime = binding.getField(row, 1);
+		int departureTime = binding.getField(row, 2);
+		int stopID = binding.getField(row, 3);
+		int stopSequence = binding.getField(row, 4);
+		if (isEmpty(row, tripID)) return rejectRow(errors, row, "trip_id", ValidationErrorLog.ErrorType.MISSING_VALUE);
+		if (isEmpty(row, stopID)) return rejectRow(errors, row, "stop_id", ValidationErrorLog.ErrorType.MISSING_VALUE);
+		if (arrivalTime < 0) return rejectRow(errors, row, "arrival_time", ValidationErrorLog.ErrorType.MISSING_VALUE);
+		if (departureTime < 0) return rejectRow(errors, row, "departure_time", ValidationErrorLog.ErrorType.MISSING_VALUE);
+		if (stopSequence < 0) return rejectRow(errors, row, "stop_sequence", ValidationErrorLog.ErrorType.MISSING_VALUE);
+		char[] chars = row.getBuffer();
+		int arrival = ServiceTime.parse(chars, row.getFieldStart(arrivalTime), row.getFieldEnd(arrivalTime));
+		if (arrival == ServiceTime.INVALID) {
+			return rejectRow(errors, row, "arrival_time", ValidationErrorLog.ErrorType.INVALID_TIME);
+		}
+		int departure = ServiceTime.parse(chars, row.getFieldStart(departureTime), row.getFieldEnd(departureTime));
+		if (departure == ServiceTime.INVALID) {
+			return rejectRow(errors, row, "departure_time", ValidationErrorLog.ErrorType.INVALID_TIME);
+		}
+		long sequence = StringValidation.parseNonNegativeInt(
+				chars, row.getFieldStart(stopSequence), row.getFieldEnd(stopSequence));
+		if (sequence == StringValidation.INVALID_INT) {
+			return rejectRow(errors, row, "stop_sequence", ValidationErrorLog.ErrorType.INVALID_NUMBER);
+		}
+		// the types are kept in a byte, which covers everything GTFS defines
+		long pickupType = parseOptionalInt(row, binding.getField(row, 6));
+		if (pickupType == StringValidation.INVALID_INT || !isStorableType(pickupType)) {
+			return rejectRow(errors, row, "pickup_type", ValidationErrorLog.ErrorType.INVALID_NUMBER);
+		}
+		long dropOffType = parseOptionalInt(row, binding.getField(row, 7));
+		if (dropOffType == StringValidation.INVALID_INT || !isStorableType(dropOffType)) {
+			return rejectRow(errors, row, "drop_off_type", ValidationErrorLog.ErrorType.INVALID_NUMBER);
+		}
+		StringDictionary ids = StringDictionary.getInstance();
+		stopTimes.add(
+				ids.encode(row.getField(tripID)),
+				ids.encode(row.getField(stopID)),
+				arrival,
+				departure,
+				(int) sequence,
+				ids.encode(binding.getString(row, 5)),
+				pickupType == OPTIONAL_EMPTY ? StopTime.ABSENT : (int) pickupType,
+				dropOffType == OPTIONAL_EMPTY ? StopTime.ABSENT : (int) dropOffType);
+		return true;
+	}
+
+	private static boolean isStorableType(long type) {
+		return type == OPTIONAL_EMPTY || (type != StopTime.ABSENT && StopTime.isStorableType(type));
+	}
+
+	/**
+	 * Checks that split stop time values can be turned into a StopTime
+	 * @param stopTimeValuesArr The column values
+	 * @return True if the values are valid, false otherwise
+	 */
+	public static boolean isValidStopTime(String[] stopTimeValuesArr) {
+		// schedule is the same every day
+		return	!stopTimeValuesArr[0].isEmpty() &&
+				StringValidation.isValidTime(stopTimeValuesArr[1]) &&
+				StringValidation.isValidTime(stopTimeValuesArr[2]) &&
+				!stopTimeValuesArr[3].isEmpty() &&
+				StringValidation.isValidNonNegativeInt(stopTimeValuesArr[4]) &&
+				isValidType(stopTimeValuesArr[6]) &&
+				isValidType(stopTimeValuesArr[7]);
+	}
+
+	/**
+	 * Checks a pickup or drop off type, which may be empty
+	 * @param value The column value
+	 * @return True if the value is empty or a type a StopTime can keep
+	 */
+	private static boolean isValidType(String value) {
+		return value.isEmpty() ||
+				(StringValidation.isValidNonNegativeInt(value) && StopTime.isStorableType(Long.parseLong(value)));
+	}
+
+	//---- CALENDAR
+
+	/**
+	 * Checks and parses the tokenizer's current row of calendar.txt into a calendar builder
+	 * @param row The tokenizer positioned on a row
+	 * @param binding The binding compiled from the file's header
+	 * @param calendar The builder to add the row to
+	 * @param errors Where to report the row if it is not valid, may be null
+	 * @return True if the row was valid and added, false otherwise
+	 */
+	public static boolean parseCalendar(CsvTokenizer row, ColumnBinding binding, ServiceCalendar.Builder calendar,
+										ValidationErrorLog.RowErrors errors) {
+		if (!binding.fits(row)) return rejectRow(errors, row, "", ValidationErrorLog.ErrorType.TOO_MANY_COLUMNS);
+		int serviceID = binding.getField(row, 0);
+		if (isEmpty(row, serviceID)) return rejectRow(errors, row, "service_id", ValidationErrorLog.ErrorType.MISSING_VALUE);
+		boolean[] weekdays = new boolean[7];
+		for (int day = 0; day < weekdays.length; ++day) {
+			int field = binding.getField(row, day + 1);
+			String column = ServiceCalendar.CALENDAR_COLUMNS[day + 1];
+			if (isEmpty(row, field)) return rejectRow(errors, row, column, ValidationErrorLog.ErrorType.MISSING_VALUE);
+			long runs = StringValidation.parseNonNegativeInt(row.getBuffer(), row.getFieldStart(field), row.getFieldEnd(field));
+			if (runs != 0 && runs != 1) return rejectRow(errors, row, column, ValidationErrorLog.ErrorType.INVALID_NUMBER);
+			weekdays[day] = runs == 1;
+		}
+		LocalDate startDate = parseDate(row, binding.getField(row, 8));
+		if (startDate == null) return rejectRow(errors, row, "start_date", ValidationErrorLog.ErrorType.INVALID_DATE);
+		LocalDate endDate = parseDate(row, binding.getField(row, 9));
+		if (endDate == null) return rejectRow(errors, row, "end_date", ValidationErrorLog.ErrorType.INVALID_DATE);
+		calendar.addWeeklyService(row.getField(serviceID), weekdays, startDate, endDate);
+		return true;
+	}
+
+	/**
+	 * Checks and parses the tokenizer's current row of calendar_dates.txt into a calendar builder
+	 * @param row The tokenizer positioned on a row
+	 * @param binding The binding compiled from the file's header
+	 * @param calendar The builder to add the row to
+	 * @param errors Where to report the row if it is not valid, may be null
+	 * @return True if the row was valid and added, false otherwise
+	 */
+	public static boolean parseCalendarDate(CsvTokenizer row, ColumnBinding binding, ServiceCalendar.Builder calendar,
+											ValidationErrorLog.RowErrors errors) {
+		if (!binding.fits(row)) return rejectRow(errors, row, "", ValidationErrorLog.ErrorType.TOO_MANY_COLUMNS);
+		int serviceID = binding.getField(row, 0);
+		int exceptionType = binding.getField(row, 2);
+		if (isEmpty(row, serviceID)) return rejectRow(errors, row, "service_id", ValidationErrorLog.ErrorType.MISSING_VALUE);
+		if (isEmpty(row, exceptionType)) {
+			return rejectRow(errors, row, "exception_type", ValidationErrorLog.ErrorType.MISSING_VALUE);
+		}
+		LocalDate date = parseDate(row, binding.getField(row, 1));
+		if (date == null) return rejectRow(errors, row, "date", ValidationErrorLog.ErrorType.INVALID_DATE);
+		long type = StringValidation.parseNonNegativeInt(
+				row.getBuffer(), row.getFieldStart(exceptionType), row.getFieldEnd(exceptionType));
+		if (type != ServiceCalendar.SERVICE_ADDED && type != ServiceCalendar.SERVICE_REMOVED) {
+			return rejectRow(errors, row, "exception_type", ValidationErrorLog.ErrorType.INVALID_NUMBER);
+		}
+		calendar.addException(row.getField(serviceID), date, type == ServiceCalendar.SERVICE_ADDED);
+		return true;
+	}
+
+	//---- SHAPES
+
+	/**
+	 * Checks and parses the tokenizer's current row of shapes.txt into a shape builder.
+	 * shape_dist_traveled is not kept, since distances are worked out from the points.
+	 * @param row The tokenizer positioned on a row
+	 * @param binding The binding compiled from the file's header
+	 * @param shapes The builder to add the point to
+	 * @param errors Where to report the row if it is not valid, may be null
+	 * @return True if the row was valid and added, false otherwise
+	 */
+	public static boolean parseShapePoint(CsvTokenizer row, ColumnBinding binding, ShapeTable.Builder shapes,
+										  ValidationErrorLog.RowErrors errors) {
+		if (!binding.fits(row)) return rejectRow(errors, row, "", ValidationErrorLog.ErrorType.TOO_MANY_COLUMNS);
+		int shapeID = binding.getField(row, 0);
+		int shapeLat = binding.getField(row, 1);
+		int shapeLon = binding.getField(row, 2);
+		int sequence = binding.getField(row, 3);
+		if (isEmpty(row, shapeID)) return rejectRow(errors, row, "shape_id", ValidationErrorLog.ErrorType.MISSING_VALUE);
+		if (isEmpty(row, shapeLat)) return rejectRow(errors, row, "shape_pt_lat", ValidationErrorLog.ErrorType.MISSING_VALUE);
+		if (isEmpty(row, shapeLon)) return rejectRow(errors, row, "shape_pt_lon", ValidationErrorLog.ErrorType.MISSING_VALUE);
+		if (isEmpty(row, sequence)) {
+			return rejectRow(errors, row, "shape_pt_sequence", ValidationErrorLog.ErrorType.MISSING_VALUE);
+		}
+		char[] chars = row.getBuffer();
+		double latitude = StringValidation.parseCoordinate(
+				chars, row.getFieldStart(shapeLat), row.getFieldEnd(shapeLat), true);
+		if (Double.isNaN(latitude)) {
+			return rejectRow(errors, row, "shape_pt_lat", ValidationErrorLog.ErrorType.INVALID_COORDINATE);
+		}
+		double longitude = StringValidation.parseCoordinate(
+				chars, row.getFieldStart(shapeLon), row.getFieldEnd(shapeLon), false);
+		if (Double.isNaN(longitude)) {
+			return rejectRow(errors, row, "shape_pt_lon", ValidationErrorLog.ErrorType.INVALID_COORDINATE);
+		}
+		long sequenceValue = StringValidation.parseNonNegativeInt(chars, row.getFieldStart(sequence), row.getFieldEnd(sequence));
+		if (sequenceValue == StringValidation.INVALID_INT) {
+			return rejectRow(errors, row, "shape_pt_sequence", ValidationErrorLog.ErrorType.INVALID_NUMBER);
+		}
+		shapes.add(row.getField(shapeID), latitude, longitude, (int) sequenceValue);
+		return true;
+	}
+
+	/**
+	 * Parses a GTFS date [YYYYMMDD]
+	 * @param row The tokenizer positioned on a row
+	 * @param field The field index from ColumnBinding.getField
+	 * @return The date, or null if the field is missing or not a valid date
+	 */
+	private static LocalDate parseDate(CsvTokenizer row, int field) {
+		if (isEmpty(row, field) || row.getFieldEnd(field) - row.getFieldStart(field) != 8) {
+			return null;
+		}
+		long value = StringValidation.parseNonNegativeInt(row.getBuffer(), row.getFieldStart(field), row.getFieldEnd(field));
+		if (value == StringValidation.INVALID_INT) {
+			return null;
+		}
+		try {
+			return LocalDate.of((int) (value / 10000), (int) (value / 100 % 100), (int) (value % 100));
+		} catch (DateTimeException invalidDate) {
+			return null;
+		}
+	}
+
+}	//end class FeedParser
@@ -0,0 +1,526 @@
+/*
+ * This file is part of gtfstransitproject_group5.
+ *
+ * gtfstransitproject_group5 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * gtfstransitproject_group5 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with gtfstransitproject_group5.  If not, see <https://www.gnu.org/licenses/>.
+
+ * Course: CS 2030 031
+ * Fall 2021
+ * GTFS Transit Project
+ * Names: Jonathan Keane, Kevin Paganini, Kyle Senebouttarath
+ * Created: 10/4/2021
+ * Professor: Dr. Wright
+ */
+package gtfs;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * A binary snapshot of an imported feed, so a feed that has been imported before can be
+ * reopened without parsing the text files again.
+ *
+ * The snapshot is columnar: each table is stored as one array per column. Every string in
+ * the feed is stored once in a dictionary and the string columns hold dictionary codes,
+ * so IDs that repeat on every stop time (trip and stop IDs) cost 4 bytes each and load
+ * as one shared String. The file is memory mapped when it is opened; columns are read
+ * straight out of the mapping, and dictionary strings are only decoded the first time
+ * they are used.
+ *
+ * The header holds a checksum of the source files (see checksum), which is compared with
+ * the files on disk to tell if the snapshot is stale.
+ *
+ * Layout (big endian): magic, version, source checksum, the dictionary (size, byte
+ * offsets, UTF-8 bytes), then the stops, routes, trips and stop times tables, each a row
+ * count followed by its columns, then the shapes: a shape count, their columns and the
+ * encoded points as they are kept in the ShapeTable.
+ */
+public class FeedSnapshot {
+	/**
+	 * The snapshot format version. Snapshots of other versions are not loaded.
+	 */
+	public static final int VERSION = 2;
+	private static final long MAGIC = 0x475446532D534E50L;	// "GTFS-SNP"
+	private static final int NULL_CODE = -1;
+	private static final int UNKNOWN_CODE = -2;
+	private static final int ABSENT = Integer.MIN_VALUE;
+	private static final int CHECKSUM_BUFFER_SIZE = 1 << 20;
+
+	private final long sourceChecksum;
+	private final Dictionary dictionary;
+	private final ByteBuffer data;
+	private final int tablesStart;
+
+	private FeedSnapshot(long sourceChecksum, Dictionary dictionary, ByteBuffer data, int tablesStart) {
+		this.sourceChecksum = sourceChecksum;
+		this.dictionary = dictionary;
+		this.data = data;
+		this.tablesStart = tablesStart;
+	}
+
+	/**
+	 * The checksum of the source files the snapshot was made from
+	 * @return The checksum
+	 */
+	public long getSourceChecksum() {
+		return sourceChecksum;
+	}
+
+	//---- CHECKSUM
+
+	/**
+	 * Computes a CRC32C checksum over the names and contents of a feed's files. The files
+	 * are taken in name order, so the order they were chosen in doesn't matter.
+	 * @param files The GTFS files, or a single zip
+	 * @return The checksum
+	 * @throws IOException if a file could not be read
+	 */
+	public static long checksum(List<File> files) throws IOException {
+		List<File> sorted = new ArrayList<>(files);
+		sorted.sort(Comparator.comparing(File::getName));
+		CRC32C crc = new CRC32C();
+		ByteBuffer buffer = ByteBuffer.allocateDirect(CHECKSUM_BUFFER_SIZE);
+		for (File file : sorted) {
+			crc.update(file.getName().getBytes(StandardCharsets.UTF_8));
+			try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+				while (channel.read(buffer) >= 0) {
+					buffer.flip();
+					crc.update(buffer);
+					buffer.clear();
+				}
+			}
+		}
+		return crc.getValue();
+	}
+
+	//---- WRITING
+
+	/**
+	 * Writes a feed to a snapshot file. The snapshot is written next to the file first and
+	 * then moved into place, so a snapshot that is being written is never read.
+	 * @param file The snapshot file
+	 * @param sourceChecksum The checksum of the feed's source files
+	 * @param feed The feed
+	 * @throws IOException if the snapshot could not be written
+	 */
+	public static void write(File file, long sourceChecksum, ImportedFeed feed) throws IOException {
+		DictionaryBuilder strings = new DictionaryBuilder();
+
+		List<Stop> stops = new ArrayList<>();
+		feed.getStops().forEach(stops::add);
+		int[][] stopStrings = new int[3][stops.size()];
+		double[] latitudes = new double[stops.size()];
+		double[] longitudes = new double[stops.size()];
+		for (int i = 0; i < stops.size(); ++i) {
+			Stop stop = stops.get(i);
+			stopStrings[0][i] = strings.code(stop.getStopID());
+			stopStrings[1][i] = strings.code(stop.getStopName());
+			stopStrings[2][i] = strings.code(stop.getStopDesc());
+			latitudes[i] = stop.getLatitude();
+			longitudes[i] = stop.getLongitude();
+		}
+
+		List<Route> routes = new ArrayList<>();
+		feed.getRoutes().forEach(routes::add);
+		int[][] routeStrings = new int[8][routes.size()];
+		int[] routeTypes = new int[routes.size()];
+		for (int i = 0; i < routes.size(); ++i) {
+			Route route = routes.get(i);
+			routeStrings[0][i] = strings.code(route.getRouteID());
+			routeStrings[1][i] = strings.code(route.getAgencyID());
+			routeStrings[2][i] = strings.code(route.getRouteShortName());
+			routeStrings[3][i] = strings.code(route.getRouteLongName());
+			routeStrings[4][i] = strings.code(route.getRouteDesc());
+			routeStrings[5][i] = strings.code(route.getRouteUrl());
+			routeStrings[6][i] = strings.code(route.getRouteColor());
+			routeStrings[7][i] = strings.code(route.getRouteTxtColor());
+			routeTypes[i] = route.getRouteType();
+		}
+
+		List<Trip> trips = new ArrayList<>();
+		feed.getTrips().forEach(trips::add);
+		int[][] tripStrings = new int[6][trips.size()];
+		int[] directionIDs = new int[trips.size()];
+		for (int i = 0; i < trips.size(); ++i) {
+			Trip trip = trips.get(i);
+			tripStrings[0][i] = strings.code(trip.getRouteID());
+			tripStrings[1][i] = strings.code(trip.getServiceID());
+			tripStrings[2][i] = strings.code(trip.getTripID());
+			tripStrings[3][i] = strings.code(trip.getTripHeadSign());
+			tripStrings[4][i] = strings.code(trip.getBlockID());
+			tripStrings[5][i] = strings.code(trip.getShapeID());
+			directionIDs[i] = trip.hasDirectionID() ? trip.getDirectionIDValue() : ABSENT;
+		}
+
+		StopTimeTable stopTimes = feed.getStopTimes();
+		StringDictionary ids = StringDictionary.getInstance();
+		int count = stopTimes.size();
+		int[] tripIDs = new int[count];
+		int[] arrivals = new int[count];
+		int[] departures = new int[count];
+		int[] stopIDs = new int[count];
+		int[] sequences = new int[count];
+		int[] headSigns = new int[count];
+		int[] pickupTypes = new int[count];
+		int[] dropOffTypes = new int[count];
+		for (int i = 0; i < count; ++i) {
+			tripIDs[i] = strings.code(ids.decode(stopTimes.getTripCode(i)));
+			arrivals[i] = stopTimes.getArrivalTime(i);
+			departures[i] = stopTimes.getDepartureTime(i);
+			stopIDs[i] = strings.code(ids.decode(stopTimes.getStopCode(i)));
+			sequences[i] = stopTimes.getStopSequence(i);
+			headSigns[i] = strings.code(ids.decode(stopTimes.getHeadSignCode(i)));
+			pickupTypes[i] = absentType(stopTimes.getPickupType(i));
+			dropOffTypes[i] = absentType(stopTimes.getDropOffType(i));
+		}
+
+		ShapeTable shapes = feed.getShapes();
+		int[] shapeIDs = new int[shapes.size()];
+		for (int i = 0; i < shapeIDs.length; ++i) {
+			shapeIDs[i] = strings.code(ids.decode(shapes.getShapeCodes()[i]));
+		}
+
+		File temp = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp.toPath())))) {
+			out.writeLong(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(sourceChecksum);
+			strings.write(out);
+
+			out.writeInt(stops.size());
+			writeColumns(out, stopStrings);
+			writeColumn(out, latitudes);
+			writeColumn(out, longitudes);
+
+			out.writeInt(routes.size());
+			writeColumns(out, routeStrings);
+			writeColumn(out, routeTypes);
+
+			out.writeInt(trips.size());
+			writeColumns(out, tripStrings);
+			writeColumn(out, directionIDs);
+
+			out.writeInt(count);
+			writeColumns(out, new int[][] {tripIDs, arrivals, departures, stopIDs, sequences,
+					headSigns, pickupTypes, dropOffTypes});
+
+			out.writeInt(shapeIDs.length);
+			writeColumns(out, new int[][] {shapeIDs, shapes.getPointCounts(), shapes.getOffsets()});
+			writeColumn(out, shapes.getLengths());
+			out.write(shapes.getEncodedPoints());
+		} catch (IOException ioException) {
+			temp.delete();
+			throw ioException;
+		}
+		Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private static void writeColumns(DataOutputStream out, int[][] columns) throws IOException {
+		for (int[] column : columns) {
+			writeColumn(out, column);
+		}
+	}
+
+	private static void writeColumn(DataOutputStream out, int[] column) throws IOException {
+		ByteBuffer bytes = ByteBuffer.allocate(column.length * Integer.BYTES);
+		bytes.asIntBuffer().put(column);
+		out.write(bytes.array());
+	}
+
+	private static void writeColumn(DataOutputStream out, double[] column) throws IOException {
+		ByteBuffer bytes = ByteBuffer.allocate(column.length * Double.BYTES);
+		bytes.asDoubleBuffer().put(column);
+		out.write(bytes.array());
+	}
+
+	//---- READING
+
+	/**
+	 * Opens a snapshot by memory mapping it. Only the header and dictionary offsets are read
+	 * here, the tables are read by load.
+	 * @param file The snapshot file
+	 * @return The snapshot
+	 * @throws IOException if the file could not be read or is not a snapshot of this version
+	 */
+	public static FeedSnapshot open(File file) throws IOException {
+		MappedByteBuffer data;
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Snapshot is too large: " + file);
+			}
+			data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		try {
+			if (data.getLong() != MAGIC) {
+				throw new IOException("Not a GTFS snapshot: " + file);
+			}
+			int version = data.getInt();
+			if (version != VERSION) {
+				throw new IOException("Snapshot version " + version + " is not supported: " + file);
+			}
+			long sourceChecksum = data.getLong();
+			int size = data.getInt();
+			IntBuffer offsets = intColumn(data, size + 1);
+			int blobLength = offsets.get(size);
+			ByteBuffer blob = data.slice(data.position(), blobLength);
+			data.position(data.position() + blobLength);
+			return new FeedSnapshot(sourceChecksum, new Dictionary(offsets, blob), data, data.position());
+		} catch (RuntimeException truncated) {
+			// BufferUnderflowException or IndexOutOfBoundsException
+			throw new IOException("Snapshot is damaged: " + file, truncated);
+		}
+	}
+
+	/**
+	 * Reads the tables of the snapshot into a feed
+	 * @param progress Where to report progress, which is also checked for cancellation
+	 * @return The feed, indexed and ready to publish
+	 * @throws IOException if the snapshot is damaged
+	 */
+	public ImportedFeed load(ImportProgress progress) throws IOException {
+		ByteBuffer in = data.duplicate();
+		in.position(tablesStart);
+		try {
+			int stopCount = in.getInt();
+			IntBuffer[] stopStrings = intColumns(in, 3, stopCount);
+			DoubleBuffer latitudes = doubleColumn(in, stopCount);
+			DoubleBuffer longitudes = doubleColumn(in, stopCount);
+			List<Stop> stops = new ArrayList<>(stopCount);
+			for (int i = 0; i < stopCount; ++i) {
+				stops.add(new Stop(latitudes.get(i), longitudes.get(i),
+						string(stopStrings[2], i), string(stopStrings[0], i), string(stopStrings[1], i)));
+			}
+
+			int routeCount = in.getInt();
+			IntBuffer[] routeStrings = intColumns(in, 8, routeCount);
+			IntBuffer routeTypes = intColumn(in, routeCount);
+			List<Route> routes = new ArrayList<>(routeCount);
+			for (int i = 0; i < routeCount; ++i) {
+				routes.add(new Route(
+						string(routeStrings[1], i),
+						string(routeStrings[6], i),
+						string(routeStrings[4], i),
+						string(routeStrings[0], i),
+						string(routeStrings[3], i),
+						string(routeStrings[2], i),
+						string(routeStrings[7], i),
+						routeTypes.get(i),
+						string(routeStrings[5], i)));
+			}
+
+			int tripCount = in.getInt();
+			IntBuffer[] tripStrings = intColumns(in, 6, tripCount);
+			IntBuffer directionIDs = intColumn(in, tripCount);
+			List<Trip> trips = new ArrayList<>(tripCount);
+			for (int i = 0; i < tripCount; ++i) {
+				trips.add(new Trip(
+						string(tripStrings[4], i),
+						directionIDs.get(i) == ABSENT ? Trip.ABSENT : directionIDs.get(i),
+						string(tripStrings[0], i),
+						string(tripStrings[1], i),
+						string(tripStrings[5], i),
+						string(tripStrings[3], i),
+						string(tripStrings[2], i)));
+			}
+			progress.checkCancelled();
+
+			int count = in.getInt();
+			IntBuffer[] columns = intColumns(in, 8, count);
+			StopTimeTable stopTimes = new StopTimeTable(count);
+			for (int i = 0; i < count; ++i) {
+				// the rows go straight into the table's columns, only the string codes are translated
+				stopTimes.add(
+						dictionary.globalCode(columns[0].get(i)),
+						dictionary.globalCode(columns[3].get(i)),
+						columns[1].get(i),
+						columns[2].get(i),
+						columns[4].get(i),
+						dictionary.globalCode(columns[5].get(i)),
+						tableType(columns[6].get(i)),
+						tableType(columns[7].get(i)));
+				if ((i + 1) % ImportProgress.REPORT_INTERVAL == 0) {
+					progress.rowsParsed(ImportProgress.REPORT_INTERVAL);
+				}
+			}
+			progress.rowsParsed(count % ImportProgress.REPORT_INTERVAL);
+
+			int shapeCount = in.getInt();
+			int[] shapeIDs = new int[shapeCount];
+			int[] pointCounts = new int[shapeCount];
+			int[] offsets = new int[shapeCount + 1];
+			double[] lengths = new double[shapeCount];
+			IntBuffer shapeIDColumn = intColumn(in, shapeCount);
+			for (int i = 0; i < shapeCount; ++i) {
+				shapeIDs[i] = dictionary.globalCode(shapeIDColumn.get(i));
+			}
+			intColumn(in, shapeCount).get(pointCounts);
+			intColumn(in, shapeCount + 1).get(offsets);
+			doubleColumn(in, shapeCount).get(lengths);
+			byte[] points = new byte[offsets[shapeCount]];
+			in.get(points);
+
+			ImportedFeed feed = new ImportedFeed(stops, routes, trips, stopTimes, progress);
+			feed.setShapes(shapeCount == 0 ? ShapeTable.EMPTY :
+					new ShapeTable(shapeIDs, pointCounts, offsets, lengths, points));
+			return feed;
+		} catch (IndexOutOfBoundsException | java.nio.BufferUnderflowException truncated) {
+			throw new IOException("Snapshot is damaged", truncated);
+		}
+	}
+
+	private String string(IntBuffer column, int row) {
+		return dictionary.get(column.get(row));
+	}
+
+	/**
+	 * A StopTimeTable pickup or drop off type as stored in a snapshot
+	 */
+	private static int absentType(int type) {
+		return type == StopTimeTable.ABSENT ? ABSENT : type;
+	}
+
+	/**
+	 * A pickup or drop off type stored in a snapshot as a StopTimeTable type
+	 */
+	private static int tableType(int type) {
+		return type == ABSENT ? StopTimeTable.ABSENT : type;
+	}
+
+	private static IntBuffer intColumn(ByteBuffer in, int rows) {
+		int length = Math.multiplyExact(rows, Integer.BYTES);
+		IntBuffer column = in.slice(in.position(), length).asIntBuffer();
+		in.position(in.position() + length);
+		return column;
+	}
+
+	private static IntBuffer[] intColumns(ByteBuffer in, int columns, int rows) {
+		IntBuffer[] result = new IntBuffer[columns];
+		for (int i = 0; i < columns; ++i) {
+			result[i] = intColumn(in, rows);
+		}
+		return result;
+	}
+
+	private static DoubleBuffer doubleColumn(ByteBuffer in, int rows) {
+		int length = Math.multiplyExact(rows, Double.BYTES);
+		DoubleBuffer column = in.slice(in.position(), length).asDoubleBuffer();
+		in.position(in.position() + length);
+		return column;
+	}
+
+	//---- DICTIONARY
+
+	/**
+	 * Gives every distinct string a code while a snapshot is being written
+	 */
+	private static class DictionaryBuilder {
+		private final Map<String, Integer> codes = new HashMap<>();
+		private final List<String> strings = new ArrayList<>();
+
+		int code(String string) {
+			if (string == null) {
+				return NULL_CODE;
+			}
+			Integer code = codes.get(string);
+			if (code == null) {
+				code = strings.size();
+				codes.put(string, code);
+				strings.add(string);
+			}
+			return code;
+		}
+
+		void write(DataOutputStream out) throws IOException {
+			List<byte[]> encoded = new ArrayList<>(strings.size());
+			for (String string : strings) {
+				encoded.add(string.getBytes(StandardCharsets.UTF_8));
+			}
+			out.writeInt(strings.size());
+			int offset = 0;
+			out.writeInt(offset);
+			for (byte[] bytes : encoded) {
+				offset += bytes.length;
+				out.writeInt(offset);
+			}
+			for (byte[] bytes : encoded) {
+				out.write(bytes);
+			}
+		}
+	}
+
+	/**
+	 * The strings of an open snapshot, decoded from the mapping on first use
+	 */
+	private static class Dictionary {
+		private final IntBuffer offsets;
+		private final ByteBuffer blob;
+		private final String[] decoded;
+		private final int[] globalCodes;
+
+		Dictionary(IntBuffer offsets, ByteBuffer blob) {
+			this.offsets = offsets;
+			this.blob = blob;
+			this.decoded = new String[offsets.limit() - 1];
+			this.globalCodes = new int[decoded.length];
+			Arrays.fill(globalCodes, UNKNOWN_CODE);
+		}
+
+		/**
+		 * Gets the StringDictionary code of a snapshot string, encoding it on first use
+		 * @param code The snapshot's code
+		 * @return The StringDictionary code
+		 */
+		int globalCode(int code) {
+			if (code == NULL_CODE) {
+				return StringDictionary.NONE;
+			}
+			if (globalCodes[code] == UNKNOWN_CODE) {
+				globalCodes[code] = StringDictionary.getInstance().encode(get(code));
+			}
+			return globalCodes[code];
+		}
+
+		String get(int code) {
+			if (code == NULL_CODE) {
+				return null;
+			}
+			String string = decoded[code];
+			if (string == null) {
+				int start = offsets.get(code);
+				int length = offsets.get(code + 1) - start;
+				string = StandardCharsets.UTF_8.decode(blob.slice(start, length)).toString();
+				decoded[code] = string;
+			}
+			return string;
+		}
+	}
+
+}	//end class FeedSnapshot
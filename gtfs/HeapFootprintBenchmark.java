@@ -0,0 +1,159 @@
+/*
+ * This file is part of gtfstransitproject_group5.
+ *
+ * gtfstransitproject_group5 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * gtfstransitproject_group5 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with gtfstransitproject_group5.  If not, see <https://www.gnu.org/licenses/>.
+
+ * Course: CS 2030 031
+ * Fall 2021
+ * GTFS Transit Project
+ * Names: Jonathan Keane, Kevin Paganini, Kyle Senebouttarath
+ * Created: 10/4/2021
+ * Professor: Dr. Wright
+ */
+package gtfs;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Measures the heap used per stop time by the ways a stop time can be kept:
+ * the old StopTime layout with Optional pickup and drop off types, StopTime with its
+ * primitive types and ABSENT, and a row of a StopTimeTable.
+ *
+ * Run with a heap big enough for the rows and a collector that compacts on System.gc, e.g.
+ *     java -Xmx4g -XX:+UseSerialGC gtfs.HeapFootprintBenchmark 3000000
+ */
+public class HeapFootprintBenchmark {
+	private static final int DEFAULT_ROWS = 3_000_000;
+	private static final int STOPS_PER_TRIP = 20;
+	private static final int STOP_COUNT = 5000;
+
+	/**
+	 * A stop time laid out the way StopTime used to be, to compare against
+	 */
+	private static class BoxedStopTime {
+		private int arrival;
+		private int departure;
+		private Optional<Integer> dropOffType;
+		private Optional<Integer> pickupType;
+		private String stopHeadSign;
+		private int stopCode;
+		private int stopSequence;
+		private int stopTimeID;
+		private int tripCode;
+
+		BoxedStopTime(int arrival, int departure, Optional<Integer> dropOffType, Optional<Integer> pickupType,
+					  String stopHeadSign, int stopCode, int stopSequence, int stopTimeID, int tripCode) {
+			this.arrival = arrival;
+			this.departure = departure;
+			this.dropOffType = dropOffType;
+			this.pickupType = pickupType;
+			this.stopHeadSign = stopHeadSign;
+			this.stopCode = stopCode;
+			this.stopSequence = stopSequence;
+			this.stopTimeID = stopTimeID;
+			this.tripCode = tripCode;
+		}
+	}
+
+	public static void main(String[] args) {
+		int rows = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ROWS;
+		System.out.println("Rows: " + rows);
+
+		// encode the IDs up front so the dictionary isn't counted against any layout
+		StringDictionary ids = StringDictionary.getInstance();
+		int[] tripCodes = new int[rows / STOPS_PER_TRIP + 1];
+		for (int trip = 0; trip < tripCodes.length; ++trip) {
+			tripCodes[trip] = ids.encode("T" + trip);
+		}
+		int[] stopCodes = new int[STOP_COUNT];
+		for (int stop = 0; stop < STOP_COUNT; ++stop) {
+			stopCodes[stop] = ids.encode("S" + stop);
+		}
+		String headSign = "";
+
+		long before = usedHeap();
+		List<BoxedStopTime> boxed = new ArrayList<>(rows);
+		for (int i = 0; i < rows; ++i) {
+			boxed.add(new BoxedStopTime(arrival(i), arrival(i) + 30, type(i, 3), type(i, 4), headSign,
+					stopCodes[i % STOP_COUNT], i % STOPS_PER_TRIP, i, tripCodes[i / STOPS_PER_TRIP]));
+		}
+		double boxedBytes = perRow(usedHeap() - before, rows);
+		report("StopTime with Optional types", boxedBytes, boxed.size());
+		boxed = null;
+
+		before = usedHeap();
+		List<StopTime> objects = new ArrayList<>(rows);
+		for (int i = 0; i < rows; ++i) {
+			objects.add(new StopTime(arrival(i), arrival(i) + 30, primitiveType(i, 3), primitiveType(i, 4), headSign,
+					ids.decode(stopCodes[i % STOP_COUNT]), i % STOPS_PER_TRIP, ids.decode(tripCodes[i / STOPS_PER_TRIP]), i));
+		}
+		double objectBytes = perRow(usedHeap() - before, rows);
+		report("StopTime with primitive types", objectBytes, objects.size());
+		objects = null;
+
+		before = usedHeap();
+		StopTimeTable table = new StopTimeTable(rows, ColumnStorage.HEAP);
+		int headSignCode = ids.encode(headSign);
+		for (int i = 0; i < rows; ++i) {
+			table.add(tripCodes[i / STOPS_PER_TRIP], stopCodes[i % STOP_COUNT], arrival(i), arrival(i) + 30,
+					i % STOPS_PER_TRIP, headSignCode, primitiveType(i, 4), primitiveType(i, 3));
+		}
+		double tableBytes = perRow(usedHeap() - before, rows);
+		report("StopTimeTable row", tableBytes, table.size());
+
+		System.out.printf("Primitive types save %.1f bytes a row (%.0f%%), the table %.1fx over the old layout%n",
+				boxedBytes - objectBytes, 100 * (boxedBytes - objectBytes) / boxedBytes, boxedBytes / tableBytes);
+	}
+
+	private static int arrival(int row) {
+		return 6 * 3600 + (row % STOPS_PER_TRIP) * 120 + (row / STOPS_PER_TRIP) % 1000 * 60;
+	}
+
+	/**
+	 * A type that is given on most rows, as in real feeds
+	 */
+	private static int primitiveType(int row, int absentEvery) {
+		return row % absentEvery == 0 ? StopTime.ABSENT : row % 4;
+	}
+
+	private static Optional<Integer> type(int row, int absentEvery) {
+		int type = primitiveType(row, absentEvery);
+		return type == StopTime.ABSENT ? Optional.empty() : Optional.of(type);
+	}
+
+	private static double perRow(long bytes, int rows) {
+		return (double) bytes / rows;
+	}
+
+	private static void report(String layout, double bytesPerRow, int rows) {
+		System.out.printf("%-32s %6.1f bytes a row, %8.1f MB for %d rows%n",
+				layout, bytesPerRow, bytesPerRow * rows / (1 << 20), rows);
+	}
+
+	/**
+	 * The heap in use after collecting everything that can be collected
+	 */
+	private static long usedHeap() {
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		for (int i = 0; i < 4; ++i) {
+			System.gc();
+		}
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+
+}	//end class HeapFootprintBenchmark
@@ -0,0 +1,221 @@
+/*
+ * This file is part of gtfstransitproject_group5.
+ *
+ * gtfstransitproject_group5 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * gtfstransitproject_group5 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with gtfstransitproject_group5.  If not, see <https://www.gnu.org/licenses/>.
+
+ * Course: CS 2030 031
+ * Fall 2021
+ * GTFS Transit Project
+ * Names: Jonathan Keane, Kevin Paganini, Kyle Senebouttarath
+ * Created: 10/4/2021
+ * Professor: Dr. Wright
+ */
+package gtfs;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The progress of an import running on a background thread. The importers add to it
+ * as they go and the GUI reads it whenever it wants to redraw, so all of the counters
+ * are thread-safe. It is also how an import is cancelled: the importers call
+ * rowsParsed every REPORT_INTERVAL rows, which throws once cancel has been called.
+ */
+public class ImportProgress {
+	/**
+	 * How many rows an importer parses between reports
+	 */
+	public static final int REPORT_INTERVAL = 4096;
+
+	/**
+	 * The stages of an import
+	 */
+	public enum Phase {
+		WAITING("Waiting"),
+		READING("Reading files"),
+		LOADING("Loading snapshot"),
+		INDEXING("Indexing stop times"),
+		DONE("Done");
+
+		private final String description;
+
+		Phase(String description) {
+			this.description = description;
+		}
+
+		public String getDescription() {
+			return description;
+		}
+	}
+
+	private volatile Phase phase = Phase.WAITING;
+	private volatile boolean cancelled;
+	private volatile long readingStart;
+	private volatile long readingEnd;
+	private final AtomicLong totalBytes = new AtomicLong();
+	private final AtomicLong bytesRead = new AtomicLong();
+	private final AtomicLong rowsParsed = new AtomicLong();
+
+	/**
+	 * Moves the import on to a new phase
+	 * @param phase The phase
+	 */
+	public void setPhase(Phase phase) {
+		if (phase == Phase.READING) {
+			readingStart = System.nanoTime();
+		} else if (this.phase == Phase.READING) {
+			readingEnd = System.nanoTime();
+		}
+		this.phase = phase;
+	}
+
+	public Phase getPhase() {
+		return phase;
+	}
+
+	/**
+	 * Adds to the number of bytes the import is going to read
+	 * @param bytes The number of bytes
+	 */
+	public void addTotalBytes(long bytes) {
+		totalBytes.addAndGet(bytes);
+	}
+
+	/**
+	 * Adds to the number of bytes that have been read
+	 * @param bytes The number of bytes
+	 */
+	public void addBytesRead(long bytes) {
+		bytesRead.addAndGet(bytes);
+	}
+
+	/**
+	 * Adds to the number of rows that have been parsed, and stops the import if it was cancelled
+	 * @param rows The number of rows
+	 * @throws CancellationException if the import was cancelled
+	 */
+	public void rowsParsed(long rows) {
+		rowsParsed.addAndGet(rows);
+		checkCancelled();
+	}
+
+	public long getTotalBytes() {
+		return totalBytes.get();
+	}
+
+	public long getBytesRead() {
+		return bytesRead.get();
+	}
+
+	public long getRowsParsed() {
+		return rowsParsed.get();
+	}
+
+	/**
+	 * The average number of rows parsed per second while reading the files
+	 * @return The rows per second, or 0 if reading hasn't started
+	 */
+	public double getRowsPerSecond() {
+		long start = readingStart;
+		if (start == 0) {
+			return 0;
+		}
+		long end = phase == Phase.READING || readingEnd == 0 ? System.nanoTime() : readingEnd;
+		double seconds = (end - start) / 1e9;
+		return seconds > 0 ? rowsParsed.get() / seconds : 0;
+	}
+
+	/**
+	 * How much of the files has been read
+	 * @return A number from 0 to 1, or -1 if it is not known
+	 */
+	public double getFractionRead() {
+		long total = totalBytes.get();
+		if (phase != Phase.READING || total == 0) {
+			return -1;
+		}
+		return Math.min(1, (double) bytesRead.get() / total);
+	}
+
+	/**
+	 * Asks the import to stop. The importers notice the next time they report rows.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Stops the import if it was cancelled
+	 * @throws CancellationException if the import was cancelled
+	 */
+	public void checkCancelled() {
+		if (cancelled) {
+			throw new CancellationException("Import was cancelled");
+		}
+	}
+
+	/**
+	 * Wraps a stream so that the bytes read from it are counted
+	 * @param in The stream
+	 * @return The counting stream
+	 */
+	public InputStream count(InputStream in) {
+		return new FilterInputStream(in) {
+			@Override
+			public int read() throws IOException {
+				int b = super.read();
+				if (b >= 0) {
+					bytesRead.incrementAndGet();
+				}
+				return b;
+			}
+
+			@Override
+			public int read(byte[] bytes, int offset, int length) throws IOException {
+				int read = super.read(bytes, offset, length);
+				if (read > 0) {
+					bytesRead.addAndGet(read);
+				}
+				return read;
+			}
+		};
+	}
+
+	/**
+	 * A one line description of the progress for the GUI
+	 * @return The description
+	 */
+	@Override
+	public String toString() {
+		StringBuilder status = new StringBuilder(phase.getDescription());
+		if (phase == Phase.LOADING) {
+			status.append(String.format(": %,d rows", rowsParsed.get()));
+		} else if (phase == Phase.READING || phase == Phase.INDEXING || phase == Phase.DONE) {
+			status.append(String.format(": %.1f", bytesRead.get() / 1e6));
+			if (totalBytes.get() > 0) {
+				status.append(String.format(" of %.1f", totalBytes.get() / 1e6));
+			}
+			status.append(String.format(" MB, %,d rows (%,.0f rows/s)", rowsParsed.get(), getRowsPerSecond()));
+		}
+		return status.toString();
+	}
+
+}	//end class ImportProgress
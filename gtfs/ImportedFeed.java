@@ -0,0 +1,150 @@
+/*
+ * This file is part of gtfstransitproject_group5.
+ *
+ * gtfstransitproject_group5 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * gtfstransitproject_group5 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with gtfstransitproject_group5.  If not, see <https://www.gnu.org/licenses/>.
+
+ * Course: CS 2030 031
+ * Fall 2021
+ * GTFS Transit Project
+ * Names: Jonathan Keane, Kevin Paganini, Kyle Senebouttarath
+ * Created: 10/4/2021
+ * Professor: Dr. Wright
+ */
+package gtfs;
+
+import java.util.Collection;
+
+/**
+ * A fully imported and indexed feed that is not in the Database yet.
+ *
+ * Building the tries and handing the stop times out to their trips and routes is the
+ * slow part of an import after parsing, so it is done here, on the import thread,
+ * on objects nothing else can see yet. The Database then takes all of it in one step
+ * with Database.publish, so the GUI never sees a half loaded feed.
+ */
+public class ImportedFeed {
+	private static final int INDEX_REPORT_INTERVAL = 1 << 16;
+
+	private final Trie<Stop> stops = new Trie<>();
+	private final Trie<Route> routes = new Trie<>();
+	private final Trie<Trip> trips = new Trie<>();
+	private final StopTimeTable stopTimes;
+	private final StopIndex stopIndex;
+	private final RouteIndex routeIndex;
+	private final StopGrid stopGrid;
+	private ServiceCalendar calendar = ServiceCalendar.EVERY_DAY;
+	private ShapeTable shapes = ShapeTable.EMPTY;
+
+	/**
+	 * Builds and indexes a feed
+	 * @param stops The stops
+	 * @param routes The routes
+	 * @param trips The trips
+	 * @param stopTimes The stop times, whose rows are their IDs
+	 * @param progress The import progress, which is checked for cancellation
+	 */
+	public ImportedFeed(Collection<Stop> stops, Collection<Route> routes, Collection<Trip> trips,
+						StopTimeTable stopTimes, ImportProgress progress) {
+		progress.setPhase(ImportProgress.Phase.INDEXING);
+		for (Stop stop : stops) {
+			this.stops.addKey(stop.getStopID(), stop);
+		}
+		for (Route route : routes) {
+			this.routes.addKey(route.getRouteID(), route);
+		}
+		for (Trip trip : trips) {
+			this.trips.addKey(trip.getTripID(), trip);
+		}
+		stopGrid = StopGrid.build(this.stops);
+		progress.checkCancelled();
+		this.stopTimes = stopTimes;
+		if (stopTimes instanceof LazyStopTimeTable) {
+			// each trip finds its own stop times when they are first asked for, but the stops
+			// already know theirs from the scan
+			Database.unloadStopTimeIDs(this.trips, this.routes);
+			stopIndex = ((LazyStopTimeTable) stopTimes).getStopIndex();
+			stopIndex.countRoutes(stopTimes, Database.tripsByCode(this.trips), Database.routesByCode(this.routes));
+			routeIndex = null;
+			progress.setPhase(ImportProgress.Phase.DONE);
+			return;
+		}
+		// each trip's stop times become one run of rows in stop sequence order, so a trip only
+		// has to remember where its run starts and how long it is
+		stopTimes.sortByTripAndSequence();
+		progress.checkCancelled();
+		Trip[] tripsByCode = Database.tripsByCode(this.trips);
+		Route[] routesByCode = Database.routesByCode(this.routes);
+		stopIndex = StopIndex.build(stopTimes);
+		for (int start = 0; start < stopTimes.size(); start += INDEX_REPORT_INTERVAL) {
+			Database.distributeStopTimes(stopTimes, tripsByCode, routesByCode, stopIndex,
+					start, Math.min(stopTimes.size(), start + INDEX_REPORT_INTERVAL));
+			progress.checkCancelled();
+		}
+		routeIndex = RouteIndex.build(this.trips, stopTimes);
+		progress.setPhase(ImportProgress.Phase.DONE);
+	}
+
+	Trie<Stop> getStops() {
+		return stops;
+	}
+
+	Trie<Route> getRoutes() {
+		return routes;
+	}
+
+	Trie<Trip> getTrips() {
+		return trips;
+	}
+
+	StopTimeTable getStopTimes() {
+		return stopTimes;
+	}
+
+	StopIndex getStopIndex() {
+		return stopIndex;
+	}
+
+	RouteIndex getRouteIndex() {
+		return routeIndex;
+	}
+
+	StopGrid getStopGrid() {
+		return stopGrid;
+	}
+
+	ServiceCalendar getCalendar() {
+		return calendar;
+	}
+
+	/**
+	 * Sets which days the feed's services run on
+	 * @param calendar The calendar from the feed's calendar files
+	 */
+	void setCalendar(ServiceCalendar calendar) {
+		this.calendar = calendar;
+	}
+
+	ShapeTable getShapes() {
+		return shapes;
+	}
+
+	/**
+	 * Sets the shapes the feed's trips follow
+	 * @param shapes The shapes from the feed's shapes.txt
+	 */
+	void setShapes(ShapeTable shapes) {
+		this.shapes = shapes;
+	}
+
+}	//end class ImportedFeed
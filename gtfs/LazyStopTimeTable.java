@@ -0,0 +1,713 @@
+/*
+ * This file is part of gtfstransitproject_group5.
+ *
+ * gtfstransitproject_group5 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * gtfstransitproject_group5 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with gtfstransitproject_group5.  If not, see <https://www.gnu.org/licenses/>.
+
+ * Course: CS 2030 031
+ * Fall 2021
+ * GTFS Transit Project
+ * Names: Jonathan Keane, Kevin Paganini, Kyle Senebouttarath
+ * Created: 10/4/2021
+ * Professor: Dr. Wright
+ */
+package gtfs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A stop time table that reads stop_times.txt one trip at a time, as the trips are needed.
+ *
+ * Opening the file is one quick pass that only finds the trip ID, stop ID and arrival time
+ * of each line. It records the runs of consecutive lines that belong to the same trip (a
+ * segment): its byte offset, byte length and line count, and indexes the lines by stop
+ * (see getStopIndex). Nothing else is parsed. The first time a row of a trip is
+ * read (through Trip.getStopTimeIDs, a StopTime view or a scan) all of the trip's lines
+ * are parsed into a small table, which is cached. Cached trips are evicted, least
+ * recently used first, once they take up more than the memory budget.
+ *
+ * A row is a data line of the file (blank lines aside), so stop time IDs are known
+ * without parsing. A line that is not valid keeps its row but is left out of its trip's
+ * stop time IDs, and reads as a stop time with no trip or stop. The values of rows can
+ * be changed (a trip that was changed is never evicted), but rows can't be added or
+ * removed. Like ParallelStopTimeImporter, quoted fields with line breaks are not supported.
+ */
+public class LazyStopTimeTable extends StopTimeTable {
+	/**
+	 * The default memory budget for cached trips
+	 */
+	public static final long DEFAULT_BUDGET = 64L << 20;
+	// six int columns and two byte columns, as in StopTimeTable
+	private static final int BYTES_PER_ROW = 6 * Integer.BYTES + 2;
+	private static final int BYTES_PER_TRIP = 256;
+	private static final int SCAN_BUFFER_SIZE = 1 << 20;
+	private static final String READ_ONLY = "Rows of a lazily loaded feed can't be added or removed";
+
+	private final File file;
+	private final ColumnBinding binding;
+	private final long budget;
+	private final int rowCount;
+
+	// the segments, in file order
+	private final int segmentCount;
+	private final int[] segmentTrips;
+	private final int[] segmentFirstRows;
+	private final int[] segmentRowCounts;
+	private final long[] segmentOffsets;
+	private final int[] segmentLengths;
+	private final int[] nextSegments;
+	// by trip code
+	private final int[] firstSegments;
+	private final StopIndex stopIndex;
+
+	private final LinkedHashMap<Integer, Chunk> cache = new LinkedHashMap<>(16, 0.75f, true);
+	private long cachedBytes;
+	private Chunk lastChunk;
+	private long loadCount;
+
+	/**
+	 * Scans a stop_times.txt file
+	 * @param file The stop_times.txt file
+	 * @param budget The most memory, in bytes, that cached trips may take up
+	 * @return The table, or null if the file's header is missing a required column
+	 * @throws IOException if the file could not be read
+	 */
+	public static LazyStopTimeTable open(File file, long budget) throws IOException {
+		Scan scan = new Scan();
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			scan.run(channel);
+		}
+		if (scan.binding == null) {
+			return null;
+		}
+		return new LazyStopTimeTable(file, budget, scan);
+	}
+
+	private LazyStopTimeTable(File file, long budget, Scan scan) {
+		super(1, ColumnStorage.HEAP);
+		this.file = file;
+		this.binding = scan.binding;
+		this.budget = budget;
+		this.rowCount = scan.rows;
+		this.segmentCount = scan.segments;
+		this.segmentTrips = Arrays.copyOf(scan.trips, segmentCount);
+		this.segmentFirstRows = Arrays.copyOf(scan.firstRows, segmentCount);
+		this.segmentRowCounts = Arrays.copyOf(scan.rowCounts, segmentCount);
+		this.segmentOffsets = Arrays.copyOf(scan.offsets, segmentCount);
+		this.segmentLengths = Arrays.copyOf(scan.lengths, segmentCount);
+
+		// chain each trip's segments together, in file order
+		this.nextSegments = new int[segmentCount];
+		this.firstSegments = new int[StringDictionary.getInstance().size()];
+		Arrays.fill(firstSegments, -1);
+		int[] lastSegments = new int[firstSegments.length];
+		for (int segment = 0; segment < segmentCount; ++segment) {
+			int trip = segmentTrips[segment];
+			nextSegments[segment] = -1;
+			if (firstSegments[trip] < 0) {
+				firstSegments[trip] = segment;
+			} else {
+				nextSegments[lastSegments[trip]] = segment;
+			}
+			lastSegments[trip] = segment;
+		}
+		this.stopIndex = StopIndex.build(rowCount, scan.rowStops, scan.rowTrips, scan.rowArrivals);
+	}
+
+	//---- ROWS
+
+	@Override
+	public int size() {
+		return rowCount;
+	}
+
+	/**
+	 * The number of lines a trip has in the file, which is known without parsing them
+	 * @param tripCode The trip ID's code
+	 * @return The number of lines (including any that are not valid)
+	 */
+	public int getTripRowCount(int tripCode) {
+		int count = 0;
+		for (int segment = firstSegment(tripCode); segment >= 0; segment = nextSegments[segment]) {
+			count += segmentRowCounts[segment];
+		}
+		return count;
+	}
+
+	/**
+	 * Reads a trip's lines if they aren't cached and finds its valid rows. The lines are
+	 * left where they are in the file, so the rows are put in order from the parsed sequences.
+	 * @param tripCode The trip ID's code
+	 * @return The rows (stop time IDs) of the trip, in stop sequence order and then row order
+	 */
+	@Override
+	public ArrayList<Integer> getTripRows(int tripCode) {
+		int first = firstSegment(tripCode);
+		if (first < 0) {
+			return new ArrayList<>();
+		}
+		Chunk chunk = chunk(first);
+		long[] keys = new long[chunk.rows.size()];
+		int count = 0;
+		for (int i = 0; i < chunk.segments.length; ++i) {
+			int segment = chunk.segments[i];
+			for (int line = 0; line < segmentRowCounts[segment]; ++line) {
+				int local = chunk.bases[i] + line;
+				if (!chunk.invalid.get(local)) {
+					keys[count++] = sequenceKey(chunk.rows.getStopSequence(local), segmentFirstRows[segment] + line);
+				}
+			}
+		}
+		return rowsInSequenceOrder(keys, count);
+	}
+
+	/**
+	 * Leaves the rows alone, since they are the lines of the file. A trip's rows are put in
+	 * stop sequence order when they are read instead (see getTripRows).
+	 * @return False
+	 */
+	@Override
+	public boolean sortByTripAndSequence() {
+		return false;
+	}
+
+	@Override
+	public StopTime copy(int row) {
+		Chunk chunk = chunkOfRow(row);
+		StopTime copy = chunk.rows.copy(chunk.rowOf(row));
+		copy.setStopTimeID(row);
+		return copy;
+	}
+
+	/**
+	 * The stop index of the table, which the scan built from the stop and arrival time of
+	 * each line, so the stop times at a stop are found without reading any trips. It has no
+	 * routes until they are counted (see StopIndex.countRoutes).
+	 * @return The stop index
+	 */
+	public StopIndex getStopIndex() {
+		return stopIndex;
+	}
+
+	//---- CACHE
+
+	/**
+	 * The most memory that cached trips may take up
+	 * @return The budget in bytes
+	 */
+	public long getBudget() {
+		return budget;
+	}
+
+	/**
+	 * The memory that the cached trips take up (estimated)
+	 * @return The bytes
+	 */
+	public synchronized long getCachedBytes() {
+		return cachedBytes;
+	}
+
+	/**
+	 * The number of trips that are cached
+	 * @return The number of trips
+	 */
+	public synchronized int getCachedTripCount() {
+		return cache.size();
+	}
+
+	/**
+	 * The number of times a trip has been read from the file
+	 * @return The number of reads
+	 */
+	public synchronized long getLoadCount() {
+		return loadCount;
+	}
+
+	/**
+	 * Gets the cached trip that a row belongs to, reading it first if it isn't cached
+	 */
+	private Chunk chunkOfRow(int row) {
+		checkRow(row);
+		return chunk(segmentOf(row));
+	}
+
+	private synchronized Chunk chunk(int segment) {
+		int trip = segmentTrips[segment];
+		// scans read many rows of the same trip in a row
+		if (lastChunk != null && lastChunk.tripCode == trip && lastChunk.cached) {
+			return lastChunk;
+		}
+		Chunk chunk = cache.get(trip);
+		if (chunk == null) {
+			chunk = load(trip);
+			cache.put(trip, chunk);
+			chunk.cached = true;
+			cachedBytes += chunk.bytes;
+			evict(chunk);
+		}
+		lastChunk = chunk;
+		return chunk;
+	}
+
+	/**
+	 * Evicts the least recently used trips until the cache is within its budget.
+	 * Trips that were changed are kept, since their changes only exist in the cache.
+	 * @param keep The trip that was just read, which is never evicted
+	 */
+	private void evict(Chunk keep) {
+		Iterator<Map.Entry<Integer, Chunk>> entries = cache.entrySet().iterator();
+		while (cachedBytes > budget && entries.hasNext()) {
+			Chunk chunk = entries.next().getValue();
+			if (chunk != keep && !chunk.dirty) {
+				entries.remove();
+				chunk.cached = false;
+				cachedBytes -= chunk.bytes;
+			}
+		}
+	}
+
+	/**
+	 * Parses all of a trip's lines
+	 */
+	private Chunk load(int tripCode) {
+		int[] segments = new int[0];
+		for (int segment = firstSegment(tripCode); segment >= 0; segment = nextSegments[segment]) {
+			segments = Arrays.copyOf(segments, segments.length + 1);
+			segments[segments.length - 1] = segment;
+		}
+		int[] bases = new int[segments.length];
+		StopTimeTable rows = new StopTimeTable(getTripRowCount(tripCode), ColumnStorage.HEAP);
+		BitSet invalid = new BitSet();
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			for (int i = 0; i < segments.length; ++i) {
+				int segment = segments[i];
+				bases[i] = rows.size();
+				ByteBuffer bytes = ByteBuffer.allocate(segmentLengths[segment]);
+				long position = segmentOffsets[segment];
+				while (bytes.hasRemaining()) {
+					int read = channel.read(bytes, position + bytes.position());
+					if (read < 0) {
+						throw new IOException(file.getName() + " is shorter than when it was scanned");
+					}
+				}
+				bytes.flip();
+				CharBuffer chars = StandardCharsets.UTF_8.decode(bytes);
+				CsvTokenizer tokenizer = new CsvTokenizer(chars.array(), chars.arrayOffset(), chars.limit());
+				for (int line = 0; line < segmentRowCounts[segment]; ++line) {
+					if (!tokenizer.nextRow() || !FeedParser.parseStopTime(tokenizer, binding, rows, null)) {
+						// keep the row so the rows after it stay in place
+						invalid.set(rows.size());
+						rows.add(StringDictionary.NONE, StringDictionary.NONE, 0, 0, 0, StringDictionary.NONE,
+								StopTime.ABSENT, StopTime.ABSENT);
+					}
+				}
+			}
+		} catch (IOException ioException) {
+			throw new UncheckedIOException("Could not read the stop times of a trip", ioException);
+		}
+		++loadCount;
+		return new Chunk(tripCode, rows, segments, bases, invalid);
+	}
+
+	private int firstSegment(int tripCode) {
+		return tripCode >= 0 && tripCode < firstSegments.length ? firstSegments[tripCode] : -1;
+	}
+
+	private int segmentOf(int row) {
+		Chunk last = lastChunk;
+		if (last != null) {
+			for (int segment : last.segments) {
+				if (row >= segmentFirstRows[segment] && row < segmentFirstRows[segment] + segmentRowCounts[segment]) {
+					return segment;
+				}
+			}
+		}
+		int segment = Arrays.binarySearch(segmentFirstRows, 0, segmentCount, row);
+		return segment >= 0 ? segment : -segment - 2;
+	}
+
+	//---- COLUMNS
+
+	@Override
+	public int getTripCode(int row) {
+		checkRow(row);
+		return segmentTrips[segmentOf(row)];
+	}
+
+	@Override
+	public void setTripCode(int row, int tripCode) {
+		throw new UnsupportedOperationException("A row of a lazily loaded feed can't move to another trip");
+	}
+
+	@Override
+	public int getStopCode(int row) {
+		Chunk chunk = chunkOfRow(row);
+		return chunk.rows.getStopCode(chunk.rowOf(row));
+	}
+
+	@Override
+	public void setStopCode(int row, int stopCode) {
+		Chunk chunk = changedChunkOfRow(row);
+		chunk.rows.setStopCode(chunk.rowOf(row), stopCode);
+	}
+
+	@Override
+	public int getArrivalTime(int row) {
+		Chunk chunk = chunkOfRow(row);
+		return chunk.rows.getArrivalTime(chunk.rowOf(row));
+	}
+
+	@Override
+	public void setArrivalTime(int row, int arrival) {
+		Chunk chunk = changedChunkOfRow(row);
+		chunk.rows.setArrivalTime(chunk.rowOf(row), arrival);
+	}
+
+	@Override
+	public int getDepartureTime(int row) {
+		Chunk chunk = chunkOfRow(row);
+		return chunk.rows.getDepartureTime(chunk.rowOf(row));
+	}
+
+	@Override
+	public void setDepartureTime(int row, int departure) {
+		Chunk chunk = changedChunkOfRow(row);
+		chunk.rows.setDepartureTime(chunk.rowOf(row), departure);
+	}
+
+	@Override
+	public int getStopSequence(int row) {
+		Chunk chunk = chunkOfRow(row);
+		return chunk.rows.getStopSequence(chunk.rowOf(row));
+	}
+
+	@Override
+	public void setStopSequence(int row, int sequence) {
+		Chunk chunk = changedChunkOfRow(row);
+		chunk.rows.setStopSequence(chunk.rowOf(row), sequence);
+	}
+
+	@Override
+	public int getHeadSignCode(int row) {
+		Chunk chunk = chunkOfRow(row);
+		return chunk.rows.getHeadSignCode(chunk.rowOf(row));
+	}
+
+	@Override
+	public void setHeadSignCode(int row, int headSignCode) {
+		Chunk chunk = changedChunkOfRow(row);
+		chunk.rows.setHeadSignCode(chunk.rowOf(row), headSignCode);
+	}
+
+	@Override
+	public int getPickupType(int row) {
+		Chunk chunk = chunkOfRow(row);
+		return chunk.rows.getPickupType(chunk.rowOf(row));
+	}
+
+	@Override
+	public void setPickupType(int row, int pickupType) {
+		Chunk chunk = changedChunkOfRow(row);
+		chunk.rows.setPickupType(chunk.rowOf(row), pickupType);
+	}
+
+	@Override
+	public int getDropOffType(int row) {
+		Chunk chunk = chunkOfRow(row);
+		return chunk.rows.getDropOffType(chunk.rowOf(row));
+	}
+
+	@Override
+	public void setDropOffType(int row, int dropOffType) {
+		Chunk chunk = changedChunkOfRow(row);
+		chunk.rows.setDropOffType(chunk.rowOf(row), dropOffType);
+	}
+
+	private Chunk changedChunkOfRow(int row) {
+		Chunk chunk = chunkOfRow(row);
+		chunk.dirty = true;
+		return chunk;
+	}
+
+	//---- READ ONLY
+
+	@Override
+	public boolean add(StopTime stopTime) {
+		throw new UnsupportedOperationException(READ_ONLY);
+	}
+
+	@Override
+	public int add(int tripCode, int stopCode, int arrival, int departure, int sequence, int headSignCode,
+				   int pickupType, int dropOffType) {
+		throw new UnsupportedOperationException(READ_ONLY);
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends StopTime> stopTimes) {
+		throw new UnsupportedOperationException(READ_ONLY);
+	}
+
+	@Override
+	public StopTime set(int row, StopTime stopTime) {
+		throw new UnsupportedOperationException(READ_ONLY);
+	}
+
+	@Override
+	public void copyRow(int from, int to) {
+		throw new UnsupportedOperationException(READ_ONLY);
+	}
+
+	@Override
+	public StopTime remove(int row) {
+		throw new UnsupportedOperationException(READ_ONLY);
+	}
+
+	@Override
+	public void clear() {
+		throw new UnsupportedOperationException(READ_ONLY);
+	}
+
+	@Override
+	public void trimToSize() {
+	}
+
+	/**
+	 * The parsed lines of one trip
+	 */
+	private class Chunk {
+		private final int tripCode;
+		private final StopTimeTable rows;
+		private final int[] segments;
+		private final int[] bases;
+		private final BitSet invalid;
+		private final long bytes;
+		private boolean cached;
+		private boolean dirty;
+
+		Chunk(int tripCode, StopTimeTable rows, int[] segments, int[] bases, BitSet invalid) {
+			this.tripCode = tripCode;
+			this.rows = rows;
+			this.segments = segments;
+			this.bases = bases;
+			this.invalid = invalid;
+			this.bytes = BYTES_PER_TRIP + (long) rows.size() * BYTES_PER_ROW;
+		}
+
+		/**
+		 * Where a row of the table is in this chunk
+		 */
+		int rowOf(int row) {
+			for (int i = 0; i < segments.length; ++i) {
+				int offset = row - segmentFirstRows[segments[i]];
+				if (offset >= 0 && offset < segmentRowCounts[segments[i]]) {
+					return bases[i] + offset;
+				}
+			}
+			throw new IllegalStateException("Row " + row + " is not in trip " + tripCode);
+		}
+	}
+
+	/**
+	 * Finds the header and segments of a file in one pass over its bytes
+	 */
+	private static class Scan {
+		private ColumnBinding binding;
+		private int tripField = -1;
+		private int stopField = -1;
+		private int arrivalField = -1;
+		private int rows;
+		private int segments;
+		private int[] trips = new int[1024];
+		private int[] firstRows = new int[1024];
+		private int[] rowCounts = new int[1024];
+		private long[] offsets = new long[1024];
+		private int[] lengths = new int[1024];
+		// by row, for the stop index
+		private int[] rowTrips = new int[1024];
+		private int[] rowStops = new int[1024];
+		private int[] rowArrivals = new int[1024];
+
+		// the line being read
+		private byte[] tripID = new byte[64];
+		private int tripIDLength;
+		private byte[] stopID = new byte[64];
+		private int stopIDLength;
+		private final char[] arrival = new char[16];
+		private int arrivalLength;
+		private byte[] lastTripID = new byte[64];
+		private int lastTripIDLength = -1;
+		private byte[] header = new byte[256];
+		private int headerLength;
+
+		void run(FileChannel channel) throws IOException {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(SCAN_BUFFER_SIZE);
+			boolean inHeader = true;
+			boolean inQuotes = false;
+			boolean blank = true;
+			int field = 0;
+			long position = 0;
+			long lineStart = 0;
+			while (channel.read(buffer) >= 0 || buffer.position() > 0) {
+				buffer.flip();
+				if (!buffer.hasRemaining()) {
+					break;
+				}
+				while (buffer.hasRemaining()) {
+					byte b = buffer.get();
+					++position;
+					if (inHeader) {
+						if (b == '\n') {
+							inHeader = false;
+							lineStart = position;
+							if (!readHeader()) {
+								return;
+							}
+						} else {
+							appendHeader(b);
+						}
+					} else if (inQuotes) {
+						if (b == '"') {
+							inQuotes = false;
+						} else {
+							appendField(field, b);
+						}
+					} else if (b == '\n') {
+						if (!blank) {
+							endLine(lineStart, position);
+						}
+						lineStart = position;
+						blank = true;
+						field = 0;
+						tripIDLength = 0;
+						stopIDLength = 0;
+						arrivalLength = 0;
+					} else if (b != '\r') {
+						blank = false;
+						if (b == '"') {
+							inQuotes = true;
+						} else if (b == ',') {
+							++field;
+						} else {
+							appendField(field, b);
+						}
+					}
+				}
+				buffer.clear();
+			}
+			if (inHeader) {
+				readHeader();
+			} else if (!blank) {
+				endLine(lineStart, position);
+			}
+		}
+
+		private boolean readHeader() {
+			String line = new String(header, 0, headerLength, StandardCharsets.UTF_8);
+			if (line.startsWith("\uFEFF")) {
+				line = line.substring(1);
+			}
+			String[] fields = CsvTokenizer.splitLine(line.strip());
+			binding = ColumnBinding.compile(StopTime.COLUMNS, fields, FeedParser.STOP_TIME_REQUIRED_COLUMNS);
+			tripField = binding == null ? -1 : binding.getFileColumn(0);
+			arrivalField = binding == null ? -1 : binding.getFileColumn(1);
+			stopField = binding == null ? -1 : binding.getFileColumn(3);
+			return binding != null;
+		}
+
+		private void endLine(long lineStart, long lineEnd) {
+			boolean sameTrip = segments > 0 &&
+					Arrays.equals(tripID, 0, tripIDLength, lastTripID, 0, lastTripIDLength);
+			if (sameTrip) {
+				++rowCounts[segments - 1];
+				lengths[segments - 1] = Math.toIntExact(lineEnd - offsets[segments - 1]);
+			} else {
+				if (segments == trips.length) {
+					int capacity = segments * 2;
+					trips = Arrays.copyOf(trips, capacity);
+					firstRows = Arrays.copyOf(firstRows, capacity);
+					rowCounts = Arrays.copyOf(rowCounts, capacity);
+					offsets = Arrays.copyOf(offsets, capacity);
+					lengths = Arrays.copyOf(lengths, capacity);
+				}
+				trips[segments] = StringDictionary.getInstance().encode(
+						new String(tripID, 0, tripIDLength, StandardCharsets.UTF_8));
+				firstRows[segments] = rows;
+				rowCounts[segments] = 1;
+				offsets[segments] = lineStart;
+				lengths[segments] = Math.toIntExact(lineEnd - lineStart);
+				++segments;
+				if (lastTripID.length < tripIDLength) {
+					lastTripID = new byte[tripID.length];
+				}
+				System.arraycopy(tripID, 0, lastTripID, 0, tripIDLength);
+				lastTripIDLength = tripIDLength;
+			}
+			if (rows == rowTrips.length) {
+				int capacity = rows * 2;
+				rowTrips = Arrays.copyOf(rowTrips, capacity);
+				rowStops = Arrays.copyOf(rowStops, capacity);
+				rowArrivals = Arrays.copyOf(rowArrivals, capacity);
+			}
+			rowTrips[rows] = trips[segments - 1];
+			rowArrivals[rows] = ServiceTime.parse(arrival, 0, arrivalLength);
+			// a line without a stop or arrival time is not valid, so it is left out of the index
+			rowStops[rows] = stopIDLength == 0 || tripIDLength == 0 || rowArrivals[rows] == ServiceTime.INVALID ?
+					StringDictionary.NONE :
+					StringDictionary.getInstance().encode(new String(stopID, 0, stopIDLength, StandardCharsets.UTF_8));
+			++rows;
+		}
+
+		private void appendField(int field, byte b) {
+			if (field == tripField) {
+				appendTripID(b);
+			} else if (field == stopField) {
+				if (stopIDLength == stopID.length) {
+					stopID = Arrays.copyOf(stopID, stopIDLength * 2);
+				}
+				stopID[stopIDLength++] = b;
+			} else if (field == arrivalField && arrivalLength < arrival.length) {
+				// a time is ASCII, and anything longer than the buffer isn't one
+				arrival[arrivalLength++] = (char) b;
+			}
+		}
+
+		private void appendTripID(byte b) {
+			if (tripIDLength == tripID.length) {
+				tripID = Arrays.copyOf(tripID, tripIDLength * 2);
+			}
+			tripID[tripIDLength++] = b;
+		}
+
+		private void appendHeader(byte b) {
+			if (headerLength == header.length) {
+				header = Arrays.copyOf(header, headerLength * 2);
+			}
+			header[headerLength++] = b;
+		}
+	}
+
+}	//end class LazyStopTimeTable
@@ -0,0 +1,292 @@
+/*
+ * This file is part of gtfstransitproject_group5.
+ *
+ * gtfstransitproject_group5 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * gtfstransitproject_group5 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with gtfstransitproject_group5.  If not, see <https://www.gnu.org/licenses/>.
+
+ * Course: CS 2030 031
+ * Fall 2021
+ * GTFS Transit Project
+ * Names: Jonathan Keane, Kevin Paganini, Kyle Senebouttarath
+ * Created: 10/4/2021
+ * Professor: Dr. Wright
+ */
+package gtfs;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Imports a stop_times.txt file by memory mapping it, splitting it into newline
+ * aligned chunks and parsing and validating the chunks on a fork-join pool.
+ * The chunks are merged back together in file order and the stop times are
+ * numbered by their position, so stop time IDs match what a line by line import
+ * would have given.
+ *
+ * Note: chunks are split on any line break, so a quoted field containing a line
+ * break is not supported here. Use the streaming import for such files.
+ */
+public class ParallelStopTimeImporter {
+	/**
+	 * Files smaller than this are not worth splitting up
+	 */
+	public static final long MIN_CHUNK_SIZE = 1 << 20;
+	private static final int CHUNKS_PER_THREAD = 4;
+	private static final int BOUNDARY_WINDOW = 1 << 16;
+
+	private final File file;
+	private final ForkJoinPool pool;
+	private final long fileSize;
+	private final long dataStart;
+	private final String headerLine;
+	private int invalidRowCount;
+
+	/**
+	 * Opens the file and reads its header line using the common fork-join pool
+	 * @param file The stop_times.txt file
+	 * @throws IOException if the file could not be read
+	 */
+	public ParallelStopTimeImporter(File file) throws IOException {
+		this(file, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Opens the file and reads its header line
+	 * @param file The stop_times.txt file
+	 * @param pool The pool to parse the chunks on
+	 * @throws IOException if the file could not be read
+	 */
+	public ParallelStopTimeImporter(File file, ForkJoinPool pool) throws IOException {
+		this.file = file;
+		this.pool = pool;
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			fileSize = channel.size();
+			dataStart = findLineStart(channel, 0);
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, dataStart);
+			String line = StandardCharsets.UTF_8.decode(header).toString();
+			headerLine = stripLineEnding(line.startsWith("\uFEFF") ? line.substring(1) : line);
+		}
+	}
+
+	/**
+	 * The header line of the file (without the line ending) so it can be validated
+	 * before the rest of the file is parsed
+	 * @return The header line
+	 */
+	public String getHeaderLine() {
+		return headerLine;
+	}
+
+	/**
+	 * The number of rows that were skipped by the last call to parse because they were not valid
+	 * @return The number of invalid rows
+	 */
+	public int getInvalidRowCount() {
+		return invalidRowCount;
+	}
+
+	/**
+	 * Parses every row after the header line in parallel
+	 * @param binding The column binding compiled from the header line
+	 * @param errorLog Where to record the rows that are not valid
+	 * @param progress Where to report the bytes and rows parsed, which is also checked for cancellation
+	 * @return The valid stop times in file order, numbered from 0
+	 * @throws IOException if the file could not be read
+	 * @throws java.util.concurrent.CancellationException if the import was cancelled
+	 */
+	public StopTimeTable parse(ColumnBinding binding, ValidationErrorLog errorLog, ImportProgress progress)
+			throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long[] bounds = chunkBounds(channel);
+			int chunks = bounds.length - 1;
+			StopTimeTable[] results = new StopTimeTable[chunks];
+			ChunkErrors[] errors = new ChunkErrors[chunks];
+			progress.addBytesRead(dataStart);
+			pool.invoke(new ChunkTask(channel, binding, progress, bounds, results, errors, 0, chunks));
+
+			// a chunk only knows its own line numbers, so add the lines of the chunks before it
+			int total = 0;
+			invalidRowCount = 0;
+			long lineOffset = 1;
+			for (int i = 0; i < chunks; ++i) {
+				total += results[i].size();
+				invalidRowCount += errors[i].rows.size();
+				for (int e = 0; e < errors[i].rows.size(); ++e) {
+					errorLog.record(FeedParser.STOP_TIMES_FILE, lineOffset + errors[i].rows.get(e),
+							errors[i].columns.get(e), errors[i].types.get(e));
+				}
+				lineOffset += errors[i].lineCount;
+			}
+			// a row's position is its stop time ID, so appending the chunks in order numbers them
+			StopTimeTable stopTimes = new StopTimeTable(total);
+			for (StopTimeTable chunk : results) {
+				stopTimes.addAll(chunk);
+			}
+			return stopTimes;
+		}
+	}
+
+	/**
+	 * Splits the data part of the file into chunks that all start at the beginning of a line
+	 * @param channel The open file
+	 * @return The chunk offsets, where chunk i is [bounds[i], bounds[i + 1])
+	 * @throws IOException if the file could not be read
+	 */
+	private long[] chunkBounds(FileChannel channel) throws IOException {
+		long dataSize = fileSize - dataStart;
+		int targetChunks = Math.max(1, pool.getParallelism() * CHUNKS_PER_THREAD);
+		long chunkSize = Math.max(MIN_CHUNK_SIZE, (dataSize + targetChunks - 1) / targetChunks);
+		// a single mapping can't be larger than Integer.MAX_VALUE
+		chunkSize = Math.min(chunkSize, Integer.MAX_VALUE / 2);
+
+		List<Long> bounds = new ArrayList<>();
+		bounds.add(dataStart);
+		long next = dataStart + chunkSize;
+		while (next < fileSize) {
+			long lineStart = findLineStart(channel, next);
+			if (lineStart >= fileSize) {
+				break;
+			}
+			bounds.add(lineStart);
+			next = lineStart + chunkSize;
+		}
+		bounds.add(fileSize);
+		return bounds.stream().mapToLong(Long::longValue).toArray();
+	}
+
+	/**
+	 * Finds the start of the first line that begins after the given position
+	 * @param channel The open file
+	 * @param position The position to search from
+	 * @return The offset just past the next '\n', or the file size if there is none
+	 * @throws IOException if the file could not be read
+	 */
+	private static long findLineStart(FileChannel channel, long position) throws IOException {
+		long size = channel.size();
+		while (position < size) {
+			long length = Math.min(BOUNDARY_WINDOW, size - position);
+			MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+			for (int i = 0; i < length; ++i) {
+				if (window.get(i) == '\n') {
+					return position + i + 1;
+				}
+			}
+			position += length;
+		}
+		return size;
+	}
+
+	private static String stripLineEnding(String line) {
+		int end = line.length();
+		while (end > 0 && (line.charAt(end - 1) == '\n' || line.charAt(end - 1) == '\r')) {
+			--end;
+		}
+		return line.substring(0, end);
+	}
+
+	/**
+	 * The rows a chunk rejected, numbered from the start of the chunk
+	 */
+	private static class ChunkErrors implements ValidationErrorLog.RowErrors {
+		private final List<Long> rows = new ArrayList<>();
+		private final List<String> columns = new ArrayList<>();
+		private final List<ValidationErrorLog.ErrorType> types = new ArrayList<>();
+		private long lineCount;
+
+		@Override
+		public void reject(long row, String column, ValidationErrorLog.ErrorType type) {
+			rows.add(row);
+			columns.add(column);
+			types.add(type);
+		}
+	}
+
+	/**
+	 * Parses a range of chunks, splitting the range in half until there is only one chunk left
+	 */
+	private static class ChunkTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final FileChannel channel;
+		private final ColumnBinding binding;
+		private final ImportProgress progress;
+		private final long[] bounds;
+		private final StopTimeTable[] results;
+		private final ChunkErrors[] errors;
+		private final int from;
+		private final int to;
+
+		ChunkTask(FileChannel channel, ColumnBinding binding, ImportProgress progress, long[] bounds,
+				  StopTimeTable[] results, ChunkErrors[] errors, int from, int to) {
+			this.channel = channel;
+			this.binding = binding;
+			this.progress = progress;
+			this.bounds = bounds;
+			this.results = results;
+			this.errors = errors;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new ChunkTask(channel, binding, progress, bounds, results, errors, from, middle),
+						new ChunkTask(channel, binding, progress, bounds, results, errors, middle, to));
+			} else {
+				try {
+					parseChunk(from);
+				} catch (IOException exception) {
+					throw new IllegalStateException("Could not parse stop_times.txt: " + exception.getMessage(), exception);
+				}
+			}
+		}
+
+		private void parseChunk(int chunk) throws IOException {
+			long start = bounds[chunk];
+			long length = bounds[chunk + 1] - start;
+			MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+			CharBuffer chars = StandardCharsets.UTF_8.decode(bytes);
+
+			// a rough guess of 40 bytes a row saves most of the regrowing
+			StopTimeTable stopTimes = new StopTimeTable((int) (length / 40));
+			ChunkErrors chunkErrors = new ChunkErrors();
+			CsvTokenizer rows = new CsvTokenizer(chars.array(), chars.arrayOffset(), chars.limit());
+			int unreported = 0;
+			while (rows.nextRow()) {
+				FeedParser.parseStopTime(rows, binding, stopTimes, chunkErrors);
+				if (++unreported == ImportProgress.REPORT_INTERVAL) {
+					progress.rowsParsed(unreported);
+					unreported = 0;
+				}
+			}
+			progress.rowsParsed(unreported);
+			progress.addBytesRead(length);
+			chunkErrors.lineCount = rows.getRowNumber();
+			results[chunk] = stopTimes;
+			errors[chunk] = chunkErrors;
+		}
+	}
+
+}	//end class ParallelStopTimeImporter
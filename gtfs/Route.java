@@ -66,7 +66,7 @@ public class Route implements GTFSObject {
 	private String agencyID;
 	private String routeColor;
 	private String routeDesc;
-	private final String routeID;
+	private final int routeCode;
 	private String routeLongName;
 	private String routeShortName;
 	private String routeTxtColor;
@@ -74,6 +74,8 @@ public class Route implements GTFSObject {
 	private String routeUrl;
 	private List<Integer> stopTimeIDs;
 
+	private static final StringDictionary IDS = StringDictionary.getInstance();
+
 	public Route(String agencyID,
 				 String routeColor,
 				 String routeDesc,
@@ -86,7 +88,7 @@ public class Route implements GTFSObject {
 		this.agencyID = agencyID;
 		this.routeColor = routeColor;
 		this.routeDesc = routeDesc;
-		this.routeID = routeID;
+		this.routeCode = IDS.encode(routeID);
 		this.routeLongName = routeLongName;
 		this.routeShortName = routeShortName;
 		this.routeTxtColor = routeTxtColor;
@@ -122,7 +124,7 @@ public class Route implements GTFSObject {
 	public String[] getColumnValues() {
 		return new String[]
 				{
-						routeID,
+						getRouteID(),
 						agencyID,
 						routeShortName,
 						routeLongName,
@@ -159,7 +161,15 @@ public class Route implements GTFSObject {
 	}
 
 	public String getRouteID() {
-		return routeID;
+		return IDS.decode(routeCode);
+	}
+
+	/**
+	 * The route ID's code in the StringDictionary
+	 * @return The route code
+	 */
+	public int getRouteCode() {
+		return routeCode;
 	}
 
 	public String getRouteLongName() {
@@ -202,9 +212,30 @@ public class Route implements GTFSObject {
 		 this.routeType = routeType;
 	}
 
-	public List<Integer> getStopTimeIDs() { return this.stopTimeIDs; }
+	/**
+	 * The IDs of the route's stop times. In a lazily loaded feed (see LazyStopTimeTable)
+	 * they are gathered from the route's trips the first time this is called.
+	 * @return The stop time IDs
+	 */
+	public List<Integer> getStopTimeIDs() {
+		if (this.stopTimeIDs == null) {
+			List<Integer> ids = new ArrayList<>();
+			for (Trip trip : Database.getInstance().getTrips(trip -> trip.getRouteCode() == routeCode)) {
+				ids.addAll(trip.getStopTimeIDs());
+			}
+			this.stopTimeIDs = ids;
+		}
+		return this.stopTimeIDs;
+	}
+
+	/**
+	 * Forgets the route's stop time IDs, so they are gathered the next time they are asked for
+	 */
+	void unloadStopTimeIDs() {
+		this.stopTimeIDs = null;
+	}
 
 	public void addStopTimeToRoute(int stopTimeID) {
-		this.stopTimeIDs.add(stopTimeID);
+		getStopTimeIDs().add(stopTimeID);
 	}
 }
\ No newline at end of file
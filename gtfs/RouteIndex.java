@@ -0,0 +1,263 @@
+/*
+ * This file is part of gtfstransitproject_group5.
+ *
+ * gtfstransitproject_group5 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * gtfstransitproject_group5 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with gtfstransitproject_group5.  If not, see <https://www.gnu.org/licenses/>.
+
+ * Course: CS 2030 031
+ * Fall 2021
+ * GTFS Transit Project
+ * Names: Jonathan Keane, Kevin Paganini, Kyle Senebouttarath
+ * Created: 10/4/2021
+ * Professor: Dr. Wright
+ */
+package gtfs;
+
+import java.util.Arrays;
+
+/**
+ * An index from each route to its trips, in order of the time each trip starts (the arrival
+ * time of its first stop time), so the next trips on a route after a time are a binary
+ * search away (see indexAfter).
+ *
+ * For each route code it keeps the trip codes next to an int array of their start times,
+ * sorted by time and then trip code. It also remembers the route and start time each trip
+ * was indexed with, so Database can move a trip when its route or stop times change (see
+ * update). Trips without stop times are not indexed.
+ */
+public class RouteIndex {
+	private static final int[] EMPTY = new int[0];
+	private static final int NOT_INDEXED = -1;
+
+	// by route code
+	private int[][] tripCodes;
+	private int[][] startTimes;
+	private int[] tripCounts;
+	// by trip code
+	private int[] routeOfTrip;
+	private int[] startOfTrip;
+
+	private RouteIndex(int codes) {
+		tripCodes = new int[codes][];
+		startTimes = new int[codes][];
+		tripCounts = new int[codes];
+		routeOfTrip = new int[codes];
+		startOfTrip = new int[codes];
+		Arrays.fill(tripCodes, EMPTY);
+		Arrays.fill(startTimes, EMPTY);
+		Arrays.fill(routeOfTrip, NOT_INDEXED);
+	}
+
+	/**
+	 * Indexes trips whose stop time lists are filled in (see Database.distributeStopTimes)
+	 * @param trips The trips
+	 * @param stopTimes The stop times, whose rows are their IDs
+	 * @return The index
+	 */
+	public static RouteIndex build(Iterable<Trip> trips, StopTimeTable stopTimes) {
+		RouteIndex index = new RouteIndex(StringDictionary.getInstance().size());
+		// remember each trip first, so every route's arrays are made once at their full size
+		for (Trip trip : trips) {
+			if (trip == null) {
+				// what the iterator of an empty Trie gives
+				continue;
+			}
+			int start = startTime(trip, stopTimes);
+			if (start != NOT_INDEXED && trip.getRouteCode() >= 0) {
+				index.routeOfTrip[trip.getTripCode()] = trip.getRouteCode();
+				index.startOfTrip[trip.getTripCode()] = start;
+				++index.tripCounts[trip.getRouteCode()];
+			}
+		}
+		long[][] keys = new long[index.tripCounts.length][];
+		for (int route = 0; route < keys.length; ++route) {
+			keys[route] = index.tripCounts[route] == 0 ? null : new long[index.tripCounts[route]];
+			index.tripCounts[route] = 0;
+		}
+		for (int trip = 0; trip < index.routeOfTrip.length; ++trip) {
+			int route = index.routeOfTrip[trip];
+			if (route != NOT_INDEXED) {
+				// the time signed in the high half and the trip code in the low half
+				keys[route][index.tripCounts[route]++] = ((long) index.startOfTrip[trip] << 32) | trip;
+			}
+		}
+		for (int route = 0; route < keys.length; ++route) {
+			if (keys[route] == null) {
+				continue;
+			}
+			Arrays.sort(keys[route]);
+			int count = keys[route].length;
+			index.tripCodes[route] = new int[count];
+			index.startTimes[route] = new int[count];
+			for (int i = 0; i < count; ++i) {
+				index.startTimes[route][i] = (int) (keys[route][i] >> 32);
+				index.tripCodes[route][i] = (int) keys[route][i];
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * When a trip starts
+	 * @return The arrival time of the trip's first stop time, or NOT_INDEXED if it has none
+	 */
+	private static int startTime(Trip trip, StopTimeTable stopTimes) {
+		return trip.getStopTimeCount() == 0 ? NOT_INDEXED : stopTimes.getArrivalTime(trip.getStopTimeID(0));
+	}
+
+	//---- LOOKUPS
+
+	/**
+	 * The number of trips on a route that have stop times
+	 * @param routeCode The route ID's code
+	 * @return The number of trips
+	 */
+	public int getTripCount(int routeCode) {
+		return hasRoute(routeCode) ? tripCounts[routeCode] : 0;
+	}
+
+	/**
+	 * Where the trips on a route that start after a time start, in start time order
+	 * @param routeCode The route ID's code
+	 * @param time The time, in seconds after midnight (see ServiceTime)
+	 * @return The position of the first trip starting after the time, or getTripCount if none do
+	 */
+	public int indexAfter(int routeCode, int time) {
+		if (!hasRoute(routeCode)) {
+			return 0;
+		}
+		int[] times = startTimes[routeCode];
+		int low = 0;
+		int high = tripCounts[routeCode];
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (times[middle] <= time) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * A trip on a route, in start time order
+	 * @param routeCode The route ID's code
+	 * @param position The position, from 0 to getTripCount
+	 * @return The trip code
+	 */
+	public int getTripCode(int routeCode, int position) {
+		return tripCodes[routeCode][position];
+	}
+
+	/**
+	 * The start time of a trip on a route, in start time order
+	 * @param routeCode The route ID's code
+	 * @param position The position, from 0 to getTripCount
+	 * @return The arrival time of the trip's first stop time, in seconds after midnight
+	 */
+	public int getStartTime(int routeCode, int position) {
+		return startTimes[routeCode][position];
+	}
+
+	private boolean hasRoute(int routeCode) {
+		return routeCode >= 0 && routeCode < tripCodes.length;
+	}
+
+	//---- UPDATES
+
+	/**
+	 * Puts a trip back in its place after it was added, or its route or stop times changed
+	 * @param trip The trip
+	 * @param stopTimes The stop times, whose rows are their IDs
+	 */
+	public void update(Trip trip, StopTimeTable stopTimes) {
+		remove(trip.getTripCode());
+		int start = startTime(trip, stopTimes);
+		int route = trip.getRouteCode();
+		if (start == NOT_INDEXED || route < 0) {
+			return;
+		}
+		ensureCode(Math.max(route, trip.getTripCode()));
+		int position = -find(route, trip.getTripCode(), start) - 1;
+		int count = tripCounts[route]++;
+		tripCodes[route] = StopIndex.insert(tripCodes[route], count, position, trip.getTripCode());
+		startTimes[route] = StopIndex.insert(startTimes[route], count, position, start);
+		routeOfTrip[trip.getTripCode()] = route;
+		startOfTrip[trip.getTripCode()] = start;
+	}
+
+	/**
+	 * Takes a trip out of the index, such as when it is deleted
+	 * @param tripCode The trip ID's code
+	 */
+	public void remove(int tripCode) {
+		if (tripCode < 0 || tripCode >= routeOfTrip.length || routeOfTrip[tripCode] == NOT_INDEXED) {
+			return;
+		}
+		int route = routeOfTrip[tripCode];
+		int position = find(route, tripCode, startOfTrip[tripCode]);
+		if (position >= 0) {
+			int count = tripCounts[route]--;
+			StopIndex.delete(tripCodes[route], count, position);
+			StopIndex.delete(startTimes[route], count, position);
+		}
+		routeOfTrip[tripCode] = NOT_INDEXED;
+	}
+
+	/**
+	 * Finds a trip among a route's trips, which are sorted by start time and then trip code
+	 * @return The position, or (-(insertion point) - 1) if it is not there, as Arrays.binarySearch
+	 */
+	private int find(int routeCode, int tripCode, int start) {
+		int[] trips = tripCodes[routeCode];
+		int[] times = startTimes[routeCode];
+		int low = 0;
+		int high = tripCounts[routeCode] - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int compare = times[middle] != start ?
+					Integer.compare(times[middle], start) : Integer.compare(trips[middle], tripCode);
+			if (compare < 0) {
+				low = middle + 1;
+			} else if (compare > 0) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -(low + 1);
+	}
+
+	/**
+	 * Makes room for a code that was added to the dictionary after the index was built
+	 */
+	private void ensureCode(int code) {
+		if (code < tripCodes.length) {
+			return;
+		}
+		int length = Math.max(code + 1, StringDictionary.getInstance().size());
+		int old = tripCodes.length;
+		tripCodes = Arrays.copyOf(tripCodes, length);
+		startTimes = Arrays.copyOf(startTimes, length);
+		tripCounts = Arrays.copyOf(tripCounts, length);
+		routeOfTrip = Arrays.copyOf(routeOfTrip, length);
+		startOfTrip = Arrays.copyOf(startOfTrip, length);
+		for (int i = old; i < length; ++i) {
+			tripCodes[i] = EMPTY;
+			startTimes[i] = EMPTY;
+			routeOfTrip[i] = NOT_INDEXED;
+		}
+	}
+
+}	//end class RouteIndex
@@ -0,0 +1,320 @@
+/*
+ * This file is part of gtfstransitproject_group5.
+ *
+ * gtfstransitproject_group5 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * gtfstransitproject_group5 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with gtfstransitproject_group5.  If not, see <https://www.gnu.org/licenses/>.
+
+ * Course: CS 2030 031
+ * Fall 2021
+ * GTFS Transit Project
+ * Names: Jonathan Keane, Kevin Paganini, Kyle Senebouttarath
+ * Created: 10/4/2021
+ * Professor: Dr. Wright
+ */
+package gtfs;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The days that each service runs on, from calendar.txt and calendar_dates.txt.
+ *
+ * The weekly rules and the added and removed dates are compiled once, when the
+ * calendar is built, into a bitset per service over the days of the feed (from its
+ * first start date to its last end date). Whether a trip runs on a day is then a
+ * single bit test on its service code. A feed without calendar files is taken to
+ * run every service every day (see EVERY_DAY).
+ */
+public class ServiceCalendar {
+	/**
+	 * The columns of calendar.txt
+	 */
+	public final static String[] CALENDAR_COLUMNS = new String[]
+			{
+					"service_id",
+					"monday",
+					"tuesday",
+					"wednesday",
+					"thursday",
+					"friday",
+					"saturday",
+					"sunday",
+					"start_date",
+					"end_date"
+			};
+
+	/**
+	 * The columns of calendar_dates.txt
+	 */
+	public final static String[] CALENDAR_DATE_COLUMNS = new String[]
+			{
+					"service_id",
+					"date",
+					"exception_type"
+			};
+
+	/**
+	 * The exception_type of a date that is added to a service
+	 */
+	public static final int SERVICE_ADDED = 1;
+	/**
+	 * The exception_type of a date that is removed from a service
+	 */
+	public static final int SERVICE_REMOVED = 2;
+
+	/**
+	 * The day index of a date outside of the calendar
+	 */
+	public static final int NO_DAY = -1;
+
+	/**
+	 * The calendar of a feed without calendar files, which runs every service every day
+	 */
+	public static final ServiceCalendar EVERY_DAY = new ServiceCalendar(null, 0, new long[0][]);
+
+	private final LocalDate firstDate;
+	private final int dayCount;
+	// by service code, null for services that aren't in the calendar
+	private final long[][] daysByService;
+
+	private ServiceCalendar(LocalDate firstDate, int dayCount, long[][] daysByService) {
+		this.firstDate = firstDate;
+		this.dayCount = dayCount;
+		this.daysByService = daysByService;
+	}
+
+	/**
+	 * If the feed had no calendar files, so every service runs every day
+	 * @return True if this is the EVERY_DAY calendar
+	 */
+	public boolean isEveryDay() {
+		return firstDate == null;
+	}
+
+	/**
+	 * The first day of the calendar
+	 * @return The date, or null for the EVERY_DAY calendar
+	 */
+	public LocalDate getFirstDate() {
+		return firstDate;
+	}
+
+	/**
+	 * The last day of the calendar
+	 * @return The date, or null for the EVERY_DAY calendar
+	 */
+	public LocalDate getLastDate() {
+		return firstDate == null ? null : firstDate.plusDays(dayCount - 1);
+	}
+
+	/**
+	 * Turns a date into a day index, which is what runsOn takes
+	 * @param date The date
+	 * @return The number of days after the first day of the calendar, or NO_DAY if the date is
+	 * outside of the calendar (any date is a day of the EVERY_DAY calendar)
+	 */
+	public int dayOf(LocalDate date) {
+		if (firstDate == null) {
+			return 0;
+		}
+		long day = date.toEpochDay() - firstDate.toEpochDay();
+		return day >= 0 && day < dayCount ? (int) day : NO_DAY;
+	}
+
+	/**
+	 * If a service runs on a day
+	 * @param serviceCode The service ID's code (see Trip.getServiceCode)
+	 * @param day The day index from dayOf
+	 * @return True if the service runs on the day
+	 */
+	public boolean runsOn(int serviceCode, int day) {
+		if (firstDate == null) {
+			return true;
+		}
+		if (day < 0 || serviceCode < 0 || serviceCode >= daysByService.length) {
+			return false;
+		}
+		long[] days = daysByService[serviceCode];
+		return days != null && (days[day >>> 6] & (1L << day)) != 0;
+	}
+
+	/**
+	 * If a service runs on a date
+	 * @param serviceCode The service ID's code (see Trip.getServiceCode)
+	 * @param date The date
+	 * @return True if the service runs on the date
+	 */
+	public boolean runsOn(int serviceCode, LocalDate date) {
+		return runsOn(serviceCode, dayOf(date));
+	}
+
+	/**
+	 * The number of days a service runs on
+	 * @param serviceCode The service ID's code
+	 * @return The number of days, or -1 for the EVERY_DAY calendar
+	 */
+	public int getDayCount(int serviceCode) {
+		if (firstDate == null) {
+			return -1;
+		}
+		long[] days = serviceCode >= 0 && serviceCode < daysByService.length ? daysByService[serviceCode] : null;
+		int count = 0;
+		if (days != null) {
+			for (long word : days) {
+				count += Long.bitCount(word);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Collects the rows of calendar.txt and calendar_dates.txt and compiles them
+	 * into a ServiceCalendar
+	 */
+	public static class Builder {
+		private final List<Rule> rules = new ArrayList<>();
+		private final List<DateException> exceptions = new ArrayList<>();
+
+		/**
+		 * Adds a row of calendar.txt
+		 * @param serviceID The service ID
+		 * @param weekdays If the service runs on each day of the week, Monday first
+		 * @param startDate The first date of the service
+		 * @param endDate The last date of the service
+		 */
+		public void addWeeklyService(String serviceID, boolean[] weekdays, LocalDate startDate, LocalDate endDate) {
+			rules.add(new Rule(StringDictionary.getInstance().encode(serviceID), weekdays.clone(), startDate, endDate));
+		}
+
+		/**
+		 * Adds a row of calendar_dates.txt
+		 * @param serviceID The service ID
+		 * @param date The date
+		 * @param added True if the service runs on the date, false if it doesn't
+		 */
+		public void addException(String serviceID, LocalDate date, boolean added) {
+			exceptions.add(new DateException(StringDictionary.getInstance().encode(serviceID), date, added));
+		}
+
+		/**
+		 * If no rows were added
+		 * @return True if there are no rules or exceptions
+		 */
+		public boolean isEmpty() {
+			return rules.isEmpty() && exceptions.isEmpty();
+		}
+
+		/**
+		 * Compiles the rows into bitsets. The weekly rules are applied first, then the
+		 * exceptions in file order.
+		 * @return The calendar, or EVERY_DAY if no rows were added
+		 */
+		public ServiceCalendar build() {
+			if (isEmpty()) {
+				return EVERY_DAY;
+			}
+			long first = Long.MAX_VALUE;
+			long last = Long.MIN_VALUE;
+			int services = 0;
+			for (Rule rule : rules) {
+				if (!rule.endDate.isBefore(rule.startDate)) {
+					first = Math.min(first, rule.startDate.toEpochDay());
+					last = Math.max(last, rule.endDate.toEpochDay());
+				}
+				services = Math.max(services, rule.serviceCode + 1);
+			}
+			for (DateException exception : exceptions) {
+				first = Math.min(first, exception.date.toEpochDay());
+				last = Math.max(last, exception.date.toEpochDay());
+				services = Math.max(services, exception.serviceCode + 1);
+			}
+			if (first > last) {
+				// only empty date ranges, so nothing ever runs
+				first = last = rules.get(0).startDate.toEpochDay();
+			}
+			int dayCount = Math.toIntExact(last - first + 1);
+			int words = (dayCount + 63) >>> 6;
+			long[][] daysByService = new long[services][];
+
+			for (Rule rule : rules) {
+				long[] days = daysFor(daysByService, rule.serviceCode, words);
+				long start = rule.startDate.toEpochDay();
+				int weekday = rule.startDate.getDayOfWeek().getValue() - DayOfWeek.MONDAY.getValue();
+				for (long date = start; date <= rule.endDate.toEpochDay(); ++date) {
+					if (rule.weekdays[weekday]) {
+						int day = (int) (date - first);
+						days[day >>> 6] |= 1L << day;
+					}
+					weekday = weekday == 6 ? 0 : weekday + 1;
+				}
+			}
+			for (DateException exception : exceptions) {
+				long[] days = daysFor(daysByService, exception.serviceCode, words);
+				int day = (int) (exception.date.toEpochDay() - first);
+				if (exception.added) {
+					days[day >>> 6] |= 1L << day;
+				} else {
+					days[day >>> 6] &= ~(1L << day);
+				}
+			}
+			return new ServiceCalendar(LocalDate.ofEpochDay(first), dayCount, daysByService);
+		}
+
+		private static long[] daysFor(long[][] daysByService, int serviceCode, int words) {
+			if (daysByService[serviceCode] == null) {
+				daysByService[serviceCode] = new long[words];
+			}
+			return daysByService[serviceCode];
+		}
+	}
+
+	/**
+	 * A row of calendar.txt
+	 */
+	private static class Rule {
+		private final int serviceCode;
+		private final boolean[] weekdays;
+		private final LocalDate startDate;
+		private final LocalDate endDate;
+
+		Rule(int serviceCode, boolean[] weekdays, LocalDate startDate, LocalDate endDate) {
+			this.serviceCode = serviceCode;
+			this.weekdays = weekdays;
+			this.startDate = startDate;
+			this.endDate = endDate;
+		}
+	}
+
+	/**
+	 * A row of calendar_dates.txt
+	 */
+	private static class DateException {
+		private final int serviceCode;
+		private final LocalDate date;
+		private final boolean added;
+
+		DateException(int serviceCode, LocalDate date, boolean added) {
+			this.serviceCode = serviceCode;
+			this.date = date;
+			this.added = added;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return isEveryDay() ? "every day" : getFirstDate() + " to " + getLastDate();
+	}
+
+}	//end class ServiceCalendar
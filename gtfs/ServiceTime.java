@@ -0,0 +1,209 @@
+/*
+ * This file is part of gtfstransitproject_group5.
+ *
+ * gtfstransitproject_group5 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * gtfstransitproject_group5 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with gtfstransitproject_group5.  If not, see <https://www.gnu.org/licenses/>.
+
+ * Course: CS 2030 031
+ * Fall 2021
+ * GTFS Transit Project
+ * Names: Jonathan Keane, Kevin Paganini, Kyle Senebouttarath
+ * Created: 10/4/2021
+ * Professor: Dr. Wright
+ */
+package gtfs;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Static methods for GTFS times stored as int seconds past the service day's midnight.
+ *
+ * GTFS times can go past 24:00:00 for trips that run after midnight but belong to the
+ * previous service day, so a time is not a time of day. Parsing and formatting don't
+ * allocate or share any state, so they are safe to call from any thread.
+ */
+public final class ServiceTime {
+	/**
+	 * Returned by the parse methods when the text is not a valid time
+	 */
+	public static final int INVALID = -1;
+	/**
+	 * Times must be before this many hours past midnight
+	 */
+	public static final int MAX_HOURS = 48;
+	/**
+	 * The length of a formatted time (HH:mm:ss)
+	 */
+	public static final int FORMATTED_LENGTH = 8;
+
+	private ServiceTime() {
+	}
+
+	/**
+	 * Parses a time of the form HH:mm:ss (H:mm:ss is also accepted)
+	 * @param text The text to parse
+	 * @return The seconds past midnight, or INVALID
+	 */
+	public static int parse(CharSequence text) {
+		return parse(text, 0, text.length());
+	}
+
+	/**
+	 * Parses a time of the form HH:mm:ss (H:mm:ss is also accepted) from part of a CharSequence
+	 * @param text The text
+	 * @param start The index of the first character of the time
+	 * @param end The index just past the time
+	 * @return The seconds past midnight, or INVALID
+	 */
+	public static int parse(CharSequence text, int start, int end) {
+		int length = end - start;
+		if (length != FORMATTED_LENGTH && length != FORMATTED_LENGTH - 1) {
+			return INVALID;
+		}
+		int hours = 0;
+		int i = start;
+		for (; i < end && text.charAt(i) != ':'; ++i) {
+			int digit = text.charAt(i) - '0';
+			if (digit < 0 || digit > 9) {
+				return INVALID;
+			}
+			hours = hours * 10 + digit;
+		}
+		if (i - start != length - 6 || text.charAt(i) != ':' || text.charAt(i + 3) != ':') {
+			return INVALID;
+		}
+		int minutes = twoDigits(text.charAt(i + 1), text.charAt(i + 2));
+		int seconds = twoDigits(text.charAt(i + 4), text.charAt(i + 5));
+		return combine(hours, minutes, seconds);
+	}
+
+	/**
+	 * Parses a time of the form HH:mm:ss (H:mm:ss is also accepted) from part of a char array
+	 * @param chars The characters
+	 * @param start The index of the first character of the time
+	 * @param end The index just past the time
+	 * @return The seconds past midnight, or INVALID
+	 */
+	public static int parse(char[] chars, int start, int end) {
+		int length = end - start;
+		if (length != FORMATTED_LENGTH && length != FORMATTED_LENGTH - 1) {
+			return INVALID;
+		}
+		int hours = 0;
+		int i = start;
+		for (; i < end && chars[i] != ':'; ++i) {
+			int digit = chars[i] - '0';
+			if (digit < 0 || digit > 9) {
+				return INVALID;
+			}
+			hours = hours * 10 + digit;
+		}
+		if (i - start != length - 6 || chars[i] != ':' || chars[i + 3] != ':') {
+			return INVALID;
+		}
+		int minutes = twoDigits(chars[i + 1], chars[i + 2]);
+		int seconds = twoDigits(chars[i + 4], chars[i + 5]);
+		return combine(hours, minutes, seconds);
+	}
+
+	private static int twoDigits(char tens, char ones) {
+		int high = tens - '0';
+		int low = ones - '0';
+		if (high < 0 || high > 9 || low < 0 || low > 9) {
+			return INVALID;
+		}
+		return high * 10 + low;
+	}
+
+	private static int combine(int hours, int minutes, int seconds) {
+		if (hours >= MAX_HOURS || minutes < 0 || minutes >= 60 || seconds < 0 || seconds >= 60) {
+			return INVALID;
+		}
+		return hours * 3600 + minutes * 60 + seconds;
+	}
+
+	/**
+	 * Writes a time as HH:mm:ss into a char array
+	 * @param seconds The seconds past midnight
+	 * @param dest The array to write into
+	 * @param offset Where to start writing
+	 * @return The number of characters written
+	 */
+	public static int format(int seconds, char[] dest, int offset) {
+		int hours = seconds / 3600;
+		int minutes = seconds / 60 % 60;
+		int secs = seconds % 60;
+		dest[offset] = (char) ('0' + hours / 10);
+		dest[offset + 1] = (char) ('0' + hours % 10);
+		dest[offset + 2] = ':';
+		dest[offset + 3] = (char) ('0' + minutes / 10);
+		dest[offset + 4] = (char) ('0' + minutes % 10);
+		dest[offset + 5] = ':';
+		dest[offset + 6] = (char) ('0' + secs / 10);
+		dest[offset + 7] = (char) ('0' + secs % 10);
+		return FORMATTED_LENGTH;
+	}
+
+	/**
+	 * Formats a time as HH:mm:ss. Times past midnight keep their hours (25:10:00).
+	 * @param seconds The seconds past midnight
+	 * @return The formatted time
+	 */
+	public static String format(int seconds) {
+		char[] chars = new char[FORMATTED_LENGTH];
+		format(seconds, chars, 0);
+		return new String(chars);
+	}
+
+	/**
+	 * The current time of day as seconds past midnight
+	 * @return The seconds past midnight
+	 */
+	public static int now() {
+		Calendar now = Calendar.getInstance();
+		return now.get(Calendar.HOUR_OF_DAY) * 3600 + now.get(Calendar.MINUTE) * 60 + now.get(Calendar.SECOND);
+	}
+
+	/**
+	 * Converts a time to the Date that parsing it with a HH:mm:ss SimpleDateFormat gives
+	 * (January 1st 1970 in the default time zone, rolling over to the next day past 24:00:00).
+	 * Only for code that still works with Dates.
+	 * @param seconds The seconds past midnight
+	 * @return The Date
+	 */
+	public static Date toDate(int seconds) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.clear();
+		calendar.set(1970, Calendar.JANUARY, 1);
+		calendar.add(Calendar.SECOND, seconds);
+		return calendar.getTime();
+	}
+
+	/**
+	 * Converts a Date made by toDate (or by parsing HH:mm:ss) back to seconds past midnight.
+	 * Any other Date is taken as its time of day.
+	 * @param date The Date
+	 * @return The seconds past midnight
+	 */
+	public static int fromDate(Date date) {
+		long millis = date.getTime();
+		long localSeconds = (millis + TimeZone.getDefault().getOffset(millis)) / 1000;
+		if (localSeconds < 0 || localSeconds >= MAX_HOURS * 3600L) {
+			localSeconds = Math.floorMod(localSeconds, 24 * 3600L);
+		}
+		return (int) localSeconds;
+	}
+
+}	//end class ServiceTime
@@ -0,0 +1,414 @@
+/*
+ * This file is part of gtfstransitproject_group5.
+ *
+ * gtfstransitproject_group5 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * gtfstransitproject_group5 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with gtfstransitproject_group5.  If not, see <https://www.gnu.org/licenses/>.
+
+ * Course: CS 2030 031
+ * Fall 2021
+ * GTFS Transit Project
+ * Names: Jonathan Keane, Kevin Paganini, Kyle Senebouttarath
+ * Created: 10/4/2021
+ * Professor: Dr. Wright
+ */
+package gtfs;
+
+import java.util.Arrays;
+
+/**
+ * The shapes of a feed from shapes.txt: the path each shape's vehicles follow, as points in
+ * stop sequence order. Trips with the same shape_id share one shape.
+ *
+ * A feed often has more shape points than stop times, so the points are kept encoded in one
+ * byte array. Coordinates are rounded to millionths of a degree (about 10 cm), and each point
+ * is stored as its difference from the previous point, zigzag encoded as a varint. Points
+ * along a path are close together, so most points take 3 to 5 bytes, instead of the 16 of
+ * two doubles. A shape is decoded when it is used, and its length is worked out once when
+ * the table is built.
+ */
+public class ShapeTable {
+	/**
+	 * The columns of shapes.txt
+	 */
+	public final static String[] COLUMNS = new String[]
+			{
+					"shape_id",
+					"shape_pt_lat",
+					"shape_pt_lon",
+					"shape_pt_sequence",
+					"shape_dist_traveled"
+			};
+
+	/**
+	 * The shapes of a feed without shapes.txt
+	 */
+	public static final ShapeTable EMPTY = new ShapeTable(new int[0], new int[0], new int[1], new double[0], new byte[0]);
+
+	private static final double MICRODEGREES = 1e6;
+	static final double EARTH_RADIUS_MILES = 3958.8;
+
+	// by shape, in the order the shapes were first seen
+	private final int[] shapeCodes;
+	private final int[] pointCounts;
+	private final int[] offsets;
+	private final double[] lengths;
+	private final byte[] points;
+	// by shape code
+	private final int[] shapesByCode;
+
+	/**
+	 * Makes a table of encoded shapes (see Builder and FeedSnapshot)
+	 * @param shapeCodes The shape ID codes
+	 * @param pointCounts The number of points of each shape
+	 * @param offsets Where each shape's points start in points, and the end of the last shape
+	 * @param lengths The length of each shape in miles
+	 * @param points The encoded points
+	 */
+	ShapeTable(int[] shapeCodes, int[] pointCounts, int[] offsets, double[] lengths, byte[] points) {
+		this.shapeCodes = shapeCodes;
+		this.pointCounts = pointCounts;
+		this.offsets = offsets;
+		this.lengths = lengths;
+		this.points = points;
+		int maxCode = -1;
+		for (int code : shapeCodes) {
+			maxCode = Math.max(maxCode, code);
+		}
+		this.shapesByCode = new int[maxCode + 1];
+		Arrays.fill(shapesByCode, -1);
+		for (int shape = 0; shape < shapeCodes.length; ++shape) {
+			shapesByCode[shapeCodes[shape]] = shape;
+		}
+	}
+
+	/**
+	 * The number of shapes
+	 * @return The number of shapes
+	 */
+	public int size() {
+		return shapeCodes.length;
+	}
+
+	/**
+	 * If there is a shape with an ID
+	 * @param shapeCode The shape ID's code (see Trip.getShapeCode)
+	 * @return True if the shape is in the table
+	 */
+	public boolean hasShape(int shapeCode) {
+		return shapeOf(shapeCode) >= 0;
+	}
+
+	/**
+	 * The number of points of a shape
+	 * @param shapeCode The shape ID's code
+	 * @return The number of points, 0 if there is no such shape
+	 */
+	public int getPointCount(int shapeCode) {
+		int shape = shapeOf(shapeCode);
+		return shape < 0 ? 0 : pointCounts[shape];
+	}
+
+	/**
+	 * The length of a whole shape
+	 * @param shapeCode The shape ID's code
+	 * @return The length in miles, or -1.0 if there is no such shape
+	 */
+	public double getLength(int shapeCode) {
+		int shape = shapeOf(shapeCode);
+		return shape < 0 ? -1.0 : lengths[shape];
+	}
+
+	/**
+	 * Decodes the points of a shape
+	 * @param shapeCode The shape ID's code
+	 * @return The latitudes then the longitudes of the points, or null if there is no such shape
+	 */
+	public double[][] getPoints(int shapeCode) {
+		int shape = shapeOf(shapeCode);
+		if (shape < 0) {
+			return null;
+		}
+		int count = pointCounts[shape];
+		double[][] coordinates = new double[2][count];
+		int position = offsets[shape];
+		int latitude = 0;
+		int longitude = 0;
+		for (int i = 0; i < count; ++i) {
+			// varints, inlined since this is the hot loop of every distance
+			int value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = points[position++];
+				value |= (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			latitude += (value >>> 1) ^ -(value & 1);
+			value = 0;
+			shift = 0;
+			do {
+				b = points[position++];
+				value |= (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			longitude += (value >>> 1) ^ -(value & 1);
+			coordinates[0][i] = latitude / MICRODEGREES;
+			coordinates[1][i] = longitude / MICRODEGREES;
+		}
+		return coordinates;
+	}
+
+	/**
+	 * The distance along a shape between two places on it, such as the first and last stops
+	 * of a trip. Each place is matched to the nearest point of the shape, the second one
+	 * only among the points after the first, so shapes that loop back are followed the
+	 * right way round.
+	 * @param shapeCode The shape ID's code
+	 * @param fromLatitude The latitude of the start
+	 * @param fromLongitude The longitude of the start
+	 * @param toLatitude The latitude of the end
+	 * @param toLongitude The longitude of the end
+	 * @return The distance in miles, or -1.0 if there is no such shape
+	 */
+	public double getDistanceAlong(int shapeCode, double fromLatitude, double fromLongitude,
+								   double toLatitude, double toLongitude) {
+		double[][] coordinates = getPoints(shapeCode);
+		if (coordinates == null || coordinates[0].length == 0) {
+			return -1.0;
+		}
+		double[] latitudes = coordinates[0];
+		double[] longitudes = coordinates[1];
+		int from = nearestPoint(latitudes, longitudes, 0, fromLatitude, fromLongitude);
+		int to = nearestPoint(latitudes, longitudes, from, toLatitude, toLongitude);
+		double distance = 0;
+		for (int i = from; i < to; ++i) {
+			distance += distanceInMiles(latitudes[i], longitudes[i], latitudes[i + 1], longitudes[i + 1]);
+		}
+		return distance;
+	}
+
+	private static int nearestPoint(double[] latitudes, double[] longitudes, int start,
+									double latitude, double longitude) {
+		// comparing squared degrees is enough to find the nearest, with longitude scaled for latitude
+		double scale = Math.cos(Math.toRadians(latitude));
+		int nearest = start;
+		double nearestDistance = Double.MAX_VALUE;
+		for (int i = start; i < latitudes.length; ++i) {
+			double dLatitude = latitudes[i] - latitude;
+			double dLongitude = (longitudes[i] - longitude) * scale;
+			double distance = dLatitude * dLatitude + dLongitude * dLongitude;
+			if (distance < nearestDistance) {
+				nearest = i;
+				nearestDistance = distance;
+			}
+		}
+		return nearest;
+	}
+
+	/**
+	 * The great circle distance between two points, with the haversine formula
+	 * @param latitude1 The latitude of the first point
+	 * @param longitude1 The longitude of the first point
+	 * @param latitude2 The latitude of the second point
+	 * @param longitude2 The longitude of the second point
+	 * @return The distance in miles
+	 */
+	static double distanceInMiles(double latitude1, double longitude1, double latitude2, double longitude2) {
+		double dLatitude = Math.toRadians(latitude2 - latitude1);
+		double dLongitude = Math.toRadians(longitude2 - longitude1);
+		double a = Math.sin(dLatitude / 2) * Math.sin(dLatitude / 2) +
+				Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2)) *
+				Math.sin(dLongitude / 2) * Math.sin(dLongitude / 2);
+		return 2 * EARTH_RADIUS_MILES * Math.asin(Math.min(1, Math.sqrt(a)));
+	}
+
+	/**
+	 * The number of bytes the encoded points take up
+	 * @return The bytes
+	 */
+	public int getEncodedSize() {
+		return offsets[shapeCodes.length];
+	}
+
+	private int shapeOf(int shapeCode) {
+		return shapeCode >= 0 && shapeCode < shapesByCode.length ? shapesByCode[shapeCode] : -1;
+	}
+
+	// for FeedSnapshot
+
+	int[] getShapeCodes() {
+		return shapeCodes;
+	}
+
+	int[] getPointCounts() {
+		return pointCounts;
+	}
+
+	int[] getOffsets() {
+		return offsets;
+	}
+
+	double[] getLengths() {
+		return lengths;
+	}
+
+	byte[] getEncodedPoints() {
+		return points;
+	}
+
+	/**
+	 * Collects the rows of shapes.txt and encodes them into a ShapeTable
+	 */
+	public static class Builder {
+		private int size;
+		private int[] shapeCodes = new int[1024];
+		private int[] sequences = new int[1024];
+		private int[] latitudes = new int[1024];
+		private int[] longitudes = new int[1024];
+
+		/**
+		 * Adds a row of shapes.txt
+		 * @param shapeID The shape ID
+		 * @param latitude The latitude of the point
+		 * @param longitude The longitude of the point
+		 * @param sequence The point's place in the shape
+		 */
+		public void add(String shapeID, double latitude, double longitude, int sequence) {
+			if (size == shapeCodes.length) {
+				int capacity = size * 2;
+				shapeCodes = Arrays.copyOf(shapeCodes, capacity);
+				sequences = Arrays.copyOf(sequences, capacity);
+				latitudes = Arrays.copyOf(latitudes, capacity);
+				longitudes = Arrays.copyOf(longitudes, capacity);
+			}
+			shapeCodes[size] = StringDictionary.getInstance().encode(shapeID);
+			sequences[size] = sequence;
+			latitudes[size] = (int) Math.round(latitude * MICRODEGREES);
+			longitudes[size] = (int) Math.round(longitude * MICRODEGREES);
+			++size;
+		}
+
+		/**
+		 * The number of points added
+		 * @return The number of rows
+		 */
+		public int size() {
+			return size;
+		}
+
+		/**
+		 * Puts the points of each shape in sequence order and encodes them
+		 * @return The shapes, or EMPTY if no points were added
+		 */
+		public ShapeTable build() {
+			if (size == 0) {
+				return EMPTY;
+			}
+			int[] order = sortedOrder();
+
+			int shapeCount = 0;
+			for (int i = 0; i < size; ++i) {
+				if (i == 0 || shapeCodes[order[i]] != shapeCodes[order[i - 1]]) {
+					++shapeCount;
+				}
+			}
+			int[] codes = new int[shapeCount];
+			int[] counts = new int[shapeCount];
+			int[] offsets = new int[shapeCount + 1];
+			double[] lengths = new double[shapeCount];
+			// at most 5 bytes a varint, 2 varints a point
+			byte[] points = new byte[Math.multiplyExact(size, 10)];
+			int position = 0;
+			int shape = -1;
+			int latitude = 0;
+			int longitude = 0;
+			for (int i = 0; i < size; ++i) {
+				int row = order[i];
+				if (shape < 0 || shapeCodes[row] != codes[shape]) {
+					offsets[++shape] = position;
+					codes[shape] = shapeCodes[row];
+					latitude = 0;
+					longitude = 0;
+				} else {
+					lengths[shape] += distanceInMiles(latitude / MICRODEGREES, longitude / MICRODEGREES,
+							latitudes[row] / MICRODEGREES, longitudes[row] / MICRODEGREES);
+				}
+				++counts[shape];
+				position = writeVarint(points, position, latitudes[row] - latitude);
+				position = writeVarint(points, position, longitudes[row] - longitude);
+				latitude = latitudes[row];
+				longitude = longitudes[row];
+			}
+			offsets[shapeCount] = position;
+			return new ShapeTable(codes, counts, offsets, lengths, Arrays.copyOf(points, position));
+		}
+
+		/**
+		 * The rows sorted by shape (in the order the shapes first appear) and then sequence.
+		 * shapes.txt is nearly always in that order already, which is checked first.
+		 */
+		private int[] sortedOrder() {
+			int[] firstSeen = new int[StringDictionary.getInstance().size()];
+			Arrays.fill(firstSeen, -1);
+			int shapes = 0;
+			boolean sorted = true;
+			for (int i = 0; i < size; ++i) {
+				if (firstSeen[shapeCodes[i]] < 0) {
+					firstSeen[shapeCodes[i]] = shapes++;
+				} else if (shapeCodes[i] != shapeCodes[i - 1] || sequences[i] < sequences[i - 1]) {
+					sorted = false;
+				}
+			}
+			int[] rows = new int[size];
+			if (sorted) {
+				for (int i = 0; i < size; ++i) {
+					rows[i] = i;
+				}
+				return rows;
+			}
+			// the rows of each shape are counted and put together in row order, and then each
+			// shape is sorted by sequence and row in one long per point, as in StopTimeTable
+			int[] starts = new int[shapes + 1];
+			for (int i = 0; i < size; ++i) {
+				++starts[firstSeen[shapeCodes[i]] + 1];
+			}
+			for (int shape = 0; shape < shapes; ++shape) {
+				starts[shape + 1] += starts[shape];
+			}
+			int[] next = Arrays.copyOf(starts, shapes);
+			long[] keys = new long[size];
+			for (int i = 0; i < size; ++i) {
+				keys[next[firstSeen[shapeCodes[i]]]++] = StopTimeTable.sequenceKey(sequences[i], i);
+			}
+			for (int shape = 0; shape < shapes; ++shape) {
+				Arrays.sort(keys, starts[shape], starts[shape + 1]);
+			}
+			for (int i = 0; i < size; ++i) {
+				rows[i] = (int) keys[i];
+			}
+			return rows;
+		}
+
+		private static int writeVarint(byte[] bytes, int position, int value) {
+			// zigzag, so small negative differences are small too
+			int zigzag = (value << 1) ^ (value >> 31);
+			while ((zigzag & ~0x7F) != 0) {
+				bytes[position++] = (byte) ((zigzag & 0x7F) | 0x80);
+				zigzag >>>= 7;
+			}
+			bytes[position++] = (byte) zigzag;
+			return position;
+		}
+	}
+
+}	//end class ShapeTable
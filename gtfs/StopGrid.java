@@ -0,0 +1,486 @@
+/*
+ * This file is part of gtfstransitproject_group5.
+ *
+ * gtfstransitproject_group5 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * gtfstransitproject_group5 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with gtfstransitproject_group5.  If not, see <https://www.gnu.org/licenses/>.
+
+ * Course: CS 2030 031
+ * Fall 2021
+ * GTFS Transit Project
+ * Names: Jonathan Keane, Kevin Paganini, Kyle Senebouttarath
+ * Created: 10/4/2021
+ * Professor: Dr. Wright
+ */
+package gtfs;
+
+import java.util.Arrays;
+
+/**
+ * A spatial index over the stops, so finding the stops near a point doesn't have to go
+ * through every stop.
+ *
+ * The stops' bounding box is cut into a grid of cells that are about square on the ground,
+ * sized so a cell holds a few stops on average. Each cell keeps the stop codes of its stops
+ * next to plain arrays of their latitudes and longitudes, so a search reads a few small
+ * arrays instead of Stop objects. A box or radius search only reads the cells that overlap
+ * it, and a nearest stops search reads rings of cells outward from the point until nothing
+ * in the cells left can be closer than the stops it has. A stop moved outside the grid is
+ * kept in the nearest edge cell, which the searches allow for. The grid doesn't wrap at
+ * 180 degrees longitude, which transit feeds don't cross.
+ *
+ * The grid is built at import (see build) and Database keeps it up to date as stops are
+ * added, moved and removed. Distances are great circle distances in miles.
+ */
+public class StopGrid {
+	private static final int[] EMPTY = new int[0];
+	private static final int STOPS_PER_CELL = 4;
+	private static final int MAX_CELLS = 1 << 20;
+	// about 10 meters
+	private static final double MIN_CELL_DEGREES = 1e-4;
+	private static final double EARTH_RADIUS_MILES = ShapeTable.EARTH_RADIUS_MILES;
+	private static final double MILES_PER_DEGREE_OF_LATITUDE = Math.toRadians(EARTH_RADIUS_MILES);
+
+	// the cells are rows of latitude going north and columns of longitude going east
+	private final double minLatitude;
+	private final double minLongitude;
+	private final double cellHeight;
+	private final double cellWidth;
+	private final int rowCount;
+	private final int columnCount;
+
+	// by cell, row * columnCount + column
+	private final int[][] cellStops;
+	private final double[][] cellLatitudes;
+	private final double[][] cellLongitudes;
+	private final int[] cellSizes;
+
+	// by stop code, the stop's cell or -1 if it isn't in the grid
+	private int[] cellOfStop;
+	private int size;
+
+	private StopGrid(double minLatitude, double minLongitude, double cellHeight, double cellWidth,
+					 int rowCount, int columnCount) {
+		this.minLatitude = minLatitude;
+		this.minLongitude = minLongitude;
+		this.cellHeight = cellHeight;
+		this.cellWidth = cellWidth;
+		this.rowCount = rowCount;
+		this.columnCount = columnCount;
+		int cells = rowCount * columnCount;
+		cellStops = new int[cells][];
+		cellLatitudes = new double[cells][];
+		cellLongitudes = new double[cells][];
+		cellSizes = new int[cells];
+		cellOfStop = new int[StringDictionary.getInstance().size()];
+		Arrays.fill(cellOfStop, -1);
+	}
+
+	/**
+	 * Indexes the locations of some stops. Stops without a valid location are left out.
+	 * @param stops The stops
+	 * @return The index
+	 */
+	public static StopGrid build(Iterable<Stop> stops) {
+		StringDictionary ids = StringDictionary.getInstance();
+		int count = 0;
+		int[] codes = new int[1 << 10];
+		double[] latitudes = new double[codes.length];
+		double[] longitudes = new double[codes.length];
+		double minLatitude = Double.POSITIVE_INFINITY;
+		double maxLatitude = Double.NEGATIVE_INFINITY;
+		double minLongitude = Double.POSITIVE_INFINITY;
+		double maxLongitude = Double.NEGATIVE_INFINITY;
+		for (Stop stop : stops) {
+			// an empty trie iterates a single null
+			if (stop == null || !isValid(stop.getLatitude(), stop.getLongitude())) {
+				continue;
+			}
+			if (count == codes.length) {
+				codes = Arrays.copyOf(codes, count * 2);
+				latitudes = Arrays.copyOf(latitudes, count * 2);
+				longitudes = Arrays.copyOf(longitudes, count * 2);
+			}
+			codes[count] = ids.encode(stop.getStopID());
+			latitudes[count] = stop.getLatitude();
+			longitudes[count] = stop.getLongitude();
+			minLatitude = Math.min(minLatitude, latitudes[count]);
+			maxLatitude = Math.max(maxLatitude, latitudes[count]);
+			minLongitude = Math.min(minLongitude, longitudes[count]);
+			maxLongitude = Math.max(maxLongitude, longitudes[count]);
+			++count;
+		}
+		if (count == 0) {
+			minLatitude = maxLatitude = minLongitude = maxLongitude = 0;
+		}
+
+		// cells about square on the ground: a degree of longitude shrinks away from the equator
+		double longitudeScale = Math.max(0.01, Math.cos(Math.toRadians((minLatitude + maxLatitude) / 2)));
+		double height = Math.max(maxLatitude - minLatitude, MIN_CELL_DEGREES);
+		double width = Math.max(maxLongitude - minLongitude, MIN_CELL_DEGREES);
+		int cells = Math.max(1, Math.min(MAX_CELLS, count / STOPS_PER_CELL));
+		double side = Math.max(MIN_CELL_DEGREES, Math.sqrt(height * width * longitudeScale / cells));
+		int rows = (int) Math.min(MAX_CELLS, height / side + 1);
+		int columns = (int) Math.min(MAX_CELLS / rows, width * longitudeScale / side + 1);
+		// where there are too many cells the cells grow, so the grid still covers every stop
+		StopGrid grid = new StopGrid(minLatitude, minLongitude, Math.max(side, height / rows),
+				Math.max(side / longitudeScale, width / columns), rows, columns);
+
+		// count first, so every cell's arrays are made once at their full size
+		int[] cellOfRow = new int[count];
+		for (int i = 0; i < count; ++i) {
+			cellOfRow[i] = grid.cellOf(latitudes[i], longitudes[i]);
+			++grid.cellSizes[cellOfRow[i]];
+		}
+		for (int cell = 0; cell < grid.cellSizes.length; ++cell) {
+			grid.cellStops[cell] = grid.cellSizes[cell] == 0 ? EMPTY : new int[grid.cellSizes[cell]];
+			grid.cellLatitudes[cell] = new double[grid.cellSizes[cell]];
+			grid.cellLongitudes[cell] = new double[grid.cellSizes[cell]];
+			grid.cellSizes[cell] = 0;
+		}
+		for (int i = 0; i < count; ++i) {
+			grid.remove(codes[i]);
+			grid.place(codes[i], cellOfRow[i], latitudes[i], longitudes[i]);
+		}
+		return grid;
+	}
+
+	//---- SEARCHES
+
+	/**
+	 * The number of stops in the grid
+	 * @return The number of stops
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Finds the stops closest to a point
+	 * @param latitude The point's latitude
+	 * @param longitude The point's longitude
+	 * @param count The most stops to find
+	 * @return The stop codes of up to count stops, closest first
+	 */
+	public int[] nearest(double latitude, double longitude, int count) {
+		count = Math.min(count, size);
+		if (count <= 0 || !isValid(latitude, longitude)) {
+			return EMPTY;
+		}
+		// a max heap of the closest stops found so far, so the farthest of them is first
+		int[] heapStops = new int[count];
+		double[] heapDistances = new double[count];
+		int found = 0;
+		int row = rowOf(latitude);
+		int column = columnOf(longitude);
+		for (int ring = 0; ; ++ring) {
+			int top = row + ring;
+			int bottom = row - ring;
+			int left = column - ring;
+			int right = column + ring;
+			for (int r = Math.max(0, bottom); r <= Math.min(rowCount - 1, top); ++r) {
+				// only the edge of the ring is new
+				int step = r == bottom || r == top ? 1 : 2 * ring;
+				for (int c = left; c <= right; c += Math.max(1, step)) {
+					if (c < 0 || c >= columnCount) {
+						continue;
+					}
+					int cell = r * columnCount + c;
+					for (int i = 0; i < cellSizes[cell]; ++i) {
+						// a stop is at least as far away as its latitude is, which is cheaper to check
+						if (found == count && Math.abs(cellLatitudes[cell][i] - latitude) *
+								MILES_PER_DEGREE_OF_LATITUDE >= heapDistances[0]) {
+							continue;
+						}
+						double distance = ShapeTable.distanceInMiles(latitude, longitude,
+								cellLatitudes[cell][i], cellLongitudes[cell][i]);
+						if (found < count) {
+							siftUp(heapStops, heapDistances, found++, cellStops[cell][i], distance);
+						} else if (distance < heapDistances[0]) {
+							siftDown(heapStops, heapDistances, count, cellStops[cell][i], distance);
+						}
+					}
+				}
+			}
+			double outside = distanceOutside(latitude, longitude, bottom, top, left, right);
+			if (found == count && heapDistances[0] <= outside || outside == Double.POSITIVE_INFINITY) {
+				break;
+			}
+		}
+		// take the farthest off the heap until it is empty, filling the results from the back
+		int[] nearest = new int[found];
+		for (int end = found - 1; end >= 0; --end) {
+			nearest[end] = heapStops[0];
+			siftDown(heapStops, heapDistances, end, heapStops[end], heapDistances[end]);
+		}
+		return nearest;
+	}
+
+	/**
+	 * Finds the stops within a distance of a point
+	 * @param latitude The point's latitude
+	 * @param longitude The point's longitude
+	 * @param miles The distance
+	 * @return The stop codes of the stops, closest first
+	 */
+	public int[] withinRadius(double latitude, double longitude, double miles) {
+		if (!(miles >= 0) || !isValid(latitude, longitude)) {
+			return EMPTY;
+		}
+		// the box around the circle, which reaches more degrees east and west the farther it is from the equator
+		double angle = miles / EARTH_RADIUS_MILES;
+		double reach = Math.sin(angle) / Math.cos(Math.toRadians(latitude));
+		double latitudeReach = Math.toDegrees(angle);
+		double longitudeReach = angle >= Math.PI / 2 || reach >= 1 ? 360 : Math.toDegrees(Math.asin(reach));
+		long[] keys = new long[16];
+		int found = 0;
+		int firstRow = rowOf(latitude - latitudeReach);
+		int lastRow = rowOf(latitude + latitudeReach);
+		int firstColumn = columnOf(longitude - longitudeReach);
+		int lastColumn = columnOf(longitude + longitudeReach);
+		for (int row = firstRow; row <= lastRow; ++row) {
+			for (int column = firstColumn; column <= lastColumn; ++column) {
+				int cell = row * columnCount + column;
+				for (int i = 0; i < cellSizes[cell]; ++i) {
+					double distance = ShapeTable.distanceInMiles(latitude, longitude,
+							cellLatitudes[cell][i], cellLongitudes[cell][i]);
+					if (distance <= miles) {
+						if (found == keys.length) {
+							keys = Arrays.copyOf(keys, found * 2);
+						}
+						// a non-negative float's bits sort the same way it does, so the key sorts by
+						// distance and then stop code
+						keys[found++] = ((long) Float.floatToIntBits((float) distance) << 32) | cellStops[cell][i];
+					}
+				}
+			}
+		}
+		Arrays.sort(keys, 0, found);
+		int[] stops = new int[found];
+		for (int i = 0; i < found; ++i) {
+			stops[i] = (int) keys[i];
+		}
+		return stops;
+	}
+
+	/**
+	 * Finds the stops in a box of latitudes and longitudes, edges included
+	 * @param minLatitude The south edge
+	 * @param minLongitude The west edge
+	 * @param maxLatitude The north edge
+	 * @param maxLongitude The east edge
+	 * @return The stop codes of the stops, in no particular order
+	 */
+	public int[] withinBox(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+		if (!(minLatitude <= maxLatitude && minLongitude <= maxLongitude)) {
+			return EMPTY;
+		}
+		int[] stops = new int[16];
+		int found = 0;
+		int lastRow = rowOf(maxLatitude);
+		int firstColumn = columnOf(minLongitude);
+		int lastColumn = columnOf(maxLongitude);
+		for (int row = rowOf(minLatitude); row <= lastRow; ++row) {
+			for (int column = firstColumn; column <= lastColumn; ++column) {
+				int cell = row * columnCount + column;
+				for (int i = 0; i < cellSizes[cell]; ++i) {
+					double latitude = cellLatitudes[cell][i];
+					double longitude = cellLongitudes[cell][i];
+					if (latitude >= minLatitude && latitude <= maxLatitude &&
+							longitude >= minLongitude && longitude <= maxLongitude) {
+						if (found == stops.length) {
+							stops = Arrays.copyOf(stops, found * 2);
+						}
+						stops[found++] = cellStops[cell][i];
+					}
+				}
+			}
+		}
+		return Arrays.copyOf(stops, found);
+	}
+
+	/**
+	 * The least distance from a point to anything outside of a block of cells, which is
+	 * the distance to the nearest side of the block that isn't on the edge of the grid
+	 * @return The distance in miles, or infinity if the block covers the whole grid
+	 */
+	private double distanceOutside(double latitude, double longitude, int bottom, int top, int left, int right) {
+		double distance = Double.POSITIVE_INFINITY;
+		if (bottom > 0) {
+			double south = minLatitude + bottom * cellHeight;
+			distance = Math.min(distance, Math.max(0, latitude - south) * MILES_PER_DEGREE_OF_LATITUDE);
+		}
+		if (top < rowCount - 1) {
+			double north = minLatitude + (top + 1) * cellHeight;
+			distance = Math.min(distance, Math.max(0, north - latitude) * MILES_PER_DEGREE_OF_LATITUDE);
+		}
+		if (left > 0) {
+			double west = minLongitude + left * cellWidth;
+			distance = Math.min(distance, distanceToMeridian(latitude, longitude - west));
+		}
+		if (right < columnCount - 1) {
+			double east = minLongitude + (right + 1) * cellWidth;
+			distance = Math.min(distance, distanceToMeridian(latitude, east - longitude));
+		}
+		return distance;
+	}
+
+	/**
+	 * The distance from a point to the great circle of a meridian some degrees of longitude away
+	 * @return The distance in miles, or 0 if the meridian is not between 0 and 90 degrees away
+	 */
+	private static double distanceToMeridian(double latitude, double degrees) {
+		if (degrees <= 0 || degrees >= 90) {
+			return 0;
+		}
+		double sine = Math.cos(Math.toRadians(latitude)) * Math.sin(Math.toRadians(degrees));
+		return EARTH_RADIUS_MILES * Math.asin(Math.min(1, sine));
+	}
+
+	//---- UPDATES
+
+	/**
+	 * Adds a stop to the grid, or moves it if it is already there. A stop moved to an
+	 * invalid location is taken out of the grid.
+	 * @param stopCode The stop ID's code
+	 * @param latitude The stop's latitude
+	 * @param longitude The stop's longitude
+	 */
+	public void add(int stopCode, double latitude, double longitude) {
+		if (stopCode < 0) {
+			return;
+		}
+		remove(stopCode);
+		if (!isValid(latitude, longitude)) {
+			return;
+		}
+		ensureStop(stopCode);
+		place(stopCode, cellOf(latitude, longitude), latitude, longitude);
+	}
+
+	/**
+	 * Takes a stop out of the grid
+	 * @param stopCode The stop ID's code
+	 */
+	public void remove(int stopCode) {
+		if (stopCode < 0 || stopCode >= cellOfStop.length || cellOfStop[stopCode] < 0) {
+			return;
+		}
+		int cell = cellOfStop[stopCode];
+		int last = --cellSizes[cell];
+		int position = 0;
+		while (cellStops[cell][position] != stopCode) {
+			++position;
+		}
+		// the cell's order doesn't matter, so the last stop fills the gap
+		cellStops[cell][position] = cellStops[cell][last];
+		cellLatitudes[cell][position] = cellLatitudes[cell][last];
+		cellLongitudes[cell][position] = cellLongitudes[cell][last];
+		cellOfStop[stopCode] = -1;
+		--size;
+	}
+
+	/**
+	 * Puts a stop that isn't in the grid at the end of a cell, growing the cell if it is full
+	 */
+	private void place(int stopCode, int cell, double latitude, double longitude) {
+		int used = cellSizes[cell]++;
+		if (used == cellStops[cell].length) {
+			int length = Math.max(4, used + (used >> 1));
+			cellStops[cell] = Arrays.copyOf(cellStops[cell], length);
+			cellLatitudes[cell] = Arrays.copyOf(cellLatitudes[cell], length);
+			cellLongitudes[cell] = Arrays.copyOf(cellLongitudes[cell], length);
+		}
+		cellStops[cell][used] = stopCode;
+		cellLatitudes[cell][used] = latitude;
+		cellLongitudes[cell][used] = longitude;
+		cellOfStop[stopCode] = cell;
+		++size;
+	}
+
+	/**
+	 * Makes room for a stop code that was added to the dictionary after the grid was built
+	 */
+	private void ensureStop(int stopCode) {
+		if (stopCode < cellOfStop.length) {
+			return;
+		}
+		int old = cellOfStop.length;
+		cellOfStop = Arrays.copyOf(cellOfStop, Math.max(stopCode + 1, StringDictionary.getInstance().size()));
+		Arrays.fill(cellOfStop, old, cellOfStop.length, -1);
+	}
+
+	//---- HELPERS
+
+	private static boolean isValid(double latitude, double longitude) {
+		return Math.abs(latitude) <= 90 && Math.abs(longitude) <= 180;
+	}
+
+	/**
+	 * The cell a location is in, with locations outside of the grid in the nearest edge cell
+	 */
+	private int cellOf(double latitude, double longitude) {
+		return rowOf(latitude) * columnCount + columnOf(longitude);
+	}
+
+	private int rowOf(double latitude) {
+		return (int) Math.max(0, Math.min(rowCount - 1, Math.floor((latitude - minLatitude) / cellHeight)));
+	}
+
+	private int columnOf(double longitude) {
+		return (int) Math.max(0, Math.min(columnCount - 1, Math.floor((longitude - minLongitude) / cellWidth)));
+	}
+
+	/**
+	 * Adds a stop to a heap of the farthest stops first that has room for it
+	 */
+	private static void siftUp(int[] stops, double[] distances, int position, int stop, double distance) {
+		while (position > 0) {
+			int parent = (position - 1) >>> 1;
+			if (distances[parent] >= distance) {
+				break;
+			}
+			stops[position] = stops[parent];
+			distances[position] = distances[parent];
+			position = parent;
+		}
+		stops[position] = stop;
+		distances[position] = distance;
+	}
+
+	/**
+	 * Replaces the farthest stop of a heap of the farthest stops first
+	 */
+	private static void siftDown(int[] stops, double[] distances, int size, int stop, double distance) {
+		int position = 0;
+		while (true) {
+			int child = 2 * position + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && distances[child + 1] > distances[child]) {
+				++child;
+			}
+			if (distances[child] <= distance) {
+				break;
+			}
+			stops[position] = stops[child];
+			distances[position] = distances[child];
+			position = child;
+		}
+		if (size > 0) {
+			stops[position] = stop;
+			distances[position] = distance;
+		}
+	}
+
+}	//end class StopGrid
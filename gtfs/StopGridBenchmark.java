@@ -0,0 +1,211 @@
+/*
+ * This file is part of gtfstransitproject_group5.
+ *
+ * gtfstransitproject_group5 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * gtfstransitproject_group5 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with gtfstransitproject_group5.  If not, see <https://www.gnu.org/licenses/>.
+
+ * Course: CS 2030 031
+ * Fall 2021
+ * GTFS Transit Project
+ * Names: Jonathan Keane, Kevin Paganini, Kyle Senebouttarath
+ * Created: 10/4/2021
+ * Professor: Dr. Wright
+ */
+package gtfs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Times the stop grid against going through every stop: building it, the nearest stops,
+ * radius and box searches, and moving stops. The stops are spread at random over a city
+ * sized area, more of them near the middle, and every search's results are checked against
+ * the results of the scan.
+ *
+ * Run with the number of stops, e.g.
+ *     java gtfs.StopGridBenchmark 200000
+ */
+public class StopGridBenchmark {
+	private static final int DEFAULT_STOPS = 200_000;
+	private static final int QUERIES = 20_000;
+	private static final int SCANNED_QUERIES = 200;
+	private static final int NEAREST = 10;
+	private static final double RADIUS_MILES = 0.5;
+	private static final double BOX_DEGREES = 0.01;
+	private static final double CENTER_LATITUDE = 43.04;
+	private static final double CENTER_LONGITUDE = -87.91;
+	private static final double SPREAD_DEGREES = 0.3;
+
+	public static void main(String[] args) {
+		int stopCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_STOPS;
+		System.out.println("Stops: " + stopCount);
+		Random random = new Random(2030);
+		List<Stop> stops = new ArrayList<>(stopCount);
+		for (int i = 0; i < stopCount; ++i) {
+			stops.add(new Stop(randomLatitude(random), randomLongitude(random), "", "S" + i, "Stop " + i));
+		}
+		// coordinates by stop code, for the scans
+		StringDictionary ids = StringDictionary.getInstance();
+		int[] codes = new int[stopCount];
+		for (int i = 0; i < stopCount; ++i) {
+			codes[i] = ids.encode(stops.get(i).getStopID());
+		}
+		double[] latitudes = new double[ids.size()];
+		double[] longitudes = new double[ids.size()];
+		for (int i = 0; i < stopCount; ++i) {
+			latitudes[codes[i]] = stops.get(i).getLatitude();
+			longitudes[codes[i]] = stops.get(i).getLongitude();
+		}
+
+		long start = System.nanoTime();
+		StopGrid grid = StopGrid.build(stops);
+		System.out.printf("Build: %.1f ms%n", (System.nanoTime() - start) / 1e6);
+
+		double[][] points = new double[QUERIES][];
+		for (int i = 0; i < QUERIES; ++i) {
+			points[i] = new double[] { randomLatitude(random), randomLongitude(random) };
+		}
+		// so the timed searches run compiled code
+		for (int i = 0; i < SCANNED_QUERIES / 4; ++i) {
+			double[] point = points[i];
+			grid.nearest(point[0], point[1], NEAREST);
+			grid.withinRadius(point[0], point[1], RADIUS_MILES);
+			grid.withinBox(point[0], point[1], point[0] + BOX_DEGREES, point[1] + BOX_DEGREES);
+			scanNearest(codes, latitudes, longitudes, point[0], point[1], NEAREST);
+			scanRadius(codes, latitudes, longitudes, point[0], point[1], RADIUS_MILES);
+			scanBox(codes, latitudes, longitudes, point[0], point[1], point[0] + BOX_DEGREES, point[1] + BOX_DEGREES);
+		}
+		int mismatches = 0;
+
+		start = System.nanoTime();
+		long found = 0;
+		for (double[] point : points) {
+			found += grid.nearest(point[0], point[1], NEAREST).length;
+		}
+		double gridTime = perQuery(System.nanoTime() - start, QUERIES);
+		start = System.nanoTime();
+		for (int i = 0; i < SCANNED_QUERIES; ++i) {
+			int[] expected = scanNearest(codes, latitudes, longitudes, points[i][0], points[i][1], NEAREST);
+			if (!Arrays.equals(expected, grid.nearest(points[i][0], points[i][1], NEAREST))) {
+				++mismatches;
+			}
+		}
+		report(NEAREST + " nearest", gridTime, perQuery(System.nanoTime() - start, SCANNED_QUERIES), found);
+
+		start = System.nanoTime();
+		found = 0;
+		for (double[] point : points) {
+			found += grid.withinRadius(point[0], point[1], RADIUS_MILES).length;
+		}
+		gridTime = perQuery(System.nanoTime() - start, QUERIES);
+		start = System.nanoTime();
+		for (int i = 0; i < SCANNED_QUERIES; ++i) {
+			int[] expected = scanRadius(codes, latitudes, longitudes, points[i][0], points[i][1], RADIUS_MILES);
+			if (!sameStops(expected, grid.withinRadius(points[i][0], points[i][1], RADIUS_MILES))) {
+				++mismatches;
+			}
+		}
+		report(RADIUS_MILES + " mile radius", gridTime, perQuery(System.nanoTime() - start, SCANNED_QUERIES), found);
+
+		start = System.nanoTime();
+		found = 0;
+		for (double[] point : points) {
+			found += grid.withinBox(point[0], point[1], point[0] + BOX_DEGREES, point[1] + BOX_DEGREES).length;
+		}
+		gridTime = perQuery(System.nanoTime() - start, QUERIES);
+		start = System.nanoTime();
+		for (int i = 0; i < SCANNED_QUERIES; ++i) {
+			double[] point = points[i];
+			int[] expected = scanBox(codes, latitudes, longitudes, point[0], point[1],
+					point[0] + BOX_DEGREES, point[1] + BOX_DEGREES);
+			if (!sameStops(expected, grid.withinBox(point[0], point[1], point[0] + BOX_DEGREES, point[1] + BOX_DEGREES))) {
+				++mismatches;
+			}
+		}
+		report(BOX_DEGREES + " degree box", gridTime, perQuery(System.nanoTime() - start, SCANNED_QUERIES), found);
+
+		// moves, some of them off of the area the grid was built for
+		start = System.nanoTime();
+		for (int i = 0; i < QUERIES; ++i) {
+			int code = codes[random.nextInt(stopCount)];
+			double spread = i % 100 == 0 ? 10 : 1;
+			latitudes[code] = CENTER_LATITUDE + (random.nextDouble() - 0.5) * SPREAD_DEGREES * spread;
+			longitudes[code] = CENTER_LONGITUDE + (random.nextDouble() - 0.5) * SPREAD_DEGREES * spread;
+			grid.add(code, latitudes[code], longitudes[code]);
+		}
+		System.out.printf("Move: %.2f us a stop%n", perQuery(System.nanoTime() - start, QUERIES));
+		for (int i = 0; i < SCANNED_QUERIES; ++i) {
+			int[] expected = scanNearest(codes, latitudes, longitudes, points[i][0], points[i][1], NEAREST);
+			if (!Arrays.equals(expected, grid.nearest(points[i][0], points[i][1], NEAREST))) {
+				++mismatches;
+			}
+		}
+		System.out.println("Searches that don't match the scan: " + mismatches);
+	}
+
+	private static double randomLatitude(Random random) {
+		return CENTER_LATITUDE + random.nextGaussian() * SPREAD_DEGREES / 4;
+	}
+
+	private static double randomLongitude(Random random) {
+		return CENTER_LONGITUDE + random.nextGaussian() * SPREAD_DEGREES / 4;
+	}
+
+	private static int[] scanNearest(int[] codes, double[] latitudes, double[] longitudes,
+									 double latitude, double longitude, int count) {
+		Integer[] order = new Integer[codes.length];
+		double[] distances = new double[codes.length];
+		for (int i = 0; i < codes.length; ++i) {
+			order[i] = i;
+			distances[i] = ShapeTable.distanceInMiles(latitude, longitude, latitudes[codes[i]], longitudes[codes[i]]);
+		}
+		Arrays.sort(order, (a, b) -> Double.compare(distances[a], distances[b]));
+		int[] nearest = new int[Math.min(count, codes.length)];
+		for (int i = 0; i < nearest.length; ++i) {
+			nearest[i] = codes[order[i]];
+		}
+		return nearest;
+	}
+
+	private static int[] scanRadius(int[] codes, double[] latitudes, double[] longitudes,
+									double latitude, double longitude, double miles) {
+		return Arrays.stream(codes).filter(code -> ShapeTable.distanceInMiles(latitude, longitude,
+				latitudes[code], longitudes[code]) <= miles).toArray();
+	}
+
+	private static int[] scanBox(int[] codes, double[] latitudes, double[] longitudes,
+								 double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+		return Arrays.stream(codes).filter(code -> latitudes[code] >= minLatitude && latitudes[code] <= maxLatitude &&
+				longitudes[code] >= minLongitude && longitudes[code] <= maxLongitude).toArray();
+	}
+
+	private static boolean sameStops(int[] a, int[] b) {
+		int[] sortedA = a.clone();
+		int[] sortedB = b.clone();
+		Arrays.sort(sortedA);
+		Arrays.sort(sortedB);
+		return Arrays.equals(sortedA, sortedB);
+	}
+
+	private static double perQuery(long nanos, int queries) {
+		return nanos / 1e3 / queries;
+	}
+
+	private static void report(String search, double gridMicros, double scanMicros, long found) {
+		System.out.printf("%-20s grid %8.2f us, scan %10.2f us (%.0fx), %.1f stops a search%n",
+				search, gridMicros, scanMicros, scanMicros / gridMicros, (double) found / QUERIES);
+	}
+
+}	//end class StopGridBenchmark
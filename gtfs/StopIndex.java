@@ -0,0 +1,483 @@
+/*
+ * This file is part of gtfstransitproject_group5.
+ *
+ * gtfstransitproject_group5 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * gtfstransitproject_group5 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with gtfstransitproject_group5.  If not, see <https://www.gnu.org/licenses/>.
+
+ * Course: CS 2030 031
+ * Fall 2021
+ * GTFS Transit Project
+ * Names: Jonathan Keane, Kevin Paganini, Kyle Senebouttarath
+ * Created: 10/4/2021
+ * Professor: Dr. Wright
+ */
+package gtfs;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * An inverted index from each stop to the stop times at it, so the searches by stop don't
+ * have to read every stop time.
+ *
+ * For each stop code it keeps the stop time IDs (rows) at the stop in order of arrival
+ * time, next to an array of those times, so the next arrivals at a stop after a time are a
+ * binary search away (see indexAfter). It also keeps the distinct trip codes and route
+ * codes of those stop times as sorted sets. Each member of a set has the number of its
+ * stop times at the stop, so it is only dropped when its last one goes. All of these are
+ * plain int arrays with some room to grow, so they cost little more than the ints themselves.
+ *
+ * The rows and trips are built in one pass over the table (see build) and the routes are
+ * added as the stop times are handed out to their routes (see Database.distributeStopTimes),
+ * or all at once for a lazily loaded feed, whose trips aren't handed out (see countRoutes).
+ * Database keeps the index up to date as stop times are added, changed and removed.
+ */
+public class StopIndex {
+	private static final int[] EMPTY = new int[0];
+
+	// by stop code
+	private int[][] rows;
+	private int[][] times;
+	private int[] rowCounts;
+	private int[][] tripCodes;
+	private int[][] tripRowCounts;
+	private int[] tripCounts;
+	private int[][] routeCodes;
+	private int[][] routeRowCounts;
+	private int[] routeCounts;
+
+	private StopIndex(int stopCodes) {
+		rows = new int[stopCodes][];
+		times = new int[stopCodes][];
+		rowCounts = new int[stopCodes];
+		tripCodes = new int[stopCodes][];
+		tripRowCounts = new int[stopCodes][];
+		tripCounts = new int[stopCodes];
+		routeCodes = new int[stopCodes][];
+		routeRowCounts = new int[stopCodes][];
+		routeCounts = new int[stopCodes];
+		Arrays.fill(routeCodes, EMPTY);
+		Arrays.fill(routeRowCounts, EMPTY);
+	}
+
+	/**
+	 * Indexes the rows and trips of all of the stop times of a table. The routes are
+	 * added with addRoute.
+	 * @param stopTimes The stop times, whose rows are their IDs
+	 * @return The index
+	 */
+	public static StopIndex build(StopTimeTable stopTimes) {
+		return build(stopTimes.size(), stopTimes::getStopCode, stopTimes::getTripCode, stopTimes::getArrivalTime);
+	}
+
+	/**
+	 * Indexes the rows and trips of stop times from their columns, for stop times that
+	 * can't be read cheaply from their table (see LazyStopTimeTable). The routes are added
+	 * with countRoutes.
+	 * @param size The number of rows
+	 * @param stopCodes The stop ID code of each row, NONE to leave the row out
+	 * @param tripCodes The trip ID code of each row
+	 * @param arrivalTimes The arrival time of each row
+	 * @return The index
+	 */
+	public static StopIndex build(int size, int[] stopCodes, int[] tripCodes, int[] arrivalTimes) {
+		return build(size, row -> stopCodes[row], row -> tripCodes[row], row -> arrivalTimes[row]);
+	}
+
+	private static StopIndex build(int size, IntUnaryOperator stopCodes, IntUnaryOperator tripCodes,
+								   IntUnaryOperator arrivalTimes) {
+		StopIndex index = new StopIndex(StringDictionary.getInstance().size());
+		// count first, so every stop's array is made once at its full size
+		for (int row = 0; row < size; ++row) {
+			int stopCode = stopCodes.applyAsInt(row);
+			if (stopCode >= 0) {
+				++index.rowCounts[stopCode];
+			}
+		}
+		for (int stop = 0; stop < index.rows.length; ++stop) {
+			index.rows[stop] = index.rowCounts[stop] == 0 ? EMPTY : new int[index.rowCounts[stop]];
+			index.times[stop] = index.rowCounts[stop] == 0 ? EMPTY : new int[index.rowCounts[stop]];
+			index.rowCounts[stop] = 0;
+		}
+		for (int row = 0; row < size; ++row) {
+			int stopCode = stopCodes.applyAsInt(row);
+			if (stopCode >= 0) {
+				index.times[stopCode][index.rowCounts[stopCode]] = arrivalTimes.applyAsInt(row);
+				index.rows[stopCode][index.rowCounts[stopCode]++] = row;
+			}
+		}
+		for (int stop = 0; stop < index.rows.length; ++stop) {
+			index.sortByTime(stop);
+		}
+
+		for (int stop = 0; stop < index.rows.length; ++stop) {
+			int count = index.rowCounts[stop];
+			int[] codes = new int[count];
+			for (int i = 0; i < count; ++i) {
+				codes[i] = tripCodes.applyAsInt(index.rows[stop][i]);
+			}
+			setMembers(index.tripCodes, index.tripRowCounts, index.tripCounts, stop, codes, count);
+		}
+		return index;
+	}
+
+	/**
+	 * Counts every indexed stop time at its stop for the route of its trip, all at once
+	 * instead of with addRoute. Any routes that were counted before are dropped first.
+	 * @param stopTimes The stop times, of which only the trip codes are read
+	 * @param tripsByCode The trips by trip code, from Database.tripsByCode
+	 * @param routesByCode The routes by route code, from Database.routesByCode
+	 */
+	public void countRoutes(StopTimeTable stopTimes, Trip[] tripsByCode, Route[] routesByCode) {
+		for (int stop = 0; stop < rows.length; ++stop) {
+			int[] codes = new int[rowCounts[stop]];
+			int count = 0;
+			for (int i = 0; i < rowCounts[stop]; ++i) {
+				int tripCode = stopTimes.getTripCode(rows[stop][i]);
+				Trip trip = tripCode >= 0 && tripCode < tripsByCode.length ? tripsByCode[tripCode] : null;
+				int routeCode = trip == null ? StringDictionary.NONE : trip.getRouteCode();
+				if (routeCode >= 0 && routeCode < routesByCode.length && routesByCode[routeCode] != null) {
+					codes[count++] = routeCode;
+				}
+			}
+			setMembers(routeCodes, routeRowCounts, routeCounts, stop, codes, count);
+		}
+	}
+
+	/**
+	 * Replaces a stop's set with the distinct codes of an array, each counted as many
+	 * times as it appears
+	 * @param values The codes, which are sorted in place (the array may become the set)
+	 * @param count The number of codes in the array
+	 */
+	private static void setMembers(int[][] codes, int[][] counts, int[] sizes, int stop, int[] values, int count) {
+		if (count == 0) {
+			codes[stop] = EMPTY;
+			counts[stop] = EMPTY;
+			sizes[stop] = 0;
+			return;
+		}
+		Arrays.sort(values, 0, count);
+		int[] valueCounts = new int[count];
+		int distinct = 0;
+		for (int i = 0; i < count; ++i) {
+			if (distinct > 0 && values[distinct - 1] == values[i]) {
+				++valueCounts[distinct - 1];
+			} else {
+				values[distinct] = values[i];
+				valueCounts[distinct++] = 1;
+			}
+		}
+		codes[stop] = distinct == values.length ? values : Arrays.copyOf(values, distinct);
+		counts[stop] = distinct == values.length ? valueCounts : Arrays.copyOf(valueCounts, distinct);
+		sizes[stop] = distinct;
+	}
+
+	/**
+	 * Sorts a stop's rows by time and then row. Rows are added in order, so they are only
+	 * out of order where the file isn't sorted by time.
+	 */
+	private void sortByTime(int stop) {
+		int count = rowCounts[stop];
+		int[] stopTimes = times[stop];
+		boolean sorted = true;
+		for (int i = 1; i < count && sorted; ++i) {
+			sorted = stopTimes[i - 1] <= stopTimes[i];
+		}
+		if (sorted) {
+			return;
+		}
+		// both in one long, the time signed in the high half and the row in the low half
+		long[] keys = new long[count];
+		for (int i = 0; i < count; ++i) {
+			keys[i] = ((long) stopTimes[i] << 32) | rows[stop][i];
+		}
+		Arrays.sort(keys);
+		for (int i = 0; i < count; ++i) {
+			stopTimes[i] = (int) (keys[i] >> 32);
+			rows[stop][i] = (int) keys[i];
+		}
+	}
+
+	//---- LOOKUPS
+
+	/**
+	 * The stop times at a stop
+	 * @param stopCode The stop ID's code
+	 * @return The stop time IDs in order of arrival time (a copy)
+	 */
+	public int[] getStopTimeIDs(int stopCode) {
+		return hasStop(stopCode) ? Arrays.copyOf(rows[stopCode], rowCounts[stopCode]) : EMPTY;
+	}
+
+	/**
+	 * The number of stop times at a stop
+	 * @param stopCode The stop ID's code
+	 * @return The number of stop times
+	 */
+	public int getStopTimeCount(int stopCode) {
+		return hasStop(stopCode) ? rowCounts[stopCode] : 0;
+	}
+
+	/**
+	 * Where the stop times at a stop that arrive after a time start, in arrival time order
+	 * @param stopCode The stop ID's code
+	 * @param time The time, in seconds after midnight (see ServiceTime)
+	 * @return The position of the first stop time arriving after the time, or
+	 * getStopTimeCount if none do
+	 */
+	public int indexAfter(int stopCode, int time) {
+		if (!hasStop(stopCode)) {
+			return 0;
+		}
+		int[] stopTimes = times[stopCode];
+		int low = 0;
+		int high = rowCounts[stopCode];
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (stopTimes[middle] <= time) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * A stop time at a stop, in arrival time order
+	 * @param stopCode The stop ID's code
+	 * @param position The position, from 0 to getStopTimeCount
+	 * @return The stop time ID
+	 */
+	public int getStopTimeID(int stopCode, int position) {
+		return rows[stopCode][position];
+	}
+
+	/**
+	 * The arrival time of a stop time at a stop, in arrival time order
+	 * @param stopCode The stop ID's code
+	 * @param position The position, from 0 to getStopTimeCount
+	 * @return The arrival time, in seconds after midnight
+	 */
+	public int getArrivalTime(int stopCode, int position) {
+		return times[stopCode][position];
+	}
+
+	/**
+	 * The distinct trips that stop at a stop
+	 * @param stopCode The stop ID's code
+	 * @return The trip codes in ascending order (a copy)
+	 */
+	public int[] getTripCodes(int stopCode) {
+		return hasStop(stopCode) ? Arrays.copyOf(tripCodes[stopCode], tripCounts[stopCode]) : EMPTY;
+	}
+
+	/**
+	 * The number of distinct trips that stop at a stop
+	 * @param stopCode The stop ID's code
+	 * @return The number of trips
+	 */
+	public int getTripCount(int stopCode) {
+		return hasStop(stopCode) ? tripCounts[stopCode] : 0;
+	}
+
+	/**
+	 * The distinct routes whose trips stop at a stop
+	 * @param stopCode The stop ID's code
+	 * @return The route codes in ascending order (a copy)
+	 */
+	public int[] getRouteCodes(int stopCode) {
+		return hasStop(stopCode) ? Arrays.copyOf(routeCodes[stopCode], routeCounts[stopCode]) : EMPTY;
+	}
+
+	/**
+	 * The number of distinct routes whose trips stop at a stop
+	 * @param stopCode The stop ID's code
+	 * @return The number of routes
+	 */
+	public int getRouteCount(int stopCode) {
+		return hasStop(stopCode) ? routeCounts[stopCode] : 0;
+	}
+
+	private boolean hasStop(int stopCode) {
+		return stopCode >= 0 && stopCode < rows.length;
+	}
+
+	//---- UPDATES
+
+	/**
+	 * Adds a stop time to the index
+	 * @param stopTimeID The stop time's ID (its row)
+	 * @param stopCode The stop time's stop ID code
+	 * @param tripCode The stop time's trip ID code
+	 * @param arrivalTime The stop time's arrival time
+	 */
+	public void add(int stopTimeID, int stopCode, int tripCode, int arrivalTime) {
+		if (stopCode < 0) {
+			return;
+		}
+		ensureStop(stopCode);
+		int position = -find(stopCode, stopTimeID, arrivalTime) - 1;
+		if (position < 0) {
+			// already indexed
+			return;
+		}
+		int count = rowCounts[stopCode]++;
+		rows[stopCode] = insert(rows[stopCode], count, position, stopTimeID);
+		times[stopCode] = insert(times[stopCode], count, position, arrivalTime);
+		addMember(tripCodes, tripRowCounts, tripCounts, stopCode, tripCode);
+	}
+
+	/**
+	 * Removes a stop time from the index
+	 * @param stopTimeID The stop time's ID (its row)
+	 * @param stopCode The stop ID code it was indexed with
+	 * @param tripCode The trip ID code it was indexed with
+	 * @param arrivalTime The arrival time it was indexed with
+	 */
+	public void remove(int stopTimeID, int stopCode, int tripCode, int arrivalTime) {
+		if (!hasStop(stopCode)) {
+			return;
+		}
+		int position = find(stopCode, stopTimeID, arrivalTime);
+		if (position < 0) {
+			return;
+		}
+		int count = rowCounts[stopCode]--;
+		delete(rows[stopCode], count, position);
+		delete(times[stopCode], count, position);
+		removeMember(tripCodes, tripRowCounts, tripCounts, stopCode, tripCode);
+	}
+
+	/**
+	 * Counts a stop time at a stop for its route
+	 * @param stopCode The stop time's stop ID code
+	 * @param routeCode The route ID code of the stop time's trip
+	 */
+	public void addRoute(int stopCode, int routeCode) {
+		if (stopCode < 0) {
+			return;
+		}
+		ensureStop(stopCode);
+		addMember(routeCodes, routeRowCounts, routeCounts, stopCode, routeCode);
+	}
+
+	/**
+	 * Stops counting a stop time at a stop for its route
+	 * @param stopCode The stop ID code it was counted with
+	 * @param routeCode The route ID code it was counted with
+	 */
+	public void removeRoute(int stopCode, int routeCode) {
+		if (hasStop(stopCode)) {
+			removeMember(routeCodes, routeRowCounts, routeCounts, stopCode, routeCode);
+		}
+	}
+
+	/**
+	 * Adds one to the count of a member of a stop's set, adding the member if it is new
+	 */
+	private static void addMember(int[][] codes, int[][] counts, int[] sizes, int stopCode, int code) {
+		int member = Arrays.binarySearch(codes[stopCode], 0, sizes[stopCode], code);
+		if (member >= 0) {
+			++counts[stopCode][member];
+		} else {
+			member = -member - 1;
+			int size = sizes[stopCode]++;
+			codes[stopCode] = insert(codes[stopCode], size, member, code);
+			counts[stopCode] = insert(counts[stopCode], size, member, 1);
+		}
+	}
+
+	/**
+	 * Takes one from the count of a member of a stop's set, removing the member at zero
+	 */
+	private static void removeMember(int[][] codes, int[][] counts, int[] sizes, int stopCode, int code) {
+		int member = Arrays.binarySearch(codes[stopCode], 0, sizes[stopCode], code);
+		if (member >= 0 && --counts[stopCode][member] == 0) {
+			int size = sizes[stopCode]--;
+			delete(codes[stopCode], size, member);
+			delete(counts[stopCode], size, member);
+		}
+	}
+
+	/**
+	 * Finds a stop time among a stop's rows, which are sorted by time and then row
+	 * @return The position, or (-(insertion point) - 1) if it is not there, as Arrays.binarySearch
+	 */
+	private int find(int stopCode, int stopTimeID, int arrivalTime) {
+		int[] stopRows = rows[stopCode];
+		int[] stopTimes = times[stopCode];
+		int low = 0;
+		int high = rowCounts[stopCode] - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int compare = stopTimes[middle] != arrivalTime ?
+					Integer.compare(stopTimes[middle], arrivalTime) : Integer.compare(stopRows[middle], stopTimeID);
+			if (compare < 0) {
+				low = middle + 1;
+			} else if (compare > 0) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -(low + 1);
+	}
+
+	/**
+	 * Makes room for a stop code that was added to the dictionary after the index was built
+	 */
+	private void ensureStop(int stopCode) {
+		if (stopCode < rows.length) {
+			return;
+		}
+		int length = Math.max(stopCode + 1, StringDictionary.getInstance().size());
+		int old = rows.length;
+		rows = Arrays.copyOf(rows, length);
+		times = Arrays.copyOf(times, length);
+		rowCounts = Arrays.copyOf(rowCounts, length);
+		tripCodes = Arrays.copyOf(tripCodes, length);
+		tripRowCounts = Arrays.copyOf(tripRowCounts, length);
+		tripCounts = Arrays.copyOf(tripCounts, length);
+		routeCodes = Arrays.copyOf(routeCodes, length);
+		routeRowCounts = Arrays.copyOf(routeRowCounts, length);
+		routeCounts = Arrays.copyOf(routeCounts, length);
+		for (int stop = old; stop < length; ++stop) {
+			rows[stop] = EMPTY;
+			times[stop] = EMPTY;
+			tripCodes[stop] = EMPTY;
+			tripRowCounts[stop] = EMPTY;
+			routeCodes[stop] = EMPTY;
+			routeRowCounts[stop] = EMPTY;
+		}
+	}
+
+	/**
+	 * Inserts a value into the used part of an array, growing the array if it is full
+	 * @return The array, which is a new one if it grew
+	 */
+	static int[] insert(int[] array, int used, int position, int value) {
+		if (used == array.length) {
+			array = Arrays.copyOf(array, Math.max(4, used + (used >> 1)));
+		}
+		System.arraycopy(array, position, array, position + 1, used - position);
+		array[position] = value;
+		return array;
+	}
+
+	static void delete(int[] array, int used, int position) {
+		System.arraycopy(array, position + 1, array, position, used - position - 1);
+	}
+
+}	//end class StopIndex
@@ -31,11 +31,7 @@ import javafx.scene.control.TextInputDialog;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.Pane;
 
-import java.text.DateFormat;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Collection;
-import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
@@ -61,7 +57,6 @@ public class StopTabController {
     private GridPane routesGrid;
 
     private final Database GTFS = Database.getInstance();
-    public static final DateFormat STOP_TIME_FORMAT = new SimpleDateFormat("HH:mm:ss");
 
     public void setStop(Stop stop) {
         this.stop = stop;
@@ -130,10 +125,11 @@ public class StopTabController {
                                     double coordinate = Double.parseDouble(val);
                                     boolean valid = isValidCoordinate(val, isLat);
                                     if (valid) {
+                                        // through the database, so trips at the stop measure their distance again
                                         if (isLat) {
-                                            stop.setLatitude(coordinate);
+                                            GTFS.moveStop(stop, coordinate, stop.getLongitude());
                                         } else {
-                                            stop.setLongitude(coordinate);
+                                            GTFS.moveStop(stop, stop.getLatitude(), coordinate);
                                         }
                                         valueLabel.setText(val);
                                     } else {
@@ -173,7 +169,7 @@ public class StopTabController {
                 propertiesIndex);
         propertiesGrid.add(
                 GUIDefaultElements.getGridCellLabel(
-                        "" + controller.getTripsOnStop(stop.getStopID()).size(),
+                        "" + controller.getTripCountOnStop(stop.getStopID()),
                         propertiesIndex),
                 1,
                 propertiesIndex);
@@ -237,7 +233,7 @@ public class StopTabController {
                     0,
                     routeIndex);
         } else {
-            for (Route route : controller.searchForRoutesWithStopID(stop.getStopID())) {
+            for (Route route : routesWithStop) {
                 routesGrid.add(
                         GUIDefaultElements.getGridCellLabel(
                                 route.getRouteID(),
@@ -262,27 +258,20 @@ public class StopTabController {
         dialog.setHeaderText("Update Arrival Time");
         dialog.setContentText("Please enter your new arrival time (HH:mm:ss):");
 
+        // the trip's stop time at this stop, edited through the Database so its indexes follow
+        int stopTimeID = findStopTimeAtStop(p.first);
+        StopTimeTable stopTimes = GTFS.getStopTimes();
+
         Optional<String> result = dialog.showAndWait();
 
-        if(result.isPresent()){
+        if(result.isPresent() && stopTimeID >= 0){
             String arrivalString = result.get();
-
-                Collection<StopTime> stopTimes= GTFS.getStopTimes();
-                for(StopTime stopTime: stopTimes){
-                    if(stopTime.getTripID().equals(p.first.getTripID())){
-                        if (StringValidation.isValidTime(arrivalString)) {
-                            Date arrival = STOP_TIME_FORMAT.parse(arrivalString);
-                            stopTime.setArrival(arrival);
-                            nextTripsGrid.add(GUIDefaultElements.getGridCellLabel(arrivalString, nextTripIndex), 1, nextTripIndex);
-                        } else {
-                            Alert a = new Alert(Alert.AlertType.ERROR);
-                            a.setContentText("Please enter a valid time.");
-                            a.setTitle("Incorrect time format. Please try again.");
-                            a.showAndWait();
-                        }
-                        break;
-                    }
-                }
+            if (StringValidation.isValidTime(arrivalString)) {
+                GTFS.setStopTimeTimes(stopTimeID, ServiceTime.parse(arrivalString), stopTimes.getDepartureTime(stopTimeID));
+                nextTripsGrid.add(GUIDefaultElements.getGridCellLabel(arrivalString, nextTripIndex), 1, nextTripIndex);
+            } else {
+                showInvalidTimeAlert();
+            }
         }
 
         dialog.setTitle("Update Stop Time");
@@ -290,25 +279,38 @@ public class StopTabController {
         dialog.setContentText("Please enter your new departure time (HH:mm:ss):");
 
         result = dialog.showAndWait();
-        if(result.isPresent()){
+        if(result.isPresent() && stopTimeID >= 0){
             String departureString = result.get();
+            if (StringValidation.isValidTime(departureString)) {
+                GTFS.setStopTimeTimes(stopTimeID, stopTimes.getArrivalTime(stopTimeID), ServiceTime.parse(departureString));
+            } else {
+                showInvalidTimeAlert();
+            }
+        }
 
-            Collection<StopTime> stopTimes= GTFS.getStopTimes();
-            for(StopTime stopTime: stopTimes){
-                if(stopTime.getTripID().equals(p.first.getTripID())){
-                    if (StringValidation.isValidTime(departureString)) {
-                        Date departure = STOP_TIME_FORMAT.parse(departureString);
-                        stopTime.setDeparture(departure);
-                    } else {
-                        Alert a = new Alert(Alert.AlertType.ERROR);
-                        a.setContentText("Please enter a valid time.");
-                        a.setTitle("Incorrect time format. Please try again.");
-                        a.showAndWait();
-                    }
-                    break;
-                }
+    }
+
+    /**
+     * Finds the stop time of a trip at this tab's stop
+     *
+     * @param trip The trip
+     * @return The stop time ID, or -1 if the trip doesn't stop here
+     */
+    private int findStopTimeAtStop(Trip trip) {
+        int stopCode = StringDictionary.getInstance().find(stop.getStopID());
+        for (int i = 0; i < trip.getStopTimeCount(); ++i) {
+            int stopTimeID = trip.getStopTimeID(i);
+            if (GTFS.getStopTimes().getStopCode(stopTimeID) == stopCode) {
+                return stopTimeID;
             }
         }
+        return -1;
+    }
 
+    private void showInvalidTimeAlert() {
+        Alert a = new Alert(Alert.AlertType.ERROR);
+        a.setContentText("Please enter a valid time.");
+        a.setTitle("Incorrect time format. Please try again.");
+        a.showAndWait();
     }
 }   //end class StopTabController
@@ -23,9 +23,7 @@
  */
 package gtfs;
 
-import java.text.DateFormat;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Optional;
 
@@ -64,36 +62,111 @@ public class StopTime implements GTFSObject {
 					"Drop Off Type"
 			};
 
-	private Date arrival;
-	private Date departure;
-	private Optional<Integer> dropOffType;
-	private Optional<Integer> pickupType;
+	/**
+	 * The value of a pickup or drop off type that is not given
+	 */
+	public static final int ABSENT = -1;
+
+	private int arrival;
+	private int departure;
+	// packed into bytes with ABSENT for "not given", which covers every type GTFS defines
+	private byte dropOffType = ABSENT;
+	private byte pickupType = ABSENT;
 	private String stopHeadSign;
-	private String stopID;
+	private int stopCode;
 	private int stopSequence;
-	private final int stopTimeID;
-	private String tripID;
+	private int stopTimeID;
+	private int tripCode;
+
+	private static final StringDictionary IDS = StringDictionary.getInstance();
 
-	public static final DateFormat STOP_TIME_FORMAT = new SimpleDateFormat("HH:mm:ss");
 	private static int nextStopTimeID = 0;
 
-	public StopTime(Date arrival,
-					Date departure,
+	/**
+	 * Creates a stop time
+	 * @param arrival The arrival time in seconds past the service day's midnight
+	 * @param departure The departure time in seconds past the service day's midnight
+	 * @param dropOffType The drop off type, if there is one
+	 * @param pickupType The pickup type, if there is one
+	 * @param stopHeadSign The stop headsign
+	 * @param stopID The stop ID
+	 * @param stopSequence The stop sequence
+	 * @param tripID The trip ID
+	 */
+	public StopTime(int arrival,
+					int departure,
 					Optional<Integer> dropOffType,
 					Optional<Integer> pickupType,
 					String stopHeadSign,
 					String stopID,
 					int stopSequence,
 					String tripID) {
+		this(arrival, departure, dropOffType, pickupType, stopHeadSign, stopID, stopSequence, tripID, nextStopTimeID++);
+	}
+
+	/**
+	 * Creates a stop time with a given stop time ID instead of one from the shared counter
+	 */
+	StopTime(int arrival,
+			 int departure,
+			 Optional<Integer> dropOffType,
+			 Optional<Integer> pickupType,
+			 String stopHeadSign,
+			 String stopID,
+			 int stopSequence,
+			 String tripID,
+			 int stopTimeID) {
+		this(arrival, departure, dropOffType.orElse(ABSENT), pickupType.orElse(ABSENT), stopHeadSign, stopID,
+				stopSequence, tripID, stopTimeID);
+	}
+
+	/**
+	 * Creates a stop time with a given stop time ID, with ABSENT for a pickup or drop off type that is not given
+	 */
+	StopTime(int arrival,
+			 int departure,
+			 int dropOffType,
+			 int pickupType,
+			 String stopHeadSign,
+			 String stopID,
+			 int stopSequence,
+			 String tripID,
+			 int stopTimeID) {
 		this.arrival = arrival;
 		this.departure = departure;
-		this.dropOffType = dropOffType;
-		this.pickupType = pickupType;
+		this.dropOffType = toType(dropOffType);
+		this.pickupType = toType(pickupType);
 		this.stopHeadSign = stopHeadSign;
-		this.stopID = stopID;
+		this.stopCode = IDS.encode(stopID);
 		this.stopSequence = stopSequence;
-		this.stopTimeID = nextStopTimeID++;
-		this.tripID = tripID;
+		this.stopTimeID = stopTimeID;
+		this.tripCode = IDS.encode(tripID);
+	}
+
+	/**
+	 * Creates a stop time with no values of its own, for the row views of a StopTimeTable
+	 * (which override the getters and setters)
+	 */
+	StopTime() {
+	}
+
+	public StopTime(Date arrival,
+					Date departure,
+					Optional<Integer> dropOffType,
+					Optional<Integer> pickupType,
+					String stopHeadSign,
+					String stopID,
+					int stopSequence,
+					String tripID) {
+		this(
+				ServiceTime.fromDate(arrival),
+				ServiceTime.fromDate(departure),
+				dropOffType,
+				pickupType,
+				stopHeadSign,
+				stopID,
+				stopSequence,
+				tripID);
 	}
 
 	public StopTime(Date arrival,
@@ -123,8 +196,21 @@ public class StopTime implements GTFSObject {
 	 * @param stopTimesFileColumnValues String array with all the values from the stop time file column
 	 */
 	public StopTime(String[] stopTimesFileColumnValues) throws ParseException {
-		this(	STOP_TIME_FORMAT.parse(stopTimesFileColumnValues[1]),
-				STOP_TIME_FORMAT.parse(stopTimesFileColumnValues[2]),
+		this(stopTimesFileColumnValues, nextStopTimeID++);
+	}
+
+	/**
+	 * Same as the String array constructor, but with a given stop time ID instead of
+	 * one from the shared counter. Importers that build stop times on several threads
+	 * pass -1 and number the stop times themselves once file order is known.
+	 *
+	 * @param stopTimesFileColumnValues String array with all the values from the stop time file column
+	 * @param stopTimeID The stop time ID
+	 * @throws ParseException if an arrival/departure time could not be parsed
+	 */
+	StopTime(String[] stopTimesFileColumnValues, int stopTimeID) throws ParseException {
+		this(	parseTime(stopTimesFileColumnValues[1]),
+				parseTime(stopTimesFileColumnValues[2]),
 				stopTimesFileColumnValues[7].isEmpty() ?
 						Optional.empty() :
 						Optional.of(Integer.parseInt(stopTimesFileColumnValues[7])),
@@ -134,7 +220,39 @@ public class StopTime implements GTFSObject {
 				stopTimesFileColumnValues[5],
 				stopTimesFileColumnValues[3],
 				Integer.parseInt(stopTimesFileColumnValues[4]),
-				stopTimesFileColumnValues[0]);
+				stopTimesFileColumnValues[0],
+				stopTimeID);
+	}
+
+	/**
+	 * Whether a pickup or drop off type can be kept, which is ABSENT or 0 to 127
+	 * (GTFS only defines 0 to 3)
+	 * @param type The type
+	 * @return True if the type can be kept
+	 */
+	public static boolean isStorableType(long type) {
+		return type == ABSENT || (type >= 0 && type <= Byte.MAX_VALUE);
+	}
+
+	static byte toType(int type) {
+		if (!isStorableType(type)) {
+			throw new IllegalArgumentException("Pickup/drop off type out of range: " + type);
+		}
+		return (byte) type;
+	}
+
+	/**
+	 * Parses a HH:mm:ss time
+	 * @param time The time
+	 * @return The seconds past midnight
+	 * @throws ParseException if the time is not valid
+	 */
+	private static int parseTime(String time) throws ParseException {
+		int seconds = ServiceTime.parse(time);
+		if (seconds == ServiceTime.INVALID) {
+			throw new ParseException("Unparseable time: \"" + time + "\"", 0);
+		}
+		return seconds;
 	}
 
 	/**
@@ -144,55 +262,137 @@ public class StopTime implements GTFSObject {
 	@Override
 	public String[] getColumnValues() {
 		return new String[] {
-				tripID,
-				STOP_TIME_FORMAT.format(arrival),
-				STOP_TIME_FORMAT.format(departure),
-				stopID,
-				Integer.toString(stopSequence),
-				stopHeadSign,
-				pickupType.map(integer -> "" + integer).orElse(""),
-				dropOffType.map(integer -> "" + integer).orElse("")
+				getTripID(),
+				ServiceTime.format(getArrivalTime()),
+				ServiceTime.format(getDepartureTime()),
+				getStopID(),
+				Integer.toString(getStopSequence()),
+				getStopHeadSign(),
+				hasPickupType() ? Integer.toString(getPickupTypeValue()) : "",
+				hasDropOffType() ? Integer.toString(getDropOffTypeValue()) : ""
 		};
 	}
 
-	public Date getArrival() {
+	/**
+	 * The arrival time as seconds past the service day's midnight
+	 * @return The arrival time
+	 */
+	public int getArrivalTime() {
 		return arrival;
 	}
 
-	public void setArrival(Date arrival) {
+	public void setArrivalTime(int arrival) {
 		this.arrival = arrival;
 	}
 
+	/**
+	 * The departure time as seconds past the service day's midnight
+	 * @return The departure time
+	 */
+	public int getDepartureTime() {
+		return departure;
+	}
+
+	public void setDepartureTime(int departure) {
+		this.departure = departure;
+	}
+
+	/**
+	 * The arrival time as a Date, for code that still works with Dates
+	 * @return The arrival time (see ServiceTime.toDate)
+	 */
+	public Date getArrival() {
+		return ServiceTime.toDate(getArrivalTime());
+	}
+
+	public void setArrival(Date arrival) {
+		setArrivalTime(ServiceTime.fromDate(arrival));
+	}
+
 	public void setArrival(String arrivalString) throws ParseException {
-		setArrival(STOP_TIME_FORMAT.parse(arrivalString));
+		setArrivalTime(parseTime(arrivalString));
 	}
 
+	/**
+	 * The departure time as a Date, for code that still works with Dates
+	 * @return The departure time (see ServiceTime.toDate)
+	 */
 	public Date getDeparture() {
-		return departure;
+		return ServiceTime.toDate(getDepartureTime());
 	}
 
 	public void setDeparture(Date departure) {
-		this.departure = departure;
+		setDepartureTime(ServiceTime.fromDate(departure));
 	}
 
 	public void setDeparture(String departureString) throws ParseException {
-		setDeparture(STOP_TIME_FORMAT.parse(departureString));
+		setDepartureTime(parseTime(departureString));
 	}
 
+	/**
+	 * The drop off type as an Optional, for code that still works with Optionals
+	 * (getDropOffTypeValue doesn't create anything)
+	 * @return The drop off type, if there is one
+	 */
 	public Optional<Integer> getDropOffType() {
+		return hasDropOffType() ? Optional.of(getDropOffTypeValue()) : Optional.empty();
+	}
+
+	/**
+	 * If the stop time has a drop off type
+	 * @return True if there is a drop off type, false otherwise
+	 */
+	public boolean hasDropOffType() {
+		return getDropOffTypeValue() != ABSENT;
+	}
+
+	/**
+	 * The drop off type
+	 * @return The drop off type, or ABSENT if there isn't one
+	 */
+	public int getDropOffTypeValue() {
 		return dropOffType;
 	}
 
+	/**
+	 * Sets the drop off type
+	 * @param dropOffType The drop off type, or ABSENT to clear it
+	 */
 	public void setDropOffType(int dropOffType) {
-		this.dropOffType = Optional.of(dropOffType);
+		this.dropOffType = toType(dropOffType);
 	}
 
+	/**
+	 * The pickup type as an Optional, for code that still works with Optionals
+	 * (getPickupTypeValue doesn't create anything)
+	 * @return The pickup type, if there is one
+	 */
 	public Optional<Integer> getPickupType() {
+		return hasPickupType() ? Optional.of(getPickupTypeValue()) : Optional.empty();
+	}
+
+	/**
+	 * If the stop time has a pickup type
+	 * @return True if there is a pickup type, false otherwise
+	 */
+	public boolean hasPickupType() {
+		return getPickupTypeValue() != ABSENT;
+	}
+
+	/**
+	 * The pickup type
+	 * @return The pickup type, or ABSENT if there isn't one
+	 */
+	public int getPickupTypeValue() {
 		return pickupType;
 	}
 
+	/**
+	 * Sets the pickup type
+	 * @param pickupType The pickup type, or ABSENT to clear it
+	 */
 	public void setPickupType(int pickupType) {
-		this.pickupType = Optional.of(pickupType);
+		this.pickupType = toType(pickupType);
 	}
 
 	public String getStopHeadSign() {
@@ -204,11 +404,19 @@ public class StopTime implements GTFSObject {
 	}
 
 	public String getStopID() {
-		return stopID;
+		return IDS.decode(getStopCode());
 	}
 
 	public void setStopID(String stopID) {
-		this.stopID = stopID;
+		this.stopCode = IDS.encode(stopID);
+	}
+
+	/**
+	 * The stop ID's code in the StringDictionary
+	 * @return The stop code
+	 */
+	public int getStopCode() {
+		return stopCode;
 	}
 
 	public int getStopSequence() {
@@ -223,12 +431,24 @@ public class StopTime implements GTFSObject {
 		return stopTimeID;
 	}
 
+	void setStopTimeID(int stopTimeID) {
+		this.stopTimeID = stopTimeID;
+	}
+
 	public String getTripID() {
-		return tripID;
+		return IDS.decode(getTripCode());
 	}
 
 	public void setTripID(String tripID) {
-		this.tripID = tripID;
+		this.tripCode = IDS.encode(tripID);
+	}
+
+	/**
+	 * The trip ID's code in the StringDictionary
+	 * @return The trip code
+	 */
+	public int getTripCode() {
+		return tripCode;
 	}
 
 	public static int getNextStopTimeID() {
@@ -0,0 +1,742 @@
+/*
+ * This file is part of gtfstransitproject_group5.
+ *
+ * gtfstransitproject_group5 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * gtfstransitproject_group5 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with gtfstransitproject_group5.  If not, see <https://www.gnu.org/licenses/>.
+
+ * Course: CS 2030 031
+ * Fall 2021
+ * GTFS Transit Project
+ * Names: Jonathan Keane, Kevin Paganini, Kyle Senebouttarath
+ * Created: 10/4/2021
+ * Professor: Dr. Wright
+ */
+package gtfs;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * Stores stop times column by column in parallel primitive columns instead of as one
+ * object per row. A row is the trip code, stop code, arrival and departure seconds,
+ * stop sequence and headsign code (all ints, the IDs and headsign coded by the
+ * StringDictionary) and the pickup and drop off types (bytes), which is 26 bytes a row
+ * against about 52 for a StopTime object (see HeapFootprintBenchmark).
+ *
+ * The table is still a List of StopTimes so existing code keeps working: get returns a
+ * small view of a row that reads and writes through to the columns. Iterating and
+ * filtering don't create a view per row though; they move one reused view (a flyweight)
+ * along the table, so a StopTime from the iterator is only valid until the next call to
+ * next. Use get with the row, or copy, to hold on to one. A row's position is its stop
+ * time ID.
+ *
+ * The columns are buffers from a ColumnStorage, so they can be kept off the Java heap
+ * (in direct buffers or memory mapped files) for feeds too big for it. Scans then read
+ * the buffers directly and the garbage collector has nothing per row to trace.
+ */
+public class StopTimeTable extends AbstractList<StopTime> implements RandomAccess {
+	/**
+	 * The value of a pickup or drop off type that is not given
+	 */
+	public static final int ABSENT = StopTime.ABSENT;
+	private static final int DEFAULT_CAPACITY = 1 << 10;
+
+	private static final StringDictionary IDS = StringDictionary.getInstance();
+
+	private static volatile ColumnStorage defaultStorage = ColumnStorage.HEAP;
+
+	private final ColumnStorage storage;
+	private IntBuffer tripCodes;
+	private IntBuffer stopCodes;
+	private IntBuffer arrivals;
+	private IntBuffer departures;
+	private IntBuffer sequences;
+	private IntBuffer headSignCodes;
+	private ByteBuffer pickupTypes;
+	private ByteBuffer dropOffTypes;
+	private int size;
+
+	/**
+	 * Creates an empty table in the default storage
+	 */
+	public StopTimeTable() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates an empty table in the default storage with room for a number of rows
+	 * @param capacity The number of rows to make room for
+	 */
+	public StopTimeTable(int capacity) {
+		this(capacity, defaultStorage);
+	}
+
+	/**
+	 * Creates an empty table with room for a number of rows
+	 * @param capacity The number of rows to make room for
+	 * @param storage Where to keep the columns
+	 */
+	public StopTimeTable(int capacity, ColumnStorage storage) {
+		this.storage = storage;
+		resize(Math.max(1, capacity));
+	}
+
+	/**
+	 * Creates a table in the default storage holding the values of some stop times, in order
+	 * @param stopTimes The stop times
+	 */
+	public StopTimeTable(Collection<StopTime> stopTimes) {
+		this(stopTimes.size());
+		addAll(stopTimes);
+	}
+
+	/**
+	 * The storage that tables are created in when none is given, which is where the
+	 * importers put the stop times they parse
+	 * @return The default storage (HEAP unless it was changed)
+	 */
+	public static ColumnStorage getDefaultStorage() {
+		return defaultStorage;
+	}
+
+	public static void setDefaultStorage(ColumnStorage storage) {
+		defaultStorage = Objects.requireNonNull(storage);
+	}
+
+	/**
+	 * Where this table keeps its columns
+	 * @return The storage
+	 */
+	public ColumnStorage getStorage() {
+		return storage;
+	}
+
+	//---- ROWS
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets a view of a row, which stays valid until rows are removed from the table
+	 * @param row The row
+	 * @return The row's stop time
+	 */
+	@Override
+	public StopTime get(int row) {
+		checkRow(row);
+		return new Row(row);
+	}
+
+	/**
+	 * Gets a copy of a row that doesn't depend on the table
+	 * @param row The row
+	 * @return A stop time with the row's values and the row as its stop time ID
+	 */
+	public StopTime copy(int row) {
+		checkRow(row);
+		return new StopTime(arrivals.get(row), departures.get(row), dropOffTypes.get(row),
+				pickupTypes.get(row), IDS.decode(headSignCodes.get(row)), IDS.decode(stopCodes.get(row)),
+				sequences.get(row), IDS.decode(tripCodes.get(row)), row);
+	}
+
+	/**
+	 * Adds a stop time's values as a new row
+	 * @param stopTime The stop time
+	 * @return True
+	 */
+	@Override
+	public boolean add(StopTime stopTime) {
+		add(stopTime.getTripCode(), stopTime.getStopCode(), stopTime.getArrivalTime(), stopTime.getDepartureTime(),
+				stopTime.getStopSequence(), IDS.encode(stopTime.getStopHeadSign()),
+				stopTime.getPickupTypeValue(), stopTime.getDropOffTypeValue());
+		return true;
+	}
+
+	/**
+	 * Adds a row
+	 * @param tripCode The trip ID's code
+	 * @param stopCode The stop ID's code
+	 * @param arrival The arrival time in seconds past the service day's midnight
+	 * @param departure The departure time in seconds past the service day's midnight
+	 * @param sequence The stop sequence
+	 * @param headSignCode The stop headsign's code
+	 * @param pickupType The pickup type, or ABSENT
+	 * @param dropOffType The drop off type, or ABSENT
+	 * @return The new row
+	 */
+	public int add(int tripCode, int stopCode, int arrival, int departure, int sequence, int headSignCode,
+				   int pickupType, int dropOffType) {
+		if (size == tripCodes.capacity()) {
+			grow(size + 1);
+		}
+		set(size, tripCode, stopCode, arrival, departure, sequence, headSignCode, pickupType, dropOffType);
+		return size++;
+	}
+
+	/**
+	 * Adds all of the stop times, copying columns straight across if they are in another table
+	 * @param stopTimes The stop times
+	 * @return True if the table changed
+	 */
+	@Override
+	public boolean addAll(Collection<? extends StopTime> stopTimes) {
+		if (!(stopTimes instanceof StopTimeTable)) {
+			grow(size + stopTimes.size());
+			return super.addAll(stopTimes);
+		}
+		StopTimeTable other = (StopTimeTable) stopTimes;
+		int count = other.size;
+		grow(size + count);
+		tripCodes.put(size, other.tripCodes, 0, count);
+		stopCodes.put(size, other.stopCodes, 0, count);
+		arrivals.put(size, other.arrivals, 0, count);
+		departures.put(size, other.departures, 0, count);
+		sequences.put(size, other.sequences, 0, count);
+		headSignCodes.put(size, other.headSignCodes, 0, count);
+		pickupTypes.put(size, other.pickupTypes, 0, count);
+		dropOffTypes.put(size, other.dropOffTypes, 0, count);
+		size += count;
+		return count > 0;
+	}
+
+	/**
+	 * Replaces a row's values with a stop time's
+	 * @param row The row
+	 * @param stopTime The stop time
+	 * @return A copy of the row's old values
+	 */
+	@Override
+	public StopTime set(int row, StopTime stopTime) {
+		StopTime old = copy(row);
+		set(row, stopTime.getTripCode(), stopTime.getStopCode(), stopTime.getArrivalTime(),
+				stopTime.getDepartureTime(), stopTime.getStopSequence(), IDS.encode(stopTime.getStopHeadSign()),
+				stopTime.getPickupTypeValue(), stopTime.getDropOffTypeValue());
+		return old;
+	}
+
+	/**
+	 * Copies one row over another
+	 * @param from The row to copy
+	 * @param to The row to overwrite
+	 */
+	public void copyRow(int from, int to) {
+		checkRow(from);
+		checkRow(to);
+		set(to, tripCodes.get(from), stopCodes.get(from), arrivals.get(from), departures.get(from), sequences.get(from),
+				headSignCodes.get(from), pickupTypes.get(from), dropOffTypes.get(from));
+	}
+
+	/**
+	 * Removes a row, moving the rows after it up one. Removing the last row is O(1).
+	 * @param row The row
+	 * @return A copy of the removed row's values
+	 */
+	@Override
+	public StopTime remove(int row) {
+		StopTime old = copy(row);
+		for (int next = row + 1; next < size; ++next) {
+			copyRow(next, next - 1);
+		}
+		--size;
+		++modCount;
+		return old;
+	}
+
+	@Override
+	public void clear() {
+		size = 0;
+		++modCount;
+	}
+
+	/**
+	 * Shrinks the columns down to the number of rows
+	 */
+	public void trimToSize() {
+		resize(Math.max(1, size));
+	}
+
+	//---- SCANNING
+
+	/**
+	 * Iterates over the rows with one reused view, so no object is created per row.
+	 * The StopTime returned by next is only valid until the following call to next.
+	 * @return The iterator
+	 */
+	@Override
+	public Iterator<StopTime> iterator() {
+		return new Iterator<>() {
+			private final Row cursor = new Row(-1);
+
+			@Override
+			public boolean hasNext() {
+				return cursor.row + 1 < size();
+			}
+
+			@Override
+			public StopTime next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				cursor.row++;
+				return cursor;
+			}
+		};
+	}
+
+	/**
+	 * Creates a view of every row, since copying the table into another collection
+	 * must not go through the reused view of the iterator
+	 * @return The views, in row order
+	 */
+	@Override
+	public Object[] toArray() {
+		return toArray(new StopTime[size()]);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T[] toArray(T[] array) {
+		int size = size();
+		if (array.length < size) {
+			array = Arrays.copyOf(array, size);
+		} else if (array.length > size) {
+			array[size] = null;
+		}
+		for (int row = 0; row < size; ++row) {
+			array[row] = (T) new Row(row);
+		}
+		return array;
+	}
+
+	/**
+	 * Tests every row against a mask with one reused view, and only creates views for the rows that match
+	 * @param mask The function to compare stop times against
+	 * @return Views of the matching rows, in row order
+	 */
+	public List<StopTime> filter(Predicate<StopTime> mask) {
+		List<StopTime> results = new ArrayList<>();
+		Row cursor = new Row(-1);
+		int size = size();
+		for (int row = 0; row < size; ++row) {
+			cursor.row = row;
+			if (mask.test(cursor)) {
+				results.add(new Row(row));
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Finds the rows of a trip
+	 * @param tripCode The trip ID's code
+	 * @return The rows (stop time IDs) of the trip, in stop sequence order and then row order
+	 */
+	public ArrayList<Integer> getTripRows(int tripCode) {
+		long[] keys = new long[16];
+		int count = 0;
+		int size = size();
+		for (int row = 0; row < size; ++row) {
+			if (getTripCode(row) == tripCode) {
+				if (count == keys.length) {
+					keys = Arrays.copyOf(keys, count * 2);
+				}
+				keys[count++] = sequenceKey(getStopSequence(row), row);
+			}
+		}
+		return rowsInSequenceOrder(keys, count);
+	}
+
+	/**
+	 * A key that sorts rows by stop sequence and then by row
+	 * @param sequence The row's stop sequence
+	 * @param row The row
+	 * @return The key
+	 */
+	static long sequenceKey(int sequence, int row) {
+		return ((long) sequence << 32) | row;
+	}
+
+	/**
+	 * Sorts the keys of some rows (see sequenceKey) and takes the rows back out of them
+	 * @param keys The keys
+	 * @param count The number of keys in use
+	 * @return The rows, in stop sequence order and then row order
+	 */
+	static ArrayList<Integer> rowsInSequenceOrder(long[] keys, int count) {
+		Arrays.sort(keys, 0, count);
+		ArrayList<Integer> rows = new ArrayList<>(count);
+		for (int i = 0; i < count; ++i) {
+			rows.add((int) keys[i]);
+		}
+		return rows;
+	}
+
+	//---- ORDERING
+
+	/**
+	 * Moves the rows so each trip's rows are next to each other and in stop sequence order.
+	 * Trips keep the order they first appear in, and rows with the same trip and sequence
+	 * keep their order. The rows are grouped by trip with a counting sort, and then the trips
+	 * whose rows are out of sequence are sorted on their own, in parallel. Rows are stop time
+	 * IDs, so this must only be done before anything holds on to them (right after an import).
+	 * @return True if any row moved, false if the table was already in order
+	 */
+	public boolean sortByTripAndSequence() {
+		int size = size();
+		int[] firstSeen = new int[IDS.size() + 1];
+		Arrays.fill(firstSeen, -1);
+		int trips = 0;
+		boolean sorted = true;
+		for (int row = 0; row < size; ++row) {
+			// the slot is the code plus one, so a row without a trip gets its own group
+			int slot = tripCodes.get(row) + 1;
+			if (firstSeen[slot] < 0) {
+				firstSeen[slot] = trips++;
+			} else if (tripCodes.get(row) != tripCodes.get(row - 1) || sequences.get(row) < sequences.get(row - 1)) {
+				sorted = false;
+			}
+		}
+		if (sorted) {
+			return false;
+		}
+
+		int[] starts = new int[trips + 1];
+		for (int row = 0; row < size; ++row) {
+			++starts[firstSeen[tripCodes.get(row) + 1] + 1];
+		}
+		for (int trip = 0; trip < trips; ++trip) {
+			starts[trip + 1] += starts[trip];
+		}
+		int[] order = new int[size];
+		int[] next = Arrays.copyOf(starts, trips);
+		for (int row = 0; row < size; ++row) {
+			order[next[firstSeen[tripCodes.get(row) + 1]]++] = row;
+		}
+		IntStream.range(0, trips).parallel().forEach(trip -> sortBySequence(order, starts[trip], starts[trip + 1]));
+
+		tripCodes = reorder(tripCodes, order);
+		stopCodes = reorder(stopCodes, order);
+		arrivals = reorder(arrivals, order);
+		departures = reorder(departures, order);
+		sequences = reorder(sequences, order);
+		headSignCodes = reorder(headSignCodes, order);
+		pickupTypes = reorder(pickupTypes, order);
+		dropOffTypes = reorder(dropOffTypes, order);
+		++modCount;
+		return true;
+	}
+
+	/**
+	 * Sorts a trip's part of an order by sequence, and then by row so equal sequences keep their order
+	 */
+	private void sortBySequence(int[] order, int from, int to) {
+		boolean sorted = true;
+		for (int i = from + 1; i < to && sorted; ++i) {
+			sorted = sequences.get(order[i - 1]) <= sequences.get(order[i]);
+		}
+		if (sorted) {
+			return;
+		}
+		long[] keys = new long[to - from];
+		for (int i = from; i < to; ++i) {
+			keys[i - from] = sequenceKey(sequences.get(order[i]), order[i]);
+		}
+		Arrays.sort(keys);
+		for (int i = from; i < to; ++i) {
+			order[i] = (int) keys[i - from];
+		}
+	}
+
+	//---- COLUMNS
+
+	public int getTripCode(int row) {
+		checkRow(row);
+		return tripCodes.get(row);
+	}
+
+	public void setTripCode(int row, int tripCode) {
+		checkRow(row);
+		tripCodes.put(row, tripCode);
+	}
+
+	public int getStopCode(int row) {
+		checkRow(row);
+		return stopCodes.get(row);
+	}
+
+	public void setStopCode(int row, int stopCode) {
+		checkRow(row);
+		stopCodes.put(row, stopCode);
+	}
+
+	public int getArrivalTime(int row) {
+		checkRow(row);
+		return arrivals.get(row);
+	}
+
+	public void setArrivalTime(int row, int arrival) {
+		checkRow(row);
+		arrivals.put(row, arrival);
+	}
+
+	public int getDepartureTime(int row) {
+		checkRow(row);
+		return departures.get(row);
+	}
+
+	public void setDepartureTime(int row, int departure) {
+		checkRow(row);
+		departures.put(row, departure);
+	}
+
+	public int getStopSequence(int row) {
+		checkRow(row);
+		return sequences.get(row);
+	}
+
+	public void setStopSequence(int row, int sequence) {
+		checkRow(row);
+		sequences.put(row, sequence);
+	}
+
+	public int getHeadSignCode(int row) {
+		checkRow(row);
+		return headSignCodes.get(row);
+	}
+
+	public void setHeadSignCode(int row, int headSignCode) {
+		checkRow(row);
+		headSignCodes.put(row, headSignCode);
+	}
+
+	/**
+	 * A row's pickup type
+	 * @param row The row
+	 * @return The pickup type, or ABSENT
+	 */
+	public int getPickupType(int row) {
+		checkRow(row);
+		return pickupTypes.get(row);
+	}
+
+	public void setPickupType(int row, int pickupType) {
+		checkRow(row);
+		pickupTypes.put(row, StopTime.toType(pickupType));
+	}
+
+	/**
+	 * A row's drop off type
+	 * @param row The row
+	 * @return The drop off type, or ABSENT
+	 */
+	public int getDropOffType(int row) {
+		checkRow(row);
+		return dropOffTypes.get(row);
+	}
+
+	public void setDropOffType(int row, int dropOffType) {
+		checkRow(row);
+		dropOffTypes.put(row, StopTime.toType(dropOffType));
+	}
+
+	//---- HELPERS
+
+	private void set(int row, int tripCode, int stopCode, int arrival, int departure, int sequence,
+					 int headSignCode, int pickupType, int dropOffType) {
+		tripCodes.put(row, tripCode);
+		stopCodes.put(row, stopCode);
+		arrivals.put(row, arrival);
+		departures.put(row, departure);
+		sequences.put(row, sequence);
+		headSignCodes.put(row, headSignCode);
+		pickupTypes.put(row, StopTime.toType(pickupType));
+		dropOffTypes.put(row, StopTime.toType(dropOffType));
+	}
+
+	void checkRow(int row) {
+		if (row < 0 || row >= size()) {
+			throw new IndexOutOfBoundsException("Row " + row + " of " + size());
+		}
+	}
+
+	private void grow(int minCapacity) {
+		int capacity = tripCodes.capacity();
+		if (minCapacity > capacity) {
+			resize(Math.max(minCapacity, capacity + (capacity >> 1)));
+		}
+	}
+
+	/**
+	 * Moves the columns to new ones of a given capacity, keeping the rows
+	 */
+	private void resize(int capacity) {
+		tripCodes = copyOf(tripCodes, capacity);
+		stopCodes = copyOf(stopCodes, capacity);
+		arrivals = copyOf(arrivals, capacity);
+		departures = copyOf(departures, capacity);
+		sequences = copyOf(sequences, capacity);
+		headSignCodes = copyOf(headSignCodes, capacity);
+		pickupTypes = copyOf(pickupTypes, capacity);
+		dropOffTypes = copyOf(dropOffTypes, capacity);
+	}
+
+	private IntBuffer copyOf(IntBuffer column, int capacity) {
+		IntBuffer resized = storage.allocateInts(capacity);
+		if (column != null) {
+			resized.put(0, column, 0, Math.min(size, capacity));
+		}
+		return resized;
+	}
+
+	private ByteBuffer copyOf(ByteBuffer column, int capacity) {
+		ByteBuffer resized = storage.allocateBytes(capacity);
+		if (column != null) {
+			resized.put(0, column, 0, Math.min(size, capacity));
+		}
+		return resized;
+	}
+
+	/**
+	 * Copies a column into a new one of the same capacity, with row i taken from row order[i]
+	 */
+	private IntBuffer reorder(IntBuffer column, int[] order) {
+		IntBuffer reordered = storage.allocateInts(column.capacity());
+		for (int row = 0; row < order.length; ++row) {
+			reordered.put(row, column.get(order[row]));
+		}
+		return reordered;
+	}
+
+	private ByteBuffer reorder(ByteBuffer column, int[] order) {
+		ByteBuffer reordered = storage.allocateBytes(column.capacity());
+		for (int row = 0; row < order.length; ++row) {
+			reordered.put(row, column.get(order[row]));
+		}
+		return reordered;
+	}
+
+	/**
+	 * A StopTime that reads and writes one row of the table. Its stop time ID is the row.
+	 */
+	private class Row extends StopTime {
+		private int row;
+
+		Row(int row) {
+			this.row = row;
+		}
+
+		@Override
+		public int getArrivalTime() {
+			return StopTimeTable.this.getArrivalTime(row);
+		}
+
+		@Override
+		public void setArrivalTime(int arrival) {
+			StopTimeTable.this.setArrivalTime(row, arrival);
+		}
+
+		@Override
+		public int getDepartureTime() {
+			return StopTimeTable.this.getDepartureTime(row);
+		}
+
+		@Override
+		public void setDepartureTime(int departure) {
+			StopTimeTable.this.setDepartureTime(row, departure);
+		}
+
+		@Override
+		public int getDropOffTypeValue() {
+			return StopTimeTable.this.getDropOffType(row);
+		}
+
+		@Override
+		public void setDropOffType(int dropOffType) {
+			StopTimeTable.this.setDropOffType(row, dropOffType);
+		}
+
+		@Override
+		public int getPickupTypeValue() {
+			return StopTimeTable.this.getPickupType(row);
+		}
+
+		@Override
+		public void setPickupType(int pickupType) {
+			StopTimeTable.this.setPickupType(row, pickupType);
+		}
+
+		@Override
+		public String getStopHeadSign() {
+			return IDS.decode(StopTimeTable.this.getHeadSignCode(row));
+		}
+
+		@Override
+		public void setStopHeadSign(String stopHeadSign) {
+			StopTimeTable.this.setHeadSignCode(row, IDS.encode(stopHeadSign));
+		}
+
+		@Override
+		public int getStopCode() {
+			return StopTimeTable.this.getStopCode(row);
+		}
+
+		@Override
+		public void setStopID(String stopID) {
+			StopTimeTable.this.setStopCode(row, IDS.encode(stopID));
+		}
+
+		@Override
+		public int getStopSequence() {
+			return StopTimeTable.this.getStopSequence(row);
+		}
+
+		@Override
+		public void setStopSequence(int stopSequence) {
+			StopTimeTable.this.setStopSequence(row, stopSequence);
+		}
+
+		@Override
+		public int getStopTimeID() {
+			return row;
+		}
+
+		@Override
+		void setStopTimeID(int stopTimeID) {
+			throw new UnsupportedOperationException("A row's stop time ID is its position");
+		}
+
+		@Override
+		public int getTripCode() {
+			return StopTimeTable.this.getTripCode(row);
+		}
+
+		@Override
+		public void setTripID(String tripID) {
+			StopTimeTable.this.setTripCode(row, IDS.encode(tripID));
+		}
+	}
+
+}	//end class StopTimeTable
@@ -0,0 +1,119 @@
+/*
+ * This file is part of gtfstransitproject_group5.
+ *
+ * gtfstransitproject_group5 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * gtfstransitproject_group5 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with gtfstransitproject_group5.  If not, see <https://www.gnu.org/licenses/>.
+
+ * Course: CS 2030 031
+ * Fall 2021
+ * GTFS Transit Project
+ * Names: Jonathan Keane, Kevin Paganini, Kyle Senebouttarath
+ * Created: 10/4/2021
+ * Professor: Dr. Wright
+ */
+package gtfs;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A feed-wide dictionary that gives every distinct ID string a dense int code.
+ * This is a Singleton class, so the same ID gets the same code in every GTFS object
+ * and codes can be compared with == instead of String.equals.
+ *
+ * Codes are never removed or reused, so a code stays valid for as long as the program
+ * runs. Encoding is thread-safe so the parallel importers can share the dictionary, and
+ * looking up an ID that is already known doesn't lock.
+ */
+public class StringDictionary {
+	/**
+	 * The code of null (and what find returns for an unknown string)
+	 */
+	public static final int NONE = -1;
+	private static final int INITIAL_CAPACITY = 1 << 12;
+
+	private static final StringDictionary instance = new StringDictionary();
+
+	private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>(INITIAL_CAPACITY);
+	private volatile String[] strings = new String[INITIAL_CAPACITY];
+	private int size;
+
+	private StringDictionary() {
+	}
+
+	/**
+	 * Gets the one and only StringDictionary
+	 * @return The dictionary
+	 */
+	public static StringDictionary getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Gets the code of a string, giving it the next code if it doesn't have one yet
+	 * @param string The string
+	 * @return The code, or NONE if the string is null
+	 */
+	public int encode(String string) {
+		if (string == null) {
+			return NONE;
+		}
+		Integer code = codes.get(string);
+		if (code != null) {
+			return code;
+		}
+		synchronized (this) {
+			code = codes.get(string);
+			if (code != null) {
+				return code;
+			}
+			if (size == strings.length) {
+				strings = Arrays.copyOf(strings, size * 2);
+			}
+			// store the string before the code can be seen
+			strings[size] = string;
+			codes.put(string, size);
+			return size++;
+		}
+	}
+
+	/**
+	 * Gets the code of a string without adding it, for looking things up by ID
+	 * @param string The string
+	 * @return The code, or NONE if the string has never been encoded
+	 */
+	public int find(String string) {
+		if (string == null) {
+			return NONE;
+		}
+		return codes.getOrDefault(string, NONE);
+	}
+
+	/**
+	 * Gets the string of a code
+	 * @param code The code
+	 * @return The string, or null if the code is NONE
+	 */
+	public String decode(int code) {
+		return code == NONE ? null : strings[code];
+	}
+
+	/**
+	 * The number of codes given out, so every code is less than this
+	 * @return The number of codes
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+}	//end class StringDictionary
@@ -23,37 +23,49 @@
  */
 package gtfs;
 
-import java.util.Arrays;
-import java.util.regex.Pattern;
-
 /**
- * A group of static methods to check that Strings are of the correct format to be another type
+ * A group of static methods to check that Strings are of the correct format to be another type.
+ *
+ * The parse methods check a range of a char array and produce the value in the same pass
+ * without allocating. They report a bad value through their return value (INVALID_INT,
+ * INVALID_COLOR or NaN) instead of throwing, so they are cheap enough to run on every
+ * field of every row while importing.
+ *
  * @author keanej
  */
 public class StringValidation {
     /**
-     * Checks that a String is a valid time [HH:mm:ss]
+     * Returned by parseInt and parseNonNegativeInt when the value is not a valid int
+     */
+    public static final long INVALID_INT = Long.MIN_VALUE;
+    /**
+     * Returned by parseColor when the value is not a valid color
+     */
+    public static final int INVALID_COLOR = -1;
+
+    // doubles that can be built exactly as mantissa / 10^digits, see parseCoordinate
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Checks that a String is a valid time [HH:mm:ss] (H:mm:ss is also accepted)
      * @param time The String
      * @return True if a valid time, false otherwise
      */
     public static boolean isValidTime(String time) {
-        String pattern = "\\d{2}:\\d{2}:\\d{2}";
-        boolean flag = false;
-        if (Pattern.matches(pattern, time)) {
-            int[] vals = Arrays.stream(time.split(":")).mapToInt(Integer::parseInt).toArray();
-            flag = vals[0] < 48 && vals[1] < 60 && vals[2] < 60;
-        }
-        return flag;
+        return ServiceTime.parse(time) != ServiceTime.INVALID;
     }
 
     /**
-     * Regex checks that a String is a valid color [6 hex digits]
+     * Checks that a String is a valid color [6 hex digits]
      * @param color The string
      * @return True if the string is a valid color, false otherwise
      */
     public static boolean isValidColor(String color) {
-        String colorPattern = "[0-9a-fA-F]{6}";
-        return Pattern.matches(colorPattern, color);
+        return parseColor(color.toCharArray(), 0, color.length()) != INVALID_COLOR;
     }
 
     /**
@@ -62,8 +74,7 @@ public class StringValidation {
      * @return True if is valid int, false otherwise
      */
     public static boolean isValidInt(String value) {
-        String pattern = "^(\\+|-)?\\d+$";
-        return Pattern.matches(pattern, value);
+        return parseInt(value.toCharArray(), 0, value.length()) != INVALID_INT;
     }
 
     /**
@@ -72,8 +83,7 @@ public class StringValidation {
      * @return True is valid non-negative int, false otherwise
      */
     public static boolean isValidNonNegativeInt(String value) {
-        String pattern = "^\\d+$";
-        return Pattern.matches(pattern, value);
+        return parseNonNegativeInt(value.toCharArray(), 0, value.length()) != INVALID_INT;
     }
 
     /**
@@ -83,12 +93,143 @@ public class StringValidation {
      * @return True if valid coordinate, false otherwise
      */
     public static boolean isValidCoordinate(String value, boolean isLatitude) {
-        String pattern = "^[-+]?[0-9]*\\.?[0-9]+$";
-        double limit = isLatitude ? 90.0 : 180.0;
-        if (Pattern.matches(pattern, value)) {
-            double doubleVal = Double.parseDouble(value);
-            return doubleVal <= limit && doubleVal >= -limit;
+        return !Double.isNaN(parseCoordinate(value.toCharArray(), 0, value.length(), isLatitude));
+    }
+
+    /**
+     * Parses an int [optional sign followed by digits]
+     * @param chars The characters
+     * @param start The index of the first character
+     * @param end The index just past the last character
+     * @return The value, or INVALID_INT if it is not a valid int
+     */
+    public static long parseInt(char[] chars, int start, int end) {
+        if (start == end) {
+            return INVALID_INT;
+        }
+        boolean negative = chars[start] == '-';
+        if (negative || chars[start] == '+') {
+            ++start;
+        }
+        long value = parseDigits(chars, start, end);
+        if (value == INVALID_INT || (!negative && value > Integer.MAX_VALUE)) {
+            return INVALID_INT;
         }
-        return false;
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses a non-negative int [digits only]
+     * @param chars The characters
+     * @param start The index of the first character
+     * @param end The index just past the last character
+     * @return The value, or INVALID_INT if it is not a valid non-negative int
+     */
+    public static long parseNonNegativeInt(char[] chars, int start, int end) {
+        long value = parseDigits(chars, start, end);
+        return value > Integer.MAX_VALUE ? INVALID_INT : value;
+    }
+
+    /**
+     * Parses digits up to the size of the most negative int
+     * @param chars The characters
+     * @param start The index of the first character
+     * @param end The index just past the last character
+     * @return The value, or INVALID_INT if there are no digits, a non-digit, or the value is too big
+     */
+    private static long parseDigits(char[] chars, int start, int end) {
+        if (start == end) {
+            return INVALID_INT;
+        }
+        long value = 0;
+        for (int i = start; i < end; ++i) {
+            int digit = chars[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return INVALID_INT;
+            }
+            value = value * 10 + digit;
+            if (value > Integer.MAX_VALUE + 1L) {
+                return INVALID_INT;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Parses a color [6 hex digits]
+     * @param chars The characters
+     * @param start The index of the first character
+     * @param end The index just past the last character
+     * @return The color as 0xRRGGBB, or INVALID_COLOR if it is not a valid color
+     */
+    public static int parseColor(char[] chars, int start, int end) {
+        if (end - start != 6) {
+            return INVALID_COLOR;
+        }
+        int color = 0;
+        for (int i = start; i < end; ++i) {
+            int digit = Character.digit(chars[i], 16);
+            if (digit < 0) {
+                return INVALID_COLOR;
+            }
+            color = color << 4 | digit;
+        }
+        return color;
+    }
+
+    /**
+     * Parses a coordinate [optional sign, digits, optional decimal point and digits]
+     * @param chars The characters
+     * @param start The index of the first character
+     * @param end The index just past the last character
+     * @param isLatitude If this is a latitude (within 90) or a longitude (within 180)
+     * @return The coordinate, or NaN if it is not a valid coordinate
+     */
+    public static double parseCoordinate(char[] chars, int start, int end, boolean isLatitude) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+            negative = chars[i] == '-';
+            ++i;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean seenPoint = false;
+        boolean exact = true;
+        for (; i < end; ++i) {
+            char c = chars[i];
+            if (c == '.' && !seenPoint) {
+                seenPoint = true;
+            } else if (c >= '0' && c <= '9') {
+                ++digits;
+                if (seenPoint) {
+                    ++fractionDigits;
+                }
+                if (mantissa < MAX_EXACT_MANTISSA / 10) {
+                    mantissa = mantissa * 10 + (c - '0');
+                } else {
+                    exact = false;
+                }
+            } else {
+                return Double.NaN;
+            }
+        }
+        // digits are required after a decimal point
+        if (digits == 0 || (seenPoint && chars[end - 1] == '.')) {
+            return Double.NaN;
+        }
+        double value;
+        if (exact && fractionDigits < POWERS_OF_TEN.length) {
+            // both numbers are exact doubles, so the one division rounds correctly
+            value = mantissa / POWERS_OF_TEN[fractionDigits];
+        } else {
+            value = Math.abs(Double.parseDouble(new String(chars, start, end - start)));
+        }
+        if (negative) {
+            value = -value;
+        }
+        double limit = isLatitude ? 90.0 : 180.0;
+        return value <= limit && value >= -limit ? value : Double.NaN;
     }
 }
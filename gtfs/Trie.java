@@ -184,6 +184,27 @@ public class Trie<E> implements Iterable<E> {       //TODO: Possible Collection
         private Node<E> getChild(char childChar) {
             return this.children[(int)childChar - (int)Trie.CHILD_START_IND];
         }
+
+        /**
+         * Removes the child of a node based on a child character
+         * @param childChar The child character
+         */
+        private void removeChild(char childChar) {
+            this.children[(int)childChar - (int)Trie.CHILD_START_IND] = null;
+        }
+
+        /**
+         * If the node has any children
+         * @return True if it has at least one child, false otherwise
+         */
+        private boolean hasChildren() {
+            for (Node<E> child: children) {
+                if (child != null) {
+                    return true;
+                }
+            }
+            return false;
+        }
     }
 
     /**
@@ -225,6 +246,40 @@ public class Trie<E> implements Iterable<E> {       //TODO: Possible Collection
         }
     }
 
+    /**
+     * Removes a key from the trie, along with any nodes left without a value or children
+     * (the iterator expects every leaf to hold a value)
+     * @param key The key
+     * @return The value that was stored at the key, null if the key wasn't in the trie
+     */
+    public E removeKey(String key) {
+        // remember the path so empty nodes can be pruned on the way back up
+        ArrayList<Node<E>> path = new ArrayList<>(key.length() + 1);
+        Node<E> curr = root;
+        path.add(curr);
+        for (char c: key.toCharArray()) {
+            curr = curr.getChild(c);
+            if (curr == null) {
+                return null;
+            }
+            path.add(curr);
+        }
+        E value = curr.value;
+        if (value == null) {
+            return null;
+        }
+        curr.value = null;
+        --size;
+        for (int i = key.length(); i > 0; --i) {
+            Node<E> node = path.get(i);
+            if (node.value != null || node.hasChildren()) {
+                break;
+            }
+            path.get(i - 1).removeChild(key.charAt(i - 1));
+        }
+        return value;
+    }
+
     /**
      * Gets value of node at a given key's node
      * @param key The key
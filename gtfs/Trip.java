@@ -26,9 +26,11 @@ package gtfs;
 import java.util.ArrayList;
 import java.lang.Math;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Class representing a GTFS Trip
@@ -63,14 +65,31 @@ public class Trip implements GTFSObject {
 					"Shape ID"
 			};
 
+	/**
+	 * The value of a direction ID that is not given
+	 */
+	public static final int ABSENT = -1;
+
+	// the stop time count of a trip whose stop times haven't been looked up yet
+	private static final int UNLOADED = -1;
+
 	private String blockID;
-	private Optional<Integer> directionID;
-	private String routeID;
-	private String serviceID;
-	private String shapeID;
+	private int directionID;
+	private int routeCode;
+	private int serviceCode;
+	private int shapeCode;
+	// a trip's stop times are usually a run of rows (see StopTimeTable.sortByTripAndSequence),
+	// which is kept as its first row and length until a list of them is asked for
 	private ArrayList<Integer> stopTimeIDs;
+	private int firstStopTimeID;
+	private int stopTimeCount;
 	private String tripHeadSign;
-	private final String tripID;
+	private final int tripCode;
+	// worked out when first asked for, NaN until then (see forgetDistance)
+	private double distance = Double.NaN;
+	private double speed = Double.NaN;
+
+	private static final StringDictionary IDS = StringDictionary.getInstance();
 
 	Database GTFS = Database.getInstance();
 
@@ -81,16 +100,25 @@ public class Trip implements GTFSObject {
 				String shapeID,
 				String tripHeadSign,
 				String tripID) {
-		this.blockID = blockID;
-		this.directionID = directionID;
-		this.routeID = routeID;
-		this.serviceID = serviceID;
-		this.shapeID = shapeID;
-		this.tripHeadSign = tripHeadSign;
-		this.tripID = tripID;
-		this.stopTimeIDs = new ArrayList<>();
+		this(	blockID,
+				directionID.orElse(ABSENT),
+				routeID,
+				serviceID,
+				shapeID,
+				tripHeadSign,
+				tripID);
 	}
 
+	/**
+	 * Creates a trip
+	 * @param blockID The block ID
+	 * @param directionID The direction ID, or ABSENT if there isn't one
+	 * @param routeID The route ID
+	 * @param serviceID The service ID
+	 * @param shapeID The shape ID
+	 * @param tripHeadSign The trip headsign
+	 * @param tripID The trip ID
+	 */
 	public Trip(String blockID,
 				int directionID,
 				String routeID,
@@ -98,13 +126,13 @@ public class Trip implements GTFSObject {
 				String shapeID,
 				String tripHeadSign,
 				String tripID) {
-		this(	blockID,
-				Optional.of(directionID),
-				routeID,
-				serviceID,
-				shapeID,
-				tripHeadSign,
-				tripID);
+		this.blockID = blockID;
+		this.directionID = directionID;
+		this.routeCode = IDS.encode(routeID);
+		this.serviceCode = IDS.encode(serviceID);
+		this.shapeCode = IDS.encode(shapeID);
+		this.tripHeadSign = tripHeadSign;
+		this.tripCode = IDS.encode(tripID);
 	}
 
 	/**
@@ -117,8 +145,8 @@ public class Trip implements GTFSObject {
 	public Trip(String[] tripsFileColumnValues) {
 		this(	tripsFileColumnValues[5],
 				tripsFileColumnValues[4].isEmpty() ?
-						Optional.empty() :
-						Optional.of(Integer.parseInt(tripsFileColumnValues[4])),
+						ABSENT :
+						Integer.parseInt(tripsFileColumnValues[4]),
 				tripsFileColumnValues[0],
 				tripsFileColumnValues[1],
 				tripsFileColumnValues[6],
@@ -127,66 +155,14 @@ public class Trip implements GTFSObject {
 	}
 
 	/**
-	 * Updates the trip's stop time list by checking through the database.
-	 * This should be done everytime stop times or trips are updated.
+	 * Finds the stop at one of the trip's stop times
 	 *
-	 * @author Kyle S
+	 * @param stopTimes The stop times
+	 * @param index The stop time's position in the trip
+	 * @return The stop, or null if it isn't loaded
 	 */
-	private void updateStopTimeList() {
-		stopTimeIDs = new ArrayList<>();
-		for (StopTime stopTime : GTFS.getStopTimes()) {
-			if (stopTime.getTripID().equals(this.tripID)) {
-				stopTimeIDs.add(stopTime.getStopTimeID());
-			}
-		}
-	}
-
-	/**
-	 * Helper method to get a stop time object via its stop
-	 * time ID.
-	 *
-	 * @param stopTimeId The stop time id
-	 * @return The respective stop time object
-	 * @author Kyle S
-	 */
-	private StopTime getStopTimeByStopTimeId(int stopTimeId) {
-		for (StopTime stopTime : GTFS.getStopTimes()) {
-			if (stopTime.getStopTimeID() == stopTimeId) {
-				return stopTime;
-			}
-		}
-		return null;
-	}
-
-	/**
-	 * Helper method to get a stop object via its stop ID.
-	 *
-	 * @param stopId The stop's id
-	 * @return The respective stop object
-	 * @author Kyle S
-	 */
-	private Stop getStopByStopId(String stopId) {
-		for (Stop stop : GTFS.getStops()) {
-			if (stop.getStopID().equals(stopId)) {
-				return stop;
-			}
-		}
-		return null;
-	}
-
-	/**
-	 * Gets the stop from a stop time parameter, even if the parameter
-	 * is null.
-	 *
-	 * @param stopTime The stop time object (can be null)
-	 * @return The stop or null
-	 * @author Kyle S
-	 */
-	private Stop getStopFromStopTime(StopTime stopTime) {
-		if (stopTime == null) {
-			return null;
-		}
-		return getStopByStopId(stopTime.getStopID());
+	private Stop getStopAt(StopTimeTable stopTimes, int index) {
+		return GTFS.getStops().getValue(IDS.decode(stopTimes.getStopCode(getStopTimeID(index))));
 	}
 
 	/**
@@ -198,47 +174,61 @@ public class Trip implements GTFSObject {
 	 * the total distance. The very first and last stop times are
 	 * connected.
 	 *
+	 * If the trip's shape is in shapes.txt, the distance is measured
+	 * along the shape instead, so it follows the road between stops.
+	 *
 	 * @return The total distance for the given trip, in miles.
 	 * 			The value will be -1.0 if it couldn't be calculated.
 	 *
 	 * @author Kyle S, Kevin P
 	 */
 	public double getTripDistance() {
+		if (Double.isNaN(distance)) {
+			distance = measureDistance();
+		}
+		return distance;
+	}
+
+	/**
+	 * Works out the trip distance, going through the trip's stop times once
+	 *
+	 * @return The distance in miles, or -1.0 if it couldn't be calculated
+	 */
+	private double measureDistance() {
 
 		double returnDist = -1.0;
 
-		updateStopTimeList();
+		double shapeDist = getShapeDistance();
+		if (shapeDist > 0) {
+			return shapeDist;
+		}
 
 		double totalDist = 0;
 
-		for (int i = 0; i < getStopTimeIDs().size(); i++) {
-			int nextIndex = i + 1;
-
-			if (nextIndex < getStopTimeIDs().size()) {
-				Stop startStop = getStopFromStopTime(getStopTimeByStopTimeId(getStopTimeIDs().get(i)));
-				Stop endStop = getStopFromStopTime(getStopTimeByStopTimeId(getStopTimeIDs().get(nextIndex)));
-
-				if (startStop != null && endStop != null) {
-					double lon1 = startStop.getLongitude();
-					double lon2 = endStop.getLongitude();
-					double lat1 = startStop.getLatitude();
-					double lat2 = endStop.getLatitude();
-
-					double theta = lon1 - lon2;
-					double dist = Math.sin(Math.toRadians(lat1)) * Math.sin(Math.toRadians(lat2)) +
-							Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.cos(Math.toRadians(theta)
-							);
-					dist = Math.acos(dist);
-					dist = Math.toDegrees(dist);
-					dist = dist * 60 * 1.1515;
-
-					totalDist += dist;
-				}
+		StopTimeTable stopTimes = GTFS.getStopTimes();
+		Stop startStop = getStopTimeCount() > 0 ? getStopAt(stopTimes, 0) : null;
+		for (int i = 1; i < getStopTimeCount(); i++) {
+			Stop endStop = getStopAt(stopTimes, i);
+
+			if (startStop != null && endStop != null) {
+				double lon1 = startStop.getLongitude();
+				double lon2 = endStop.getLongitude();
+				double lat1 = startStop.getLatitude();
+				double lat2 = endStop.getLatitude();
+
+				double theta = lon1 - lon2;
+				double dist = Math.sin(Math.toRadians(lat1)) * Math.sin(Math.toRadians(lat2)) +
+						Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.cos(Math.toRadians(theta)
+						);
+				dist = Math.acos(dist);
+				dist = Math.toDegrees(dist);
+				dist = dist * 60 * 1.1515;
+
+				totalDist += dist;
 			}
+			startStop = endStop;
 		}
 
-		//System.out.println(getStopTimeIDs());
-
 		if (totalDist > 0) {
 			returnDist = totalDist;
 		}
@@ -246,6 +236,25 @@ public class Trip implements GTFSObject {
 		return returnDist;
 	}
 
+	/**
+	 * The distance along the trip's shape from its first stop to its last
+	 * @return The distance in miles, or -1.0 if the trip has no shape or no stops with locations
+	 */
+	private double getShapeDistance() {
+		ShapeTable shapes = GTFS.getShapes();
+		if (!shapes.hasShape(shapeCode) || getStopTimeCount() == 0) {
+			return -1.0;
+		}
+		StopTimeTable stopTimes = GTFS.getStopTimes();
+		Stop first = getStopAt(stopTimes, 0);
+		Stop last = getStopAt(stopTimes, getStopTimeCount() - 1);
+		if (first == null || last == null) {
+			return -1.0;
+		}
+		return shapes.getDistanceAlong(shapeCode, first.getLatitude(), first.getLongitude(),
+				last.getLatitude(), last.getLongitude());
+	}
+
 	/**
 	 * Gets column values of the Trip
 	 * @return The column values of the Trip
@@ -254,13 +263,13 @@ public class Trip implements GTFSObject {
 	public String[] getColumnValues() {
 		return new String[]
 				{
-					routeID,
-					serviceID,
-					tripID,
+					getRouteID(),
+					getServiceID(),
+					getTripID(),
 					tripHeadSign,
-					directionID.map(integer -> "" + integer).orElse(""),
+					hasDirectionID() ? Integer.toString(directionID) : "",
 					blockID,
-					shapeID
+					getShapeID()
 			};
 	}
 
@@ -272,36 +281,86 @@ public class Trip implements GTFSObject {
 		this.blockID = blockID;
 	}
 
+	/**
+	 * The direction ID as an Optional, for code that still works with Optionals
+	 * (getDirectionIDValue doesn't create anything)
+	 * @return The direction ID, if there is one
+	 */
 	public Optional<Integer> getDirectionID() {
+		return hasDirectionID() ? Optional.of(directionID) : Optional.empty();
+	}
+
+	/**
+	 * If the trip has a direction ID
+	 * @return True if there is a direction ID, false otherwise
+	 */
+	public boolean hasDirectionID() {
+		return directionID != ABSENT;
+	}
+
+	/**
+	 * The direction ID
+	 * @return The direction ID, or ABSENT if there isn't one
+	 */
+	public int getDirectionIDValue() {
 		return directionID;
 	}
 
+	/**
+	 * Sets the direction ID
+	 * @param directionID The direction ID, or ABSENT to clear it
+	 */
 	public void setDirectionID(int directionID) {
-		this.directionID = Optional.of(directionID);
+		this.directionID = directionID;
 	}
 
 	public String getRouteID() {
-		return routeID;
+		return IDS.decode(routeCode);
 	}
 
 	public void setRouteID(String routeID) {
-		this.routeID = routeID;
+		this.routeCode = IDS.encode(routeID);
+	}
+
+	/**
+	 * The route ID's code in the StringDictionary
+	 * @return The route code
+	 */
+	public int getRouteCode() {
+		return routeCode;
 	}
 
 	public String getServiceID() {
-		return serviceID;
+		return IDS.decode(serviceCode);
 	}
 
 	public void setServiceID(String serviceID) {
-		this.serviceID = serviceID;
+		this.serviceCode = IDS.encode(serviceID);
+	}
+
+	/**
+	 * The service ID's code in the StringDictionary
+	 * @return The service code
+	 */
+	public int getServiceCode() {
+		return serviceCode;
 	}
 
 	public String getShapeID() {
-		return shapeID;
+		return IDS.decode(shapeCode);
 	}
 
 	public void setShapeID(String shapeID) {
-		this.shapeID = shapeID;
+		this.shapeCode = IDS.encode(shapeID);
+		forgetDistance();
+	}
+
+	/**
+	 * The shape ID's code in the StringDictionary
+	 * @return The shape code
+	 */
+	public int getShapeCode() {
+		return shapeCode;
 	}
 
 	public String getTripHeadSign() {
@@ -313,24 +372,90 @@ public class Trip implements GTFSObject {
 	}
 
 	public String getTripID() {
-		return tripID;
+		return IDS.decode(tripCode);
+	}
+
+	/**
+	 * The trip ID's code in the StringDictionary
+	 * @return The trip code
+	 */
+	public int getTripCode() {
+		return tripCode;
 	}
 
 	/**
-	 * Adds a stop time to a trip based on its unique stop time ID
+	 * Adds a stop time to a trip based on its unique stop time ID. While the stop times are
+	 * added in row order one after another, they are only counted.
 	 * @param stopTimeId The stop time's stop time ID
 	 */
 	public void addStopTimeToTrip(int stopTimeId) {
-		getStopTimeIDs().add(stopTimeId);
+		forgetDistance();
+		if (stopTimeIDs == null && stopTimeCount == 0) {
+			firstStopTimeID = stopTimeId;
+			stopTimeCount = 1;
+		} else if (stopTimeIDs == null && stopTimeCount != UNLOADED
+				&& stopTimeId == firstStopTimeID + stopTimeCount) {
+			++stopTimeCount;
+		} else {
+			getStopTimeIDs().add(stopTimeId);
+		}
 	}
 
+	/**
+	 * The IDs of the trip's stop times. In a lazily loaded feed (see LazyStopTimeTable)
+	 * the trip's stop times are read from the file the first time this is called.
+	 * The list can be changed, so asking for it turns a run of rows into a list; use
+	 * getStopTimeCount and getStopTimeID to only read them.
+	 * @return The stop time IDs
+	 */
 	public ArrayList<Integer> getStopTimeIDs() {
+		if (stopTimeIDs == null) {
+			if (stopTimeCount == UNLOADED) {
+				stopTimeIDs = GTFS.getStopTimes().getTripRows(tripCode);
+			} else {
+				stopTimeIDs = new ArrayList<>(stopTimeCount);
+				for (int i = 0; i < stopTimeCount; ++i) {
+					stopTimeIDs.add(firstStopTimeID + i);
+				}
+			}
+		}
 		return stopTimeIDs;
 	}
 
+	/**
+	 * The number of stop times the trip has, without making a list of them
+	 * @return The number of stop times
+	 */
+	public int getStopTimeCount() {
+		return stopTimeIDs == null && stopTimeCount != UNLOADED ? stopTimeCount : getStopTimeIDs().size();
+	}
+
+	/**
+	 * One of the trip's stop time IDs, without making a list of them
+	 * @param index The stop time's position in the trip, from 0 to getStopTimeCount
+	 * @return The stop time ID
+	 */
+	public int getStopTimeID(int index) {
+		if (stopTimeIDs == null && stopTimeCount != UNLOADED) {
+			Objects.checkIndex(index, stopTimeCount);
+			return firstStopTimeID + index;
+		}
+		return getStopTimeIDs().get(index);
+	}
+
+	/**
+	 * Forgets the trip's stop time IDs, so they are looked up the next time they are asked for
+	 */
+	void unloadStopTimeIDs() {
+		stopTimeIDs = null;
+		stopTimeCount = UNLOADED;
+		forgetDistance();
+	}
+
 	public List<String> getStopIDs() {
-		return getStopTimeIDs().stream().map(stopTime ->
-				Database.getInstance().getStopTimes().get(stopTime).getStopID()).collect(Collectors.toList());
+		StopTimeTable stopTimes = Database.getInstance().getStopTimes();
+		return IntStream.range(0, getStopTimeCount()).mapToObj(i ->
+				IDS.decode(stopTimes.getStopCode(getStopTimeID(i)))).collect(Collectors.toList());
 	}
 
 	/**
@@ -339,22 +464,42 @@ public class Trip implements GTFSObject {
 	 * @author Kevin
 	 */
 	public double getAvgTripSpeed() {
+		if (Double.isNaN(speed)) {
+			speed = measureSpeed();
+		}
+		return speed;
+	}
+
+	/**
+	 * Works out the average trip speed from the trip distance and the times of its
+	 * first and last stop times
+	 *
+	 * @return The speed in miles per hour, or -1 if the trip has fewer than 2 stop times
+	 */
+	private double measureSpeed() {
 		double cookie = 0;
-		updateStopTimeList();
-		ArrayList<Integer> stopTimeIDs = getStopTimeIDs();
-		if (stopTimeIDs.size() < 2) {
+		if (getStopTimeCount() < 2) {
 			cookie = -1;
 			return cookie;
 		}
-		StopTime startStopTime = this.getStopTimeByStopTimeId(stopTimeIDs.get(0));
-		StopTime endStopTime = this.getStopTimeByStopTimeId(stopTimeIDs.get(stopTimeIDs.size() - 1));
-		long startDate = startStopTime.getArrival().getTime();
-		long endDate = endStopTime.getArrival().getTime();
-		long timeDifference = endDate - startDate; // in ms
-		double timeDifInMin = TimeUnit.MILLISECONDS.toMinutes(timeDifference);
+		StopTimeTable stopTimes = GTFS.getStopTimes();
+		long startTime = stopTimes.getArrivalTime(getStopTimeID(0));
+		long endTime = stopTimes.getArrivalTime(getStopTimeID(getStopTimeCount() - 1));
+		long timeDifference = endTime - startTime; // in seconds
+		double timeDifInMin = TimeUnit.SECONDS.toMinutes(timeDifference);
 		double timeDifInHours = timeDifInMin / 60.0;
 		double avgSpeed = this.getTripDistance() / timeDifInHours;
 		cookie = avgSpeed;
 		return cookie;
 	}
+
+	/**
+	 * Forgets the trip's distance and speed, so they are worked out again the next time
+	 * they are asked for. This is done whenever the trip's stop times or the locations
+	 * of its stops change.
+	 */
+	void forgetDistance() {
+		distance = Double.NaN;
+		speed = Double.NaN;
+	}
 }
\ No newline at end of file
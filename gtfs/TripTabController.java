@@ -121,7 +121,7 @@ public class TripTabController {
                                     break;
                                 case "Direction ID":
                                     try {
-                                        if (StringValidation.isValidInt(val)) {
+                                        if (StringValidation.isValidNonNegativeInt(val)) {
                                             int id = Integer.parseInt(val);
                                             trip.setDirectionID(id);
                                             valueLabel.setText(val);
@@ -166,7 +166,7 @@ public class TripTabController {
                             propertiesIndex),
                     0,
                     propertiesIndex);
-            if (trip.getStopTimeIDs().size() > 2) {
+            if (trip.getStopTimeCount() > 2) {
                 propertiesGrid.add(
                         GUIDefaultElements.getGridCellLabel(
                                 Double.toString(trip.getTripDistance()) + " miles",
@@ -206,7 +206,7 @@ public class TripTabController {
                     propertiesIndex);
             propertiesGrid.add(
                     GUIDefaultElements.getGridCellLabel(
-                            trip.getStopTimeIDs().size() + " stops times",
+                            trip.getStopTimeCount() + " stops times",
                             propertiesIndex),
                     1,
                     propertiesIndex);
@@ -0,0 +1,269 @@
+/*
+ * This file is part of gtfstransitproject_group5.
+ *
+ * gtfstransitproject_group5 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * gtfstransitproject_group5 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with gtfstransitproject_group5.  If not, see <https://www.gnu.org/licenses/>.
+
+ * Course: CS 2030 031
+ * Fall 2021
+ * GTFS Transit Project
+ * Names: Jonathan Keane, Kevin Paganini, Kyle Senebouttarath
+ * Created: 10/4/2021
+ * Professor: Dr. Wright
+ */
+package gtfs;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collects the rows that failed validation during an import, so the import can keep
+ * going and report everything once at the end.
+ *
+ * Every error is counted by type, but only the first MAX_RETAINED are kept in memory.
+ * Past that the errors are written to a temporary file instead, so the full log can
+ * still be saved with writeTo however many rows were bad. All methods are thread-safe.
+ */
+public class ValidationErrorLog {
+	/**
+	 * The number of errors kept in memory
+	 */
+	public static final int MAX_RETAINED = 10000;
+
+	/**
+	 * The kinds of validation errors
+	 */
+	public enum ErrorType {
+		MISSING_VALUE("Missing required value"),
+		INVALID_NUMBER("Not a valid integer"),
+		INVALID_COORDINATE("Not a valid coordinate"),
+		INVALID_COLOR("Not a valid color"),
+		INVALID_TIME("Not a valid time"),
+		INVALID_DATE("Not a valid date"),
+		TOO_MANY_COLUMNS("More values than headers"),
+		INVALID_HEADER("Header is missing a required column");
+
+		private final String description;
+
+		ErrorType(String description) {
+			this.description = description;
+		}
+
+		public String getDescription() {
+			return description;
+		}
+	}
+
+	/**
+	 * One validation error
+	 */
+	public static class Error {
+		private final String file;
+		private final long row;
+		private final String column;
+		private final ErrorType type;
+
+		public Error(String file, long row, String column, ErrorType type) {
+			this.file = file;
+			this.row = row;
+			this.column = column;
+			this.type = type;
+		}
+
+		public String getFile() {
+			return file;
+		}
+
+		public long getRow() {
+			return row;
+		}
+
+		public String getColumn() {
+			return column;
+		}
+
+		public ErrorType getType() {
+			return type;
+		}
+
+		@Override
+		public String toString() {
+			return file + " line " + row + (column.isEmpty() ? "" : " [" + column + "]") + ": " + type.getDescription();
+		}
+	}
+
+	/**
+	 * Where the row parsers report a rejected row
+	 */
+	public interface RowErrors {
+		/**
+		 * Reports that a row was rejected
+		 * @param row The row (line) number in the file
+		 * @param column The column that was not valid ("" if it is the whole row)
+		 * @param type What was wrong
+		 */
+		void reject(long row, String column, ErrorType type);
+	}
+
+	private final long[] counts = new long[ErrorType.values().length];
+	private final List<Error> retained = new ArrayList<>();
+	private long total;
+	private File spillFile;
+	private Writer spill;
+
+	/**
+	 * Records an error
+	 * @param file The GTFS file name
+	 * @param row The row (line) number in the file
+	 * @param column The column that was not valid ("" if it is the whole row)
+	 * @param type What was wrong
+	 */
+	public synchronized void record(String file, long row, String column, ErrorType type) {
+		++counts[type.ordinal()];
+		++total;
+		Error error = new Error(file, row, column, type);
+		if (spill == null && retained.size() < MAX_RETAINED) {
+			retained.add(error);
+			return;
+		}
+		try {
+			if (spill == null) {
+				spillFile = File.createTempFile("gtfs-validation", ".log");
+				spillFile.deleteOnExit();
+				spill = new BufferedWriter(Files.newBufferedWriter(spillFile.toPath(), StandardCharsets.UTF_8));
+				for (Error kept : retained) {
+					spill.write(kept + "\n");
+				}
+			}
+			spill.write(error + "\n");
+		} catch (IOException ioException) {
+			// the error is still counted, it just won't be in the saved log
+			System.out.println("Could not write validation log: " + ioException.getMessage());
+		}
+	}
+
+	/**
+	 * Gets the RowErrors for one file, which records straight into this log
+	 * @param file The GTFS file name
+	 * @return The RowErrors
+	 */
+	public RowErrors forFile(String file) {
+		return (row, column, type) -> record(file, row, column, type);
+	}
+
+	/**
+	 * The number of errors of a type
+	 * @param type The error type
+	 * @return The number of errors
+	 */
+	public synchronized long getCount(ErrorType type) {
+		return counts[type.ordinal()];
+	}
+
+	/**
+	 * The number of errors of all types
+	 * @return The number of errors
+	 */
+	public synchronized long getTotalCount() {
+		return total;
+	}
+
+	/**
+	 * If there are no errors
+	 * @return True if there are no errors, false otherwise
+	 */
+	public synchronized boolean isEmpty() {
+		return total == 0;
+	}
+
+	/**
+	 * The first errors, up to MAX_RETAINED
+	 * @return The retained errors in the order they were recorded
+	 */
+	public synchronized List<Error> getRetained() {
+		return Collections.unmodifiableList(new ArrayList<>(retained));
+	}
+
+	/**
+	 * A short summary of the errors for showing to the user
+	 * @param examples The most errors to list individually
+	 * @return The summary
+	 */
+	public synchronized String getSummary(int examples) {
+		StringBuilder summary = new StringBuilder();
+		summary.append(total).append(total == 1 ? " row was" : " rows were").append(" skipped:\n");
+		for (ErrorType type : ErrorType.values()) {
+			if (counts[type.ordinal()] > 0) {
+				summary.append("\t").append(type.getDescription()).append(": ")
+						.append(counts[type.ordinal()]).append("\n");
+			}
+		}
+		int listed = Math.min(examples, retained.size());
+		if (listed > 0) {
+			summary.append("\n");
+			for (int i = 0; i < listed; ++i) {
+				summary.append(retained.get(i)).append("\n");
+			}
+			if (total > listed) {
+				summary.append("... and ").append(total - listed).append(" more\n");
+			}
+		}
+		return summary.toString();
+	}
+
+	/**
+	 * Writes every error to a file, one per line
+	 * @param file The file to write
+	 * @throws IOException if the file could not be written
+	 */
+	public synchronized void writeTo(File file) throws IOException {
+		if (spill != null) {
+			spill.flush();
+			Files.copy(spillFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} else {
+			try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+				for (Error error : retained) {
+					out.write(error + "\n");
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes all errors and deletes the temporary file if there is one
+	 */
+	public synchronized void clear() {
+		if (spill != null) {
+			try {
+				spill.close();
+			} catch (IOException ioException) {
+				System.out.println("Could not close validation log: " + ioException.getMessage());
+			}
+			spillFile.delete();
+			spill = null;
+			spillFile = null;
+		}
+		retained.clear();
+		total = 0;
+		java.util.Arrays.fill(counts, 0);
+	}
+
+}	//end class ValidationErrorLog
@@ -0,0 +1,359 @@
+/*
+ * This file is part of gtfstransitproject_group5.
+ *
+ * gtfstransitproject_group5 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * gtfstransitproject_group5 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with gtfstransitproject_group5.  If not, see <https://www.gnu.org/licenses/>.
+
+ * Course: CS 2030 031
+ * Fall 2021
+ * GTFS Transit Project
+ * Names: Jonathan Keane, Kevin Paganini, Kyle Senebouttarath
+ * Created: 10/4/2021
+ * Professor: Dr. Wright
+ */
+package gtfs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Imports a zipped GTFS feed without extracting it.
+ *
+ * Each entry is decompressed as a stream and tokenized as it is read, so the feed never
+ * touches the disk uncompressed. Entries are routed to their parser by file name, and
+ * since the four files don't depend on each other they are read in parallel (ZipFile
+ * gives every entry its own inflater).
+ */
+public class ZipFeedImporter {
+
+	/**
+	 * Parses one row of a GTFS file
+	 * @param <T> The GTFS object type
+	 */
+	private interface RowParser<T> {
+		/**
+		 * @param row The tokenizer positioned on a row
+		 * @param binding The binding compiled from the file's header
+		 * @param index The number of objects parsed so far from the file
+		 * @param errors Where to report the row if it is not valid
+		 * @return The object, or null if the row is not valid
+		 */
+		T parse(CsvTokenizer row, ColumnBinding binding, int index, ValidationErrorLog.RowErrors errors);
+	}
+
+	/**
+	 * Parses one row of a GTFS file and keeps it
+	 */
+	private interface RowConsumer {
+		/**
+		 * @param row The tokenizer positioned on a row
+		 * @param binding The binding compiled from the file's header
+		 * @param errors Where to report the row if it is not valid
+		 * @return True if the row was valid, false otherwise
+		 */
+		boolean accept(CsvTokenizer row, ColumnBinding binding, ValidationErrorLog.RowErrors errors);
+	}
+
+	private final File zip;
+	private final ValidationErrorLog errorLog;
+	private final ImportProgress progress;
+
+	private List<Stop> stops = new ArrayList<>();
+	private List<Route> routes = new ArrayList<>();
+	private List<Trip> trips = new ArrayList<>();
+	private StopTimeTable stopTimes = new StopTimeTable();
+	private ShapeTable shapes = ShapeTable.EMPTY;
+
+	private final Map<String, Integer> invalidRowCounts = Collections.synchronizedMap(new HashMap<>());
+	private final List<String> invalidHeaderFiles = Collections.synchronizedList(new ArrayList<>());
+	private final List<String> missingFiles = new ArrayList<>();
+
+	/**
+	 * Creates an importer for a zipped feed
+	 * @param zip The zip file
+	 * @param errorLog Where to record the rows that are not valid
+	 * @param progress Where to report the bytes and rows parsed, which is also checked for cancellation
+	 */
+	public ZipFeedImporter(File zip, ValidationErrorLog errorLog, ImportProgress progress) {
+		this.zip = zip;
+		this.errorLog = errorLog;
+		this.progress = progress;
+	}
+
+	/**
+	 * Reads the stops, routes, trips and stop times from the zip, and the shapes if it has shapes.txt
+	 * @return True if all four files were found with valid headers, false otherwise
+	 * @throws IOException if the zip could not be read
+	 * @throws java.util.concurrent.CancellationException if the import was cancelled
+	 */
+	public boolean importFeed() throws IOException {
+		try (ZipFile zipFile = new ZipFile(zip, StandardCharsets.UTF_8)) {
+			Map<String, ZipEntry> entries = entriesByFileName(zipFile);
+			for (String fileName : FeedParser.FILE_NAMES) {
+				if (!entries.containsKey(fileName)) {
+					missingFiles.add(fileName);
+				}
+			}
+			if (!missingFiles.isEmpty()) {
+				return false;
+			}
+			for (String fileName : FeedParser.FILE_NAMES) {
+				// the uncompressed size, since that is what gets counted
+				progress.addTotalBytes(Math.max(0, entries.get(fileName).getSize()));
+			}
+			ZipEntry shapesEntry = entries.get(FeedParser.SHAPES_FILE);
+			if (shapesEntry != null) {
+				progress.addTotalBytes(Math.max(0, shapesEntry.getSize()));
+			}
+
+			ExecutorService executor = Executors.newFixedThreadPool(
+					Math.min(FeedParser.FILE_NAMES.length, Runtime.getRuntime().availableProcessors()));
+			try {
+				// stop times are by far the biggest, so start them first, then shapes
+				Future<StopTimeTable> stopTimesFuture = executor.submit(() -> parseStopTimes(zipFile,
+						entries.get(FeedParser.STOP_TIMES_FILE)));
+				Future<ShapeTable> shapesFuture = shapesEntry == null ? null :
+						executor.submit(() -> parseShapes(zipFile, shapesEntry));
+				Future<List<Stop>> stopsFuture = executor.submit(() -> parseEntry(zipFile,
+						entries.get(FeedParser.STOPS_FILE), Stop.COLUMNS, FeedParser.STOP_REQUIRED_COLUMNS,
+						(row, binding, index, errors) -> FeedParser.parseStop(row, binding, errors)));
+				Future<List<Route>> routesFuture = executor.submit(() -> parseEntry(zipFile,
+						entries.get(FeedParser.ROUTES_FILE), Route.COLUMNS, FeedParser.ROUTE_REQUIRED_COLUMNS,
+						(row, binding, index, errors) -> FeedParser.parseRoute(row, binding, errors)));
+				Future<List<Trip>> tripsFuture = executor.submit(() -> parseEntry(zipFile,
+						entries.get(FeedParser.TRIPS_FILE), Trip.COLUMNS, FeedParser.TRIP_REQUIRED_COLUMNS,
+						(row, binding, index, errors) -> FeedParser.parseTrip(row, binding, errors)));
+
+				stops = get(stopsFuture);
+				routes = get(routesFuture);
+				trips = get(tripsFuture);
+				stopTimes = get(stopTimesFuture);
+				if (shapesFuture != null) {
+					shapes = get(shapesFuture);
+				}
+			} finally {
+				executor.shutdownNow();
+			}
+		}
+		return invalidHeaderFiles.isEmpty();
+	}
+
+	/**
+	 * Reads calendar.txt and calendar_dates.txt from the zip. Both are optional, and a feed
+	 * without either runs every service every day.
+	 * @return The calendar, or ServiceCalendar.EVERY_DAY if the zip has no calendar files
+	 * @throws IOException if the zip could not be read
+	 */
+	public ServiceCalendar importCalendar() throws IOException {
+		ServiceCalendar.Builder calendar = new ServiceCalendar.Builder();
+		try (ZipFile zipFile = new ZipFile(zip, StandardCharsets.UTF_8)) {
+			Map<String, ZipEntry> entries = entriesByFileName(zipFile);
+			ZipEntry calendarEntry = entries.get(FeedParser.CALENDAR_FILE);
+			if (calendarEntry != null) {
+				parseRows(zipFile, calendarEntry, ServiceCalendar.CALENDAR_COLUMNS, FeedParser.CALENDAR_REQUIRED_COLUMNS,
+						(row, binding, errors) -> FeedParser.parseCalendar(row, binding, calendar, errors));
+			}
+			ZipEntry datesEntry = entries.get(FeedParser.CALENDAR_DATES_FILE);
+			if (datesEntry != null) {
+				parseRows(zipFile, datesEntry, ServiceCalendar.CALENDAR_DATE_COLUMNS,
+						FeedParser.CALENDAR_DATE_REQUIRED_COLUMNS,
+						(row, binding, errors) -> FeedParser.parseCalendarDate(row, binding, calendar, errors));
+			}
+		} catch (UncheckedIOException uncheckedIOException) {
+			throw uncheckedIOException.getCause();
+		}
+		return calendar.build();
+	}
+
+	/**
+	 * The files of a zip by their names, wherever they are in the zip
+	 * @param zipFile The open zip
+	 * @return The entries by file name
+	 */
+	private static Map<String, ZipEntry> entriesByFileName(ZipFile zipFile) {
+		Map<String, ZipEntry> entries = new HashMap<>();
+		zipFile.stream().filter(entry -> !entry.isDirectory()).forEach(entry -> {
+			String name = entry.getName();
+			entries.putIfAbsent(name.substring(name.lastIndexOf('/') + 1), entry);
+		});
+		return entries;
+	}
+
+	/**
+	 * Streams one entry of the zip through its parser
+	 * @param zipFile The open zip
+	 * @param entry The entry
+	 * @param columns The COLUMNS of the GTFS object
+	 * @param requiredColumns The columns the file must have
+	 * @param parser Parses a row into a GTFS object
+	 * @return The valid objects in file order (empty if the header is not valid)
+	 */
+	private <T> List<T> parseEntry(ZipFile zipFile, ZipEntry entry, String[] columns, String[] requiredColumns,
+								   RowParser<T> parser) {
+		List<T> objects = new ArrayList<>();
+		parseRows(zipFile, entry, columns, requiredColumns, (row, binding, errors) -> {
+			T object = parser.parse(row, binding, objects.size(), errors);
+			if (object != null) {
+				objects.add(object);
+			}
+			return object != null;
+		});
+		return objects;
+	}
+
+	/**
+	 * Streams stop_times.txt straight into the columns of a StopTimeTable
+	 * @param zipFile The open zip
+	 * @param entry The stop_times.txt entry
+	 * @return The valid stop times in file order (empty if the header is not valid)
+	 */
+	private StopTimeTable parseStopTimes(ZipFile zipFile, ZipEntry entry) {
+		StopTimeTable table = new StopTimeTable();
+		parseRows(zipFile, entry, StopTime.COLUMNS, FeedParser.STOP_TIME_REQUIRED_COLUMNS,
+				(row, binding, errors) -> FeedParser.parseStopTime(row, binding, table, errors));
+		table.trimToSize();
+		return table;
+	}
+
+	/**
+	 * Streams shapes.txt into an encoded ShapeTable
+	 * @param zipFile The open zip
+	 * @param entry The shapes.txt entry
+	 * @return The shapes (empty if the header is not valid)
+	 */
+	private ShapeTable parseShapes(ZipFile zipFile, ZipEntry entry) {
+		ShapeTable.Builder builder = new ShapeTable.Builder();
+		parseRows(zipFile, entry, ShapeTable.COLUMNS, FeedParser.SHAPE_REQUIRED_COLUMNS,
+				(row, binding, errors) -> FeedParser.parseShapePoint(row, binding, builder, errors));
+		return builder.build();
+	}
+
+	/**
+	 * Streams one entry of the zip, checking its header and passing each row to a consumer
+	 * @param zipFile The open zip
+	 * @param entry The entry
+	 * @param columns The COLUMNS of the GTFS object
+	 * @param requiredColumns The columns the file must have
+	 * @param consumer Parses and keeps a row, returning false if it was not valid
+	 */
+	private void parseRows(ZipFile zipFile, ZipEntry entry, String[] columns, String[] requiredColumns,
+						   RowConsumer consumer) {
+		String fileName = entry.getName().substring(entry.getName().lastIndexOf('/') + 1);
+		try (Reader in = new InputStreamReader(progress.count(zipFile.getInputStream(entry)), StandardCharsets.UTF_8)) {
+			CsvTokenizer rows = new CsvTokenizer(in);
+			ColumnBinding binding = rows.nextRow() ?
+					ColumnBinding.compile(columns, rows.getFields(), requiredColumns) : null;
+			if (binding == null) {
+				invalidHeaderFiles.add(fileName);
+				errorLog.record(fileName, 1, "", ValidationErrorLog.ErrorType.INVALID_HEADER);
+				return;
+			}
+			ValidationErrorLog.RowErrors errors = errorLog.forFile(fileName);
+			int invalid = 0;
+			int unreported = 0;
+			while (rows.nextRow()) {
+				if (!consumer.accept(rows, binding, errors)) {
+					++invalid;
+				}
+				if (++unreported == ImportProgress.REPORT_INTERVAL) {
+					progress.rowsParsed(unreported);
+					unreported = 0;
+				}
+			}
+			progress.rowsParsed(unreported);
+			invalidRowCounts.put(fileName, invalid);
+		} catch (IOException ioException) {
+			throw new UncheckedIOException(ioException);
+		}
+	}
+
+	private static <T> T get(Future<T> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException interruptedException) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Import was interrupted", interruptedException);
+		} catch (ExecutionException executionException) {
+			Throwable cause = executionException.getCause();
+			if (cause instanceof UncheckedIOException) {
+				throw ((UncheckedIOException) cause).getCause();
+			}
+			if (cause instanceof CancellationException) {
+				throw (CancellationException) cause;
+			}
+			throw new IOException(cause.getMessage(), cause);
+		}
+	}
+
+	public List<Stop> getStops() {
+		return stops;
+	}
+
+	public List<Route> getRoutes() {
+		return routes;
+	}
+
+	public List<Trip> getTrips() {
+		return trips;
+	}
+
+	public StopTimeTable getStopTimes() {
+		return stopTimes;
+	}
+
+	public ShapeTable getShapes() {
+		return shapes;
+	}
+
+	/**
+	 * The number of rows of a file that were skipped because they were not valid
+	 * @param fileName The GTFS file name (such as stops.txt)
+	 * @return The number of invalid rows
+	 */
+	public int getInvalidRowCount(String fileName) {
+		return invalidRowCounts.getOrDefault(fileName, 0);
+	}
+
+	/**
+	 * The files whose header was missing a required column
+	 * @return The file names
+	 */
+	public List<String> getInvalidHeaderFiles() {
+		return invalidHeaderFiles;
+	}
+
+	/**
+	 * The GTFS files that were not in the zip
+	 * @return The file names
+	 */
+	public List<String> getMissingFiles() {
+		return missingFiles;
+	}
+
+}	//end class ZipFeedImporter